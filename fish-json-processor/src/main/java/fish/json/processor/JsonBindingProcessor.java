@@ -0,0 +1,387 @@
+package fish.json.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Generates a {@code GeneratedAdapter} subclass for every type annotated with
+ * {@code @JsonBinding}, plus one {@code JsonAdapterIndex} factory per package
+ * that {@code GsonBuilder} picks up through {@code ServiceLoader}.
+ */
+@SupportedAnnotationTypes(JsonBindingProcessor.ANNOTATION)
+public class JsonBindingProcessor extends AbstractProcessor {
+
+	static final String ANNOTATION = "fish.json.annotation.JsonBinding";
+	static final String INDEX_NAME = "JsonAdapterIndex";
+	static final String SERVICE_FILE = "META-INF/services/fish.json.adapter.TypeAdapterFactory";
+
+	/** package name -> annotated types that got an adapter */
+	private final Map<String, List<TypeElement>> bound = new LinkedHashMap<String, List<TypeElement>>();
+	private boolean indexWritten;
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		for (TypeElement annotation : annotations) {
+			for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+				if (element.getKind() != ElementKind.CLASS) {
+					error(element, "@JsonBinding only applies to classes");
+					continue;
+				}
+				TypeElement type = (TypeElement) element;
+				List<VariableElement> fields = boundFields(type);
+				if (fields == null || !checkConstructor(type)) {
+					continue;
+				}
+				try {
+					writeAdapter(type, fields);
+				} catch (IOException e) {
+					error(type, "Unable to write adapter: " + e.getMessage());
+					continue;
+				}
+				String packageName = packageOf(type).getQualifiedName().toString();
+				List<TypeElement> types = bound.get(packageName);
+				if (types == null) {
+					types = new ArrayList<TypeElement>();
+					bound.put(packageName, types);
+				}
+				types.add(type);
+			}
+		}
+		// the adapters written above trigger another round; the index is
+		// written there so it is still compiled as a regular source
+		if (annotations.isEmpty() && !bound.isEmpty() && !indexWritten) {
+			indexWritten = true;
+			try {
+				writeIndexes();
+			} catch (IOException e) {
+				processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+						"Unable to write adapter index: " + e.getMessage());
+			}
+		}
+		return true;
+	}
+
+	private List<VariableElement> boundFields(TypeElement type) {
+		if (type.getModifiers().contains(Modifier.ABSTRACT)
+				|| (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC))) {
+			error(type, "@JsonBinding types must be concrete top-level or static nested classes");
+			return null;
+		}
+		for (Element e = type; e instanceof TypeElement; e = e.getEnclosingElement()) {
+			if (e.getModifiers().contains(Modifier.PRIVATE)) {
+				error(type, "@JsonBinding types must not be private or nested in a private class");
+				return null;
+			}
+		}
+		PackageElement typePackage = packageOf(type);
+		List<VariableElement> result = new ArrayList<VariableElement>();
+		Set<String> names = new HashSet<String>();
+		boolean valid = true;
+		for (TypeElement c = type; c != null; c = superclassOf(c)) {
+			for (Element member : c.getEnclosedElements()) {
+				if (member.getKind() != ElementKind.FIELD) {
+					continue;
+				}
+				Set<Modifier> modifiers = member.getModifiers();
+				if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)
+						|| !names.add(member.getSimpleName().toString())) {
+					continue;
+				}
+				boolean visible = !modifiers.contains(Modifier.PRIVATE)
+						&& (modifiers.contains(Modifier.PUBLIC) || packageOf(c).equals(typePackage));
+				if (!visible || modifiers.contains(Modifier.FINAL)) {
+					error(member, "Field bound by @JsonBinding must not be private or final, and must be visible from "
+							+ typePackage.getQualifiedName());
+					valid = false;
+				} else if (member.asType().getKind() == TypeKind.TYPEVAR) {
+					error(member, "Type variables cannot be bound by @JsonBinding");
+					valid = false;
+				}
+				result.add((VariableElement) member);
+			}
+		}
+		return valid ? result : null;
+	}
+
+	private boolean checkConstructor(TypeElement type) {
+		for (Element member : type.getEnclosedElements()) {
+			if (member.getKind() == ElementKind.CONSTRUCTOR
+					&& ((ExecutableElement) member).getParameters().isEmpty()
+					&& !member.getModifiers().contains(Modifier.PRIVATE)) {
+				return true;
+			}
+		}
+		error(type, "@JsonBinding types need a non-private no-arg constructor");
+		return false;
+	}
+
+	private TypeElement superclassOf(TypeElement type) {
+		TypeMirror superclass = type.getSuperclass();
+		if (superclass.getKind() != TypeKind.DECLARED) {
+			return null;
+		}
+		TypeElement element = (TypeElement) ((DeclaredType) superclass).asElement();
+		return element.getQualifiedName().contentEquals("java.lang.Object") ? null : element;
+	}
+
+	private PackageElement packageOf(Element element) {
+		return processingEnv.getElementUtils().getPackageOf(element);
+	}
+
+	private String adapterName(TypeElement type) {
+		String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+		return binaryName.substring(binaryName.lastIndexOf('.') + 1) + "$$JsonAdapter";
+	}
+
+	private void writeAdapter(TypeElement type, List<VariableElement> fields) throws IOException {
+		String packageName = packageOf(type).getQualifiedName().toString();
+		String adapterName = adapterName(type);
+		String typeName = type.getQualifiedName().toString();
+
+		StringBuilder names = new StringBuilder();
+		StringBuilder adapters = new StringBuilder();
+		StringBuilder writes = new StringBuilder();
+		StringBuilder reads = new StringBuilder();
+		for (int i = 0; i < fields.size(); i++) {
+			VariableElement field = fields.get(i);
+			String name = field.getSimpleName().toString();
+			TypeMirror fieldType = field.asType();
+			if (i > 0) {
+				names.append(", ");
+				adapters.append(", ");
+			}
+			names.append('"').append(name).append('"');
+			reads.append("\t\tcase ").append(i).append(":\n");
+			if (fieldType.getKind().isPrimitive()) {
+				adapters.append("null");
+				appendPrimitive(writes, reads, fieldType.getKind(), name, i);
+			} else {
+				String raw = processingEnv.getTypeUtils().erasure(fieldType).toString();
+				boolean runtime = fieldType.getKind() == TypeKind.DECLARED
+						&& !((DeclaredType) fieldType).asElement().getModifiers().contains(Modifier.FINAL);
+				if (runtime) {
+					adapters.append("runtime(gson, ").append(raw).append(".class, ");
+				}
+				if (isParameterized(fieldType) && !mentionsTypeVariable(fieldType)) {
+					adapters.append("gson.getAdapter(").append(tokenExpression(fieldType)).append(')');
+				} else {
+					adapters.append("gson.getAdapter(").append(raw).append(".class)");
+				}
+				if (runtime) {
+					adapters.append(')');
+				}
+				writes.append("\t\twriteValue(writer, ").append(i).append(", value.").append(name).append(");\n");
+				reads.append("\t\t\tvalue.").append(name).append(" = (").append(raw)
+						.append(") readValue(").append(i).append(", in);\n");
+			}
+			reads.append("\t\t\treturn;\n");
+		}
+
+		FileObject file = processingEnv.getFiler().createSourceFile(
+				packageName.isEmpty() ? adapterName : packageName + "." + adapterName, type);
+		Writer out = file.openWriter();
+		try {
+			if (!packageName.isEmpty()) {
+				out.write("package " + packageName + ";\n\n");
+			}
+			out.write("import fish.json.adapter.GeneratedAdapter;\n"
+					+ "import fish.json.adapter.TypeAdapter;\n"
+					+ "import fish.json.base.Gson;\n"
+					+ "import fish.json.stream.JsonReader;\n"
+					+ "import fish.json.stream.JsonWriter;\n\n");
+			out.write("/** Generated by fish-json-processor for {@link " + typeName + "}. */\n");
+			out.write("public final class " + adapterName + " extends GeneratedAdapter {\n\n");
+			out.write("\tpublic " + adapterName + "(Gson gson) {\n"
+					+ "\t\tsuper(gson, new String[] { " + names + " },\n"
+					+ "\t\t\t\tnew TypeAdapter<?>[] { " + adapters + " });\n"
+					+ "\t}\n\n");
+			out.write("\t@Override\n\tprotected Object newInstance() {\n"
+					+ "\t\treturn new " + typeName + "();\n\t}\n\n");
+			out.write("\t@Override\n\tprotected void writeFields(JsonWriter writer, Object src) {\n"
+					+ "\t\t" + typeName + " value = (" + typeName + ") src;\n"
+					+ writes + "\t}\n\n");
+			out.write("\t@SuppressWarnings({ \"unchecked\", \"rawtypes\" })\n"
+					+ "\t@Override\n\tprotected void readField(Object instance, int index, JsonReader in) {\n"
+					+ "\t\t" + typeName + " value = (" + typeName + ") instance;\n"
+					+ "\t\tswitch (index) {\n" + reads
+					+ "\t\tdefault:\n\t\t\tin.skipValue();\n\t\t}\n\t}\n");
+			out.write("}\n");
+		} finally {
+			out.close();
+		}
+	}
+
+	private void appendPrimitive(StringBuilder writes, StringBuilder reads, TypeKind kind, String name, int index) {
+		if (kind == TypeKind.CHAR) {
+			writes.append("\t\twriteChar(writer, ").append(index).append(", value.").append(name).append(");\n");
+			reads.append("\t\t\tvalue.").append(name).append(" = readChar(in);\n");
+			return;
+		}
+		writes.append("\t\tname(writer, ").append(index).append(").value(value.").append(name).append(");\n");
+		String read;
+		switch (kind) {
+		case BOOLEAN:
+			read = "in.nextBoolean()";
+			break;
+		case LONG:
+			read = "in.nextLong()";
+			break;
+		case DOUBLE:
+			read = "in.nextDouble()";
+			break;
+		case FLOAT:
+			read = "(float) in.nextDouble()";
+			break;
+		case BYTE:
+			read = "in.nextByte()";
+			break;
+		case SHORT:
+			read = "in.nextShort()";
+			break;
+		default:
+			read = "in.nextInt()";
+		}
+		reads.append("\t\t\tvalue.").append(name).append(" = ").append(read).append(";\n");
+	}
+
+	private void writeIndexes() throws IOException {
+		StringBuilder services = new StringBuilder();
+		for (Map.Entry<String, List<TypeElement>> entry : bound.entrySet()) {
+			String packageName = entry.getKey();
+			String indexName = packageName.isEmpty() ? INDEX_NAME : packageName + "." + INDEX_NAME;
+			List<TypeElement> types = entry.getValue();
+			FileObject file = processingEnv.getFiler().createSourceFile(indexName,
+					types.toArray(new Element[types.size()]));
+			Writer out = file.openWriter();
+			try {
+				if (!packageName.isEmpty()) {
+					out.write("package " + packageName + ";\n\n");
+				}
+				out.write("import fish.json.adapter.TypeAdapter;\n"
+						+ "import fish.json.adapter.TypeAdapterFactory;\n"
+						+ "import fish.json.base.Gson;\n\n");
+				out.write("/** Generated by fish-json-processor. */\n");
+				out.write("public final class " + INDEX_NAME + " implements TypeAdapterFactory {\n\n");
+				out.write("\t@SuppressWarnings(\"unchecked\")\n\t@Override\n"
+						+ "\tpublic <T> TypeAdapter<T> create(Gson gson, Class<?> type) {\n");
+				for (TypeElement type : types) {
+					out.write("\t\tif (type == " + type.getQualifiedName() + ".class) {\n"
+							+ "\t\t\treturn (TypeAdapter<T>) new " + adapterName(type) + "(gson);\n"
+							+ "\t\t}\n");
+				}
+				out.write("\t\treturn null;\n\t}\n}\n");
+			} finally {
+				out.close();
+			}
+			services.append(indexName).append('\n');
+		}
+		FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+				SERVICE_FILE);
+		Writer out = file.openWriter();
+		try {
+			out.write(services.toString());
+		} finally {
+			out.close();
+		}
+	}
+
+	private static boolean isParameterized(TypeMirror type) {
+		if (type.getKind() == TypeKind.ARRAY) {
+			return isParameterized(((ArrayType) type).getComponentType());
+		}
+		return type.getKind() == TypeKind.DECLARED
+				&& !((DeclaredType) type).getTypeArguments().isEmpty();
+	}
+
+	/**
+	 * A source expression for the TypeToken of the parameterized {@code type},
+	 * or of an array of one. Built from {@code TypeToken.getParameterized} and
+	 * {@code TypeToken.getArray}, so the generated adapter declares no
+	 * anonymous TypeToken subclass per field.
+	 */
+	private String tokenExpression(TypeMirror type) {
+		if (type.getKind() == TypeKind.ARRAY) {
+			return "fish.json.util.TypeToken.getArray("
+					+ typeExpression(((ArrayType) type).getComponentType()) + ")";
+		}
+		StringBuilder expression = new StringBuilder("fish.json.util.TypeToken.getParameterized(")
+				.append(processingEnv.getTypeUtils().erasure(type)).append(".class");
+		for (TypeMirror argument : ((DeclaredType) type).getTypeArguments()) {
+			expression.append(", ").append(typeExpression(argument));
+		}
+		return expression.append(')').toString();
+	}
+
+	/** A source expression for the {@code java.lang.reflect.Type} of {@code type}. */
+	private String typeExpression(TypeMirror type) {
+		if (type.getKind() == TypeKind.WILDCARD) {
+			WildcardType wildcard = (WildcardType) type;
+			if (wildcard.getSuperBound() != null) {
+				return "fish.json.util.$Gson$Types.supertypeOf(" + typeExpression(wildcard.getSuperBound()) + ")";
+			}
+			return "fish.json.util.$Gson$Types.subtypeOf(" + (wildcard.getExtendsBound() == null ? "Object.class"
+					: typeExpression(wildcard.getExtendsBound())) + ")";
+		} else if (isParameterized(type)) {
+			return tokenExpression(type) + ".getType()";
+		}
+		return processingEnv.getTypeUtils().erasure(type) + ".class";
+	}
+
+	private static boolean mentionsTypeVariable(TypeMirror type) {
+		switch (type.getKind()) {
+		case TYPEVAR:
+			return true;
+		case ARRAY:
+			return mentionsTypeVariable(((ArrayType) type).getComponentType());
+		case WILDCARD:
+			WildcardType wildcard = (WildcardType) type;
+			return (wildcard.getExtendsBound() != null && mentionsTypeVariable(wildcard.getExtendsBound()))
+					|| (wildcard.getSuperBound() != null && mentionsTypeVariable(wildcard.getSuperBound()));
+		case DECLARED:
+			for (TypeMirror argument : ((DeclaredType) type).getTypeArguments()) {
+				if (mentionsTypeVariable(argument)) {
+					return true;
+				}
+			}
+			return false;
+		default:
+			return false;
+		}
+	}
+
+	private void error(Element element, String message) {
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+	}
+}
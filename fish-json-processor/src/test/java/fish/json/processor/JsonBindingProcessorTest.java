@@ -0,0 +1,286 @@
+package fish.json.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fish.json.annotation.JsonBinding;
+import fish.json.base.Gson;
+import fish.json.base.GsonBuilder;
+import fish.json.stream.JsonException;
+
+public class JsonBindingProcessorTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+	private Path classes;
+	private Path generated;
+
+	private boolean compile(String... namesAndSources) throws IOException {
+		Path sources = folder.newFolder("src").toPath();
+		classes = folder.newFolder("classes").toPath();
+		generated = folder.newFolder("generated").toPath();
+		List<File> files = new ArrayList<File>();
+		for (int i = 0; i < namesAndSources.length; i += 2) {
+			Path file = sources.resolve(namesAndSources[i]);
+			Files.createDirectories(file.getParent());
+			Files.write(file, namesAndSources[i + 1].getBytes(StandardCharsets.UTF_8));
+			files.add(file.toFile());
+		}
+		String classpath = location(JsonBinding.class) + File.pathSeparator + location(JsonBindingProcessor.class);
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+		try {
+			List<String> options = Arrays.asList("-classpath", classpath, "-processor",
+					JsonBindingProcessor.class.getName(), "-d", classes.toString(), "-s", generated.toString());
+			return compiler.getTask(null, fileManager, diagnostics, options, null,
+					fileManager.getJavaFileObjectsFromFiles(files)).call();
+		} finally {
+			fileManager.close();
+		}
+	}
+
+	private static String location(Class<?> type) {
+		try {
+			return new File(type.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+		} catch (Exception e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	private String errors() {
+		StringBuilder result = new StringBuilder();
+		for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+			if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+				result.append(diagnostic.getMessage(null)).append('\n');
+			}
+		}
+		return result.toString();
+	}
+
+	/** Binds {@code json} through the generated adapter of the compiled {@code typeName}. */
+	private Object fromJson(String typeName, String json) throws Exception {
+		ClassLoader previous = Thread.currentThread().getContextClassLoader();
+		URLClassLoader loader = new URLClassLoader(new URL[] { classes.toUri().toURL() },
+				getClass().getClassLoader());
+		try {
+			Thread.currentThread().setContextClassLoader(loader);
+			Gson gson = new GsonBuilder().create();
+			Class<?> type = loader.loadClass(typeName);
+			assertEquals(typeName + "$$JsonAdapter", gson.getAdapter(type).getClass().getName());
+			return gson.fromJson(json, type);
+		} finally {
+			Thread.currentThread().setContextClassLoader(previous);
+			loader.close();
+		}
+	}
+
+	private String generatedSource(String path) throws IOException {
+		return new String(Files.readAllBytes(generated.resolve(path)), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void generatesAdapterThatRoundTrips() throws Exception {
+		assertTrue(errors(), compile("demo/Point.java",
+				"package demo;\n"
+				+ "@fish.json.annotation.JsonBinding\n"
+				+ "public class Point {\n"
+				+ "\tpublic int x;\n"
+				+ "\tpublic double y;\n"
+				+ "\tpublic char c;\n"
+				+ "\tpublic String name;\n"
+				+ "\tpublic java.util.List<String> tags;\n"
+				+ "}\n"));
+		assertTrue(Files.exists(generated.resolve("demo/Point$$JsonAdapter.java")));
+		assertTrue(Files.exists(generated.resolve("demo/JsonAdapterIndex.java")));
+		assertTrue(Files.exists(classes.resolve("META-INF/services/fish.json.adapter.TypeAdapterFactory")));
+
+		ClassLoader previous = Thread.currentThread().getContextClassLoader();
+		URLClassLoader loader = new URLClassLoader(new URL[] { classes.toUri().toURL() },
+				getClass().getClassLoader());
+		try {
+			Thread.currentThread().setContextClassLoader(loader);
+			Gson gson = new GsonBuilder().create();
+			Class<?> type = loader.loadClass("demo.Point");
+			assertEquals("demo.Point$$JsonAdapter", gson.getAdapter(type).getClass().getName());
+			String json = "{\"x\":1,\"y\":2.5,\"c\":\"z\",\"name\":\"p\",\"tags\":[\"a\",\"b\"]}";
+			Object point = gson.fromJson(json, type);
+			assertEquals(json, gson.toJson(point));
+		} finally {
+			Thread.currentThread().setContextClassLoader(previous);
+			loader.close();
+		}
+	}
+
+	@Test
+	public void dispatchesNonFinalFieldsOnTheirRuntimeClass() throws Exception {
+		assertTrue(errors(), compile("demo/Drawing.java",
+				"package demo;\n"
+				+ "@fish.json.annotation.JsonBinding\n"
+				+ "public class Drawing {\n"
+				+ "\tpublic Number number;\n"
+				+ "\tpublic String title;\n"
+				+ "\tpublic java.util.List<Number> numbers;\n"
+				+ "}\n"));
+		String source = generatedSource("demo/Drawing$$JsonAdapter.java");
+		assertTrue(source, source.contains("runtime(gson, java.lang.Number.class, gson.getAdapter(java.lang.Number.class))"));
+		assertTrue(source, source.contains("runtime(gson, java.util.List.class, "));
+		assertFalse(source, source.contains("runtime(gson, java.lang.String.class"));
+	}
+
+	@Test
+	public void buildsParameterizedTypesWithoutAnonymousTokens() throws Exception {
+		assertTrue(errors(), compile("demo/Ledger.java",
+				"package demo;\n"
+				+ "@fish.json.annotation.JsonBinding\n"
+				+ "public class Ledger {\n"
+				+ "\tpublic java.util.Map<String, java.util.List<Integer>> entries;\n"
+				+ "\tpublic java.util.List<? extends Number> amounts;\n"
+				+ "\tpublic java.util.List<String>[] pages;\n"
+				+ "}\n"));
+		String source = generatedSource("demo/Ledger$$JsonAdapter.java");
+		assertFalse(source, source.contains("new fish.json.util.TypeToken<"));
+		assertTrue(source, source.contains("fish.json.util.TypeToken.getParameterized(java.util.Map.class, "
+				+ "java.lang.String.class, fish.json.util.TypeToken.getParameterized(java.util.List.class, "
+				+ "java.lang.Integer.class).getType())"));
+		assertTrue(source, source.contains("fish.json.util.$Gson$Types.subtypeOf(java.lang.Number.class)"));
+		assertTrue(source, source.contains("fish.json.util.TypeToken.getArray("));
+		assertFalse(Files.exists(classes.resolve("demo/Ledger$$JsonAdapter$1.class")));
+
+		String json = "{\"entries\":{\"a\":[1,2]},\"amounts\":[1.5],\"pages\":[[\"p\"]]}";
+		Object ledger = fromJson("demo.Ledger", json);
+		Map<?, ?> entries = (Map<?, ?>) ledger.getClass().getField("entries").get(ledger);
+		assertEquals(Arrays.asList(1, 2), entries.get("a"));
+		List<?>[] pages = (List<?>[]) ledger.getClass().getField("pages").get(ledger);
+		assertEquals(Arrays.asList("p"), pages[0]);
+	}
+
+	@Test
+	public void rejectsPrivateNestedType() throws Exception {
+		assertFalse(compile("demo/Outer.java",
+				"package demo;\n"
+				+ "public class Outer {\n"
+				+ "\t@fish.json.annotation.JsonBinding\n"
+				+ "\tprivate static class Hidden {\n"
+				+ "\t\tint x;\n"
+				+ "\t}\n"
+				+ "}\n"));
+		assertTrue(errors(), errors().contains("must not be private or nested in a private class"));
+	}
+
+	@Test
+	public void rejectsTypeInsidePrivateEnclosingType() throws Exception {
+		assertFalse(compile("demo/Outer.java",
+				"package demo;\n"
+				+ "public class Outer {\n"
+				+ "\tprivate static class Middle {\n"
+				+ "\t\t@fish.json.annotation.JsonBinding\n"
+				+ "\t\tstatic class Inner {\n"
+				+ "\t\t\tint x;\n"
+				+ "\t\t}\n"
+				+ "\t}\n"
+				+ "}\n"));
+		assertTrue(errors(), errors().contains("must not be private or nested in a private class"));
+	}
+
+	@Test
+	public void rejectsPrivateAndFinalFields() throws Exception {
+		assertFalse(compile("demo/Fields.java",
+				"package demo;\n"
+				+ "@fish.json.annotation.JsonBinding\n"
+				+ "public class Fields {\n"
+				+ "\tprivate int hidden;\n"
+				+ "\tfinal int fixed = 1;\n"
+				+ "}\n"));
+		String errors = errors();
+		assertEquals(errors, 2, errors.split("must not be private or final").length - 1);
+	}
+
+	@Test
+	public void rejectsTypeWithoutNoArgConstructor() throws Exception {
+		assertFalse(compile("demo/Value.java",
+				"package demo;\n"
+				+ "@fish.json.annotation.JsonBinding\n"
+				+ "public class Value {\n"
+				+ "\tint x;\n"
+				+ "\tpublic Value(int x) {\n"
+				+ "\t\tthis.x = x;\n"
+				+ "\t}\n"
+				+ "}\n"));
+		assertTrue(errors(), errors().contains("need a non-private no-arg constructor"));
+	}
+
+	@Test
+	public void rejectsShortAndByteOutOfRange() throws Exception {
+		assertTrue(errors(), compile("demo/Small.java",
+				"package demo;\n"
+				+ "@fish.json.annotation.JsonBinding\n"
+				+ "public class Small {\n"
+				+ "\tpublic short s;\n"
+				+ "\tpublic byte b;\n"
+				+ "}\n"));
+		Object small = fromJson("demo.Small", "{\"s\":-32768,\"b\":127}");
+		assertEquals(Short.MIN_VALUE, small.getClass().getField("s").get(small));
+		assertEquals(Byte.MAX_VALUE, small.getClass().getField("b").get(small));
+		try {
+			fromJson("demo.Small", "{\"s\":70000,\"b\":300}");
+			fail();
+		} catch (JsonException e) {
+			assertEquals("Lossy conversion from 70000 to short at path $.s", e.getMessage());
+		}
+		try {
+			fromJson("demo.Small", "{\"b\":300}");
+			fail();
+		} catch (JsonException e) {
+			assertEquals("Lossy conversion from 300 to byte at path $.b", e.getMessage());
+		}
+	}
+
+	@Test
+	public void nullLeavesPrimitiveFieldsUntouched() throws Exception {
+		assertTrue(errors(), compile("demo/Defaults.java",
+				"package demo;\n"
+				+ "@fish.json.annotation.JsonBinding\n"
+				+ "public class Defaults {\n"
+				+ "\tpublic int x = 7;\n"
+				+ "\tpublic char c = 'a';\n"
+				+ "\tpublic String s = \"s\";\n"
+				+ "}\n"));
+		Object back = fromJson("demo.Defaults", "{\"x\":null,\"c\":null,\"s\":null}");
+		assertEquals(7, back.getClass().getField("x").get(back));
+		assertEquals('a', back.getClass().getField("c").get(back));
+		assertEquals(null, back.getClass().getField("s").get(back));
+		try {
+			fromJson("demo.Defaults", "{\"c\":\"ab\"}");
+			fail();
+		} catch (JsonException e) {
+			assertEquals("Expected a char but was ab", e.getMessage());
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package fish.json.adapter;
 
 import java.lang.reflect.Array;
+import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -8,31 +9,66 @@ import fish.json.base.Gson;
 import fish.json.stream.JsonReader;
 import fish.json.stream.JsonToken;
 import fish.json.stream.JsonWriter;
+import fish.json.util.$Gson$Types;
+import fish.json.util.TypeToken;
 
 public class ArrayAdapter extends TypeAdapter<Object> {
 
-	private Gson gson;
-	private TypeAdapter<?> componentTypeAdapter;
+	public static final TypeAdapterFactory FACTORY = new TypeAdapterFactory() {
+		@SuppressWarnings("unchecked")
+		@Override
+		public <T> TypeAdapter<T> create(Gson gson, Class<?> type) {
+			return create(gson, (TypeToken<T>) TypeToken.get(type));
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+			if (!type.getRawType().isArray()) {
+				return null;
+			}
+			Type componentType = $Gson$Types.getArrayComponentType(type.getType());
+			return (TypeAdapter<T>) new ArrayAdapter(gson, $Gson$Types.getRawType(componentType),
+					gson.getAdapter(TypeToken.get(componentType)));
+		}
+	};
+
+	private TypeAdapter<Object> componentTypeAdapter;
 	private Class<?> componentType;
 
+	public ArrayAdapter(Gson gson, Class<?> componentType,
+			TypeAdapter<?> componentTypeAdapter) {
+		this.componentType = componentType;
+		this.componentTypeAdapter = RuntimeClassAdapter.wrap(gson, componentType, componentTypeAdapter);
+	}
+
 	@Override
 	public void write(JsonWriter writer, Object src) {
 		if (src == null) {
 			writer.nullValue();
 			return;
 		}
-		if ("[".equals(src.getClass().getName().charAt(0))) {
-			writer.beginArray();
-			for (int i = 0; i < Array.getLength(src); i++) {
-				Object o = Array.get(src, i);
-				gson.toJson(o, o.getClass(), writer);
+		if (!src.getClass().isArray()) {
+			throw new IllegalStateException();
+		}
+		TypeAdapter<Object> adapter = componentTypeAdapter;
+		writer.beginArray();
+		if (componentType.isPrimitive()) {
+			for (int i = 0, length = Array.getLength(src); i < length; i++) {
+				adapter.write(writer, Array.get(src, i));
+			}
+		} else {
+			for (Object o : (Object[]) src) {
+				if (o == null) {
+					writer.nullValue();
+				} else {
+					adapter.write(writer, o);
+				}
 			}
-			writer.endArray();
 		}
-		throw new IllegalStateException();
+		writer.endArray();
 	}
 
-	@SuppressWarnings({ "rawtypes", "unchecked" })
 	@Override
 	public Object read(JsonReader in) {
 		if (in.peek() == JsonToken.NULL) {
@@ -40,16 +76,18 @@ public class ArrayAdapter extends TypeAdapter<Object> {
 			return null;
 		}
 
-		List list = new ArrayList();
+		List<Object> list = new ArrayList<Object>();
 		in.beginArray();
 		while (in.hasNext()) {
-			Object instance = componentTypeAdapter.read(in);
-			list.add(instance);
+			list.add(componentTypeAdapter.read(in));
 		}
 		in.endArray();
 
 		int size = list.size();
 		Object array = Array.newInstance(componentType, size);
+		if (!componentType.isPrimitive()) {
+			return list.toArray((Object[]) array);
+		}
 		for (int i = 0; i < size; i++) {
 			Array.set(array, i, list.get(i));
 		}
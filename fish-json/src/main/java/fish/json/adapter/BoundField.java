@@ -0,0 +1,282 @@
+package fish.json.adapter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import fish.json.stream.JsonException;
+import fish.json.stream.JsonReader;
+import fish.json.stream.JsonToken;
+import fish.json.stream.JsonWriter;
+import fish.json.stream.PreparedName;
+import fish.json.util.$Gson$Types;
+
+/**
+ * Reflective metadata for one bound field, resolved once per class: the JSON
+ * name and method handles to read and write the field. Primitive fields keep
+ * handles of their exact primitive type so they are never boxed.
+ */
+final class BoundField {
+
+	static final int KIND_OBJECT = 0;
+	static final int KIND_INT = 1;
+	static final int KIND_LONG = 2;
+	static final int KIND_DOUBLE = 3;
+	static final int KIND_FLOAT = 4;
+	static final int KIND_BOOLEAN = 5;
+	static final int KIND_SHORT = 6;
+	static final int KIND_BYTE = 7;
+	static final int KIND_CHAR = 8;
+
+	final String name;
+	final PreparedName preparedName;
+	final Class<?> type;
+	/** The declared type, possibly generic; see {@link #resolveType}. */
+	final Type genericType;
+	final int kind;
+	private final MethodHandle getter;
+	/** Null for record components, which are only set through the constructor. */
+	private final MethodHandle setter;
+
+	private BoundField(String name, Class<?> type, Type genericType, MethodHandle getter,
+			MethodHandle setter) {
+		this.name = name;
+		this.preparedName = new PreparedName(name);
+		this.type = type;
+		this.genericType = genericType;
+		this.kind = kindOf(type);
+		Class<?> slot = kind == KIND_OBJECT ? Object.class : type;
+		this.getter = getter.asType(MethodType.methodType(slot, Object.class));
+		this.setter = setter == null ? null
+				: setter.asType(MethodType.methodType(void.class, Object.class, slot));
+	}
+
+	private static int kindOf(Class<?> type) {
+		if (type == int.class) {
+			return KIND_INT;
+		} else if (type == long.class) {
+			return KIND_LONG;
+		} else if (type == double.class) {
+			return KIND_DOUBLE;
+		} else if (type == float.class) {
+			return KIND_FLOAT;
+		} else if (type == boolean.class) {
+			return KIND_BOOLEAN;
+		} else if (type == short.class) {
+			return KIND_SHORT;
+		} else if (type == byte.class) {
+			return KIND_BYTE;
+		} else if (type == char.class) {
+			return KIND_CHAR;
+		}
+		return KIND_OBJECT;
+	}
+
+	/**
+	 * The type of this field as seen from {@code owner}, which is the class
+	 * that declares it or a subclass, possibly parameterized.
+	 */
+	Type resolveType(Type owner) {
+		return $Gson$Types.resolve(owner, $Gson$Types.getRawType(owner), genericType);
+	}
+
+	/** Writes the value of a primitive field; the name is already written. */
+	void writePrimitive(JsonWriter writer, Object instance) {
+		try {
+			switch (kind) {
+			case KIND_INT:
+				writer.value((int) getter.invokeExact(instance));
+				break;
+			case KIND_LONG:
+				writer.value((long) getter.invokeExact(instance));
+				break;
+			case KIND_DOUBLE:
+				writer.value((double) getter.invokeExact(instance));
+				break;
+			case KIND_FLOAT:
+				writer.value((float) getter.invokeExact(instance));
+				break;
+			case KIND_BOOLEAN:
+				writer.value((boolean) getter.invokeExact(instance));
+				break;
+			case KIND_SHORT:
+				writer.value((short) getter.invokeExact(instance));
+				break;
+			case KIND_BYTE:
+				writer.value((byte) getter.invokeExact(instance));
+				break;
+			case KIND_CHAR:
+				writer.value(String.valueOf((char) getter.invokeExact(instance)));
+				break;
+			default:
+				throw new AssertionError();
+			}
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new JsonException(e);
+		}
+	}
+
+	/**
+	 * Reads the next value straight into a primitive field. A JSON null leaves
+	 * the field untouched.
+	 */
+	void readPrimitive(JsonReader in, Object instance) {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return;
+		}
+		try {
+			switch (kind) {
+			case KIND_INT:
+				setter.invokeExact(instance, in.nextInt());
+				break;
+			case KIND_LONG:
+				setter.invokeExact(instance, in.nextLong());
+				break;
+			case KIND_DOUBLE:
+				setter.invokeExact(instance, in.nextDouble());
+				break;
+			case KIND_FLOAT:
+				setter.invokeExact(instance, (float) in.nextDouble());
+				break;
+			case KIND_BOOLEAN:
+				setter.invokeExact(instance, in.nextBoolean());
+				break;
+			case KIND_SHORT:
+				setter.invokeExact(instance, in.nextShort());
+				break;
+			case KIND_BYTE:
+				setter.invokeExact(instance, in.nextByte());
+				break;
+			case KIND_CHAR:
+				String value = in.nextString();
+				if (value.length() != 1) {
+					throw new JsonException("Expected a char but was " + value);
+				}
+				setter.invokeExact(instance, value.charAt(0));
+				break;
+			default:
+				throw new AssertionError();
+			}
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new JsonException(e);
+		}
+	}
+
+	Object get(Object instance) {
+		try {
+			return (Object) getter.invokeExact(instance);
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new JsonException(e);
+		}
+	}
+
+	void set(Object instance, Object value) {
+		try {
+			setter.invokeExact(instance, value);
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new JsonException(e);
+		}
+	}
+
+	/**
+	 * The instance fields of {@code type} and its superclasses, subclass
+	 * first. Shadowed fields are left out. A field the module system will not
+	 * open to us, such as those of most {@code java.*} classes, fails with a
+	 * JsonException naming it rather than silently losing its value.
+	 */
+	static BoundField[] of(Class<?> type) {
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		List<BoundField> result = new ArrayList<BoundField>();
+		Set<String> names = new HashSet<String>();
+		for (Class<?> c = type; c != Object.class && c != null; c = c.getSuperclass()) {
+			for (Field field : c.getDeclaredFields()) {
+				int modifiers = field.getModifiers();
+				if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)
+						|| field.isSynthetic() || names.contains(field.getName())) {
+					continue;
+				}
+				try {
+					field.setAccessible(true);
+					result.add(new BoundField(field.getName(), field.getType(), field.getGenericType(),
+							lookup.unreflectGetter(field), lookup.unreflectSetter(field)));
+					names.add(field.getName());
+				} catch (RuntimeException e) {
+					// not opened to us (InaccessibleObjectException on Java 9+)
+					throw inaccessible(field, e);
+				} catch (IllegalAccessException e) {
+					// final field of a record or hidden class
+					throw inaccessible(field, e);
+				}
+			}
+		}
+		return result.toArray(new BoundField[result.size()]);
+	}
+
+	private static JsonException inaccessible(Field field, Exception cause) {
+		return new JsonException("Unable to bind " + field.getDeclaringClass().getName() + "." + field.getName()
+				+ ": the field is not accessible; register a TypeAdapter for " + field.getDeclaringClass().getName(),
+				cause);
+	}
+
+	/**
+	 * The components of a record class, in declaration order, read through
+	 * their accessors. Records are detected and inspected reflectively so the
+	 * library still runs on Java 8. Returns null if {@code type} is not a
+	 * record or a component cannot be accessed.
+	 */
+	static BoundField[] ofRecord(Class<?> type) {
+		if (!isRecord(type)) {
+			return null;
+		}
+		try {
+			Object[] components = (Object[]) Class.class.getMethod("getRecordComponents").invoke(type);
+			BoundField[] result = new BoundField[components.length];
+			for (int i = 0; i < components.length; i++) {
+				Class<?> c = components[i].getClass();
+				String name = (String) c.getMethod("getName").invoke(components[i]);
+				Class<?> componentType = (Class<?>) c.getMethod("getType").invoke(components[i]);
+				Type genericType = (Type) c.getMethod("getGenericType").invoke(components[i]);
+				Method accessor = (Method) c.getMethod("getAccessor").invoke(components[i]);
+				accessor.setAccessible(true);
+				result[i] = new BoundField(name, componentType, genericType,
+						MethodHandles.lookup().unreflect(accessor), null);
+			}
+			return result;
+		} catch (RuntimeException e) {
+			// not opened to us (InaccessibleObjectException on Java 9+)
+			return null;
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+	static boolean isRecord(Class<?> type) {
+		Class<?> superclass = type.getSuperclass();
+		return superclass != null && "java.lang.Record".equals(superclass.getName());
+	}
+}
@@ -0,0 +1,27 @@
+package fish.json.adapter;
+
+import fish.json.stream.JsonReader;
+import fish.json.stream.JsonToken;
+import fish.json.stream.JsonWriter;
+
+/**
+ * Binds {@code byte[]} to a Base64 string, encoded and decoded in a streaming
+ * fashion by the writer and reader.
+ */
+public class ByteArrayAdapter extends TypeAdapter<byte[]> {
+
+	@Override
+	public void write(JsonWriter writer, Object src) {
+		writer.valueBase64((byte[]) src);
+	}
+
+	@Override
+	public byte[] read(JsonReader in) {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+		return in.nextBase64();
+	}
+
+}
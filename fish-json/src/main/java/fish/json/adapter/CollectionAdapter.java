@@ -0,0 +1,177 @@
+package fish.json.adapter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.TreeSet;
+
+import fish.json.base.Gson;
+import fish.json.stream.JsonException;
+import fish.json.stream.JsonReader;
+import fish.json.stream.JsonToken;
+import fish.json.stream.JsonWriter;
+import fish.json.util.$Gson$Types;
+import fish.json.util.TypeToken;
+
+/**
+ * Binds {@link Collection}s. The element adapter and the concrete container
+ * class are chosen once, when the adapter is built: interfaces map to
+ * {@link ArrayList}, {@link LinkedHashSet}, {@link TreeSet} or
+ * {@link ArrayDeque}, and other classes are created through their no-arg
+ * constructor.
+ */
+public class CollectionAdapter extends TypeAdapter<Object> {
+
+	public static final TypeAdapterFactory FACTORY = new TypeAdapterFactory() {
+		@SuppressWarnings("unchecked")
+		@Override
+		public <T> TypeAdapter<T> create(Gson gson, Class<?> type) {
+			return create(gson, (TypeToken<T>) TypeToken.get(type));
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+			Class<?> raw = type.getRawType();
+			if (!Collection.class.isAssignableFrom(raw)) {
+				return null;
+			}
+			Type elementType = $Gson$Types.getCollectionElementType(type.getType(), raw);
+			Class<?> elementRaw = $Gson$Types.getRawType(elementType);
+			TypeAdapter<?> elementAdapter = gson.getAdapter(TypeToken.get(elementType));
+			return (TypeAdapter<T>) new CollectionAdapter(raw, elementRaw,
+					RuntimeClassAdapter.wrap(gson, elementRaw, elementAdapter));
+		}
+	};
+
+	private static final int ARRAY_LIST = 0;
+	private static final int LINKED_HASH_SET = 1;
+	private static final int TREE_SET = 2;
+	private static final int ARRAY_DEQUE = 3;
+	private static final int ENUM_SET = 4;
+	private static final int CONSTRUCTOR = 5;
+
+	private final Class<?> type;
+	private final Class<?> elementType;
+	private final TypeAdapter<Object> elementAdapter;
+	private final int kind;
+	/** The no-arg constructor as ()Object, for {@link #CONSTRUCTOR}. */
+	private final MethodHandle constructor;
+
+	CollectionAdapter(Class<?> type, Class<?> elementType, TypeAdapter<Object> elementAdapter) {
+		this.type = type;
+		this.elementType = elementType;
+		this.elementAdapter = elementAdapter;
+		if (type.isAssignableFrom(ArrayList.class)) {
+			this.kind = ARRAY_LIST;
+		} else if (type.isAssignableFrom(LinkedHashSet.class)) {
+			this.kind = LINKED_HASH_SET;
+		} else if (type.isAssignableFrom(TreeSet.class)) {
+			this.kind = TREE_SET;
+		} else if (type.isAssignableFrom(ArrayDeque.class)) {
+			this.kind = ARRAY_DEQUE;
+		} else if (EnumSet.class.isAssignableFrom(type) && elementType.isEnum()) {
+			this.kind = ENUM_SET;
+		} else {
+			this.kind = CONSTRUCTOR;
+		}
+		this.constructor = kind == CONSTRUCTOR ? constructor(type) : null;
+	}
+
+	static MethodHandle constructor(Class<?> type) {
+		if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+			return null;
+		}
+		try {
+			Constructor<?> c = type.getDeclaredConstructor();
+			c.setAccessible(true);
+			return MethodHandles.lookup().unreflectConstructor(c)
+					.asType(MethodType.methodType(Object.class));
+		} catch (NoSuchMethodException e) {
+			return null;
+		} catch (IllegalAccessException e) {
+			return null;
+		} catch (RuntimeException e) {
+			// not opened to us (InaccessibleObjectException on Java 9+)
+			return null;
+		}
+	}
+
+	/** Initial capacity for a hash container that will hold {@code size} entries without rehashing. */
+	static int capacity(int size) {
+		return size < 0 ? 16 : (int) (size / 0.75f) + 1;
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private Collection<Object> newInstance() {
+		switch (kind) {
+		case ARRAY_LIST:
+			return new ArrayList<Object>();
+		case LINKED_HASH_SET:
+			return new LinkedHashSet<Object>();
+		case TREE_SET:
+			return new TreeSet<Object>();
+		case ARRAY_DEQUE:
+			return new ArrayDeque<Object>();
+		case ENUM_SET:
+			return (Collection<Object>) EnumSet.noneOf((Class<? extends Enum>) elementType);
+		default:
+			if (constructor == null) {
+				throw new JsonException("Unable to create " + type.getName()
+						+ ": no accessible no-arg constructor");
+			}
+			try {
+				return (Collection<Object>) (Object) constructor.invokeExact();
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new JsonException("Unable to create " + type.getName(), e);
+			}
+		}
+	}
+
+	@Override
+	public void write(JsonWriter writer, Object src) {
+		if (src == null) {
+			writer.nullValue();
+			return;
+		}
+		TypeAdapter<Object> elementAdapter = this.elementAdapter;
+		writer.beginArray();
+		for (Object element : (Collection<?>) src) {
+			if (element == null) {
+				writer.nullValue();
+			} else {
+				elementAdapter.write(writer, element);
+			}
+		}
+		writer.endArray();
+	}
+
+	@Override
+	public Object read(JsonReader in) {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+		Collection<Object> collection = newInstance();
+		TypeAdapter<Object> elementAdapter = this.elementAdapter;
+		in.beginArray();
+		while (in.hasNext()) {
+			collection.add(elementAdapter.read(in));
+		}
+		in.endArray();
+		return collection;
+	}
+
+}
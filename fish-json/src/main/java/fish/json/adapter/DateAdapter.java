@@ -0,0 +1,69 @@
+package fish.json.adapter;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.util.Date;
+
+import fish.json.base.Gson;
+
+/**
+ * Binds {@link Date} like {@link InstantAdapter}, with millisecond precision.
+ * Subclasses such as {@code java.sql.Timestamp} are not handled here.
+ */
+public class DateAdapter extends TemporalAdapter<Date> {
+
+	public static final TypeAdapterFactory FACTORY = new TypeAdapterFactory() {
+		@SuppressWarnings("unchecked")
+		@Override
+		public <T> TypeAdapter<T> create(Gson gson, Class<?> type) {
+			return type == Date.class ? (TypeAdapter<T>) new DateAdapter(gson) : null;
+		}
+	};
+
+	public DateAdapter(Gson gson) {
+		super(gson);
+	}
+
+	@Override
+	long toEpochMillis(Date value) {
+		return value.getTime();
+	}
+
+	@Override
+	Date fromEpochMillis(long millis) {
+		return new Date(millis);
+	}
+
+	@Override
+	int format(Iso8601 iso, Date value) {
+		long millis = value.getTime();
+		return iso.formatInstant(Math.floorDiv(millis, 1000L),
+				(int) Math.floorMod(millis, 1000L) * 1000000);
+	}
+
+	@Override
+	Date fromIso(Iso8601 iso) {
+		return new Date(iso.epochSecond() * 1000L + iso.nano / 1000000);
+	}
+
+	@Override
+	DateTimeFormatter isoFormatter() {
+		return DateTimeFormatter.ISO_INSTANT;
+	}
+
+	@Override
+	TemporalAccessor toTemporal(Date value) {
+		return Instant.ofEpochMilli(value.getTime()).atOffset(ZoneOffset.UTC);
+	}
+
+	@Override
+	Date fromTemporal(TemporalAccessor parsed) {
+		Instant instant = parsed.isSupported(ChronoField.INSTANT_SECONDS) ? Instant.from(parsed)
+				: localDateTime(parsed).toInstant(offset(parsed));
+		return new Date(instant.toEpochMilli());
+	}
+
+}
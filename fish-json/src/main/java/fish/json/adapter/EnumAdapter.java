@@ -0,0 +1,72 @@
+package fish.json.adapter;
+
+import fish.json.base.Gson;
+import fish.json.stream.JsonReader;
+import fish.json.stream.JsonToken;
+import fish.json.stream.JsonWriter;
+import fish.json.stream.NameTable;
+import fish.json.stream.PreparedName;
+
+/**
+ * Binds an enum to the names of its constants. The prepared names, indexed by
+ * ordinal, and the name table are built once per enum class. Unknown names
+ * read as null.
+ */
+public class EnumAdapter extends TypeAdapter<Object> {
+
+	public static final TypeAdapterFactory FACTORY = new TypeAdapterFactory() {
+		@SuppressWarnings("unchecked")
+		@Override
+		public <T> TypeAdapter<T> create(Gson gson, Class<?> type) {
+			if (!Enum.class.isAssignableFrom(type) || type == Enum.class) {
+				return null;
+			}
+			if (!type.isEnum()) {
+				// a constant with a body is an anonymous subclass
+				type = type.getSuperclass();
+			}
+			return (TypeAdapter<T>) ADAPTERS.get(type);
+		}
+	};
+
+	private static final ClassValue<EnumAdapter> ADAPTERS = new ClassValue<EnumAdapter>() {
+		@Override
+		protected EnumAdapter computeValue(Class<?> type) {
+			return new EnumAdapter(type);
+		}
+	};
+
+	private final Object[] constants;
+	private final PreparedName[] names;
+	private final NameTable table;
+
+	private EnumAdapter(Class<?> type) {
+		this.constants = type.getEnumConstants();
+		String[] names = new String[constants.length];
+		for (int i = 0; i < constants.length; i++) {
+			names[i] = ((Enum<?>) constants[i]).name();
+		}
+		this.names = PreparedName.of(names);
+		this.table = new NameTable(names);
+	}
+
+	@Override
+	public void write(JsonWriter writer, Object src) {
+		if (src == null) {
+			writer.nullValue();
+			return;
+		}
+		writer.value(names[((Enum<?>) src).ordinal()]);
+	}
+
+	@Override
+	public Object read(JsonReader in) {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+		int index = in.nextStringIndex(table);
+		return index < 0 ? null : constants[index];
+	}
+
+}
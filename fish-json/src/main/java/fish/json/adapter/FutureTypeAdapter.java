@@ -0,0 +1,41 @@
+package fish.json.adapter;
+
+import fish.json.stream.JsonReader;
+import fish.json.stream.JsonWriter;
+
+/**
+ * The placeholder a {@link fish.json.base.Gson} hands out for a type whose
+ * adapter is still being created on the same thread, so that a type which
+ * refers to itself resolves instead of recursing. It forwards to the real
+ * adapter once that is set; factories that keep it must not use it before
+ * their own {@code create} has returned.
+ */
+public final class FutureTypeAdapter<T> extends TypeAdapter<T> {
+	private TypeAdapter<T> delegate;
+
+	/** Called once by Gson, when the adapter this stands for has been created. */
+	public void setDelegate(TypeAdapter<T> typeAdapter) {
+		if (delegate != null) {
+			throw new AssertionError();
+		}
+		delegate = typeAdapter;
+	}
+
+	@Override
+	public void write(JsonWriter writer, Object src) {
+		TypeAdapter<T> delegate = this.delegate;
+		if (delegate == null) {
+			throw new IllegalStateException("Adapter used before its type was resolved");
+		}
+		delegate.write(writer, src);
+	}
+
+	@Override
+	public T read(JsonReader in) {
+		TypeAdapter<T> delegate = this.delegate;
+		if (delegate == null) {
+			throw new IllegalStateException("Adapter used before its type was resolved");
+		}
+		return delegate.read(in);
+	}
+}
@@ -0,0 +1,107 @@
+package fish.json.adapter;
+
+import fish.json.base.Gson;
+import fish.json.stream.JsonException;
+import fish.json.stream.JsonReader;
+import fish.json.stream.JsonToken;
+import fish.json.stream.JsonWriter;
+import fish.json.stream.NameTable;
+import fish.json.stream.PreparedName;
+
+/**
+ * Base class of the adapters emitted by {@link GeneratedAdapterFactory}. The
+ * generated subclass only supplies the per-field code; null handling and the
+ * member loop live here. Primitive fields have no adapter, and a JSON null
+ * leaves them untouched, as {@link ObjectAdapter} does.
+ */
+public abstract class GeneratedAdapter extends TypeAdapter<Object> {
+
+	protected final Gson gson;
+	private final PreparedName[] names;
+	private final TypeAdapter<?>[] adapters;
+	private final NameTable table;
+
+	protected GeneratedAdapter(Gson gson, String[] names, TypeAdapter<?>[] adapters) {
+		this.gson = gson;
+		this.names = PreparedName.of(names);
+		this.adapters = adapters;
+		this.table = new NameTable(names);
+	}
+
+	/**
+	 * The adapter of a field declared as {@code declaredType}: {@code declared}
+	 * itself, or a wrapper that writes subclass values through their own class.
+	 */
+	protected static TypeAdapter<?> runtime(Gson gson, Class<?> declaredType, TypeAdapter<?> declared) {
+		return RuntimeClassAdapter.wrap(gson, declaredType, declared);
+	}
+
+	protected abstract Object newInstance();
+
+	protected abstract void writeFields(JsonWriter writer, Object src);
+
+	protected abstract void readField(Object instance, int index, JsonReader in);
+
+	@Override
+	public final void write(JsonWriter writer, Object src) {
+		if (src == null) {
+			writer.nullValue();
+			return;
+		}
+		writer.beginObject();
+		writeFields(writer, src);
+		writer.endObject();
+	}
+
+	@Override
+	public final Object read(JsonReader in) {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+		Object instance = newInstance();
+		in.beginObject();
+		while (in.hasNext()) {
+			int index = in.nextNameIndex(table);
+			if (index < 0) {
+				in.skipValue();
+			} else if (adapters[index] == null && in.peek() == JsonToken.NULL) {
+				in.nextNull();
+			} else {
+				readField(instance, index, in);
+			}
+		}
+		in.endObject();
+		return instance;
+	}
+
+	protected final JsonWriter name(JsonWriter writer, int index) {
+		return writer.name(names[index]);
+	}
+
+	@SuppressWarnings("unchecked")
+	protected final void writeValue(JsonWriter writer, int index, Object value) {
+		writer.name(names[index]);
+		if (value == null) {
+			writer.nullValue();
+		} else {
+			((TypeAdapter<Object>) adapters[index]).write(writer, value);
+		}
+	}
+
+	protected final void writeChar(JsonWriter writer, int index, char value) {
+		writer.name(names[index]).value(String.valueOf(value));
+	}
+
+	protected final Object readValue(int index, JsonReader in) {
+		return adapters[index].read(in);
+	}
+
+	protected final char readChar(JsonReader in) {
+		String value = in.nextString();
+		if (value.length() != 1) {
+			throw new JsonException("Expected a char but was " + value);
+		}
+		return value.charAt(0);
+	}
+}
@@ -0,0 +1,366 @@
+package fish.json.adapter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import fish.json.base.Gson;
+import fish.json.stream.JsonReader;
+import fish.json.stream.JsonWriter;
+import fish.json.util.$Gson$Types;
+import fish.json.util.ClassWriter;
+import fish.json.util.TypeToken;
+
+/**
+ * Emits a {@link GeneratedAdapter} subclass per bound type, with one
+ * straight-line field access per member, and defines it as a hidden nestmate
+ * of that type. Types it cannot handle (no no-arg constructor, final or
+ * inaccessible fields, JVMs without hidden classes) return {@code null} so
+ * the factory walk falls through to {@link ObjectAdapter}.
+ */
+public class GeneratedAdapterFactory implements TypeAdapterFactory {
+
+	private static final String BASE = internalName(GeneratedAdapter.class);
+	private static final String WRITER = internalName(JsonWriter.class);
+	private static final String READER = internalName(JsonReader.class);
+	private static final String WRITER_DESC = "L" + WRITER + ";";
+	private static final String READER_DESC = "L" + READER + ";";
+	private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(
+			void.class, Gson.class, String[].class, TypeAdapter[].class);
+
+	private static final Method PRIVATE_LOOKUP_IN;
+	private static final Method DEFINE_HIDDEN_CLASS;
+	private static final Object HIDDEN_CLASS_OPTIONS;
+	static {
+		Method privateLookupIn = null;
+		Method defineHiddenClass = null;
+		Object options = null;
+		try {
+			Class<?> optionType = Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+			privateLookupIn = MethodHandles.class.getMethod("privateLookupIn",
+					Class.class, MethodHandles.Lookup.class);
+			defineHiddenClass = MethodHandles.Lookup.class.getMethod("defineHiddenClass",
+					byte[].class, boolean.class, Array.newInstance(optionType, 0).getClass());
+			options = Array.newInstance(optionType, 1);
+			Array.set(options, 0, optionType.getField("NESTMATE").get(null));
+		} catch (Exception e) {
+			// hidden classes need Java 15; every type falls back to ObjectAdapter
+			defineHiddenClass = null;
+		}
+		PRIVATE_LOOKUP_IN = privateLookupIn;
+		DEFINE_HIDDEN_CLASS = defineHiddenClass;
+		HIDDEN_CLASS_OPTIONS = options;
+	}
+
+	private static final ClassValue<Generated> GENERATED = new ClassValue<Generated>() {
+		@Override
+		protected Generated computeValue(Class<?> type) {
+			return generate(type);
+		}
+	};
+
+	/** Parameterized types are left to {@link ObjectAdapter}, which resolves type variables. */
+	@Override
+	public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+		return type.getType() instanceof Class ? this.<T>create(gson, type.getRawType()) : null;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> TypeAdapter<T> create(Gson gson, Class<?> type) {
+		if (DEFINE_HIDDEN_CLASS == null || !isCandidate(type)) {
+			return null;
+		}
+		Generated generated = GENERATED.get(type);
+		if (generated.constructor == null) {
+			return null;
+		}
+		Field[] fields = generated.fields;
+		String[] names = new String[fields.length];
+		TypeAdapter<?>[] adapters = new TypeAdapter<?>[fields.length];
+		for (int i = 0; i < fields.length; i++) {
+			names[i] = fields[i].getName();
+			if (!fields[i].getType().isPrimitive()) {
+				Type fieldType = $Gson$Types.resolve(type, type, fields[i].getGenericType());
+				adapters[i] = RuntimeClassAdapter.wrap(gson, $Gson$Types.getRawType(fieldType),
+						gson.getAdapter(TypeToken.get(fieldType)));
+			}
+		}
+		try {
+			return (TypeAdapter<T>) generated.constructor.invoke(gson, names, adapters);
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	private static boolean isCandidate(Class<?> type) {
+		int modifiers = type.getModifiers();
+		return !type.isPrimitive() && !type.isArray() && !type.isInterface()
+				&& !type.isEnum() && !Modifier.isAbstract(modifiers)
+				&& type.getClassLoader() != null
+				&& !"java.lang.Record".equals(type.getSuperclass().getName());
+	}
+
+	private static Generated generate(Class<?> type) {
+		Field[] fields = boundFields(type);
+		if (fields == null) {
+			return new Generated(null, null);
+		}
+		try {
+			type.getDeclaredConstructor();
+		} catch (NoSuchMethodException e) {
+			return new Generated(null, null);
+		}
+		try {
+			byte[] bytes = emit(type, fields);
+			MethodHandles.Lookup lookup = (MethodHandles.Lookup) PRIVATE_LOOKUP_IN.invoke(null,
+					type, MethodHandles.lookup());
+			MethodHandles.Lookup hidden = (MethodHandles.Lookup) DEFINE_HIDDEN_CLASS.invoke(lookup,
+					bytes, true, HIDDEN_CLASS_OPTIONS);
+			MethodHandle constructor = hidden.findConstructor(hidden.lookupClass(), CONSTRUCTOR_TYPE);
+			return new Generated(constructor, fields);
+		} catch (Exception e) {
+			return new Generated(null, null);
+		} catch (LinkageError e) {
+			// the type's loader cannot see fish.json, or the bytes were refused
+			return new Generated(null, null);
+		}
+	}
+
+	/**
+	 * Instance fields across the hierarchy, subclass first, or {@code null}
+	 * if any of them cannot be accessed from a nestmate of {@code type}.
+	 */
+	private static Field[] boundFields(Class<?> type) {
+		List<Field> result = new ArrayList<Field>();
+		Set<String> names = new HashSet<String>();
+		for (Class<?> c = type; c != Object.class && c != null; c = c.getSuperclass()) {
+			for (Field field : c.getDeclaredFields()) {
+				int modifiers = field.getModifiers();
+				if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)
+						|| field.isSynthetic() || !names.add(field.getName())) {
+					continue;
+				}
+				if (Modifier.isFinal(modifiers) || !isAccessible(type, c, modifiers)
+						|| !isAccessible(type, field.getType())) {
+					return null;
+				}
+				result.add(field);
+			}
+		}
+		return result.toArray(new Field[result.size()]);
+	}
+
+	private static boolean isAccessible(Class<?> type, Class<?> declaringClass, int modifiers) {
+		if (declaringClass == type) {
+			return true;
+		}
+		if (Modifier.isPrivate(modifiers)) {
+			return false;
+		}
+		return (Modifier.isPublic(modifiers) && Modifier.isPublic(declaringClass.getModifiers()))
+				|| samePackage(type, declaringClass);
+	}
+
+	private static boolean isAccessible(Class<?> type, Class<?> fieldType) {
+		while (fieldType.isArray()) {
+			fieldType = fieldType.getComponentType();
+		}
+		return fieldType.isPrimitive() || Modifier.isPublic(fieldType.getModifiers())
+				|| samePackage(type, fieldType);
+	}
+
+	private static boolean samePackage(Class<?> a, Class<?> b) {
+		return a.getClassLoader() == b.getClassLoader()
+				&& packageName(a).equals(packageName(b));
+	}
+
+	private static String packageName(Class<?> type) {
+		String name = type.getName();
+		int dot = name.lastIndexOf('.');
+		return dot == -1 ? "" : name.substring(0, dot);
+	}
+
+	static byte[] emit(Class<?> type, Field[] fields) {
+		String target = internalName(type);
+		String name = target + "$$JsonAdapter";
+		ClassWriter cw = new ClassWriter(ClassWriter.ACC_PUBLIC | ClassWriter.ACC_FINAL
+				| ClassWriter.ACC_SUPER, name, BASE);
+
+		String constructorDesc = "(Lfish/json/base/Gson;[Ljava/lang/String;[Lfish/json/adapter/TypeAdapter;)V";
+		cw.method(ClassWriter.ACC_PUBLIC, "<init>", constructorDesc, 4, 4)
+				.local(ClassWriter.ALOAD, 0)
+				.local(ClassWriter.ALOAD, 1)
+				.local(ClassWriter.ALOAD, 2)
+				.local(ClassWriter.ALOAD, 3)
+				.op(ClassWriter.INVOKESPECIAL, cw.methodRef(BASE, "<init>", constructorDesc))
+				.op(ClassWriter.RETURN);
+
+		cw.method(ClassWriter.ACC_PROTECTED, "newInstance", "()Ljava/lang/Object;", 2, 1)
+				.op(ClassWriter.NEW, cw.classRef(target))
+				.op(ClassWriter.DUP)
+				.op(ClassWriter.INVOKESPECIAL, cw.methodRef(target, "<init>", "()V"))
+				.op(ClassWriter.ARETURN);
+
+		ClassWriter.Code write = cw.method(ClassWriter.ACC_PROTECTED, "writeFields",
+				"(" + WRITER_DESC + "Ljava/lang/Object;)V", 6, 4);
+		write.local(ClassWriter.ALOAD, 2)
+				.op(ClassWriter.CHECKCAST, cw.classRef(target))
+				.local(ClassWriter.ASTORE, 3);
+		for (int i = 0; i < fields.length; i++) {
+			emitWrite(cw, write, fields[i], i);
+		}
+		write.op(ClassWriter.RETURN);
+
+		ClassWriter.Code read = cw.method(ClassWriter.ACC_PROTECTED, "readField",
+				"(Ljava/lang/Object;I" + READER_DESC + ")V", 6, 5);
+		read.local(ClassWriter.ALOAD, 1)
+				.op(ClassWriter.CHECKCAST, cw.classRef(target))
+				.local(ClassWriter.ASTORE, 4)
+				.local(ClassWriter.ILOAD, 2);
+		if (fields.length > 0) {
+			int[] slots = read.tableSwitch(fields.length);
+			for (int i = 0; i < fields.length; i++) {
+				read.patchSwitch(slots[i + 1], read.position());
+				emitRead(cw, read, fields[i], i);
+				read.op(ClassWriter.RETURN);
+			}
+			read.patchSwitch(slots[0], read.position());
+		}
+		read.local(ClassWriter.ALOAD, 3)
+				.op(ClassWriter.INVOKEVIRTUAL, cw.methodRef(READER, "skipValue", "()V"))
+				.op(ClassWriter.RETURN);
+
+		return cw.toByteArray();
+	}
+
+	private static void emitWrite(ClassWriter cw, ClassWriter.Code code, Field field, int index) {
+		Class<?> fieldType = field.getType();
+		int getField = cw.fieldRef(internalName(field.getDeclaringClass()), field.getName(),
+				descriptor(fieldType));
+		if (!fieldType.isPrimitive() || fieldType == char.class) {
+			String helper = fieldType == char.class ? "writeChar" : "writeValue";
+			String helperDesc = fieldType == char.class ? "(" + WRITER_DESC + "IC)V"
+					: "(" + WRITER_DESC + "ILjava/lang/Object;)V";
+			code.local(ClassWriter.ALOAD, 0)
+					.local(ClassWriter.ALOAD, 1)
+					.pushInt(cw, index)
+					.local(ClassWriter.ALOAD, 3)
+					.op(ClassWriter.GETFIELD, getField)
+					.op(ClassWriter.INVOKEVIRTUAL, cw.methodRef(BASE, helper, helperDesc));
+			return;
+		}
+		code.local(ClassWriter.ALOAD, 0)
+				.local(ClassWriter.ALOAD, 1)
+				.pushInt(cw, index)
+				.op(ClassWriter.INVOKEVIRTUAL, cw.methodRef(BASE, "name",
+						"(" + WRITER_DESC + "I)" + WRITER_DESC))
+				.local(ClassWriter.ALOAD, 3)
+				.op(ClassWriter.GETFIELD, getField);
+		String valueDesc;
+		if (fieldType == boolean.class) {
+			valueDesc = "(Z)";
+		} else if (fieldType == double.class) {
+			valueDesc = "(D)";
+		} else if (fieldType == float.class) {
+			valueDesc = "(F)";
+		} else if (fieldType == long.class) {
+			valueDesc = "(J)";
+		} else {
+			code.op(ClassWriter.I2L);
+			valueDesc = "(J)";
+		}
+		code.op(ClassWriter.INVOKEVIRTUAL, cw.methodRef(WRITER, "value", valueDesc + WRITER_DESC))
+				.op(ClassWriter.POP);
+	}
+
+	private static void emitRead(ClassWriter cw, ClassWriter.Code code, Field field, int index) {
+		Class<?> fieldType = field.getType();
+		int putField = cw.fieldRef(internalName(field.getDeclaringClass()), field.getName(),
+				descriptor(fieldType));
+		code.local(ClassWriter.ALOAD, 4);
+		if (!fieldType.isPrimitive()) {
+			code.local(ClassWriter.ALOAD, 0)
+					.pushInt(cw, index)
+					.local(ClassWriter.ALOAD, 3)
+					.op(ClassWriter.INVOKEVIRTUAL, cw.methodRef(BASE, "readValue",
+							"(I" + READER_DESC + ")Ljava/lang/Object;"))
+					.op(ClassWriter.CHECKCAST, cw.classRef(fieldType.isArray()
+							? descriptor(fieldType) : internalName(fieldType)));
+		} else if (fieldType == char.class) {
+			code.local(ClassWriter.ALOAD, 0)
+					.local(ClassWriter.ALOAD, 3)
+					.op(ClassWriter.INVOKEVIRTUAL, cw.methodRef(BASE, "readChar",
+							"(" + READER_DESC + ")C"));
+		} else {
+			code.local(ClassWriter.ALOAD, 3);
+			if (fieldType == boolean.class) {
+				code.op(ClassWriter.INVOKEVIRTUAL, cw.methodRef(READER, "nextBoolean", "()Z"));
+			} else if (fieldType == long.class) {
+				code.op(ClassWriter.INVOKEVIRTUAL, cw.methodRef(READER, "nextLong", "()J"));
+			} else if (fieldType == double.class || fieldType == float.class) {
+				code.op(ClassWriter.INVOKEVIRTUAL, cw.methodRef(READER, "nextDouble", "()D"));
+				if (fieldType == float.class) {
+					code.op(ClassWriter.D2F);
+				}
+			} else if (fieldType == byte.class) {
+				code.op(ClassWriter.INVOKEVIRTUAL, cw.methodRef(READER, "nextByte", "()B"));
+			} else if (fieldType == short.class) {
+				code.op(ClassWriter.INVOKEVIRTUAL, cw.methodRef(READER, "nextShort", "()S"));
+			} else {
+				code.op(ClassWriter.INVOKEVIRTUAL, cw.methodRef(READER, "nextInt", "()I"));
+			}
+		}
+		code.op(ClassWriter.PUTFIELD, putField);
+	}
+
+	private static String internalName(Class<?> type) {
+		return type.getName().replace('.', '/');
+	}
+
+	private static String descriptor(Class<?> type) {
+		if (type == int.class) {
+			return "I";
+		} else if (type == long.class) {
+			return "J";
+		} else if (type == double.class) {
+			return "D";
+		} else if (type == float.class) {
+			return "F";
+		} else if (type == boolean.class) {
+			return "Z";
+		} else if (type == byte.class) {
+			return "B";
+		} else if (type == short.class) {
+			return "S";
+		} else if (type == char.class) {
+			return "C";
+		} else if (type.isArray()) {
+			return internalName(type);
+		}
+		return "L" + internalName(type) + ";";
+	}
+
+	private static final class Generated {
+		final MethodHandle constructor;
+		final Field[] fields;
+
+		Generated(MethodHandle constructor, Field[] fields) {
+			this.constructor = constructor;
+			this.fields = fields;
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package fish.json.adapter;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+
+import fish.json.base.Gson;
+
+/**
+ * Binds {@link Instant} as {@code 2024-01-02T03:04:05.123Z}; patterns are
+ * applied in UTC.
+ */
+public class InstantAdapter extends TemporalAdapter<Instant> {
+
+	public static final TypeAdapterFactory FACTORY = new TypeAdapterFactory() {
+		@SuppressWarnings("unchecked")
+		@Override
+		public <T> TypeAdapter<T> create(Gson gson, Class<?> type) {
+			return type == Instant.class ? (TypeAdapter<T>) new InstantAdapter(gson) : null;
+		}
+	};
+
+	public InstantAdapter(Gson gson) {
+		super(gson);
+	}
+
+	@Override
+	long toEpochMillis(Instant value) {
+		return value.toEpochMilli();
+	}
+
+	@Override
+	Instant fromEpochMillis(long millis) {
+		return Instant.ofEpochMilli(millis);
+	}
+
+	@Override
+	int format(Iso8601 iso, Instant value) {
+		return iso.formatInstant(value.getEpochSecond(), value.getNano());
+	}
+
+	@Override
+	Instant fromIso(Iso8601 iso) {
+		return Instant.ofEpochSecond(iso.epochSecond(), iso.nano);
+	}
+
+	@Override
+	DateTimeFormatter isoFormatter() {
+		return DateTimeFormatter.ISO_INSTANT;
+	}
+
+	/** Straight from the instant, as the far ends of its range have no UTC date-time. */
+	@Override
+	String formatIso(Instant value) {
+		return DateTimeFormatter.ISO_INSTANT.format(value);
+	}
+
+	@Override
+	TemporalAccessor toTemporal(Instant value) {
+		return value.atOffset(ZoneOffset.UTC);
+	}
+
+	@Override
+	Instant fromTemporal(TemporalAccessor parsed) {
+		if (parsed.isSupported(ChronoField.INSTANT_SECONDS)) {
+			return Instant.from(parsed);
+		}
+		return localDateTime(parsed).toInstant(offset(parsed));
+	}
+
+}
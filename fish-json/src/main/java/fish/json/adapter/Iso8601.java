@@ -0,0 +1,235 @@
+package fish.json.adapter;
+
+/**
+ * Hand-written ISO-8601 codec for the common timestamp shapes, working on a
+ * small char buffer of its own:
+ * {@code yyyy-MM-dd['T'HH:mm[:ss[.fffffffff]]][Z|+HH:mm]}. Years outside
+ * 0000-9999, leap seconds and anything else unusual are left to the
+ * {@code java.time} formatters by the callers.
+ */
+final class Iso8601 {
+
+	final char[] chars = new char[64];
+
+	int year;
+	int month;
+	int day;
+	int hour;
+	int minute;
+	int second;
+	int nano;
+	boolean hasOffset;
+	int offsetSeconds;
+
+	Iso8601() {
+	}
+
+	/**
+	 * Parses {@code chars[0, length)} into the fields. Returns false if the
+	 * text is not in the supported subset or is not a valid date and time.
+	 */
+	boolean parse(int length) {
+		char[] c = chars;
+		if (length < 10 || c[4] != '-' || c[7] != '-') {
+			return false;
+		}
+		year = digits(c, 0, 4);
+		month = digits(c, 5, 2);
+		day = digits(c, 8, 2);
+		hour = minute = second = nano = 0;
+		hasOffset = false;
+		offsetSeconds = 0;
+		int pos = 10;
+		if (pos < length && (c[pos] == 'T' || c[pos] == 't' || c[pos] == ' ')) {
+			if (pos + 6 > length || c[pos + 3] != ':') {
+				return false;
+			}
+			hour = digits(c, pos + 1, 2);
+			minute = digits(c, pos + 4, 2);
+			pos += 6;
+			if (pos < length && c[pos] == ':') {
+				if (pos + 3 > length) {
+					return false;
+				}
+				second = digits(c, pos + 1, 2);
+				pos += 3;
+				if (pos < length && (c[pos] == '.' || c[pos] == ',')) {
+					int start = ++pos;
+					while (pos < length && pos - start < 9 && c[pos] >= '0' && c[pos] <= '9') {
+						nano = nano * 10 + (c[pos++] - '0');
+					}
+					if (pos == start) {
+						return false;
+					}
+					for (int i = pos - start; i < 9; i++) {
+						nano *= 10;
+					}
+				}
+			}
+		}
+		if (pos < length) {
+			char sign = c[pos];
+			if (sign == 'Z' || sign == 'z') {
+				hasOffset = true;
+				pos++;
+			} else if (sign == '+' || sign == '-') {
+				if (pos + 3 > length) {
+					return false;
+				}
+				int hours = digits(c, pos + 1, 2);
+				int minutes = 0;
+				pos += 3;
+				if (pos < length && c[pos] == ':') {
+					pos++;
+				}
+				if (pos + 2 <= length) {
+					minutes = digits(c, pos, 2);
+					pos += 2;
+				}
+				if (hours < 0 || hours > 18 || minutes < 0 || minutes > 59) {
+					return false;
+				}
+				hasOffset = true;
+				offsetSeconds = (hours * 3600 + minutes * 60) * (sign == '-' ? -1 : 1);
+			}
+		}
+		return pos == length && year >= 0 && month >= 1 && month <= 12 && day >= 1
+				&& day <= lengthOfMonth(year, month) && hour >= 0 && hour <= 23
+				&& minute >= 0 && minute <= 59 && second >= 0 && second <= 59;
+	}
+
+	/** The parsed instant; a missing offset means UTC. */
+	long epochSecond() {
+		return daysFromCivil(year, month, day) * 86400L + hour * 3600 + minute * 60 + second
+				- offsetSeconds;
+	}
+
+	/** The number of digits, or -1 if one of them is not a digit. */
+	private static int digits(char[] c, int offset, int count) {
+		int value = 0;
+		for (int i = offset, end = offset + count; i < end; i++) {
+			int digit = c[i] - '0';
+			if (digit < 0 || digit > 9) {
+				return -1;
+			}
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	private static int lengthOfMonth(int year, int month) {
+		switch (month) {
+		case 2:
+			return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+		case 4:
+		case 6:
+		case 9:
+		case 11:
+			return 30;
+		default:
+			return 31;
+		}
+	}
+
+	/** Days since 1970-01-01 of a proleptic Gregorian date. */
+	static long daysFromCivil(int year, int month, int day) {
+		long y = month <= 2 ? year - 1 : year;
+		long era = (y >= 0 ? y : y - 399) / 400;
+		long yearOfEra = y - era * 400;
+		int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
+	}
+
+	/**
+	 * Formats an instant as {@code yyyy-MM-ddTHH:mm:ss[.fff]Z} into
+	 * {@link #chars}. Returns the length, or -1 if the year is out of range.
+	 */
+	int formatInstant(long epochSecond, int nano) {
+		long days = Math.floorDiv(epochSecond, 86400L);
+		int secondOfDay = (int) Math.floorMod(epochSecond, 86400L);
+		// civil-from-days, the inverse of daysFromCivil
+		long z = days + 719468;
+		long era = (z >= 0 ? z : z - 146096) / 146097;
+		long dayOfEra = z - era * 146097;
+		long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		long mp = (5 * dayOfYear + 2) / 153;
+		int d = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+		int m = (int) (mp < 10 ? mp + 3 : mp - 9);
+		long y = yearOfEra + era * 400 + (m <= 2 ? 1 : 0);
+		if (y < 0 || y > 9999) {
+			return -1;
+		}
+		int pos = formatLocal((int) y, m, d, secondOfDay / 3600, secondOfDay / 60 % 60,
+				secondOfDay % 60, nano);
+		chars[pos++] = 'Z';
+		return pos;
+	}
+
+	/**
+	 * Formats {@code yyyy-MM-ddTHH:mm:ss[.fff]} into {@link #chars}; the
+	 * fraction has 3, 6 or 9 digits, as needed. Returns the length, or -1 if
+	 * the year is out of range.
+	 */
+	int formatLocal(int year, int month, int day, int hour, int minute, int second, int nano) {
+		if (year < 0 || year > 9999) {
+			return -1;
+		}
+		char[] c = chars;
+		put(c, 0, year, 4);
+		c[4] = '-';
+		put(c, 5, month, 2);
+		c[7] = '-';
+		put(c, 8, day, 2);
+		c[10] = 'T';
+		put(c, 11, hour, 2);
+		c[13] = ':';
+		put(c, 14, minute, 2);
+		c[16] = ':';
+		put(c, 17, second, 2);
+		int pos = 19;
+		if (nano != 0) {
+			c[pos++] = '.';
+			if (nano % 1000000 == 0) {
+				put(c, pos, nano / 1000000, 3);
+				pos += 3;
+			} else if (nano % 1000 == 0) {
+				put(c, pos, nano / 1000, 6);
+				pos += 6;
+			} else {
+				put(c, pos, nano, 9);
+				pos += 9;
+			}
+		}
+		return pos;
+	}
+
+	/** Appends {@code Z} or {@code +HH:mm[:ss]} at {@code pos}; returns the new length. */
+	int formatOffset(int pos, int totalSeconds) {
+		char[] c = chars;
+		if (totalSeconds == 0) {
+			c[pos++] = 'Z';
+			return pos;
+		}
+		c[pos++] = totalSeconds < 0 ? '-' : '+';
+		int abs = Math.abs(totalSeconds);
+		put(c, pos, abs / 3600, 2);
+		c[pos + 2] = ':';
+		put(c, pos + 3, abs / 60 % 60, 2);
+		pos += 5;
+		if (abs % 60 != 0) {
+			c[pos] = ':';
+			put(c, pos + 1, abs % 60, 2);
+			pos += 3;
+		}
+		return pos;
+	}
+
+	private static void put(char[] c, int offset, int value, int width) {
+		for (int i = offset + width - 1; i >= offset; i--) {
+			c[i] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+	}
+}
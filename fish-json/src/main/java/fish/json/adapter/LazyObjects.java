@@ -0,0 +1,321 @@
+package fish.json.adapter;
+
+import java.io.Reader;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import fish.json.base.Gson;
+import fish.json.stream.BufferRecycler;
+import fish.json.stream.JsonReader;
+import fish.json.stream.JsonToken;
+import fish.json.stream.NameTable;
+import fish.json.util.$Gson$Types;
+import fish.json.util.TypeToken;
+
+/**
+ * Lazy binding of JSON objects to interfaces. One pass over the object
+ * records where the value of each member the interface asks for starts, and
+ * skips every value with {@link JsonReader#skipValue()}; a member is decoded
+ * through its adapter only when its getter is first called, and then kept.
+ * Getters map to members like bean properties ({@code getName()} and
+ * {@code isActive()} to {@code name} and {@code active}); other no-arg methods
+ * use their own name. Members declared as another interface without an
+ * adapter of its own are bound lazily too. Default methods run as written, on
+ * Java 9 and later. Interfaces with any other abstract method, or with a
+ * default method that cannot be called, are rejected when first bound.
+ *
+ * <p>
+ * Proxies may be shared between threads. Decoded values are published
+ * through an {@link AtomicReferenceArray}; a member read concurrently for the
+ * first time may be decoded more than once, but every caller gets the same
+ * value.
+ */
+public final class LazyObjects {
+
+	private LazyObjects() {
+	}
+
+	private static final Method PRIVATE_LOOKUP_IN;
+	static {
+		Method privateLookupIn;
+		try {
+			privateLookupIn = MethodHandles.class.getMethod("privateLookupIn",
+					Class.class, MethodHandles.Lookup.class);
+		} catch (NoSuchMethodException e) {
+			// Java 8: default methods are unsupported
+			privateLookupIn = null;
+		}
+		PRIVATE_LOOKUP_IN = privateLookupIn;
+	}
+
+	/** Readers for the scan and the member decodes, which each read a slice of the source. */
+	private static final BufferRecycler READERS = new BufferRecycler();
+
+	private static final ClassValue<Binding> BINDINGS = new ClassValue<Binding>() {
+		@Override
+		protected Binding computeValue(Class<?> type) {
+			return new Binding(type);
+		}
+	};
+
+	static final class Binding {
+		final Class<?> type;
+		final NameTable names;
+		final Type[] types;
+		final Map<Method, Integer> indexes = new HashMap<Method, Integer>();
+		final Map<Method, MethodHandle> defaults = new HashMap<Method, MethodHandle>();
+
+		Binding(Class<?> type) {
+			if (!type.isInterface()) {
+				throw new IllegalArgumentException(type.getName() + " is not an interface");
+			}
+			this.type = type;
+			List<String> names = new ArrayList<String>();
+			List<Type> types = new ArrayList<Type>();
+			for (Method method : type.getMethods()) {
+				if (method.isDefault()) {
+					MethodHandle handle = defaultMethod(method);
+					if (handle == null) {
+						throw new IllegalArgumentException("Unable to bind " + type.getName() + " lazily: "
+								+ method + " cannot be called on a proxy here (Java 8, or its package is not open)");
+					}
+					defaults.put(method, handle);
+					continue;
+				}
+				if (Modifier.isStatic(method.getModifiers()) || isObjectMethod(method)) {
+					continue;
+				}
+				if (method.getParameterTypes().length != 0 || method.getReturnType() == void.class) {
+					throw new IllegalArgumentException("Unable to bind " + type.getName() + " lazily: "
+							+ method + " is not a getter");
+				}
+				String name = memberName(method);
+				int index = names.indexOf(name);
+				if (index < 0) {
+					index = names.size();
+					names.add(name);
+					types.add($Gson$Types.resolve(type, type, method.getGenericReturnType()));
+				}
+				indexes.put(method, index);
+			}
+			this.names = new NameTable(names.toArray(new String[names.size()]));
+			this.types = types.toArray(new Type[types.size()]);
+		}
+
+		/** Whether {@code method} redeclares one of Object's, which proxies dispatch as Object's own. */
+		private static boolean isObjectMethod(Method method) {
+			try {
+				Object.class.getMethod(method.getName(), method.getParameterTypes());
+				return true;
+			} catch (NoSuchMethodException e) {
+				return false;
+			}
+		}
+
+		/** A handle calling the default {@code method} itself, or null if it cannot be had. */
+		private static MethodHandle defaultMethod(Method method) {
+			if (PRIVATE_LOOKUP_IN == null) {
+				return null;
+			}
+			Class<?> declaring = method.getDeclaringClass();
+			try {
+				MethodHandles.Lookup lookup = (MethodHandles.Lookup) PRIVATE_LOOKUP_IN.invoke(null,
+						declaring, MethodHandles.lookup());
+				return lookup.unreflectSpecial(method, declaring);
+			} catch (Exception e) {
+				// not opened to us
+				return null;
+			}
+		}
+
+		private static String memberName(Method method) {
+			String name = method.getName();
+			Class<?> returnType = method.getReturnType();
+			String property;
+			if (name.length() > 3 && name.startsWith("get") && Character.isUpperCase(name.charAt(3))) {
+				property = name.substring(3);
+			} else if (name.length() > 2 && name.startsWith("is") && Character.isUpperCase(name.charAt(2))
+					&& (returnType == boolean.class || returnType == Boolean.class)) {
+				property = name.substring(2);
+			} else {
+				return name;
+			}
+			return Character.toLowerCase(property.charAt(0)) + property.substring(1);
+		}
+	}
+
+	/**
+	 * Returns a proxy of {@code type} over the JSON object {@code json}, or
+	 * null if the document is {@code null}.
+	 */
+	public static <T> T create(Gson gson, String json, Class<T> type) {
+		return type.cast(create(gson, json, 0, json.length(), BINDINGS.get(type)));
+	}
+
+	/** Scans the object in {@code json[offset, end)}, which may start with the separator before it. */
+	private static Object create(Gson gson, String json, int offset, int end, Binding binding) {
+		int start = valueStart(json, offset);
+		NameTable names = binding.names;
+		int[] offsets = new int[names.size()];
+		int[] ends = new int[names.size()];
+		Arrays.fill(offsets, -1);
+		JsonReader in = reader(json, start, end);
+		try {
+			if (in.peek() == JsonToken.NULL) {
+				return null;
+			}
+			in.beginObject();
+			while (in.hasNext()) {
+				int index = in.nextNameIndex(names);
+				if (index >= 0) {
+					offsets[index] = start + (int) in.position();
+				}
+				in.skipValue();
+				if (index >= 0) {
+					ends[index] = start + (int) in.position();
+				}
+			}
+			in.endObject();
+		} finally {
+			READERS.release(in);
+		}
+		return Proxy.newProxyInstance(binding.type.getClassLoader(), new Class<?>[] { binding.type },
+				new Handler(gson, json, binding, offsets, ends));
+	}
+
+	/** Skips the separator and whitespace between a member name and its value. */
+	private static int valueStart(String json, int offset) {
+		for (int length = json.length(); offset < length; offset++) {
+			char c = json.charAt(offset);
+			if (c != ':' && c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+				break;
+			}
+		}
+		return offset;
+	}
+
+	/** A pooled lenient reader of {@code json[start, end)}, to be released after use. */
+	private static JsonReader reader(String json, int start, int end) {
+		JsonReader in = READERS.acquireReader(new SliceReader(json, start, end));
+		in.setLenient(true);
+		return in;
+	}
+
+	/** Presents {@code json[start, end)} as a Reader, without copying it. */
+	private static final class SliceReader extends Reader {
+		private final String json;
+		private final int end;
+		private int pos;
+
+		SliceReader(String json, int start, int end) {
+			this.json = json;
+			this.pos = start;
+			this.end = end;
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+			int count = Math.min(len, end - pos);
+			if (count <= 0) {
+				return -1;
+			}
+			json.getChars(pos, pos + count, cbuf, off);
+			pos += count;
+			return count;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	private static final class Handler implements InvocationHandler {
+		private static final Object UNDECODED = new Object();
+		private static final Object[] NO_ARGS = new Object[0];
+
+		private final Gson gson;
+		private final String json;
+		private final Binding binding;
+		private final int[] offsets;
+		private final int[] ends;
+		private final AtomicReferenceArray<Object> values;
+
+		Handler(Gson gson, String json, Binding binding, int[] offsets, int[] ends) {
+			this.gson = gson;
+			this.json = json;
+			this.binding = binding;
+			this.offsets = offsets;
+			this.ends = ends;
+			Object[] values = new Object[offsets.length];
+			Arrays.fill(values, UNDECODED);
+			this.values = new AtomicReferenceArray<Object>(values);
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			Integer index = binding.indexes.get(method);
+			if (index != null) {
+				Object value = values.get(index);
+				if (value == UNDECODED) {
+					values.compareAndSet(index, UNDECODED, decode(index));
+					value = values.get(index);
+				}
+				return value;
+			}
+			MethodHandle defaultMethod = binding.defaults.get(method);
+			if (defaultMethod != null) {
+				return defaultMethod.bindTo(proxy).invokeWithArguments(args == null ? NO_ARGS : args);
+			}
+			if (method.getDeclaringClass() == Object.class) {
+				String name = method.getName();
+				if (name.equals("equals")) {
+					return proxy == args[0];
+				} else if (name.equals("hashCode")) {
+					return System.identityHashCode(proxy);
+				} else if (name.equals("toString")) {
+					return "lazy " + binding.type.getName();
+				}
+			}
+			// every other method was rejected when the binding was made
+			throw new AssertionError(method);
+		}
+
+		private Object decode(int index) {
+			Type type = binding.types[index];
+			Class<?> raw = $Gson$Types.getRawType(type);
+			int offset = offsets[index];
+			if (offset < 0) {
+				return ObjectAdapter.Metadata.defaultValue(raw);
+			}
+			TypeAdapter<?> adapter = gson.getAdapter(TypeToken.get(type));
+			Object value;
+			if (raw.isInterface() && adapter instanceof ObjectAdapter) {
+				// no adapter can build it, so bind it lazily as well
+				value = create(gson, json, offset, ends[index], BINDINGS.get(raw));
+			} else {
+				JsonReader in = reader(json, valueStart(json, offset), ends[index]);
+				try {
+					value = adapter.read(in);
+				} finally {
+					READERS.release(in);
+				}
+			}
+			return value != null ? value : ObjectAdapter.Metadata.defaultValue(raw);
+		}
+	}
+
+}
@@ -0,0 +1,69 @@
+package fish.json.adapter;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+
+import fish.json.base.Gson;
+
+/**
+ * Binds {@link LocalDateTime} as {@code 2024-01-02T03:04:05}; a date alone
+ * reads as midnight. Epoch milliseconds are taken to be in UTC.
+ */
+public class LocalDateTimeAdapter extends TemporalAdapter<LocalDateTime> {
+
+	public static final TypeAdapterFactory FACTORY = new TypeAdapterFactory() {
+		@SuppressWarnings("unchecked")
+		@Override
+		public <T> TypeAdapter<T> create(Gson gson, Class<?> type) {
+			return type == LocalDateTime.class ? (TypeAdapter<T>) new LocalDateTimeAdapter(gson) : null;
+		}
+	};
+
+	public LocalDateTimeAdapter(Gson gson) {
+		super(gson);
+	}
+
+	@Override
+	long toEpochMillis(LocalDateTime value) {
+		return value.toInstant(ZoneOffset.UTC).toEpochMilli();
+	}
+
+	@Override
+	LocalDateTime fromEpochMillis(long millis) {
+		return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000L),
+				(int) Math.floorMod(millis, 1000L) * 1000000, ZoneOffset.UTC);
+	}
+
+	@Override
+	int format(Iso8601 iso, LocalDateTime value) {
+		return iso.formatLocal(value.getYear(), value.getMonthValue(), value.getDayOfMonth(),
+				value.getHour(), value.getMinute(), value.getSecond(), value.getNano());
+	}
+
+	@Override
+	LocalDateTime fromIso(Iso8601 iso) {
+		if (iso.hasOffset) {
+			return null;
+		}
+		return LocalDateTime.of(iso.year, iso.month, iso.day, iso.hour, iso.minute, iso.second,
+				iso.nano);
+	}
+
+	@Override
+	DateTimeFormatter isoFormatter() {
+		return DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+	}
+
+	@Override
+	TemporalAccessor toTemporal(LocalDateTime value) {
+		return value;
+	}
+
+	@Override
+	LocalDateTime fromTemporal(TemporalAccessor parsed) {
+		return localDateTime(parsed);
+	}
+
+}
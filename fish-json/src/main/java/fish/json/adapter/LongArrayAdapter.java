@@ -0,0 +1,44 @@
+package fish.json.adapter;
+
+import java.util.Arrays;
+
+import fish.json.stream.JsonReader;
+import fish.json.stream.JsonToken;
+import fish.json.stream.JsonWriter;
+
+public class LongArrayAdapter extends TypeAdapter<long[]> {
+
+	@Override
+	public void write(JsonWriter writer, Object src) {
+		if (src == null) {
+			writer.nullValue();
+			return;
+		}
+		long[] array = (long[]) src;
+		writer.beginArray();
+		for (int i = 0; i < array.length; i++) {
+			writer.value(array[i]);
+		}
+		writer.endArray();
+	}
+
+	@Override
+	public long[] read(JsonReader in) {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+		long[] buffer = new long[16];
+		int size = 0;
+		in.beginArray();
+		while (in.hasNext()) {
+			if (size == buffer.length) {
+				buffer = Arrays.copyOf(buffer, size * 2);
+			}
+			buffer[size++] = in.nextLong();
+		}
+		in.endArray();
+		return Arrays.copyOf(buffer, size);
+	}
+
+}
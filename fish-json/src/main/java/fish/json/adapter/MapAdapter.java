@@ -0,0 +1,168 @@
+package fish.json.adapter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Type;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import fish.json.base.Gson;
+import fish.json.stream.JsonException;
+import fish.json.stream.JsonReader;
+import fish.json.stream.JsonToken;
+import fish.json.stream.JsonWriter;
+import fish.json.util.$Gson$Types;
+import fish.json.util.TypeToken;
+
+/**
+ * Binds {@link Map}s to JSON objects. Keys are written as member names; keys
+ * that are not strings are read back through the adapter of the key type.
+ * Like {@link CollectionAdapter}, the adapters and the concrete map class are
+ * chosen once, when the adapter is built.
+ */
+public class MapAdapter extends TypeAdapter<Object> {
+
+	public static final TypeAdapterFactory FACTORY = new TypeAdapterFactory() {
+		@SuppressWarnings("unchecked")
+		@Override
+		public <T> TypeAdapter<T> create(Gson gson, Class<?> type) {
+			return create(gson, (TypeToken<T>) TypeToken.get(type));
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+			Class<?> raw = type.getRawType();
+			if (!Map.class.isAssignableFrom(raw)) {
+				return null;
+			}
+			Type[] keyAndValueTypes = $Gson$Types.getMapKeyAndValueTypes(type.getType(), raw);
+			Class<?> keyRaw = $Gson$Types.getRawType(keyAndValueTypes[0]);
+			Class<?> valueRaw = $Gson$Types.getRawType(keyAndValueTypes[1]);
+			TypeAdapter<?> keyAdapter = keyRaw == String.class || keyRaw == Object.class ? null
+					: gson.getAdapter(TypeToken.get(keyAndValueTypes[0]));
+			TypeAdapter<?> valueAdapter = gson.getAdapter(TypeToken.get(keyAndValueTypes[1]));
+			return (TypeAdapter<T>) new MapAdapter(raw, keyRaw, keyAdapter,
+					RuntimeClassAdapter.wrap(gson, valueRaw, valueAdapter));
+		}
+	};
+
+	private static final int LINKED_HASH_MAP = 0;
+	private static final int TREE_MAP = 1;
+	private static final int CONCURRENT_HASH_MAP = 2;
+	private static final int ENUM_MAP = 3;
+	private static final int CONSTRUCTOR = 4;
+
+	private final Class<?> type;
+	private final Class<?> keyType;
+	/** Null when keys are used as read, as strings. */
+	private final TypeAdapter<?> keyAdapter;
+	private final TypeAdapter<Object> valueAdapter;
+	private final int kind;
+	private final MethodHandle constructor;
+
+	MapAdapter(Class<?> type, Class<?> keyType, TypeAdapter<?> keyAdapter,
+			TypeAdapter<Object> valueAdapter) {
+		this.type = type;
+		this.keyType = keyType;
+		this.keyAdapter = keyAdapter;
+		this.valueAdapter = valueAdapter;
+		if (type.isAssignableFrom(LinkedHashMap.class)) {
+			this.kind = LINKED_HASH_MAP;
+		} else if (type.isAssignableFrom(TreeMap.class)) {
+			this.kind = TREE_MAP;
+		} else if (type.isAssignableFrom(ConcurrentHashMap.class)) {
+			this.kind = CONCURRENT_HASH_MAP;
+		} else if (EnumMap.class.isAssignableFrom(type) && keyType.isEnum()) {
+			this.kind = ENUM_MAP;
+		} else {
+			this.kind = CONSTRUCTOR;
+		}
+		this.constructor = kind == CONSTRUCTOR ? CollectionAdapter.constructor(type) : null;
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private Map<Object, Object> newInstance() {
+		switch (kind) {
+		case LINKED_HASH_MAP:
+			return new LinkedHashMap<Object, Object>();
+		case TREE_MAP:
+			return new TreeMap<Object, Object>();
+		case CONCURRENT_HASH_MAP:
+			return new ConcurrentHashMap<Object, Object>();
+		case ENUM_MAP:
+			return new EnumMap(keyType);
+		default:
+			if (constructor == null) {
+				throw new JsonException("Unable to create " + type.getName()
+						+ ": no accessible no-arg constructor");
+			}
+			try {
+				return (Map<Object, Object>) (Object) constructor.invokeExact();
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new JsonException("Unable to create " + type.getName(), e);
+			}
+		}
+	}
+
+	private static String keyToString(Object key) {
+		if (key instanceof String) {
+			return (String) key;
+		} else if (key instanceof Enum) {
+			return ((Enum<?>) key).name();
+		}
+		return String.valueOf(key);
+	}
+
+	@Override
+	public void write(JsonWriter writer, Object src) {
+		if (src == null) {
+			writer.nullValue();
+			return;
+		}
+		TypeAdapter<Object> valueAdapter = this.valueAdapter;
+		writer.beginObject();
+		for (Map.Entry<?, ?> entry : ((Map<?, ?>) src).entrySet()) {
+			writer.name(keyToString(entry.getKey()));
+			Object value = entry.getValue();
+			if (value == null) {
+				writer.nullValue();
+			} else {
+				valueAdapter.write(writer, value);
+			}
+		}
+		writer.endObject();
+	}
+
+	@Override
+	public Object read(JsonReader in) {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+		Map<Object, Object> map = newInstance();
+		TypeAdapter<Object> valueAdapter = this.valueAdapter;
+		in.beginObject();
+		while (in.hasNext()) {
+			Object key;
+			if (keyAdapter == null) {
+				key = in.nextName();
+			} else {
+				in.promoteNameToValue();
+				key = keyAdapter.read(in);
+			}
+			if (map.put(key, valueAdapter.read(in)) != null) {
+				throw new JsonException("Duplicate key: " + key + " at " + in.getPath());
+			}
+		}
+		in.endObject();
+		return map;
+	}
+
+}
@@ -1,13 +1,75 @@
 package fish.json.adapter;
 
-import java.lang.reflect.Field;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
 
+import fish.json.base.Gson;
+import fish.json.stream.JsonException;
 import fish.json.stream.JsonReader;
 import fish.json.stream.JsonToken;
 import fish.json.stream.JsonWriter;
+import fish.json.stream.NameTable;
+import fish.json.util.$Gson$Types;
+import fish.json.util.TypeToken;
 
 public class ObjectAdapter extends TypeAdapter<Object> {
 
+	public static final TypeAdapterFactory FACTORY = new TypeAdapterFactory() {
+		@SuppressWarnings("unchecked")
+		@Override
+		public <T> TypeAdapter<T> create(Gson gson, Class<?> type) {
+			return create(gson, (TypeToken<T>) TypeToken.get(type));
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+			Class<?> raw = type.getRawType();
+			if (raw.isPrimitive() || raw.isArray()) {
+				return null;
+			}
+			return (TypeAdapter<T>) new ObjectAdapter(gson, type.getType());
+		}
+	};
+
+	/** Reflection is done once per class and shared by every Gson instance. */
+	private static final ClassValue<Metadata> METADATA = new ClassValue<Metadata>() {
+		@Override
+		protected Metadata computeValue(Class<?> type) {
+			return new Metadata(type);
+		}
+	};
+
+	private final Metadata metadata;
+	private final TypeAdapter<?>[] adapters;
+
+	public ObjectAdapter(Gson gson, Class<?> type) {
+		this(gson, (Type) type);
+	}
+
+	/**
+	 * @param type the bound type; if it is parameterized, type variables in
+	 *             field declarations are resolved against it
+	 */
+	public ObjectAdapter(Gson gson, Type type) {
+		this.metadata = METADATA.get($Gson$Types.getRawType(type));
+		BoundField[] fields = metadata.fields;
+		this.adapters = new TypeAdapter<?>[fields.length];
+		for (int i = 0; i < fields.length; i++) {
+			if (fields[i].kind == BoundField.KIND_OBJECT) {
+				Type fieldType = fields[i].resolveType(type);
+				adapters[i] = RuntimeClassAdapter.wrap(gson, $Gson$Types.getRawType(fieldType),
+						gson.getAdapter(TypeToken.get(fieldType)));
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
 	@Override
 	public void write(JsonWriter writer, Object src) {
 		if (src == null) {
@@ -16,15 +78,19 @@ public class ObjectAdapter extends TypeAdapter<Object> {
 		}
 
 		writer.beginObject();
-		Field[] fields = src.getClass().getFields();
-		for (Field field : fields) {
-			writer.name(field.getName());
-			try {
-				writer.value(field.get(src).toString());
-			} catch (IllegalArgumentException e) {
-				e.printStackTrace();
-			} catch (IllegalAccessException e) {
-				e.printStackTrace();
+		BoundField[] fields = metadata.fields;
+		for (int i = 0; i < fields.length; i++) {
+			BoundField field = fields[i];
+			writer.name(field.preparedName);
+			if (field.kind != BoundField.KIND_OBJECT) {
+				field.writePrimitive(writer, src);
+				continue;
+			}
+			Object value = field.get(src);
+			if (value == null) {
+				writer.nullValue();
+			} else {
+				((TypeAdapter<Object>) adapters[i]).write(writer, value);
 			}
 		}
 		writer.endObject();
@@ -37,33 +103,154 @@ public class ObjectAdapter extends TypeAdapter<Object> {
 			return null;
 		}
 
-		Object instance = null;
-
-		try {
-			in.beginObject();
-			while (in.hasNext()) {
-				String name = in.nextName();
-				Field field;
-				field = instance.getClass().getField(name);
-				if (field == null) {
-					in.skipValue();
-				} else {
-					try {
-						field.set(instance, in.nextString());
-					} catch (IllegalArgumentException e) {
-						e.printStackTrace();
-					} catch (IllegalAccessException e) {
-						e.printStackTrace();
-					}
-				}
+		Object instance = metadata.newInstance();
+		in.beginObject();
+		while (in.hasNext()) {
+			int index = in.nextNameIndex(metadata.names);
+			if (index < 0) {
+				in.skipValue();
+				continue;
+			}
+			BoundField field = metadata.fields[index];
+			if (field.kind != BoundField.KIND_OBJECT) {
+				field.readPrimitive(in, instance);
+			} else {
+				field.set(instance, adapters[index].read(in));
 			}
-		} catch (NoSuchFieldException e) {
-
-		} catch (SecurityException e) {
-			throw new AssertionError(e);
 		}
 		in.endObject();
 		return instance;
 	}
 
+	static final class Metadata {
+		private static final Object[] NO_ARGS = new Object[0];
+		private static final Object REFLECTION_FACTORY;
+		private static final Method NEW_CONSTRUCTOR_FOR_SERIALIZATION;
+		/** {@code Constructor.newInstance(Object...)}, to call the serialization constructor. */
+		private static final MethodHandle NEW_INSTANCE;
+		static {
+			Object factory = null;
+			Method newConstructor = null;
+			MethodHandle newInstance = null;
+			try {
+				Class<?> factoryType = Class.forName("sun.reflect.ReflectionFactory");
+				factory = factoryType.getMethod("getReflectionFactory").invoke(null);
+				newConstructor = factoryType.getMethod("newConstructorForSerialization",
+						Class.class, Constructor.class);
+				newInstance = MethodHandles.lookup().findVirtual(Constructor.class, "newInstance",
+						MethodType.methodType(Object.class, Object[].class));
+			} catch (Exception e) {
+				// no jdk.unsupported module; only types with a no-arg constructor can be created
+				newConstructor = null;
+			}
+			REFLECTION_FACTORY = factory;
+			NEW_CONSTRUCTOR_FOR_SERIALIZATION = newConstructor;
+			NEW_INSTANCE = newInstance;
+		}
+
+		final Class<?> type;
+		final BoundField[] fields;
+		final NameTable names;
+		private final MethodHandle constructor;
+
+		Metadata(Class<?> type) {
+			this.type = type;
+			this.fields = BoundField.of(type);
+			String[] names = new String[fields.length];
+			for (int i = 0; i < fields.length; i++) {
+				names[i] = fields[i].name;
+			}
+			this.names = new NameTable(names);
+			this.constructor = constructor(type);
+		}
+
+		/**
+		 * The no-arg constructor, else an allocator that runs no constructor of
+		 * {@code type} at all, or null if there is neither.
+		 */
+		private static MethodHandle constructor(Class<?> type) {
+			if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+				return null;
+			}
+			try {
+				Constructor<?> constructor = type.getDeclaredConstructor();
+				constructor.setAccessible(true);
+				return MethodHandles.lookup().unreflectConstructor(constructor)
+						.asType(MethodType.methodType(Object.class));
+			} catch (NoSuchMethodException e) {
+				return allocator(type);
+			} catch (IllegalAccessException e) {
+				return null;
+			} catch (RuntimeException e) {
+				// not opened to us (InaccessibleObjectException on Java 9+)
+				return null;
+			}
+		}
+
+		/**
+		 * A handle that allocates {@code type} through the constructor that
+		 * serialization uses: only {@code Object()} runs, so field initializers
+		 * are skipped and members missing from the JSON stay zero, false or
+		 * null. This is the allocation Gson does with Unsafe, made through
+		 * {@code sun.reflect.ReflectionFactory} instead, which is reached
+		 * reflectively as it is not part of the platform API.
+		 */
+		private static MethodHandle allocator(Class<?> type) {
+			if (NEW_CONSTRUCTOR_FOR_SERIALIZATION == null) {
+				return null;
+			}
+			try {
+				Constructor<?> constructor = (Constructor<?>) NEW_CONSTRUCTOR_FOR_SERIALIZATION.invoke(
+						REFLECTION_FACTORY, type, Object.class.getDeclaredConstructor());
+				if (constructor == null) {
+					return null;
+				}
+				return MethodHandles.insertArguments(NEW_INSTANCE.bindTo(constructor), 0, new Object[] { NO_ARGS })
+						.asType(MethodType.methodType(Object.class));
+			} catch (ReflectiveOperationException e) {
+				return null;
+			} catch (RuntimeException e) {
+				return null;
+			}
+		}
+
+		static Object defaultValue(Class<?> type) {
+			if (!type.isPrimitive()) {
+				return null;
+			} else if (type == boolean.class) {
+				return Boolean.FALSE;
+			} else if (type == char.class) {
+				return Character.valueOf((char) 0);
+			} else if (type == byte.class) {
+				return Byte.valueOf((byte) 0);
+			} else if (type == short.class) {
+				return Short.valueOf((short) 0);
+			} else if (type == long.class) {
+				return Long.valueOf(0L);
+			} else if (type == float.class) {
+				return Float.valueOf(0f);
+			} else if (type == double.class) {
+				return Double.valueOf(0d);
+			}
+			return Integer.valueOf(0);
+		}
+
+		Object newInstance() {
+			if (constructor == null) {
+				throw new JsonException("Unable to create " + type.getName()
+						+ (type.isInterface() || Modifier.isAbstract(type.getModifiers())
+								? ": it is an interface or abstract class"
+								: ": no accessible constructor"));
+			}
+			try {
+				return (Object) constructor.invokeExact();
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new JsonException("Unable to create " + type.getName(), e);
+			}
+		}
+	}
 }
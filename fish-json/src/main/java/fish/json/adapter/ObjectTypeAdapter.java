@@ -0,0 +1,85 @@
+package fish.json.adapter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import fish.json.base.Gson;
+import fish.json.stream.JsonReader;
+import fish.json.stream.JsonWriter;
+
+/**
+ * Binds values declared as {@code Object}. Reading produces the natural Java
+ * form of the JSON: {@link ArrayList}, {@link LinkedHashMap}, String, Double,
+ * Boolean or null. Writing goes through the adapter of the value's runtime
+ * class.
+ */
+public class ObjectTypeAdapter extends TypeAdapter<Object> {
+
+	public static final TypeAdapterFactory FACTORY = new TypeAdapterFactory() {
+		@SuppressWarnings("unchecked")
+		@Override
+		public <T> TypeAdapter<T> create(Gson gson, Class<?> type) {
+			return type == Object.class ? (TypeAdapter<T>) new ObjectTypeAdapter(gson) : null;
+		}
+	};
+
+	private final Gson gson;
+
+	public ObjectTypeAdapter(Gson gson) {
+		this.gson = gson;
+	}
+
+	@Override
+	public void write(JsonWriter writer, Object src) {
+		if (src == null) {
+			writer.nullValue();
+		} else if (src.getClass() == Object.class) {
+			writer.beginObject();
+			writer.endObject();
+		} else {
+			gson.getAdapter(src.getClass()).write(writer, src);
+		}
+	}
+
+	@Override
+	public Object read(JsonReader in) {
+		switch (in.peek()) {
+		case BEGIN_ARRAY:
+			List<Object> list = new ArrayList<Object>();
+			in.beginArray();
+			while (in.hasNext()) {
+				list.add(read(in));
+			}
+			in.endArray();
+			return list;
+
+		case BEGIN_OBJECT:
+			Map<String, Object> map = new LinkedHashMap<String, Object>();
+			in.beginObject();
+			while (in.hasNext()) {
+				map.put(in.nextName(), read(in));
+			}
+			in.endObject();
+			return map;
+
+		case STRING:
+			return in.nextString();
+
+		case NUMBER:
+			return in.nextDouble();
+
+		case BOOLEAN:
+			return in.nextBoolean();
+
+		case NULL:
+			in.nextNull();
+			return null;
+
+		default:
+			throw new IllegalStateException("Unexpected token " + in.peek() + " at " + in.getPath());
+		}
+	}
+
+}
@@ -0,0 +1,68 @@
+package fish.json.adapter;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+
+import fish.json.base.Gson;
+
+/**
+ * Binds {@link OffsetDateTime} as {@code 2024-01-02T03:04:05+08:00}, keeping
+ * the offset. A value without an offset, or read from epoch milliseconds, is
+ * in UTC.
+ */
+public class OffsetDateTimeAdapter extends TemporalAdapter<OffsetDateTime> {
+
+	public static final TypeAdapterFactory FACTORY = new TypeAdapterFactory() {
+		@SuppressWarnings("unchecked")
+		@Override
+		public <T> TypeAdapter<T> create(Gson gson, Class<?> type) {
+			return type == OffsetDateTime.class ? (TypeAdapter<T>) new OffsetDateTimeAdapter(gson) : null;
+		}
+	};
+
+	public OffsetDateTimeAdapter(Gson gson) {
+		super(gson);
+	}
+
+	@Override
+	long toEpochMillis(OffsetDateTime value) {
+		return value.toInstant().toEpochMilli();
+	}
+
+	@Override
+	OffsetDateTime fromEpochMillis(long millis) {
+		return Instant.ofEpochMilli(millis).atOffset(ZoneOffset.UTC);
+	}
+
+	@Override
+	int format(Iso8601 iso, OffsetDateTime value) {
+		int length = iso.formatLocal(value.getYear(), value.getMonthValue(), value.getDayOfMonth(),
+				value.getHour(), value.getMinute(), value.getSecond(), value.getNano());
+		return length < 0 ? -1 : iso.formatOffset(length, value.getOffset().getTotalSeconds());
+	}
+
+	@Override
+	OffsetDateTime fromIso(Iso8601 iso) {
+		return OffsetDateTime.of(iso.year, iso.month, iso.day, iso.hour, iso.minute, iso.second,
+				iso.nano, ZoneOffset.ofTotalSeconds(iso.offsetSeconds));
+	}
+
+	@Override
+	DateTimeFormatter isoFormatter() {
+		return DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+	}
+
+	@Override
+	TemporalAccessor toTemporal(OffsetDateTime value) {
+		return value;
+	}
+
+	@Override
+	OffsetDateTime fromTemporal(TemporalAccessor parsed) {
+		return localDateTime(parsed).atOffset(offset(parsed));
+	}
+
+}
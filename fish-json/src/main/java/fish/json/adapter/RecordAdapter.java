@@ -0,0 +1,250 @@
+package fish.json.adapter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Type;
+
+import fish.json.base.Gson;
+import fish.json.stream.JsonException;
+import fish.json.stream.JsonReader;
+import fish.json.stream.JsonToken;
+import fish.json.stream.JsonWriter;
+import fish.json.stream.NameTable;
+import fish.json.util.$Gson$Types;
+import fish.json.util.TypeToken;
+
+/**
+ * Binds record classes. Members are read into a primitive and a reference slot
+ * array and the record is created in one call to its canonical constructor,
+ * through a method handle that unpacks the slots without boxing.
+ */
+public class RecordAdapter extends TypeAdapter<Object> {
+
+	public static final TypeAdapterFactory FACTORY = new TypeAdapterFactory() {
+		@SuppressWarnings("unchecked")
+		@Override
+		public <T> TypeAdapter<T> create(Gson gson, Class<?> type) {
+			return create(gson, (TypeToken<T>) TypeToken.get(type));
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+			if (!BoundField.isRecord(type.getRawType())) {
+				return null;
+			}
+			Metadata metadata = METADATA.get(type.getRawType());
+			if (metadata.constructor == null) {
+				return null;
+			}
+			return (TypeAdapter<T>) new RecordAdapter(gson, type.getType(), metadata);
+		}
+	};
+
+	private static final ClassValue<Metadata> METADATA = new ClassValue<Metadata>() {
+		@Override
+		protected Metadata computeValue(Class<?> type) {
+			return new Metadata(type);
+		}
+	};
+
+	private final Metadata metadata;
+	private final TypeAdapter<?>[] adapters;
+
+	private RecordAdapter(Gson gson, Type type, Metadata metadata) {
+		this.metadata = metadata;
+		BoundField[] components = metadata.components;
+		this.adapters = new TypeAdapter<?>[components.length];
+		for (int i = 0; i < components.length; i++) {
+			if (components[i].kind == BoundField.KIND_OBJECT) {
+				Type componentType = components[i].resolveType(type);
+				adapters[i] = RuntimeClassAdapter.wrap(gson, $Gson$Types.getRawType(componentType),
+						gson.getAdapter(TypeToken.get(componentType)));
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void write(JsonWriter writer, Object src) {
+		if (src == null) {
+			writer.nullValue();
+			return;
+		}
+		writer.beginObject();
+		BoundField[] components = metadata.components;
+		for (int i = 0; i < components.length; i++) {
+			BoundField component = components[i];
+			writer.name(component.preparedName);
+			if (component.kind != BoundField.KIND_OBJECT) {
+				component.writePrimitive(writer, src);
+				continue;
+			}
+			Object value = component.get(src);
+			if (value == null) {
+				writer.nullValue();
+			} else {
+				((TypeAdapter<Object>) adapters[i]).write(writer, value);
+			}
+		}
+		writer.endObject();
+	}
+
+	@Override
+	public Object read(JsonReader in) {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+		BoundField[] components = metadata.components;
+		long[] primitives = new long[components.length];
+		Object[] references = new Object[components.length];
+		in.beginObject();
+		while (in.hasNext()) {
+			int index = in.nextNameIndex(metadata.names);
+			if (index < 0) {
+				in.skipValue();
+				continue;
+			}
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+				continue;
+			}
+			switch (components[index].kind) {
+			case BoundField.KIND_OBJECT:
+				references[index] = adapters[index].read(in);
+				break;
+			case BoundField.KIND_DOUBLE:
+				primitives[index] = Double.doubleToRawLongBits(in.nextDouble());
+				break;
+			case BoundField.KIND_FLOAT:
+				primitives[index] = Float.floatToRawIntBits((float) in.nextDouble());
+				break;
+			case BoundField.KIND_BOOLEAN:
+				primitives[index] = in.nextBoolean() ? 1 : 0;
+				break;
+			case BoundField.KIND_LONG:
+				primitives[index] = in.nextLong();
+				break;
+			case BoundField.KIND_CHAR:
+				String value = in.nextString();
+				if (value.length() != 1) {
+					throw new JsonException("Expected a char but was " + value);
+				}
+				primitives[index] = value.charAt(0);
+				break;
+			case BoundField.KIND_SHORT:
+				primitives[index] = in.nextShort();
+				break;
+			case BoundField.KIND_BYTE:
+				primitives[index] = in.nextByte();
+				break;
+			default:
+				primitives[index] = in.nextInt();
+				break;
+			}
+		}
+		in.endObject();
+		return metadata.newInstance(primitives, references);
+	}
+
+	static final class Metadata {
+
+		private static final MethodHandle LONG_BITS_TO_DOUBLE;
+		private static final MethodHandle INT_BITS_TO_FLOAT;
+		static {
+			try {
+				MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+				LONG_BITS_TO_DOUBLE = lookup.findStatic(Double.class, "longBitsToDouble",
+						MethodType.methodType(double.class, long.class));
+				INT_BITS_TO_FLOAT = lookup.findStatic(Float.class, "intBitsToFloat",
+						MethodType.methodType(float.class, int.class));
+			} catch (ReflectiveOperationException e) {
+				throw new AssertionError(e);
+			}
+		}
+
+		final Class<?> type;
+		final BoundField[] components;
+		final NameTable names;
+		/** (long[], Object[])Object, or null if the record cannot be bound. */
+		final MethodHandle constructor;
+
+		Metadata(Class<?> type) {
+			this.type = type;
+			BoundField[] components = BoundField.ofRecord(type);
+			this.components = components == null ? new BoundField[0] : components;
+			String[] names = new String[this.components.length];
+			for (int i = 0; i < names.length; i++) {
+				names[i] = this.components[i].name;
+			}
+			this.names = new NameTable(names);
+			this.constructor = components == null ? null : canonicalConstructor(type, components);
+		}
+
+		/**
+		 * Adapts the canonical constructor to take the slot arrays: each
+		 * parameter is filtered from its slot, then both arrays are spread over
+		 * every parameter.
+		 */
+		private static MethodHandle canonicalConstructor(Class<?> type, BoundField[] components) {
+			Class<?>[] parameterTypes = new Class<?>[components.length];
+			for (int i = 0; i < components.length; i++) {
+				parameterTypes[i] = components[i].type;
+			}
+			try {
+				Constructor<?> c = type.getDeclaredConstructor(parameterTypes);
+				c.setAccessible(true);
+				MethodHandle target = MethodHandles.lookup().unreflectConstructor(c);
+				MethodHandle[] filters = new MethodHandle[components.length];
+				int[] reorder = new int[components.length];
+				for (int i = 0; i < components.length; i++) {
+					filters[i] = slot(components[i], i);
+					reorder[i] = components[i].kind == BoundField.KIND_OBJECT ? 1 : 0;
+				}
+				target = MethodHandles.filterArguments(target, 0, filters);
+				return MethodHandles.permuteArguments(target.asType(target.type().changeReturnType(Object.class)),
+						MethodType.methodType(Object.class, long[].class, Object[].class), reorder);
+			} catch (NoSuchMethodException e) {
+				return null;
+			} catch (IllegalAccessException e) {
+				return null;
+			} catch (RuntimeException e) {
+				// not opened to us (InaccessibleObjectException on Java 9+)
+				return null;
+			}
+		}
+
+		private static MethodHandle slot(BoundField component, int index) {
+			if (component.kind == BoundField.KIND_OBJECT) {
+				MethodHandle element = MethodHandles.insertArguments(
+						MethodHandles.arrayElementGetter(Object[].class), 1, index);
+				return element.asType(MethodType.methodType(component.type, Object[].class));
+			}
+			MethodHandle element = MethodHandles.insertArguments(
+					MethodHandles.arrayElementGetter(long[].class), 1, index);
+			if (component.kind == BoundField.KIND_DOUBLE) {
+				return MethodHandles.filterReturnValue(element, LONG_BITS_TO_DOUBLE);
+			} else if (component.kind == BoundField.KIND_FLOAT) {
+				return MethodHandles.filterReturnValue(MethodHandles.explicitCastArguments(element,
+						MethodType.methodType(int.class, long[].class)), INT_BITS_TO_FLOAT);
+			}
+			return MethodHandles.explicitCastArguments(element,
+					MethodType.methodType(component.type, long[].class));
+		}
+
+		Object newInstance(long[] primitives, Object[] references) {
+			try {
+				return (Object) constructor.invokeExact(primitives, references);
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new JsonException("Unable to create " + type.getName(), e);
+			}
+		}
+	}
+}
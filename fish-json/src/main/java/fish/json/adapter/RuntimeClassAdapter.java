@@ -0,0 +1,101 @@
+package fish.json.adapter;
+
+import java.lang.reflect.Modifier;
+
+import fish.json.base.Gson;
+import fish.json.stream.JsonException;
+import fish.json.stream.JsonReader;
+import fish.json.stream.JsonWriter;
+
+/**
+ * Writes values whose declared type is not final through the adapter of their
+ * runtime class, remembering the last class seen so a homogeneous container
+ * resolves it only once. An adapter registered for the declared type wins
+ * over reflection on a subclass. Reads go to the declared adapter, except
+ * for interfaces and abstract classes, which are read in their natural form
+ * and kept if that form is an instance of the declared type.
+ */
+final class RuntimeClassAdapter extends TypeAdapter<Object> {
+
+	private final Gson gson;
+	private final Class<?> declaredType;
+	private final TypeAdapter<?> declared;
+	private final boolean instantiable;
+	private volatile Entry last;
+
+	private RuntimeClassAdapter(Gson gson, Class<?> declaredType, TypeAdapter<?> declared) {
+		this.gson = gson;
+		this.declaredType = declaredType;
+		this.declared = declared;
+		this.instantiable = !declaredType.isInterface() && !Modifier.isAbstract(declaredType.getModifiers());
+	}
+
+	/**
+	 * Returns {@code declared} itself unless it is the reflective adapter of a
+	 * type that can be subclassed, which cannot see the fields of subclasses.
+	 * An adapter still being built for a recursive type is wrapped too; what it
+	 * turns out to be is checked on first use.
+	 */
+	@SuppressWarnings("unchecked")
+	static TypeAdapter<Object> wrap(Gson gson, Class<?> declaredType, TypeAdapter<?> declared) {
+		if (declaredType.isPrimitive() || declaredType.isArray() || declaredType == Object.class
+				|| Modifier.isFinal(declaredType.getModifiers())) {
+			return (TypeAdapter<Object>) declared;
+		}
+		if (isReflective(declared) || declared instanceof FutureTypeAdapter) {
+			return new RuntimeClassAdapter(gson, declaredType, declared);
+		}
+		return (TypeAdapter<Object>) declared;
+	}
+
+	private static boolean isReflective(TypeAdapter<?> adapter) {
+		return adapter instanceof ObjectAdapter || adapter instanceof GeneratedAdapter;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void write(JsonWriter writer, Object src) {
+		if (src == null) {
+			writer.nullValue();
+			return;
+		}
+		Class<?> type = src.getClass();
+		if (type == declaredType) {
+			((TypeAdapter<Object>) declared).write(writer, src);
+			return;
+		}
+		Entry entry = last;
+		if (entry == null || entry.type != type) {
+			TypeAdapter<?> adapter = gson.getAdapter(type);
+			if (isReflective(adapter) && !isReflective(gson.getAdapter(declaredType))) {
+				adapter = declared;
+			}
+			entry = new Entry(type, adapter);
+			last = entry;
+		}
+		((TypeAdapter<Object>) entry.adapter).write(writer, src);
+	}
+
+	@Override
+	public Object read(JsonReader in) {
+		if (instantiable || !isReflective(gson.getAdapter(declaredType))) {
+			return declared.read(in);
+		}
+		Object value = gson.getAdapter(Object.class).read(in);
+		if (value != null && !declaredType.isInstance(value)) {
+			throw new JsonException("Unable to create " + declaredType.getName()
+					+ ": register an adapter or a RuntimeTypeAdapterFactory for it");
+		}
+		return value;
+	}
+
+	private static final class Entry {
+		final Class<?> type;
+		final TypeAdapter<?> adapter;
+
+		Entry(Class<?> type, TypeAdapter<?> adapter) {
+			this.type = type;
+			this.adapter = adapter;
+		}
+	}
+}
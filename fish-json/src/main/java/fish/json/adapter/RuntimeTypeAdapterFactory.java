@@ -0,0 +1,171 @@
+package fish.json.adapter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import fish.json.base.Gson;
+import fish.json.stream.JsonException;
+import fish.json.stream.JsonReader;
+import fish.json.stream.JsonToken;
+import fish.json.stream.JsonWriter;
+import fish.json.stream.NameTable;
+import fish.json.stream.PreparedName;
+import fish.json.stream.ReplayJsonReader;
+
+/**
+ * Binds a base type to its registered subtypes through a discriminator member,
+ * {@code "type"} by default:
+ *
+ * <pre>
+ * new GsonBuilder().registerFactory(RuntimeTypeAdapterFactory.of(Event.class)
+ * 		.registerSubtype(Click.class, "click")
+ * 		.registerSubtype(Scroll.class, "scroll"), Event.class);
+ * </pre>
+ *
+ * The discriminator does not have to be the first member. The members before
+ * it are buffered by a {@link ReplayJsonReader}, up to
+ * {@link #maxLookahead(int)} tokens, and replayed into the subtype's adapter;
+ * no {@code JsonElement} tree is built. On write the discriminator is emitted
+ * as the first member, so that documents written here read back without
+ * buffering. Subtypes must not declare a field with the discriminator's name.
+ */
+public final class RuntimeTypeAdapterFactory<B> implements TypeAdapterFactory {
+
+	private final Class<B> baseType;
+	private final String typeFieldName;
+	private final List<String> labels = new ArrayList<String>();
+	private final List<Class<?>> subtypes = new ArrayList<Class<?>>();
+	private int maxLookahead = 1024;
+
+	private RuntimeTypeAdapterFactory(Class<B> baseType, String typeFieldName) {
+		if (baseType == null || typeFieldName == null) {
+			throw new NullPointerException();
+		}
+		this.baseType = baseType;
+		this.typeFieldName = typeFieldName;
+	}
+
+	public static <B> RuntimeTypeAdapterFactory<B> of(Class<B> baseType, String typeFieldName) {
+		return new RuntimeTypeAdapterFactory<B>(baseType, typeFieldName);
+	}
+
+	public static <B> RuntimeTypeAdapterFactory<B> of(Class<B> baseType) {
+		return new RuntimeTypeAdapterFactory<B>(baseType, "type");
+	}
+
+	public RuntimeTypeAdapterFactory<B> registerSubtype(Class<? extends B> type, String label) {
+		if (type == null || label == null) {
+			throw new NullPointerException();
+		}
+		if (subtypes.contains(type) || labels.contains(label)) {
+			throw new IllegalArgumentException("types and labels must be unique");
+		}
+		subtypes.add(type);
+		labels.add(label);
+		return this;
+	}
+
+	/** Registers {@code type} under its simple name. */
+	public RuntimeTypeAdapterFactory<B> registerSubtype(Class<? extends B> type) {
+		return registerSubtype(type, type.getSimpleName());
+	}
+
+	/** The most tokens buffered while looking for the discriminator; 1024 by default. */
+	public RuntimeTypeAdapterFactory<B> maxLookahead(int tokens) {
+		if (tokens < 1) {
+			throw new IllegalArgumentException("tokens < 1");
+		}
+		this.maxLookahead = tokens;
+		return this;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> TypeAdapter<T> create(Gson gson, Class<?> type) {
+		if (type != baseType) {
+			return null;
+		}
+		int size = subtypes.size();
+		TypeAdapter<?>[] adapters = new TypeAdapter<?>[size];
+		Map<Class<?>, Integer> indexes = new HashMap<Class<?>, Integer>(CollectionAdapter.capacity(size));
+		for (int i = 0; i < size; i++) {
+			adapters[i] = gson.getAdapter(subtypes.get(i));
+			indexes.put(subtypes.get(i), i);
+		}
+		String[] names = labels.toArray(new String[size]);
+		return (TypeAdapter<T>) new Adapter(baseType, new PreparedName(typeFieldName),
+				new NameTable(names), PreparedName.of(names), adapters, indexes, maxLookahead);
+	}
+
+	private static final class Adapter extends TypeAdapter<Object> {
+		private final Class<?> baseType;
+		private final PreparedName typeField;
+		private final NameTable labels;
+		private final PreparedName[] preparedLabels;
+		private final TypeAdapter<?>[] adapters;
+		private final Map<Class<?>, Integer> indexes;
+		private final int maxLookahead;
+
+		Adapter(Class<?> baseType, PreparedName typeField, NameTable labels,
+				PreparedName[] preparedLabels, TypeAdapter<?>[] adapters,
+				Map<Class<?>, Integer> indexes, int maxLookahead) {
+			this.baseType = baseType;
+			this.typeField = typeField;
+			this.labels = labels;
+			this.preparedLabels = preparedLabels;
+			this.adapters = adapters;
+			this.indexes = indexes;
+			this.maxLookahead = maxLookahead;
+		}
+
+		@Override
+		public void write(JsonWriter writer, Object src) {
+			if (src == null) {
+				writer.nullValue();
+				return;
+			}
+			Integer index = indexes.get(src.getClass());
+			if (index == null) {
+				throw new JsonException("Cannot serialize " + src.getClass().getName()
+						+ ": not a registered subtype of " + baseType.getName());
+			}
+			writer.prefixNextObject(typeField, preparedLabels[index]);
+			try {
+				adapters[index].write(writer, src);
+			} finally {
+				writer.prefixNextObject(null, null);
+			}
+		}
+
+		@Override
+		public Object read(JsonReader in) {
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+				return null;
+			}
+			in.beginObject();
+			ReplayJsonReader replay = new ReplayJsonReader(in, maxLookahead);
+			String typeFieldName = typeField.getName();
+			int index = -2;
+			while (in.hasNext()) {
+				String name = in.nextName();
+				if (name.equals(typeFieldName)) {
+					index = in.nextStringIndex(labels);
+					break;
+				}
+				replay.record(name);
+			}
+			if (index == -2) {
+				throw new JsonException("Cannot deserialize " + baseType.getName()
+						+ ": no member named \"" + typeFieldName + "\" at " + in.getPath());
+			} else if (index < 0) {
+				throw new JsonException("Cannot deserialize " + baseType.getName()
+						+ ": unknown subtype label at " + in.getPath());
+			}
+			return adapters[index].read(replay);
+		}
+	}
+
+}
@@ -17,7 +17,7 @@ public class ShortAdapter extends TypeAdapter<Short> {
 			in.nextNull();
 			return null;
 		}
-		return Integer.valueOf(in.nextInt()).shortValue();
+		return in.nextShort();
 	}
 
 }
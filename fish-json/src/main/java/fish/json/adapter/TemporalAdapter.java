@@ -0,0 +1,167 @@
+package fish.json.adapter;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalQueries;
+import java.util.concurrent.ConcurrentHashMap;
+
+import fish.json.base.Gson;
+import fish.json.stream.JsonException;
+import fish.json.stream.JsonReader;
+import fish.json.stream.JsonToken;
+import fish.json.stream.JsonWriter;
+
+/**
+ * Shared logic of the date and time adapters. By default values are written
+ * as ISO-8601 by {@link Iso8601}, straight between the reader and writer and a
+ * small char buffer kept per thread; with {@link Gson#datePattern()} set they go through
+ * a cached {@link DateTimeFormatter}, and with
+ * {@link Gson#dateAsEpochMillis()} they are written as numbers. Numbers are
+ * read as epoch milliseconds in every mode.
+ */
+abstract class TemporalAdapter<T> extends TypeAdapter<T> {
+
+	/** {@link DateTimeFormatter}s are immutable, so one per pattern serves every Gson. */
+	private static final ConcurrentHashMap<String, DateTimeFormatter> FORMATTERS = new ConcurrentHashMap<String, DateTimeFormatter>();
+
+	static DateTimeFormatter formatter(String pattern) {
+		DateTimeFormatter formatter = FORMATTERS.get(pattern);
+		if (formatter == null) {
+			formatter = DateTimeFormatter.ofPattern(pattern);
+			DateTimeFormatter existing = FORMATTERS.putIfAbsent(pattern, formatter);
+			if (existing != null) {
+				formatter = existing;
+			}
+		}
+		return formatter;
+	}
+
+	/**
+	 * The codec and its char buffer, reused by every read and write on the
+	 * thread. Neither calls back into an adapter while the buffer is in use.
+	 */
+	private static final ThreadLocal<Iso8601> SCRATCH = new ThreadLocal<Iso8601>() {
+		@Override
+		protected Iso8601 initialValue() {
+			return new Iso8601();
+		}
+	};
+
+	/** Null for ISO-8601. */
+	private final DateTimeFormatter pattern;
+	private final boolean epochMillis;
+
+	TemporalAdapter(Gson gson) {
+		String pattern = gson.datePattern();
+		this.pattern = pattern == null ? null : formatter(pattern);
+		this.epochMillis = gson.dateAsEpochMillis();
+	}
+
+	abstract long toEpochMillis(T value);
+
+	abstract T fromEpochMillis(long millis);
+
+	/**
+	 * Formats {@code value} into {@code iso.chars} and returns the length, or
+	 * -1 if it is outside what {@link Iso8601} handles.
+	 */
+	abstract int format(Iso8601 iso, T value);
+
+	/** The value of the fields {@code iso} just parsed, or null if they do not fit this type. */
+	abstract T fromIso(Iso8601 iso);
+
+	/** The ISO formatter for the values {@link Iso8601} leaves alone. */
+	abstract DateTimeFormatter isoFormatter();
+
+	/** Formats the values {@link Iso8601} leaves alone. */
+	String formatIso(T value) {
+		return isoFormatter().format(toTemporal(value));
+	}
+
+	/** {@code value} in a form every pattern letter can format. */
+	abstract TemporalAccessor toTemporal(T value);
+
+	abstract T fromTemporal(TemporalAccessor parsed);
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void write(JsonWriter writer, Object src) {
+		if (src == null) {
+			writer.nullValue();
+			return;
+		}
+		T value = (T) src;
+		if (epochMillis) {
+			writer.value(toEpochMillis(value));
+		} else if (pattern != null) {
+			writer.value(pattern.format(toTemporal(value)));
+		} else {
+			Iso8601 iso = SCRATCH.get();
+			int length = format(iso, value);
+			if (length < 0) {
+				writer.value(formatIso(value));
+			} else {
+				writer.value(iso.chars, 0, length);
+			}
+		}
+	}
+
+	@Override
+	public T read(JsonReader in) {
+		JsonToken token = in.peek();
+		if (token == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		} else if (token == JsonToken.NUMBER) {
+			return fromEpochMillis(in.nextLong());
+		}
+		String text;
+		DateTimeFormatter formatter = pattern;
+		if (formatter == null) {
+			Iso8601 iso = SCRATCH.get();
+			int length = in.nextString(iso.chars);
+			if (length < 0) {
+				// too long for the fast path
+				text = in.nextString();
+			} else {
+				if (iso.parse(length)) {
+					T value = fromIso(iso);
+					if (value != null) {
+						return value;
+					}
+				}
+				text = new String(iso.chars, 0, length);
+			}
+			formatter = isoFormatter();
+		} else {
+			text = in.nextString();
+		}
+		try {
+			return fromTemporal(formatter.parse(text));
+		} catch (DateTimeException e) {
+			throw new JsonException("Unable to parse date \"" + text + "\" at " + in.getPath(), e);
+		}
+	}
+
+	/** The local date-time of a parse result; a missing time means midnight. */
+	static LocalDateTime localDateTime(TemporalAccessor parsed) {
+		LocalDate date = parsed.query(TemporalQueries.localDate());
+		if (date == null) {
+			throw new DateTimeException("No date in " + parsed);
+		}
+		LocalTime time = parsed.query(TemporalQueries.localTime());
+		return time == null ? date.atStartOfDay() : date.atTime(time);
+	}
+
+	/** The offset of a parse result; a missing offset means UTC. */
+	static ZoneOffset offset(TemporalAccessor parsed) {
+		ZoneOffset offset = parsed.query(TemporalQueries.offset());
+		return offset == null ? ZoneOffset.UTC : offset;
+	}
+
+}
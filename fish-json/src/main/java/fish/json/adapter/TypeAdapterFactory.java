@@ -1,7 +1,16 @@
 package fish.json.adapter;
 
 import fish.json.base.Gson;
+import fish.json.util.TypeToken;
 
 public interface TypeAdapterFactory {
 	<T> TypeAdapter<T> create(Gson gson, Class<?> type);
+
+	/**
+	 * Creates an adapter for a possibly parameterized type. Factories that only
+	 * look at the raw class need not override this.
+	 */
+	default <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+		return create(gson, type.getRawType());
+	}
 }
@@ -0,0 +1,18 @@
+package fish.json.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a type whose adapter is generated at compile time by
+ * fish-json-processor. Bound fields must not be private or final, and the
+ * type needs a non-private no-arg constructor.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface JsonBinding {
+}
@@ -1,18 +1,46 @@
 package fish.json.base;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
 import java.io.StringReader;
-import java.io.StringWriter;
 import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import fish.json.adapter.FutureTypeAdapter;
+import fish.json.adapter.LazyObjects;
 import fish.json.adapter.TypeAdapter;
 import fish.json.adapter.TypeAdapterFactory;
 import fish.json.entity.JsonElement;
+import fish.json.stream.BufferRecycler;
+import fish.json.stream.JsonIOException;
+import fish.json.stream.JsonProjection;
 import fish.json.stream.JsonReader;
 import fish.json.stream.JsonTreeReader;
 import fish.json.stream.JsonTreeWriter;
 import fish.json.stream.JsonWriter;
+import fish.json.stream.StringBuilderWriter;
+import fish.json.stream.Utf8Writer;
+import fish.json.util.$Gson$Types;
+import fish.json.util.TypeToken;
 
 public class Gson {
 	private GsonBuilder builder;
@@ -24,22 +52,39 @@ public class Gson {
 	private boolean htmlSafe = false;
 	private boolean leninet = false;
 	private boolean serializeNulls = false;
-	private String datePattern = "yyyy/MM/dd";
+	private String datePattern = null;
+	private boolean dateAsEpochMillis = false;
+	private String indent = null;
 
-	private List<TypeAdapterFactory> factories;
-	@SuppressWarnings("unused")
-	private Map<Integer, TypeAdapter<?>> binders;
+	private final List<TypeAdapterFactory> factories;
+	/** Adapters registered for an exact type, consulted before the cache and the factories. */
+	private final Map<Class<?>, TypeAdapter<?>> binders;
+
+	/** Keyed by canonical type, so parameterized types resolve once too. */
+	private final Map<Type, TypeAdapter<?>> adapterCache = new ConcurrentHashMap<Type, TypeAdapter<?>>();
+	/** The resolution in progress on the current thread, if any. */
+	private final ThreadLocal<Resolution> resolutions = new ThreadLocal<Resolution>();
+	private final LongAdder cacheHits = new LongAdder();
+	private final LongAdder cacheMisses = new LongAdder();
+	/** Readers, writers and output buffers reused by the String methods. */
+	private final BufferRecycler recycler = new BufferRecycler();
+
+	/** Round trips per type in {@link #prewarm(Class...)}; see {@link GsonBuilder#prewarmRounds(int)}. */
+	static final int DEFAULT_PREWARM_ROUNDS = 0;
+	int prewarmRounds = DEFAULT_PREWARM_ROUNDS;
 
 	public Gson(GsonBuilder builder, boolean hs, boolean leninet,
-			boolean snull, String pattern, List<TypeAdapterFactory> factories,
-			Map<Integer, TypeAdapter<?>> defaultFactories) {
+			boolean snull, String pattern, boolean epochMillis, String indent,
+			List<TypeAdapterFactory> factories, Map<Class<?>, TypeAdapter<?>> binders) {
 		this.builder = builder;
 		this.htmlSafe = hs;
 		this.leninet = leninet;
 		this.serializeNulls = snull;
 		this.datePattern = pattern;
+		this.dateAsEpochMillis = epochMillis;
+		this.indent = indent;
 		this.factories = factories;
-		this.binders = defaultFactories;
+		this.binders = binders;
 	}
 
 	public boolean isHtmlSafe() {
@@ -54,10 +99,29 @@ public class Gson {
 		return serializeNulls;
 	}
 
+	/** The custom date pattern, or null for ISO-8601. */
 	public String datePattern() {
 		return datePattern;
 	}
 
+	public boolean dateAsEpochMillis() {
+		return dateAsEpochMillis;
+	}
+
+	/** The indent of pretty-printed output, or null for compact output. */
+	public String indent() {
+		return indent;
+	}
+
+	/** A writer to {@code out} set up the way this instance writes JSON. */
+	public JsonWriter newJsonWriter(Writer out) {
+		JsonWriter writer = new JsonWriter(out);
+		if (indent != null) {
+			writer.setIndent(indent);
+		}
+		return writer;
+	}
+
 	public JsonElement toTreeJson(Object src) {
 		JsonTreeWriter writer = new JsonTreeWriter();
 		this.toJson(src, src.getClass(), writer);
@@ -65,14 +129,48 @@ public class Gson {
 	}
 
 	public String toJson(Object src) {
-		StringWriter writer = new StringWriter();
-		this.toJson(src, writer);
-		return writer.toString();
+		return this.toJson(src, src == null ? null : (Type) src.getClass());
+	}
+
+	/** Writes {@code src} as UTF-8, encoding inline instead of going through a String. */
+	public byte[] toJsonBytes(Object src) {
+		Utf8Writer buffer = recycler.acquireBytes();
+		JsonWriter writer = recycler.acquireWriter(buffer);
+		try {
+			if (indent != null) {
+				writer.setIndent(indent);
+			}
+			this.toJson(src, src == null ? null : src.getClass(), writer);
+			return buffer.toByteArray();
+		} finally {
+			recycler.release(writer);
+			recycler.release(buffer);
+		}
+	}
+
+	/**
+	 * Writes {@code src} to {@code out} as UTF-8 through an 8K buffer, which
+	 * is flushed at the end; the stream is left open.
+	 */
+	public void toJson(Object src, OutputStream out) {
+		Utf8Writer buffer = new Utf8Writer(out);
+		JsonWriter writer = recycler.acquireWriter(buffer);
+		try {
+			if (indent != null) {
+				writer.setIndent(indent);
+			}
+			this.toJson(src, src == null ? null : src.getClass(), writer);
+			buffer.flush();
+		} catch (IOException e) {
+			throw new JsonIOException(e);
+		} finally {
+			recycler.release(writer);
+		}
 	}
 
 	public void toJson(Object src, Writer writer) {
 		
-		JsonWriter out = new JsonWriter(writer);
+		JsonWriter out = newJsonWriter(writer);
 		if (src == null) {
 			this.toJson(src,null,out);
 			return;
@@ -81,31 +179,244 @@ public class Gson {
 	}
 
 	public void toJson(Object src, Class<?> typeOfSrc, JsonWriter writer) {
-		TypeAdapter<?> adapter = null;
-		for (TypeAdapterFactory factory : this.factories) {
-			adapter = factory.create(this, typeOfSrc);
-			if (adapter != null)
-				break;
+		if (typeOfSrc == null) {
+			writer.nullValue();
+			return;
 		}
-		if (adapter == null) {
-			throw new RuntimeException("缺少对应的adapter");
+		this.getAdapter(typeOfSrc).write(writer, src);
+	}
+
+	public String toJson(Object src, Type typeOfSrc) {
+		StringBuilderWriter buffer = recycler.acquireBuffer();
+		JsonWriter writer = recycler.acquireWriter(buffer);
+		try {
+			if (indent != null) {
+				writer.setIndent(indent);
+			}
+			if (typeOfSrc == null || typeOfSrc instanceof Class) {
+				this.toJson(src, (Class<?>) typeOfSrc, writer);
+			} else {
+				this.toJson(src, typeOfSrc, writer);
+			}
+			return buffer.toString();
+		} finally {
+			recycler.release(writer);
+			recycler.release(buffer);
 		}
-		adapter.write(writer, src);
+	}
+
+	public void toJson(Object src, Type typeOfSrc, JsonWriter writer) {
+		this.getAdapter(TypeToken.get(typeOfSrc)).write(writer, src);
 	}
 	
 	public Object objectFromJson(JsonReader reader, Class<?> clazz) {
 	    reader.setLenient(true);
-	    TypeAdapter<?> adapter = null;
-		for (TypeAdapterFactory factory : this.factories) {
-			adapter = factory.create(this, clazz);
-			if (adapter != null)
-				break;
+		return this.getAdapter(clazz).read(reader);
+	}
+
+	/**
+	 * Returns the adapter for {@code type}: an exact registration if there is
+	 * one, otherwise the factories are walked the first time the type is seen
+	 * by this instance.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> TypeAdapter<T> getAdapter(Class<?> type) {
+		TypeAdapter<?> cached = binders.get(type);
+		if (cached == null) {
+			cached = adapterCache.get(type);
 		}
-		if (adapter == null) {
-			throw new RuntimeException("缺少对应的adapter");
+		if (cached != null) {
+			cacheHits.increment();
+			return (TypeAdapter<T>) cached;
+		}
+		return (TypeAdapter<T>) create(type);
+	}
+
+	/**
+	 * Returns the adapter for a possibly parameterized type. The token's type
+	 * is canonical, so {@code Map<String, List<Trade>>} is resolved once and
+	 * then found by identity.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> TypeAdapter<T> getAdapter(TypeToken<T> type) {
+		Type key = type.getType();
+		if (key instanceof Class) {
+			return getAdapter((Class<?>) key);
+		}
+		TypeAdapter<?> cached = adapterCache.get(key);
+		if (cached != null) {
+			cacheHits.increment();
+			return (TypeAdapter<T>) cached;
+		}
+		return (TypeAdapter<T>) create(key);
+	}
+
+	/**
+	 * The adapters of one outermost {@link #getAdapter} call and of the types
+	 * it refers to, on one thread. Types still being created have a
+	 * placeholder, so a type that refers to itself resolves instead of
+	 * recursing. The adapters created along the way are only published to
+	 * the cache once the outermost type has resolved: if a factory further out
+	 * fails, none of them, and none of the placeholders they hold, are kept.
+	 */
+	private static final class Resolution {
+		final Map<Type, FutureTypeAdapter<?>> pending = new HashMap<Type, FutureTypeAdapter<?>>();
+		final Map<Type, TypeAdapter<?>> created = new LinkedHashMap<Type, TypeAdapter<?>>();
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> TypeAdapter<T> create(Type type) {
+		Resolution resolution = resolutions.get();
+		boolean outermost = false;
+		if (resolution == null) {
+			resolution = new Resolution();
+			resolutions.set(resolution);
+			outermost = true;
+		} else {
+			TypeAdapter<T> created = (TypeAdapter<T>) resolution.created.get(type);
+			if (created != null) {
+				cacheHits.increment();
+				return created;
+			}
+		}
+		cacheMisses.increment();
+		FutureTypeAdapter<T> ongoing = (FutureTypeAdapter<T>) resolution.pending.get(type);
+		if (ongoing != null) {
+			return ongoing;
+		}
+
+		try {
+			FutureTypeAdapter<T> call = new FutureTypeAdapter<T>();
+			resolution.pending.put(type, call);
+			TypeToken<T> token = (TypeToken<T>) TypeToken.get(type);
+			for (TypeAdapterFactory factory : this.factories) {
+				TypeAdapter<T> adapter = factory.create(this, token);
+				if (adapter != null) {
+					call.setDelegate(adapter);
+					if (!outermost) {
+						resolution.created.put(type, adapter);
+						return adapter;
+					}
+					for (Map.Entry<Type, TypeAdapter<?>> entry : resolution.created.entrySet()) {
+						adapterCache.putIfAbsent(entry.getKey(), entry.getValue());
+					}
+					TypeAdapter<?> existing = adapterCache.putIfAbsent(type, adapter);
+					return existing != null ? (TypeAdapter<T>) existing : adapter;
+				}
+			}
+			throw new RuntimeException("缺少对应的adapter: " + $Gson$Types.typeToString(type));
+		} finally {
+			resolution.pending.remove(type);
+			if (outermost) {
+				resolutions.remove();
+			}
+		}
+	}
+
+	public long getAdapterCacheHits() {
+		return cacheHits.sum();
+	}
+
+	public long getAdapterCacheMisses() {
+		return cacheMisses.sum();
+	}
+
+	public int getAdapterCacheSize() {
+		return adapterCache.size();
+	}
+
+	/**
+	 * Resolves the adapters of {@code types} and of everything they refer to,
+	 * so that class loading and reflection happen before the first real
+	 * request. Resolving does not initialize the types, enums aside.
+	 * <p>
+	 * With {@link GsonBuilder#prewarmRounds(int)} above zero, which it is not
+	 * by default, each adapter is then exercised: a default instance is
+	 * created, which runs the static initializer of its class, and written and
+	 * read back that many times on the calling thread. HotSpot compiles a
+	 * method after some hundreds to thousands of calls, so about a thousand
+	 * rounds are needed to have the binding code compiled rather than
+	 * interpreted.
+	 */
+	public void prewarm(Class<?>... types) {
+		for (Class<?> type : types) {
+			TypeAdapter<Object> adapter = getAdapter(type);
+			if (prewarmRounds == 0) {
+				continue;
+			}
+			Object sample;
+			try {
+				sample = adapter.read(new JsonReader(new StringReader("{}")));
+			} catch (RuntimeException e) {
+				// not an object, or not constructible from nothing: resolving is all there is to do
+				continue;
+			}
+			for (int i = 0; i < prewarmRounds; i++) {
+				StringBuilderWriter buffer = new StringBuilderWriter();
+				adapter.write(newJsonWriter(buffer), sample);
+				JsonReader reader = new JsonReader(new StringReader(buffer.toString()));
+				reader.setLenient(true);
+				adapter.read(reader);
+			}
+		}
+	}
+
+	/**
+	 * Prewarms the classes listed in a snapshot written by
+	 * {@link #writeSnapshot(Path)}, typically by the previous run. A missing
+	 * file is ignored, as are classes that no longer exist.
+	 */
+	public void prewarm(Path snapshot) {
+		if (!Files.exists(snapshot)) {
+			return;
+		}
+		List<String> names;
+		try {
+			names = Files.readAllLines(snapshot, StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			throw new JsonIOException(e);
+		}
+		ClassLoader loader = Thread.currentThread().getContextClassLoader();
+		if (loader == null) {
+			loader = Gson.class.getClassLoader();
+		}
+		List<Class<?>> types = new ArrayList<Class<?>>(names.size());
+		for (String name : names) {
+			name = name.trim();
+			if (name.isEmpty() || name.startsWith("#")) {
+				continue;
+			}
+			try {
+				// not initialized here; only exercising the adapter, if prewarmRounds asks for it, does that
+				types.add(Class.forName(name, false, loader));
+			} catch (ClassNotFoundException e) {
+				// removed since the snapshot was taken
+			} catch (LinkageError e) {
+				// likewise
+			}
+		}
+		prewarm(types.toArray(new Class<?>[types.size()]));
+	}
+
+	/**
+	 * Writes the names of the classes this instance has resolved adapters
+	 * for, one per line, for {@link #prewarm(Path)} to load on the next start.
+	 * Only the names are kept, not the adapters: the next start still does the
+	 * reflective introspection of every listed class, but during startup
+	 * rather than on the first request that needs it.
+	 */
+	public void writeSnapshot(Path snapshot) {
+		TreeSet<String> names = new TreeSet<String>();
+		for (Type type : adapterCache.keySet()) {
+			if (type instanceof Class && !((Class<?>) type).isPrimitive()) {
+				names.add(((Class<?>) type).getName());
+			}
+		}
+		try {
+			Files.write(snapshot, names, StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			throw new JsonIOException(e);
 		}
-		
-		return adapter.read(reader);
 	}
 	
 	@SuppressWarnings("unchecked")
@@ -114,10 +425,180 @@ public class Gson {
 	}
 	
 	public <T> T fromJson(String json, Class<?> clazz) {
-		return fromJson(new JsonReader(new StringReader(json)),clazz);
+		JsonReader reader = recycler.acquireReader(new StringReader(json));
+		try {
+			return fromJson(reader, clazz);
+		} finally {
+			recycler.release(reader);
+		}
 	}
 	
+	/**
+	 * Binds only the values under the paths of {@code projection}; every other
+	 * member and element is skipped, and the fields it would set keep their
+	 * defaults.
+	 */
+	public <T> T fromJson(String json, Class<?> clazz, JsonProjection projection) {
+		JsonReader reader = recycler.acquireReader(new StringReader(json));
+		try {
+			reader.setProjection(projection);
+			return fromJson(reader, clazz);
+		} finally {
+			recycler.release(reader);
+		}
+	}
+
 	public <T> T fromJson(JsonElement element, Class<?> clazz) {
 		return fromJson(new JsonTreeReader(element),clazz);
 	}
+
+	public <T> T fromJson(JsonReader reader, TypeToken<T> type) {
+		reader.setLenient(true);
+		return this.getAdapter(type).read(reader);
+	}
+
+	public <T> T fromJson(String json, TypeToken<T> type) {
+		JsonReader reader = recycler.acquireReader(new StringReader(json));
+		try {
+			return fromJson(reader, type);
+		} finally {
+			recycler.release(reader);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> T fromJson(String json, Type type) {
+		return (T) fromJson(json, TypeToken.get(type));
+	}
+
+	/**
+	 * Binds the JSON object {@code json} to the interface {@code type} lazily:
+	 * members are only located up front, and each is decoded when its getter
+	 * is first called. See {@link LazyObjects}.
+	 */
+	public <T> T fromJsonLazy(String json, Class<T> type) {
+		return LazyObjects.create(this, json, type);
+	}
+
+	/**
+	 * Iterates over the elements of the top-level array read from {@code in},
+	 * binding one element at a time.
+	 */
+	public <T> JsonArrayIterator<T> iterator(Reader in, Class<T> type) {
+		JsonReader reader = new JsonReader(in);
+		reader.setLenient(true);
+		return new JsonArrayIterator<T>(reader, this.<T>getAdapter(type));
+	}
+
+	/**
+	 * A sequential stream over the elements of the top-level array read from
+	 * {@code in}; closing the stream closes {@code in}.
+	 */
+	public <T> Stream<T> stream(Reader in, Class<T> type) {
+		return stream(in, type, -1);
+	}
+
+	/**
+	 * Like {@link #stream(Reader, Class)}, for an array known to hold
+	 * {@code size} elements. A non-negative size makes the spliterator
+	 * {@link Spliterator#SIZED}, so parallel streams can split the work
+	 * evenly; it must then be exact.
+	 */
+	public <T> Stream<T> stream(Reader in, Class<T> type, long size) {
+		final JsonArrayIterator<T> iterator = iterator(in, type);
+		Spliterator<T> spliterator = size >= 0
+				? Spliterators.spliterator(iterator, size, Spliterator.ORDERED)
+				: Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED);
+		return StreamSupport.stream(spliterator, false).onClose(new Runnable() {
+			@Override
+			public void run() {
+				iterator.close();
+			}
+		});
+	}
+
+	/** Streams the top-level array of a UTF-8 file; close the stream to close the file. */
+	public <T> Stream<T> stream(Path path, Class<T> type) {
+		Reader in;
+		try {
+			in = new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			throw new JsonIOException(e);
+		}
+		return stream(in, type);
+	}
+
+	/** Reads the records of newline-delimited JSON from {@code in}, one value per line. */
+	public <T> JsonLinesReader<T> linesReader(Reader in, Class<T> type) {
+		JsonReader reader = new JsonReader(in);
+		reader.setLenient(true);
+		return new JsonLinesReader<T>(reader, this.<T>getAdapter(type));
+	}
+
+	/** Writes records to {@code out} as newline-delimited JSON, one value per line. */
+	public JsonLinesWriter linesWriter(Writer out) {
+		return new JsonLinesWriter(this, out);
+	}
+
+	/**
+	 * Binds the top-level array {@code json} on the common
+	 * {@link ForkJoinPool}; see {@link #fromJsonParallel(String, Class, ForkJoinPool)}.
+	 */
+	public <T> List<T> fromJsonParallel(String json, Class<T> elementType) {
+		return fromJsonParallel(json, elementType, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Binds the top-level array {@code json} with the tasks of {@code pool}.
+	 * The array is cut into chunks at element boundaries found by a
+	 * structural prescan, and each chunk is read by its own reader; the
+	 * elements are returned in document order. If this Gson is
+	 * {@link GsonBuilder#leninet() lenient} the array is read sequentially on
+	 * the calling thread instead, as lenient quoting and comments can hide
+	 * element boundaries from the prescan. Element adapters must be
+	 * thread-safe, as the built-in ones are.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> List<T> fromJsonParallel(String json, Class<T> elementType, ForkJoinPool pool) {
+		return (List<T>) new ParallelArrayReader(json, getAdapter(elementType), leninet).read(pool);
+	}
+
+	/**
+	 * Writes {@code src} as a JSON array to {@code out} on the common
+	 * {@link ForkJoinPool}; see {@link #toJsonParallel(Collection, Writer, ForkJoinPool)}.
+	 */
+	public void toJsonParallel(Collection<?> src, Writer out) {
+		toJsonParallel(src, out, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Writes {@code src} as a JSON array with the tasks of {@code pool}. The
+	 * elements are cut into chunks that are serialized into private buffers
+	 * at the same time and copied to {@code out} in order, so the output is
+	 * identical to {@link #toJson(Object, Writer)}. Element adapters must be
+	 * thread-safe, as the built-in ones are.
+	 */
+	public void toJsonParallel(Collection<?> src, Writer out, ForkJoinPool pool) {
+		try {
+			new ParallelArrayWriter(this, src, false).write(pool, out, null);
+		} catch (IOException e) {
+			throw new JsonIOException(e);
+		}
+	}
+
+	/**
+	 * Writes {@code src} as a UTF-8 JSON array to {@code out} on the common
+	 * {@link ForkJoinPool}; the tasks encode their chunks as well.
+	 */
+	public void toJsonParallel(Collection<?> src, OutputStream out) {
+		toJsonParallel(src, out, ForkJoinPool.commonPool());
+	}
+
+	public void toJsonParallel(Collection<?> src, OutputStream out, ForkJoinPool pool) {
+		try {
+			new ParallelArrayWriter(this, src, true).write(pool, null, out);
+		} catch (IOException e) {
+			throw new JsonIOException(e);
+		}
+	}
 }
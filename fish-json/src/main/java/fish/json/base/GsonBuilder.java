@@ -1,53 +1,278 @@
 package fish.json.base;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
 
+import fish.json.adapter.ArrayAdapter;
+import fish.json.adapter.BigDecimalApapter;
+import fish.json.adapter.BigIntegerAdapter;
+import fish.json.adapter.BooleanAdapter;
+import fish.json.adapter.BooleanArrayAdapter;
+import fish.json.adapter.ByteArrayAdapter;
+import fish.json.adapter.ClassAdapter;
+import fish.json.adapter.CollectionAdapter;
+import fish.json.adapter.DateAdapter;
+import fish.json.adapter.DoubleAdapter;
+import fish.json.adapter.DoubleArrayAdapter;
+import fish.json.adapter.EnumAdapter;
+import fish.json.adapter.FloatAdapter;
+import fish.json.adapter.GeneratedAdapterFactory;
+import fish.json.adapter.InstantAdapter;
+import fish.json.adapter.IntArrayAdapter;
+import fish.json.adapter.IntegerAdapter;
+import fish.json.adapter.LocalDateTimeAdapter;
+import fish.json.adapter.LongAdapter;
+import fish.json.adapter.LongArrayAdapter;
+import fish.json.adapter.MapAdapter;
+import fish.json.adapter.ObjectAdapter;
+import fish.json.adapter.ObjectTypeAdapter;
+import fish.json.adapter.OffsetDateTimeAdapter;
+import fish.json.adapter.RecordAdapter;
+import fish.json.adapter.ShortAdapter;
+import fish.json.adapter.StringAdapter;
 import fish.json.adapter.TypeAdapter;
 import fish.json.adapter.TypeAdapterFactory;
+import fish.json.adapter.UUIDAdapter;
+import fish.json.util.TypeToken;
 
 public final class GsonBuilder {
-	
+
 	private boolean htmlSafe=false;
 	private boolean leninet=false;
 	private boolean serializeNulls=false;
-	private String datePattern="yyyy/MM/dd";
-	
+	private String datePattern=null;
+	private boolean dateAsEpochMillis=false;
+	private String indent=null;
+	private final List<Class<?>> prewarmTypes=new ArrayList<Class<?>>();
+	private Path prewarmSnapshot=null;
+	private int prewarmRounds=Gson.DEFAULT_PREWARM_ROUNDS;
+	private String[] scanPackages=null;
+	private Path scanIndex=null;
+
 	public GsonBuilder htmlSafe(){
 		this.htmlSafe=true;
 		return this;
 	}
-	
+
 	public GsonBuilder leninet(){
 		this.leninet=true;
 		return this;
 	}
-	
+
 	public GsonBuilder serializerNulls(){
 		this.serializeNulls=true;
 		return this;
 	}
-	
+
+	/**
+	 * Formats dates and times with a {@link java.time.format.DateTimeFormatter}
+	 * pattern instead of ISO-8601. A null pattern restores ISO-8601.
+	 */
 	public GsonBuilder setDatePattern(String datePattern){
 		this.datePattern=datePattern;
 		return this;
 	}
-	
-	private final static Map<Integer,TypeAdapter<?>> binders = new HashMap<Integer,TypeAdapter<?>>();
-	
-	private final static List<TypeAdapterFactory> factories = new ArrayList<TypeAdapterFactory>();
-	
+
+	/**
+	 * Writes dates and times as epoch milliseconds; local date-times are taken
+	 * to be in UTC. Numeric values are always accepted when reading.
+	 */
+	public GsonBuilder dateAsEpochMillis(){
+		this.dateAsEpochMillis=true;
+		return this;
+	}
+
+	/** Writes each member and element on its own line, indented by two spaces per level. */
+	public GsonBuilder setPrettyPrinting(){
+		this.indent="  ";
+		return this;
+	}
+
+	/** Prewarms {@code types} in {@link #create()}; see {@link Gson#prewarm(Class...)}. */
+	public GsonBuilder prewarm(Class<?>... types){
+		Collections.addAll(this.prewarmTypes,types);
+		return this;
+	}
+
+	/**
+	 * Sets the write and read round trips per type that every prewarm runs
+	 * after resolving the adapters, none by default. Rounds create instances,
+	 * so they run the static initializers of the prewarmed types; about a
+	 * thousand are needed to get the binding code compiled. See
+	 * {@link Gson#prewarm(Class...)}.
+	 */
+	public GsonBuilder prewarmRounds(int rounds){
+		if (rounds < 0) {
+			throw new IllegalArgumentException("rounds < 0: " + rounds);
+		}
+		this.prewarmRounds=rounds;
+		return this;
+	}
+
+	/**
+	 * Prewarms the classes listed in {@code snapshot} in {@link #create()};
+	 * see {@link Gson#prewarm(Path)}.
+	 */
+	public GsonBuilder prewarmSnapshot(Path snapshot){
+		this.prewarmSnapshot=snapshot;
+		return this;
+	}
+
+	/**
+	 * Finds the {@link fish.json.annotation.JsonBinding} classes in
+	 * {@code packages} and their sub-packages on the context class path, and
+	 * prewarms them in parallel in {@link #create()}.
+	 */
+	public GsonBuilder scanPackages(String... packages){
+		this.scanPackages=packages.clone();
+		return this;
+	}
+
+	/**
+	 * Keeps the result of {@link #scanPackages(String...)} in {@code index},
+	 * so that later starts skip the scan while the jars holding the packages
+	 * keep their timestamps and sizes.
+	 */
+	public GsonBuilder scanIndex(Path index){
+		this.scanIndex=index;
+		return this;
+	}
+
+	private final static Map<Class<?>,TypeAdapter<?>> defaultBinders = createDefaultBinders();
+
+	/**
+	 * The adapters of String, the numbers, UUID, Class and the primitive
+	 * arrays, by exact class. It follows the registered factories, so that
+	 * those can replace any of them.
+	 */
+	private final static TypeAdapterFactory DEFAULT_BINDERS_FACTORY = new TypeAdapterFactory() {
+		@SuppressWarnings("unchecked")
+		@Override
+		public <T> TypeAdapter<T> create(Gson gson, Class<?> type) {
+			return (TypeAdapter<T>) defaultBinders.get(type);
+		}
+	};
+
+	private final Map<Class<?>,TypeAdapter<?>> binders = new HashMap<Class<?>,TypeAdapter<?>>();
+
+	private final List<TypeAdapterFactory> factories = new ArrayList<TypeAdapterFactory>();
+
+	/**
+	 * Freezes the current registrations into the new {@link Gson}. Later
+	 * registrations on this builder only affect instances created after them.
+	 */
 	public Gson create(){
-		return new Gson(this,this.htmlSafe,this.leninet,this.serializeNulls,this.datePattern,factories,binders);
+		Map<Class<?>,TypeAdapter<?>> table = new HashMap<Class<?>,TypeAdapter<?>>(this.binders);
+
+		List<TypeAdapterFactory> chain = new ArrayList<TypeAdapterFactory>(this.factories);
+		// adapter indexes generated by fish-json-processor
+		for (TypeAdapterFactory factory : ServiceLoader.load(TypeAdapterFactory.class)) {
+			chain.add(factory);
+		}
+		chain.add(DEFAULT_BINDERS_FACTORY);
+		chain.add(ObjectTypeAdapter.FACTORY);
+		chain.add(InstantAdapter.FACTORY);
+		chain.add(LocalDateTimeAdapter.FACTORY);
+		chain.add(OffsetDateTimeAdapter.FACTORY);
+		chain.add(DateAdapter.FACTORY);
+		chain.add(EnumAdapter.FACTORY);
+		chain.add(CollectionAdapter.FACTORY);
+		chain.add(MapAdapter.FACTORY);
+		chain.add(ArrayAdapter.FACTORY);
+		chain.add(RecordAdapter.FACTORY);
+		chain.add(new GeneratedAdapterFactory());
+		chain.add(ObjectAdapter.FACTORY);
+
+		Gson gson = new Gson(this,this.htmlSafe,this.leninet,this.serializeNulls,this.datePattern,this.dateAsEpochMillis,this.indent,
+				Collections.unmodifiableList(chain),Collections.unmodifiableMap(table));
+		gson.prewarmRounds = this.prewarmRounds;
+		if (!this.prewarmTypes.isEmpty()) {
+			gson.prewarm(this.prewarmTypes.toArray(new Class<?>[this.prewarmTypes.size()]));
+		}
+		if (this.prewarmSnapshot != null) {
+			gson.prewarm(this.prewarmSnapshot);
+		}
+		if (this.scanPackages != null) {
+			ClassLoader loader = Thread.currentThread().getContextClassLoader();
+			if (loader == null) {
+				loader = GsonBuilder.class.getClassLoader();
+			}
+			TypeIndex.prewarm(gson, TypeIndex.load(loader, this.scanPackages, this.scanIndex),
+					ForkJoinPool.commonPool());
+		}
+		return gson;
 	}
-	
-	public static void registerDefaultFactory(TypeAdapter<?> typeAdapter,Class<?> type){
-		binders.put(type.hashCode(),typeAdapter);
+
+	/**
+	 * Binds {@code typeAdapter} to exactly {@code type}, ahead of every
+	 * factory; subclasses still go through the factories.
+	 */
+	public GsonBuilder registerDefaultFactory(TypeAdapter<?> typeAdapter,Class<?> type){
+		binders.put(type,typeAdapter);
+		return this;
+	}
+
+	/**
+	 * Adds {@code factory} ahead of the built-in factories, for every type,
+	 * the built-in adapters of String and the numbers included.
+	 */
+	public GsonBuilder registerFactory(TypeAdapterFactory factory){
+		factories.add(factory);
+		return this;
 	}
-	
-	public static void registerFactory(TypeAdapterFactory typeAdapter,Class<?> type){
-		factories.add(typeAdapter);
+
+	/**
+	 * Adds {@code factory} ahead of the built-in factories, consulted only for
+	 * {@code type} and its subtypes.
+	 */
+	public GsonBuilder registerFactory(final TypeAdapterFactory factory,final Class<?> type){
+		factories.add(new TypeAdapterFactory() {
+			@Override
+			public <T> TypeAdapter<T> create(Gson gson, Class<?> raw) {
+				return type.isAssignableFrom(raw) ? factory.<T>create(gson, raw) : null;
+			}
+
+			@Override
+			public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> token) {
+				return type.isAssignableFrom(token.getRawType()) ? factory.create(gson, token) : null;
+			}
+		});
+		return this;
+	}
+
+	private static Map<Class<?>,TypeAdapter<?>> createDefaultBinders(){
+		Map<Class<?>,TypeAdapter<?>> map = new HashMap<Class<?>,TypeAdapter<?>>();
+		map.put(String.class, new StringAdapter());
+		map.put(Integer.class, new IntegerAdapter());
+		map.put(int.class, map.get(Integer.class));
+		map.put(Long.class, new LongAdapter());
+		map.put(long.class, map.get(Long.class));
+		map.put(Short.class, new ShortAdapter());
+		map.put(short.class, map.get(Short.class));
+		map.put(Double.class, new DoubleAdapter());
+		map.put(double.class, map.get(Double.class));
+		map.put(Float.class, new FloatAdapter());
+		map.put(float.class, map.get(Float.class));
+		map.put(Boolean.class, new BooleanAdapter());
+		map.put(boolean.class, map.get(Boolean.class));
+		map.put(BigDecimal.class, new BigDecimalApapter());
+		map.put(BigInteger.class, new BigIntegerAdapter());
+		map.put(UUID.class, new UUIDAdapter());
+		map.put(Class.class, new ClassAdapter());
+		map.put(int[].class, new IntArrayAdapter());
+		map.put(long[].class, new LongArrayAdapter());
+		map.put(double[].class, new DoubleArrayAdapter());
+		map.put(boolean[].class, new BooleanArrayAdapter());
+		map.put(byte[].class, new ByteArrayAdapter());
+		return Collections.unmodifiableMap(map);
 	}
 }
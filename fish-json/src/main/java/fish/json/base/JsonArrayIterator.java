@@ -0,0 +1,65 @@
+package fish.json.base;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import fish.json.adapter.TypeAdapter;
+import fish.json.stream.JsonIOException;
+import fish.json.stream.JsonReader;
+
+/**
+ * Binds the elements of a top-level JSON array one at a time, so that arrays
+ * far larger than the heap can be processed with constant memory. Obtained
+ * from {@link Gson#iterator(java.io.Reader, Class)}; closing it closes the
+ * underlying reader.
+ */
+public final class JsonArrayIterator<T> implements Iterator<T>, Closeable {
+
+	private final JsonReader in;
+	private final TypeAdapter<T> adapter;
+	private boolean begun;
+	private boolean done;
+
+	JsonArrayIterator(JsonReader in, TypeAdapter<T> adapter) {
+		this.in = in;
+		this.adapter = adapter;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (done) {
+			return false;
+		}
+		if (!begun) {
+			in.beginArray();
+			begun = true;
+		}
+		if (in.hasNext()) {
+			return true;
+		}
+		in.endArray();
+		done = true;
+		return false;
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return adapter.read(in);
+	}
+
+	@Override
+	public void close() {
+		done = true;
+		try {
+			in.close();
+		} catch (IOException e) {
+			throw new JsonIOException(e);
+		}
+	}
+
+}
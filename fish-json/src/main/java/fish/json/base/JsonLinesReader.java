@@ -0,0 +1,197 @@
+package fish.json.base;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import fish.json.adapter.TypeAdapter;
+import fish.json.stream.JsonIOException;
+import fish.json.stream.JsonReader;
+
+/**
+ * Binds the records of newline-delimited JSON (JSON Lines), one top-level
+ * value per line. All records go through one {@link JsonReader} and its
+ * buffer; {@link #next()} binds them one at a time, and
+ * {@link #nextBatch(int, ForkJoinPool)} copies the text of a batch of lines
+ * into a reused buffer and binds it on a pool. Obtained from
+ * {@link Gson#linesReader(Reader, Class)}; closing it closes the underlying
+ * reader.
+ */
+public final class JsonLinesReader<T> implements Iterator<T>, Closeable {
+
+	/** Below this many chars per task the per-task overhead outweighs the gain. */
+	private static final int MIN_CHUNK = 16 * 1024;
+
+	private static final int UNKNOWN = 0;
+	private static final int READY = 1;
+	private static final int DONE = 2;
+
+	private final JsonReader in;
+	private final TypeAdapter<T> adapter;
+	private int state = UNKNOWN;
+	/** The text of the current batch, one record per line, and where each line ends. */
+	private final StringBuilder batch = new StringBuilder();
+	private int[] lineEnds = new int[64];
+
+	JsonLinesReader(JsonReader in, TypeAdapter<T> adapter) {
+		this.in = in;
+		this.adapter = adapter;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (state == UNKNOWN) {
+			state = in.nextRecord() ? READY : DONE;
+		}
+		return state == READY;
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		state = UNKNOWN;
+		return adapter.read(in);
+	}
+
+	/**
+	 * Binds up to {@code maxRecords} records on the common
+	 * {@link ForkJoinPool}; see {@link #nextBatch(int, ForkJoinPool)}.
+	 */
+	public List<T> nextBatch(int maxRecords) {
+		return nextBatch(maxRecords, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Binds up to {@code maxRecords} records with the tasks of {@code pool},
+	 * in input order; the list is empty at the end of input. Lines are cut
+	 * into chunks of similar length, each read by its own reader. The
+	 * adapter must be thread-safe, as the built-in ones are.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<T> nextBatch(int maxRecords, ForkJoinPool pool) {
+		if (maxRecords <= 0) {
+			throw new IllegalArgumentException("maxRecords <= 0");
+		}
+		if (state == DONE) {
+			return new ArrayList<T>();
+		}
+		state = UNKNOWN;
+		StringBuilder batch = this.batch;
+		batch.setLength(0);
+		int count = 0;
+		while (count < maxRecords && in.nextRecordText(batch)) {
+			batch.append('\n');
+			if (count == lineEnds.length) {
+				lineEnds = Arrays.copyOf(lineEnds, count * 2);
+			}
+			lineEnds[count++] = batch.length();
+		}
+		if (count < maxRecords) {
+			state = DONE;
+		}
+		Object[] result = new Object[count];
+		if (count > 0) {
+			BatchTask task = new BatchTask(result, 0, count);
+			if (pool.getParallelism() == 1 || batch.length() < MIN_CHUNK * 2) {
+				task.bind();
+			} else {
+				task.target = Math.max(MIN_CHUNK, batch.length() / (pool.getParallelism() * 4));
+				pool.invoke(task);
+			}
+		}
+		return new ArrayList<T>((List<T>) Arrays.asList(result));
+	}
+
+	@Override
+	public void close() {
+		state = DONE;
+		try {
+			in.close();
+		} catch (IOException e) {
+			throw new JsonIOException(e);
+		}
+	}
+
+	/** Binds lines {@code [from, to)} of the batch, splitting them while they are longer than the target. */
+	private final class BatchTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Object[] result;
+		private final int from;
+		private final int to;
+		int target = Integer.MAX_VALUE;
+
+		BatchTask(Object[] result, int from, int to) {
+			this.result = result;
+			this.from = from;
+			this.to = to;
+		}
+
+		private int start(int line) {
+			return line == 0 ? 0 : lineEnds[line - 1];
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1 || lineEnds[to - 1] - start(from) <= target) {
+				bind();
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			BatchTask left = new BatchTask(result, from, middle);
+			BatchTask right = new BatchTask(result, middle, to);
+			left.target = right.target = target;
+			invokeAll(left, right);
+		}
+
+		void bind() {
+			JsonReader reader = new JsonReader(new LinesReader(batch, start(from), lineEnds[to - 1]));
+			reader.setLenient(true);
+			TypeAdapter<T> adapter = JsonLinesReader.this.adapter;
+			for (int i = from; i < to; i++) {
+				reader.nextRecord();
+				result[i] = adapter.read(reader);
+			}
+			// rejects anything left on the last line
+			reader.nextRecord();
+		}
+	}
+
+	/** Presents {@code text[start, end)} as a reader, without copying it. */
+	private static final class LinesReader extends Reader {
+		private final StringBuilder text;
+		private final int end;
+		private int pos;
+
+		LinesReader(StringBuilder text, int start, int end) {
+			this.text = text;
+			this.pos = start;
+			this.end = end;
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) {
+			if (pos == end) {
+				return -1;
+			}
+			int count = Math.min(len, end - pos);
+			text.getChars(pos, pos + count, cbuf, off);
+			pos += count;
+			return count;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+}
@@ -0,0 +1,58 @@
+package fish.json.base;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+import fish.json.stream.JsonIOException;
+import fish.json.stream.JsonWriter;
+
+/**
+ * Writes records as newline-delimited JSON (JSON Lines): each record is one
+ * compact top-level value followed by a line break. All records go through
+ * one {@link JsonWriter}, which {@link JsonWriter#endRecord()} returns to
+ * the start of a document after each. Obtained from
+ * {@link Gson#linesWriter(Writer)}.
+ */
+public final class JsonLinesWriter implements Flushable, Closeable {
+
+	private final Gson gson;
+	private final Writer out;
+	private final JsonWriter writer;
+
+	JsonLinesWriter(Gson gson, Writer out) {
+		this.gson = gson;
+		this.out = out;
+		// never indented: a record must stay on its line
+		this.writer = new JsonWriter(out);
+	}
+
+	public JsonLinesWriter write(Object record) {
+		gson.toJson(record, record == null ? null : record.getClass(), writer);
+		writer.endRecord();
+		return this;
+	}
+
+	public JsonLinesWriter writeAll(Iterable<?> records) {
+		for (Object record : records) {
+			write(record);
+		}
+		return this;
+	}
+
+	@Override
+	public void flush() {
+		writer.flush();
+	}
+
+	@Override
+	public void close() {
+		try {
+			out.close();
+		} catch (IOException e) {
+			throw new JsonIOException(e);
+		}
+	}
+
+}
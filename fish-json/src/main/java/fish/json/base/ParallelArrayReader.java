@@ -0,0 +1,242 @@
+package fish.json.base;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import fish.json.adapter.TypeAdapter;
+import fish.json.stream.JsonException;
+import fish.json.stream.JsonReader;
+import fish.json.stream.JsonToken;
+
+/**
+ * Binds a top-level JSON array on a {@link ForkJoinPool}. A structural
+ * prescan walks the text once, tracking only nesting depth and string
+ * state, counts the elements and cuts the array at depth-1 commas into
+ * chunks of similar length. Each chunk is then read by its own
+ * {@link JsonReader} and bound straight into its slots of the result, so no
+ * merge step is needed to keep the order. Lenient input is read sequentially,
+ * as the prescan only understands strict JSON.
+ */
+final class ParallelArrayReader {
+
+	/** Below this many chars per chunk the per-task overhead outweighs the gain. */
+	private static final int MIN_CHUNK = 16 * 1024;
+
+	private final String json;
+	private final TypeAdapter<?> adapter;
+	private final boolean lenient;
+	/** Chunk boundaries: chunk i covers chars [starts[i], ends[i]) and elements from firstIndexes[i]. */
+	private int[] starts = new int[16];
+	private int[] ends = new int[16];
+	private int[] firstIndexes = new int[16];
+	private int chunks;
+	private int size;
+
+	ParallelArrayReader(String json, TypeAdapter<?> adapter, boolean lenient) {
+		this.json = json;
+		this.adapter = adapter;
+		this.lenient = lenient;
+	}
+
+	List<Object> read(ForkJoinPool pool) {
+		if (lenient) {
+			// single quotes, unquoted strings, comments and ';' separators may all
+			// hide or fake a depth-1 comma, which the prescan only knows in strict JSON
+			return readSequentially();
+		}
+		if (pool.getParallelism() == 1) {
+			// nothing to split across: one chunk, read on the calling thread
+			prescan(Integer.MAX_VALUE);
+		} else {
+			prescan(Math.max(MIN_CHUNK, json.length() / (pool.getParallelism() * 4)));
+		}
+		Object[] result = new Object[size];
+		if (size > 0) {
+			ChunkTask task = new ChunkTask(result, 0, chunks);
+			if (chunks == 1) {
+				task.compute();
+			} else {
+				pool.invoke(task);
+			}
+		}
+		return new ArrayList<Object>(Arrays.asList(result));
+	}
+
+	private List<Object> readSequentially() {
+		JsonReader in = new JsonReader(new StringReader(json));
+		in.setLenient(true);
+		if (in.peek() != JsonToken.BEGIN_ARRAY) {
+			throw new JsonException("Expected a top-level array");
+		}
+		List<Object> result = new ArrayList<Object>();
+		TypeAdapter<?> adapter = this.adapter;
+		in.beginArray();
+		while (in.hasNext()) {
+			result.add(adapter.read(in));
+		}
+		in.endArray();
+		if (in.peek() != JsonToken.END_DOCUMENT) {
+			throw new JsonException("Unexpected content after the top-level array at path " + in.getPath());
+		}
+		return result;
+	}
+
+	private void prescan(int target) {
+		String json = this.json;
+		int length = json.length();
+		int i = 0;
+		while (i < length && isWhitespace(json.charAt(i))) {
+			i++;
+		}
+		if (i == length || json.charAt(i) != '[') {
+			throw new JsonException("Expected a top-level array");
+		}
+		int chunkStart = ++i;
+		int chunkFirst = 0;
+		int depth = 1;
+		boolean empty = true;
+		for (; i < length; i++) {
+			char c = json.charAt(i);
+			if (c == '"') {
+				// skip the string, escapes included
+				for (i++; i < length; i++) {
+					c = json.charAt(i);
+					if (c == '\\') {
+						i++;
+					} else if (c == '"') {
+						break;
+					}
+				}
+				empty = false;
+			} else if (c == '[' || c == '{') {
+				depth++;
+				empty = false;
+			} else if (c == ']' || c == '}') {
+				if (--depth == 0) {
+					break;
+				}
+			} else if (c == ',' && depth == 1) {
+				size++;
+				if (i - chunkStart >= target) {
+					addChunk(chunkStart, i, chunkFirst);
+					chunkStart = i + 1;
+					chunkFirst = size;
+				}
+			} else if (!isWhitespace(c)) {
+				empty = false;
+			}
+		}
+		if (depth != 0) {
+			throw new JsonException("Unterminated array");
+		}
+		for (int j = i + 1; j < length; j++) {
+			if (!isWhitespace(json.charAt(j))) {
+				throw new JsonException("Unexpected character after the top-level array at offset " + j);
+			}
+		}
+		if (!empty || size > 0) {
+			size++;
+			addChunk(chunkStart, i, chunkFirst);
+		}
+	}
+
+	private void addChunk(int start, int end, int firstIndex) {
+		if (chunks == starts.length) {
+			starts = Arrays.copyOf(starts, chunks * 2);
+			ends = Arrays.copyOf(ends, chunks * 2);
+			firstIndexes = Arrays.copyOf(firstIndexes, chunks * 2);
+		}
+		starts[chunks] = start;
+		ends[chunks] = end;
+		firstIndexes[chunks] = firstIndex;
+		chunks++;
+	}
+
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+	}
+
+	private void readChunk(Object[] result, int chunk) {
+		JsonReader in = new JsonReader(new ChunkReader(json, starts[chunk], ends[chunk]));
+		in.setLenient(lenient);
+		TypeAdapter<?> adapter = this.adapter;
+		int index = firstIndexes[chunk];
+		in.beginArray();
+		while (in.hasNext()) {
+			result[index++] = adapter.read(in);
+		}
+		in.endArray();
+	}
+
+	private final class ChunkTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Object[] result;
+		private final int from;
+		private final int to;
+
+		ChunkTask(Object[] result, int from, int to) {
+			this.result = result;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				readChunk(result, from);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new ChunkTask(result, from, middle), new ChunkTask(result, middle, to));
+		}
+	}
+
+	/** Presents {@code json[start, end)} as the array {@code [...]}, without copying it. */
+	private static final class ChunkReader extends Reader {
+		private final String json;
+		private final int end;
+		private int pos;
+		private boolean opened;
+		private boolean closed;
+
+		ChunkReader(String json, int start, int end) {
+			this.json = json;
+			this.pos = start;
+			this.end = end;
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+			int n = 0;
+			if (!opened) {
+				cbuf[off + n++] = '[';
+				opened = true;
+			}
+			int count = Math.min(len - n, end - pos);
+			if (count > 0) {
+				json.getChars(pos, pos + count, cbuf, off + n);
+				pos += count;
+				n += count;
+			}
+			if (pos == end && !closed && n < len) {
+				cbuf[off + n++] = ']';
+				closed = true;
+			}
+			return n == 0 ? -1 : n;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+}
@@ -0,0 +1,178 @@
+package fish.json.base;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import fish.json.adapter.ObjectTypeAdapter;
+import fish.json.adapter.TypeAdapter;
+import fish.json.stream.JsonWriter;
+import fish.json.stream.StringBuilderWriter;
+import fish.json.stream.Utf8Writer;
+
+/**
+ * Writes a collection as a JSON array on a {@link ForkJoinPool}. The elements
+ * are cut into chunks; each task writes its chunk as an array through its own
+ * {@link JsonWriter} into a private buffer, so element separators and
+ * indentation come out exactly as in a sequential write, and the brackets are
+ * dropped when the buffer is copied out. Buffers are written in order, with a
+ * comma between chunks, and at most two per worker are in flight at a time.
+ * Lists with random access are sliced in place; other collections are
+ * iterated once on the calling thread, which copies each chunk as it is
+ * submitted. Elements go through the adapter of their runtime class, which a
+ * task looks up again only when the class changes from one element to the
+ * next.
+ */
+final class ParallelArrayWriter {
+
+	private static final int MIN_CHUNK = 1024;
+
+	private final Gson gson;
+	private final Collection<?> elements;
+	/** {@link #elements} if it can be sliced in place, otherwise null. */
+	private final List<?> list;
+	/** Set when writing to a stream, so that tasks encode UTF-8 as well. */
+	private final boolean encode;
+
+	ParallelArrayWriter(Gson gson, Collection<?> src, boolean encode) {
+		this.gson = gson;
+		this.elements = src;
+		this.list = src instanceof List && src instanceof RandomAccess ? (List<?>) src : null;
+		this.encode = encode;
+	}
+
+	/** Writes to {@code stream} as UTF-8 if it is not null, otherwise to {@code out}. */
+	void write(ForkJoinPool pool, Writer out, OutputStream stream) throws IOException {
+		int size = elements.size();
+		if (pool.getParallelism() == 1 || size <= MIN_CHUNK) {
+			writeSequential(stream != null ? new Utf8Writer(stream) : out);
+			return;
+		}
+		int chunkSize = Math.max(MIN_CHUNK, size / (pool.getParallelism() * 4) + 1);
+		int window = pool.getParallelism() * 2;
+		ArrayDeque<ForkJoinTask<Writer>> inFlight = new ArrayDeque<ForkJoinTask<Writer>>();
+		Iterator<?> iterator = list == null ? elements.iterator() : null;
+		boolean first = true;
+		raw(out, stream, "[");
+		try {
+			for (int from = 0; from < size; from += chunkSize) {
+				int end = Math.min(size, from + chunkSize);
+				final List<?> chunk = list != null ? list.subList(from, end) : next(iterator, end - from);
+				inFlight.add(pool.submit(new Callable<Writer>() {
+					@Override
+					public Writer call() {
+						return encodeChunk(chunk);
+					}
+				}));
+				if (inFlight.size() >= window) {
+					emit(inFlight.poll().join(), first, out, stream);
+					first = false;
+				}
+			}
+			while (!inFlight.isEmpty()) {
+				emit(inFlight.poll().join(), first, out, stream);
+				first = false;
+			}
+		} finally {
+			for (ForkJoinTask<Writer> task : inFlight) {
+				task.cancel(false);
+			}
+		}
+		raw(out, stream, first || gson.indent() == null ? "]" : "\n]");
+		if (stream != null) {
+			stream.flush();
+		} else {
+			out.flush();
+		}
+	}
+
+	private void writeSequential(Writer out) throws IOException {
+		JsonWriter writer = gson.newJsonWriter(out);
+		writer.beginArray();
+		writeElements(writer, elements);
+		writer.endArray();
+		out.flush();
+	}
+
+	/** The next {@code count} elements of {@code iterator}, copied. */
+	private static List<?> next(Iterator<?> iterator, int count) {
+		Object[] chunk = new Object[count];
+		for (int i = 0; i < count; i++) {
+			chunk[i] = iterator.next();
+		}
+		return Arrays.asList(chunk);
+	}
+
+	/**
+	 * Writes {@code chunk} as an array into a char buffer, or straight to
+	 * UTF-8 bytes when encoding, and returns the buffer.
+	 */
+	private Writer encodeChunk(List<?> chunk) {
+		int size = chunk.size();
+		Writer buffer = encode ? new Utf8Writer(size * 32) : new StringBuilderWriter(size * 32);
+		JsonWriter writer = gson.newJsonWriter(buffer);
+		writer.beginArray();
+		writeElements(writer, chunk);
+		writer.endArray();
+		return buffer;
+	}
+
+	/**
+	 * Writes each element as {@link ObjectTypeAdapter} would, through the
+	 * adapter of its runtime class, but looks the adapter up only when the
+	 * class differs from the previous element's.
+	 */
+	private void writeElements(JsonWriter writer, Collection<?> chunk) {
+		Class<?> lastType = null;
+		TypeAdapter<Object> last = null;
+		for (Object element : chunk) {
+			if (element == null) {
+				writer.nullValue();
+				continue;
+			}
+			Class<?> type = element.getClass();
+			if (type != lastType) {
+				last = gson.getAdapter(type);
+				lastType = type;
+			}
+			last.write(writer, element);
+		}
+	}
+
+	/**
+	 * Writes the elements of a chunk, dropping its "[" and its "]", or "\n]"
+	 * when indenting, and separating it from the previous one with a comma.
+	 */
+	private void emit(Writer chunk, boolean first, Writer out, OutputStream stream) throws IOException {
+		int trim = gson.indent() == null ? 1 : 2;
+		if (!first) {
+			raw(out, stream, ",");
+		}
+		if (chunk instanceof Utf8Writer) {
+			Utf8Writer bytes = (Utf8Writer) chunk;
+			stream.write(bytes.buffer(), 1, bytes.size() - 1 - trim);
+		} else {
+			StringBuilderWriter buffer = (StringBuilderWriter) chunk;
+			buffer.writeTo(out, 1, buffer.getBuilder().length() - trim);
+		}
+	}
+
+	private static void raw(Writer out, OutputStream stream, String text) throws IOException {
+		if (stream != null) {
+			stream.write(text.getBytes(StandardCharsets.UTF_8));
+		} else {
+			out.write(text);
+		}
+	}
+
+}
@@ -0,0 +1,119 @@
+package fish.json.base;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import fish.json.annotation.JsonBinding;
+import fish.json.stream.JsonIOException;
+import fish.json.util.ClassScanner;
+
+/**
+ * The {@link JsonBinding} classes of a set of packages, found with
+ * {@link ClassScanner} and optionally kept in an index file. The index
+ * starts with a fingerprint of the jars the packages live in; while they are
+ * unchanged the classes are taken from it instead of scanning again.
+ * Packages found in a directory have no fingerprint and are always scanned.
+ */
+final class TypeIndex {
+
+	private static final String HEADER = "# fish-json type index ";
+
+	private TypeIndex() {
+	}
+
+	static List<Class<?>> load(ClassLoader loader, String[] packages, Path index) {
+		try {
+			String fingerprint = fingerprint(loader, packages);
+			List<String> names = null;
+			if (index != null && fingerprint != null && Files.exists(index)) {
+				List<String> lines = Files.readAllLines(index, StandardCharsets.UTF_8);
+				if (!lines.isEmpty() && lines.get(0).equals(HEADER + fingerprint)) {
+					names = lines.subList(1, lines.size());
+				}
+			}
+			boolean scan = names == null;
+			if (scan) {
+				Set<String> found = new TreeSet<String>();
+				for (String packageName : packages) {
+					ClassScanner.scan(loader, packageName, found);
+				}
+				names = new ArrayList<String>(found);
+			}
+			List<Class<?>> types = new ArrayList<Class<?>>();
+			List<String> lines = new ArrayList<String>();
+			lines.add(HEADER + fingerprint);
+			for (String name : names) {
+				Class<?> type;
+				try {
+					type = Class.forName(name, false, loader);
+				} catch (ClassNotFoundException e) {
+					continue;
+				} catch (LinkageError e) {
+					// a dependency of the class is missing; it cannot be bound anyway
+					continue;
+				}
+				if (!scan || type.isAnnotationPresent(JsonBinding.class)) {
+					types.add(type);
+					lines.add(name);
+				}
+			}
+			if (scan && index != null && fingerprint != null) {
+				Files.write(index, lines, StandardCharsets.UTF_8);
+			}
+			return types;
+		} catch (IOException e) {
+			throw new JsonIOException(e);
+		}
+	}
+
+	private static String fingerprint(ClassLoader loader, String[] packages) throws IOException {
+		StringBuilder result = new StringBuilder();
+		for (String packageName : packages) {
+			String part = ClassScanner.fingerprint(loader, packageName);
+			if (part == null) {
+				return null;
+			}
+			result.append(part).append('|');
+		}
+		return result.toString();
+	}
+
+	/** Prewarms {@code types} with the tasks of {@code pool}, one task per type. */
+	static void prewarm(final Gson gson, List<Class<?>> types, ForkJoinPool pool) {
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(types.size());
+		for (final Class<?> type : types) {
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					gson.prewarm(type);
+					return null;
+				}
+			});
+		}
+		for (Future<Void> future : pool.invokeAll(tasks)) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				throw new IllegalStateException(cause);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,167 @@
+package fish.json.stream;
+
+import java.io.Reader;
+import java.io.Writer;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded pools of {@link JsonReader}s, {@link JsonWriter}s and output
+ * buffers, so that small documents do not pay for a fresh buffer and stacks
+ * on every call. Each pool is a fixed array of slots
+ * taken and returned with atomic swaps; nothing is kept per thread, so
+ * millions of virtual threads share the same few instances. When every slot
+ * is taken a new instance is made, and when every slot is full a released
+ * one is dropped.
+ */
+public final class BufferRecycler {
+
+	/** Larger output buffers are not kept, so one huge document does not pin its memory. */
+	private static final int MAX_KEPT_CAPACITY = 64 * 1024;
+	/** Slots tried before giving up, starting from the caller's own. */
+	private static final int PROBES = 4;
+
+	private final AtomicReferenceArray<JsonReader> readers;
+	private final AtomicReferenceArray<JsonWriter> writers;
+	private final AtomicReferenceArray<StringBuilderWriter> buffers;
+	private final AtomicReferenceArray<Utf8Writer> byteBuffers;
+	private final int mask;
+
+	/** Pools with about twice as many slots as processors. */
+	public BufferRecycler() {
+		this(Runtime.getRuntime().availableProcessors() * 2);
+	}
+
+	public BufferRecycler(int slots) {
+		int size = Integer.highestOneBit(Math.max(slots, PROBES) * 2 - 1);
+		this.readers = new AtomicReferenceArray<JsonReader>(size);
+		this.writers = new AtomicReferenceArray<JsonWriter>(size);
+		this.buffers = new AtomicReferenceArray<StringBuilderWriter>(size);
+		this.byteBuffers = new AtomicReferenceArray<Utf8Writer>(size);
+		this.mask = size - 1;
+	}
+
+	/** A reader of {@code in}, pooled or new. */
+	public JsonReader acquireReader(Reader in) {
+		JsonReader reader = take(readers);
+		if (reader == null) {
+			return new JsonReader(in);
+		}
+		reader.reset(in);
+		return reader;
+	}
+
+	/** A writer to {@code out}, pooled or new. */
+	public JsonWriter acquireWriter(Writer out) {
+		JsonWriter writer = take(writers);
+		if (writer == null) {
+			return new JsonWriter(out);
+		}
+		writer.reset(out);
+		return writer;
+	}
+
+	/** An empty output buffer, pooled or new. */
+	public StringBuilderWriter acquireBuffer() {
+		StringBuilderWriter buffer = take(buffers);
+		if (buffer == null) {
+			return new StringBuilderWriter(256);
+		}
+		buffer.getBuilder().setLength(0);
+		return buffer;
+	}
+
+	/** An empty UTF-8 output array, pooled or new. */
+	public Utf8Writer acquireBytes() {
+		Utf8Writer buffer = take(byteBuffers);
+		if (buffer == null) {
+			return new Utf8Writer(256);
+		}
+		buffer.reset();
+		return buffer;
+	}
+
+	/**
+	 * Returns {@code reader} to the pool. It must not be used afterwards; the
+	 * source it reads is dropped straight away rather than on the next use.
+	 */
+	public void release(JsonReader reader) {
+		if (reader.getClass() == JsonReader.class) {
+			reader.reset(EMPTY);
+			put(readers, reader);
+		}
+	}
+
+	public void release(JsonWriter writer) {
+		if (writer.getClass() == JsonWriter.class) {
+			writer.reset(NULL_WRITER);
+			put(writers, writer);
+		}
+	}
+
+	public void release(StringBuilderWriter buffer) {
+		if (buffer.getBuilder().capacity() <= MAX_KEPT_CAPACITY) {
+			put(buffers, buffer);
+		}
+	}
+
+	public void release(Utf8Writer buffer) {
+		if (buffer.buffer().length <= MAX_KEPT_CAPACITY) {
+			put(byteBuffers, buffer);
+		}
+	}
+
+	private <T> T take(AtomicReferenceArray<T> slots) {
+		int start = start();
+		for (int i = 0; i < PROBES; i++) {
+			int index = (start + i) & mask;
+			if (slots.get(index) != null) {
+				T value = slots.getAndSet(index, null);
+				if (value != null) {
+					return value;
+				}
+			}
+		}
+		return null;
+	}
+
+	private <T> void put(AtomicReferenceArray<T> slots, T value) {
+		int start = start();
+		for (int i = 0; i < PROBES; i++) {
+			if (slots.compareAndSet((start + i) & mask, null, value)) {
+				return;
+			}
+		}
+	}
+
+	/** Spreads threads over the slots, so that they rarely contend for one. */
+	private int start() {
+		long id = Thread.currentThread().getId();
+		return (int) (id ^ (id >>> 16)) * 0x9E3779B9 & mask;
+	}
+
+	private static final Reader EMPTY = new Reader() {
+		@Override
+		public int read(char[] cbuf, int off, int len) {
+			return -1;
+		}
+
+		@Override
+		public void close() {
+		}
+	};
+
+	private static final Writer NULL_WRITER = new Writer() {
+		@Override
+		public void write(char[] cbuf, int off, int len) {
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+	};
+
+}
@@ -0,0 +1,147 @@
+package fish.json.stream;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A compiled set of JSON paths such as {@code $.user.id} and
+ * {@code $.items[*].sku}. Set on a {@link JsonReader}, it makes
+ * {@link JsonReader#hasNext()} skip every member and element outside the
+ * paths with {@link JsonReader#skipValue()}, so adapters only bind what was
+ * asked for. A path selects the whole value it ends at; {@code .*} matches
+ * any member and {@code [*]} any element. Member names are matched in the
+ * reader's buffer against a {@link NameTable} per level, without building
+ * path strings. Matching is by name only: a member on the way to a path is
+ * let through whatever its value, so objects and arrays there may come out
+ * empty, and a scalar where a container was expected is kept.
+ */
+public final class JsonProjection {
+
+	/** Selects a value and everything below it. */
+	static final Node ALL = new Node();
+
+	final Node root;
+
+	private JsonProjection(Node root) {
+		this.root = root;
+	}
+
+	public static JsonProjection of(String... paths) {
+		Node root = new Node();
+		for (String path : paths) {
+			add(root, path);
+		}
+		return new JsonProjection(compile(root));
+	}
+
+	private static void add(Node root, String path) {
+		if (!path.startsWith("$")) {
+			throw new IllegalArgumentException("Path must start with '$': " + path);
+		}
+		Node node = root;
+		int i = 1;
+		int length = path.length();
+		while (i < length) {
+			char c = path.charAt(i);
+			if (c == '.') {
+				int end = i + 1;
+				while (end < length && path.charAt(end) != '.' && path.charAt(end) != '[') {
+					end++;
+				}
+				if (end == i + 1) {
+					throw new IllegalArgumentException("Empty member name in " + path);
+				}
+				String name = path.substring(i + 1, end);
+				if (name.equals("*")) {
+					if (node.anyMember == null) {
+						node.anyMember = new Node();
+					}
+					node = node.anyMember;
+				} else {
+					Node child = node.members.get(name);
+					if (child == null) {
+						child = new Node();
+						node.members.put(name, child);
+					}
+					node = child;
+				}
+				i = end;
+			} else if (path.startsWith("[*]", i)) {
+				if (node.elements == null) {
+					node.elements = new Node();
+				}
+				node = node.elements;
+				i += 3;
+			} else {
+				throw new IllegalArgumentException("Unsupported path syntax at " + i + ": " + path);
+			}
+		}
+		node.leaf = true;
+	}
+
+	/** Merges wildcard members into the named ones and freezes the tree. */
+	private static Node compile(Node node) {
+		if (node == null) {
+			return null;
+		} else if (node.leaf) {
+			return ALL;
+		}
+		if (node.anyMember != null) {
+			for (Node child : node.members.values()) {
+				merge(child, node.anyMember);
+			}
+		}
+		String[] names = node.members.keySet().toArray(new String[node.members.size()]);
+		node.children = new Node[names.length];
+		for (int i = 0; i < names.length; i++) {
+			node.children[i] = compile(node.members.get(names[i]));
+		}
+		node.names = new NameTable(names);
+		node.anyMember = compile(node.anyMember);
+		node.elements = compile(node.elements);
+		node.members = null;
+		return node;
+	}
+
+	private static void merge(Node into, Node from) {
+		if (from.leaf) {
+			into.leaf = true;
+		}
+		for (Map.Entry<String, Node> entry : from.members.entrySet()) {
+			Node child = into.members.get(entry.getKey());
+			if (child == null) {
+				child = new Node();
+				into.members.put(entry.getKey(), child);
+			}
+			merge(child, entry.getValue());
+		}
+		if (from.anyMember != null) {
+			if (into.anyMember == null) {
+				into.anyMember = new Node();
+			}
+			merge(into.anyMember, from.anyMember);
+		}
+		if (from.elements != null) {
+			if (into.elements == null) {
+				into.elements = new Node();
+			}
+			merge(into.elements, from.elements);
+		}
+	}
+
+	static final class Node {
+		Map<String, Node> members = new LinkedHashMap<String, Node>();
+		boolean leaf;
+		/** Compiled form: the named members, then what any other member and any element select. */
+		NameTable names;
+		Node[] children;
+		Node anyMember;
+		Node elements;
+
+		/** The node of the member at {@code index} in {@link #names}, or of any member for -1. */
+		Node member(int index) {
+			return index >= 0 ? children[index] : anyMember;
+		}
+	}
+
+}
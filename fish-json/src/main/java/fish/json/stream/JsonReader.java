@@ -1,11 +1,24 @@
 package fish.json.stream;
 
 import java.io.*;
+import java.util.Arrays;
+import java.util.Base64;
 
 public class JsonReader implements Closeable {
 
 	private static final char[] NON_EXECUTE_PREFIX = ")]}'\n".toCharArray();
 	private static final long MIN_INCOMPLETE_INTEGER = Long.MIN_VALUE / 10;
+	private static final byte[] BASE64_DIGITS = new byte[128];
+	static {
+		Arrays.fill(BASE64_DIGITS, (byte) -1);
+		String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+		for (int i = 0; i < alphabet.length(); i++) {
+			BASE64_DIGITS[alphabet.charAt(i)] = (byte) i;
+		}
+		// also accept the URL-safe alphabet
+		BASE64_DIGITS['-'] = 62;
+		BASE64_DIGITS['_'] = 63;
+	}
 
 	private static final int PEEKED_NONE = 0;
 	private static final int PEEKED_BEGIN_OBJECT = 1;
@@ -25,6 +38,8 @@ public class JsonReader implements Closeable {
 	private static final int PEEKED_LONG = 15;
 	private static final int PEEKED_NUMBER = 16;
 	private static final int PEEKED_EOF = 17;
+	/** A name already read into {@link #peekedString}, see {@link #skipUnprojected}. */
+	private static final int PEEKED_BUFFERED_NAME = 18;
 
 	private static final int NUMBER_CHAR_NONE = 0;
 	private static final int NUMBER_CHAR_SIGN = 1;
@@ -35,12 +50,14 @@ public class JsonReader implements Closeable {
 	private static final int NUMBER_CHAR_EXP_SIGN = 6;
 	private static final int NUMBER_CHAR_EXP_DIGIT = 7;
 
-	private final Reader in;
+	private Reader in;
 	private boolean lenient = false;
 	private final char[] buffer = new char[1024];
 
 	private int pos = 0;
 	private int limit = 0;
+	/** Chars read from {@link #in} before {@code buffer[0]}. */
+	private long bufferOffset = 0;
 
 	private int lineNumber = 0;
 	private int lineStart = 0;
@@ -51,6 +68,10 @@ public class JsonReader implements Closeable {
 	private int peekedNumberLength;
 
 	private String peekedString;
+	/** Projection nodes parallel to {@link #stack}, or null when not projecting. */
+	private JsonProjection.Node[] projection;
+	/** The node of the member whose name {@link #hasNext()} last let through. */
+	private JsonProjection.Node memberProjection;
 	private int[] stack = new int[32];
 	private int stackSize = 0;
 	{
@@ -67,6 +88,34 @@ public class JsonReader implements Closeable {
 		this.in = in;
 	}
 
+	/**
+	 * Points this reader at {@code in} and puts it back in its initial state,
+	 * keeping its buffer and stacks, so that one instance can read many
+	 * documents. Used by {@link BufferRecycler}. Readers that do not read
+	 * characters themselves, such as {@link JsonTreeReader} and
+	 * {@link ReplayJsonReader}, throw a JsonException.
+	 */
+	public void reset(Reader in) {
+		if (in == null) {
+			throw new NullPointerException("in == null");
+		}
+		this.in = in;
+		lenient = false;
+		pos = 0;
+		limit = 0;
+		bufferOffset = 0;
+		lineNumber = 0;
+		lineStart = 0;
+		peeked = PEEKED_NONE;
+		peekedString = null;
+		projection = null;
+		memberProjection = null;
+		Arrays.fill(pathNames, 0, stackSize, null);
+		stack[0] = JsonScope.EMPTY_DOCUMENT;
+		stackSize = 1;
+		pathIndices[0] = 0;
+	}
+
 	public void close() throws IOException {
 		peeked = PEEKED_NONE;
 		stack[0] = JsonScope.CLOSED;
@@ -74,6 +123,112 @@ public class JsonReader implements Closeable {
 		in.close();
 	}
 
+	/**
+	 * The number of chars consumed from the source so far. Right after
+	 * {@link #nextName()} this is the offset just past the name, from where
+	 * the member's value can be read again.
+	 */
+	public long position() {
+		return bufferOffset + pos;
+	}
+
+	/**
+	 * Moves to the next record of newline-delimited JSON, where each line holds
+	 * one top-level value. Skips the line break after the previous value and
+	 * any blank lines; returns false at the end of input. Unlike lenient mode,
+	 * only whole documents separated by line breaks are accepted. Like
+	 * {@link #reset(Reader)}, this needs a reader of characters.
+	 */
+	public boolean nextRecord() {
+		boolean first = checkBetweenRecords();
+		boolean newline = skipLineBreaks();
+		if (pos == limit) {
+			return false;
+		}
+		if (!first && !newline) {
+			throw new JsonException("Expected a line break between records" + locationString());
+		}
+		stack[0] = JsonScope.EMPTY_DOCUMENT;
+		return true;
+	}
+
+	/**
+	 * Appends the text of the next record of newline-delimited JSON to
+	 * {@code dest} without parsing it, so that records can be bound
+	 * elsewhere. Blank lines are skipped; returns false at the end of input.
+	 * Like {@link #reset(Reader)}, this needs a reader of characters.
+	 */
+	public boolean nextRecordText(StringBuilder dest) {
+		checkBetweenRecords();
+		skipLineBreaks();
+		if (pos == limit) {
+			return false;
+		}
+		stack[0] = JsonScope.NONEMPTY_DOCUMENT;
+		int start = dest.length();
+		while (pos < limit || fillBuffer(1)) {
+			int p = pos;
+			int l = limit;
+			char[] buffer = this.buffer;
+			while (p < l && buffer[p] != '\n') {
+				p++;
+			}
+			dest.append(buffer, pos, p - pos);
+			pos = p;
+			if (p < l) {
+				break;
+			}
+		}
+		int end = dest.length();
+		while (end > start && dest.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		dest.setLength(end);
+		return true;
+	}
+
+	private boolean checkBetweenRecords() {
+		if (stackSize != 1 || peeked != PEEKED_NONE) {
+			throw new IllegalStateException("Not between top-level values");
+		}
+		return stack[0] == JsonScope.EMPTY_DOCUMENT;
+	}
+
+	/** Skips whitespace up to the next record; tells whether a line break was crossed. */
+	private boolean skipLineBreaks() {
+		boolean newline = false;
+		while (pos < limit || fillBuffer(1)) {
+			char c = buffer[pos];
+			if (c == '\n') {
+				newline = true;
+				lineNumber++;
+				lineStart = pos + 1;
+			} else if (c != ' ' && c != '\t' && c != '\r') {
+				break;
+			}
+			pos++;
+		}
+		return newline;
+	}
+
+	/**
+	 * Restricts what {@link #hasNext()} lets through to the paths of
+	 * {@code projection}; null reads everything. Must be set before the
+	 * first token is read. Like {@link #reset(Reader)}, this needs a reader of
+	 * characters, as paths are matched in its buffer.
+	 */
+	public void setProjection(JsonProjection projection) {
+		if (stackSize != 1 || peeked != PEEKED_NONE) {
+			throw new IllegalStateException("Projection must be set before reading");
+		}
+		if (projection == null) {
+			this.projection = null;
+		} else {
+			this.projection = new JsonProjection.Node[stack.length];
+			this.projection[0] = projection.root;
+		}
+	}
+
 	public boolean isLenient() {
 		return lenient;
 	}
@@ -150,9 +305,73 @@ public class JsonReader implements Closeable {
 		if (p == PEEKED_NONE) {
 			p = doPeek();
 		}
+		if (projection != null && p != PEEKED_END_OBJECT && p != PEEKED_END_ARRAY) {
+			p = skipUnprojected(p);
+		}
 		return p != PEEKED_END_OBJECT && p != PEEKED_END_ARRAY;
 	}
 
+	/**
+	 * Skips the members or elements of the current scope that the projection
+	 * does not select, and returns the peeked token after them. A member name
+	 * that is let through is left unconsumed for the adapter.
+	 */
+	private int skipUnprojected(int p) {
+		JsonProjection.Node node = projection[stackSize - 1];
+		if (node == JsonProjection.ALL) {
+			return p;
+		}
+		int scope = stack[stackSize - 1];
+		if (scope == JsonScope.EMPTY_ARRAY || scope == JsonScope.NONEMPTY_ARRAY) {
+			if (node != null && node.elements != null) {
+				return p;
+			}
+			while (p != PEEKED_END_ARRAY) {
+				skipValue();
+				p = doPeek();
+			}
+			return p;
+		} else if (scope != JsonScope.DANGLING_NAME) {
+			return p;
+		}
+		while (p != PEEKED_END_OBJECT) {
+			JsonProjection.Node member = null;
+			if (node != null) {
+				int index;
+				if (p == PEEKED_DOUBLE_QUOTED_NAME) {
+					int start = pos;
+					index = matchQuoted(node.names);
+					if (index == NOT_IN_BUFFER) {
+						index = bufferName(node.names);
+					} else {
+						pos = start;
+					}
+				} else if (p == PEEKED_BUFFERED_NAME) {
+					index = node.names.indexOf(peekedString);
+				} else {
+					index = bufferName(node.names);
+				}
+				member = node.member(index);
+			}
+			if (member != null) {
+				memberProjection = member;
+				return peeked;
+			}
+			skipValue(); // the name
+			skipValue(); // and its value
+			p = doPeek();
+		}
+		return p;
+	}
+
+	/** Reads the next name into {@link #peekedString}, leaving it peeked, and looks it up. */
+	private int bufferName(NameTable table) {
+		String name = nextName();
+		peekedString = name;
+		peeked = PEEKED_BUFFERED_NAME;
+		return table.indexOf(name);
+	}
+
 	private String locationString() {
 		int line = lineNumber + 1;
 		int column = pos - lineStart + 1;
@@ -160,12 +379,28 @@ public class JsonReader implements Closeable {
 	}
 
 	public String getPath() {
+		return getPath(false);
+	}
+
+	/**
+	 * The path of the value just consumed, where {@link #getPath()} already
+	 * points at the next array element.
+	 */
+	public String getPreviousPath() {
+		return getPath(true);
+	}
+
+	private String getPath(boolean previous) {
 		StringBuilder result = new StringBuilder().append('$');
 		for (int i = 0, size = stackSize; i < size; i++) {
 			switch (stack[i]) {
 			case JsonScope.EMPTY_ARRAY:
 			case JsonScope.NONEMPTY_ARRAY:
-				result.append('[').append(pathIndices[i]).append(']');
+				int index = pathIndices[i];
+				if (previous && index > 0 && i == size - 1) {
+					index--;
+				}
+				result.append('[').append(index).append(']');
 				break;
 
 			case JsonScope.EMPTY_OBJECT:
@@ -204,6 +439,7 @@ public class JsonReader implements Closeable {
 		case PEEKED_SINGLE_QUOTED_NAME:
 		case PEEKED_DOUBLE_QUOTED_NAME:
 		case PEEKED_UNQUOTED_NAME:
+		case PEEKED_BUFFERED_NAME:
 			return JsonToken.NAME;
 		case PEEKED_TRUE:
 		case PEEKED_FALSE:
@@ -641,6 +877,7 @@ public class JsonReader implements Closeable {
 
 	private boolean fillBuffer(int minimum) {
 		char[] buffer = this.buffer;
+		bufferOffset += pos;
 		lineStart -= pos;
 		if (limit != pos) {
 			limit -= pos;
@@ -963,9 +1200,31 @@ public class JsonReader implements Closeable {
 			pathIndices = newPathIndices;
 			pathNames = newPathNames;
 		}
+		if (projection != null) {
+			pushProjection();
+		}
 		stack[stackSize++] = newTop;
 	}
 
+	private void pushProjection() {
+		if (projection.length < stack.length) {
+			projection = Arrays.copyOf(projection, stack.length);
+		}
+		JsonProjection.Node parent = projection[stackSize - 1];
+		JsonProjection.Node node;
+		int scope = stack[stackSize - 1];
+		if (parent == null || parent == JsonProjection.ALL) {
+			node = parent;
+		} else if (scope == JsonScope.EMPTY_ARRAY || scope == JsonScope.NONEMPTY_ARRAY) {
+			node = parent.elements;
+		} else if (scope == JsonScope.NONEMPTY_OBJECT || scope == JsonScope.DANGLING_NAME) {
+			node = memberProjection;
+		} else {
+			node = parent;
+		}
+		projection[stackSize] = node;
+	}
+
 	public String nextName() {
 		int p = peeked;
 		if (p == PEEKED_NONE) {
@@ -978,6 +1237,9 @@ public class JsonReader implements Closeable {
 			result = nextQuotedValue('\'');
 		} else if (p == PEEKED_DOUBLE_QUOTED_NAME) {
 			result = nextQuotedValue('"');
+		} else if (p == PEEKED_BUFFERED_NAME) {
+			result = peekedString;
+			peekedString = null;
 		} else {
 			throw new IllegalStateException("Expected a name but was " + peek()
 					+ locationString());
@@ -987,6 +1249,97 @@ public class JsonReader implements Closeable {
 		return result;
 	}
 
+	/**
+	 * Consumes the next member name and returns its index in {@code table}, or
+	 * -1 if the name is not in the table. A double-quoted name without escapes
+	 * that is already in the buffer is matched in place, without creating a
+	 * String.
+	 */
+	public int nextNameIndex(NameTable table) {
+		int p = peeked;
+		if (p == PEEKED_NONE) {
+			p = doPeek();
+		}
+		if (p == PEEKED_DOUBLE_QUOTED_NAME) {
+			int index = matchQuoted(table);
+			if (index != NOT_IN_BUFFER) {
+				peeked = PEEKED_NONE;
+				pathNames[stackSize - 1] = index >= 0 ? table.name(index) : null;
+				return index;
+			}
+		}
+		// escaped, unquoted or split across a buffer refill
+		return table.indexOf(nextName());
+	}
+
+	/**
+	 * Like {@link #nextNameIndex(NameTable)}, but consumes a string value, for
+	 * example an enum constant.
+	 */
+	public int nextStringIndex(NameTable table) {
+		int p = peeked;
+		if (p == PEEKED_NONE) {
+			p = doPeek();
+		}
+		if (p == PEEKED_DOUBLE_QUOTED) {
+			int index = matchQuoted(table);
+			if (index != NOT_IN_BUFFER) {
+				peeked = PEEKED_NONE;
+				pathIndices[stackSize - 1]++;
+				return index;
+			}
+		}
+		return table.indexOf(nextString());
+	}
+
+	private static final int NOT_IN_BUFFER = -2;
+
+	/**
+	 * Matches the rest of a double-quoted string in place. Returns the index in
+	 * {@code table} or -1 and moves past the closing quote, or returns
+	 * {@link #NOT_IN_BUFFER} and consumes nothing if the string has escapes or
+	 * does not end within the buffer.
+	 */
+	private int matchQuoted(NameTable table) {
+		char[] buffer = this.buffer;
+		int start = pos;
+		int hash = 0;
+		for (int i = start, l = limit; i < l; i++) {
+			char c = buffer[i];
+			if (c == '"') {
+				pos = i + 1;
+				return table.indexOf(buffer, start, i - start, hash);
+			} else if (c == '\\' || c == '\n') {
+				break;
+			}
+			hash = 31 * hash + c;
+		}
+		return NOT_IN_BUFFER;
+	}
+
+	/**
+	 * Turns the next member name into a string value, so that a map key can be
+	 * read through the adapter of its key type.
+	 */
+	public void promoteNameToValue() {
+		int p = peeked;
+		if (p == PEEKED_NONE) {
+			p = doPeek();
+		}
+		if (p == PEEKED_DOUBLE_QUOTED_NAME) {
+			peeked = PEEKED_DOUBLE_QUOTED;
+		} else if (p == PEEKED_SINGLE_QUOTED_NAME) {
+			peeked = PEEKED_SINGLE_QUOTED;
+		} else if (p == PEEKED_UNQUOTED_NAME) {
+			peeked = PEEKED_UNQUOTED;
+		} else if (p == PEEKED_BUFFERED_NAME) {
+			peeked = PEEKED_BUFFERED;
+		} else {
+			throw new IllegalStateException("Expected a name but was " + peek()
+					+ locationString());
+		}
+	}
+
 	public String nextString() {
 		int p = peeked;
 		if (p == PEEKED_NONE) {
@@ -1016,7 +1369,114 @@ public class JsonReader implements Closeable {
 		return result;
 	}
 
-	public Boolean nextBoolean() {
+	/**
+	 * Reads a string value into {@code dest} and returns its length. A
+	 * double-quoted value without escapes is copied straight from the buffer,
+	 * without creating a String. If the value is longer than {@code dest}, -1
+	 * is returned and the value is left for {@link #nextString()}.
+	 */
+	public int nextString(char[] dest) {
+		int p = peeked;
+		if (p == PEEKED_NONE) {
+			p = doPeek();
+		}
+		if (p == PEEKED_DOUBLE_QUOTED) {
+			char[] buffer = this.buffer;
+			int start = pos;
+			for (int i = start, l = Math.min(limit, start + dest.length + 1); i < l; i++) {
+				char c = buffer[i];
+				if (c == '"') {
+					System.arraycopy(buffer, start, dest, 0, i - start);
+					pos = i + 1;
+					peeked = PEEKED_NONE;
+					pathIndices[stackSize - 1]++;
+					return i - start;
+				} else if (c == '\\' || c == '\n') {
+					break;
+				}
+			}
+		}
+		String value = nextString();
+		if (value.length() > dest.length) {
+			peekedString = value;
+			peeked = PEEKED_BUFFERED;
+			pathIndices[stackSize - 1]--;
+			return -1;
+		}
+		value.getChars(0, value.length(), dest, 0);
+		return value.length();
+	}
+
+	/**
+	 * Reads a Base64 string value and returns the decoded bytes. A
+	 * double-quoted value is decoded straight from the buffer, without
+	 * building the intermediate String.
+	 */
+	public byte[] nextBase64() {
+		int p = peeked;
+		if (p == PEEKED_NONE) {
+			p = doPeek();
+		}
+		if (p != PEEKED_DOUBLE_QUOTED) {
+			String value = nextString();
+			try {
+				return Base64.getMimeDecoder().decode(value);
+			} catch (IllegalArgumentException e) {
+				throw new JsonException("Invalid Base64 value" + locationString(), e);
+			}
+		}
+		byte[] result = new byte[64];
+		int size = 0;
+		int bits = 0;
+		int count = 0;
+		while (true) {
+			if (pos == limit && !fillBuffer(1)) {
+				throw new JsonException("Unterminated string" + locationString());
+			}
+			char c = buffer[pos++];
+			if (c == '"') {
+				break;
+			} else if (c == '\\') {
+				c = readEscapeCharacter();
+			}
+			if (c == '=') {
+				continue;
+			}
+			int digit = c < 128 ? BASE64_DIGITS[c] : -1;
+			if (digit < 0) {
+				throw new JsonException("Invalid Base64 character '" + c + "'" + locationString());
+			}
+			bits = bits << 6 | digit;
+			if (++count == 4) {
+				if (size + 3 > result.length) {
+					result = Arrays.copyOf(result, result.length * 2);
+				}
+				result[size++] = (byte) (bits >> 16);
+				result[size++] = (byte) (bits >> 8);
+				result[size++] = (byte) bits;
+				bits = 0;
+				count = 0;
+			}
+		}
+		if (count == 1) {
+			throw new JsonException("Truncated Base64 value" + locationString());
+		} else if (count > 1) {
+			if (size + 2 > result.length) {
+				result = Arrays.copyOf(result, result.length + 2);
+			}
+			if (count == 2) {
+				result[size++] = (byte) (bits >> 4);
+			} else {
+				result[size++] = (byte) (bits >> 10);
+				result[size++] = (byte) (bits >> 2);
+			}
+		}
+		peeked = PEEKED_NONE;
+		pathIndices[stackSize - 1]++;
+		return size == result.length ? result : Arrays.copyOf(result, size);
+	}
+
+	public boolean nextBoolean() {
 		int p = peeked;
 		if (p == PEEKED_NONE) {
 			p = doPeek();
@@ -1195,6 +1655,24 @@ public class JsonReader implements Closeable {
 		return result;
 	}
 
+	/** Reads an int that must fit a short; a larger value is an error, not truncated. */
+	public short nextShort() {
+		int value = nextInt();
+		if (value != (short) value) {
+			throw new JsonException("Lossy conversion from " + value + " to short at path " + getPreviousPath());
+		}
+		return (short) value;
+	}
+
+	/** Reads an int that must fit a byte; a larger value is an error, not truncated. */
+	public byte nextByte() {
+		int value = nextInt();
+		if (value != (byte) value) {
+			throw new JsonException("Lossy conversion from " + value + " to byte at path " + getPreviousPath());
+		}
+		return (byte) value;
+	}
+
 	public void skipValue() {
 		int count = 0;
 		do {
@@ -1225,6 +1703,8 @@ public class JsonReader implements Closeable {
 				skipQuotedValue('"');
 			} else if (p == PEEKED_NUMBER) {
 				pos += peekedNumberLength;
+			} else if (p == PEEKED_BUFFERED || p == PEEKED_BUFFERED_NAME) {
+				peekedString = null;
 			}
 			peeked = PEEKED_NONE;
 		} while (count != 0);
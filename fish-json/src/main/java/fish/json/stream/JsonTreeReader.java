@@ -2,6 +2,7 @@ package fish.json.stream;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.util.Base64;
 import java.util.Iterator;
 import java.util.Map;
 
@@ -98,7 +99,7 @@ public class JsonTreeReader extends JsonReader {
 			if (primitive.isNumber()) {
 				return JsonToken.NUMBER;
 			}
-		} else if (o == null) {
+		} else if (o == null || o instanceof JsonNull) {
 			return JsonToken.NULL;
 		} else if (o == SENTINEL_CLOSED) {
 			throw new IllegalStateException("JsonReader is closed");
@@ -166,6 +167,16 @@ public class JsonTreeReader extends JsonReader {
 		return result;
 	}
 
+	@Override
+	public int nextNameIndex(NameTable table) {
+		return table.indexOf(nextName());
+	}
+
+	@Override
+	public int nextStringIndex(NameTable table) {
+		return table.indexOf(nextString());
+	}
+
 	@Override
 	public String nextString() {
 		JsonToken token = this.peek();
@@ -181,9 +192,53 @@ public class JsonTreeReader extends JsonReader {
 	}
 
 	@Override
-	public Boolean nextBoolean() {
+	public int nextString(char[] dest) {
+		JsonToken token = this.peek();
+		if ((token == JsonToken.STRING || token == JsonToken.NUMBER)
+				&& ((JsonPrimitive) peekStack()).getAsString().length() > dest.length) {
+			return -1;
+		}
+		String value = nextString();
+		value.getChars(0, value.length(), dest, 0);
+		return value.length();
+	}
+
+	/** A tree holds a single document. */
+	@Override
+	public void reset(Reader in) {
+		throw new JsonException("A JsonTreeReader reads one tree and cannot be reset to a character source");
+	}
+
+	@Override
+	public boolean nextRecord() {
+		throw new JsonException("A JsonTreeReader reads one tree, not newline-delimited records");
+	}
+
+	@Override
+	public boolean nextRecordText(StringBuilder dest) {
+		throw new JsonException("A JsonTreeReader reads one tree, not newline-delimited records");
+	}
+
+	/** Projections match in the character buffer, which this reader does not have. */
+	@Override
+	public void setProjection(JsonProjection projection) {
+		throw new JsonException("A JsonTreeReader has no character buffer to match a projection in");
+	}
+
+	@Override
+	public byte[] nextBase64() {
+		String value = nextString();
+		try {
+			return Base64.getMimeDecoder().decode(value);
+		} catch (IllegalArgumentException e) {
+			throw new JsonException("Invalid Base64 value" + locationString(), e);
+		}
+	}
+
+	@Override
+	public boolean nextBoolean() {
 		this.expect(JsonToken.BOOLEAN);
-		Boolean result = ((JsonPrimitive) popStack()).getAsBoolean();
+		boolean result = ((JsonPrimitive) popStack()).getAsBoolean();
 		if (stackSize > 0) {
 			pathIndices[stackSize - 1]++;
 		}
@@ -248,6 +303,22 @@ public class JsonTreeReader extends JsonReader {
 		return result;
 	}
 
+	@Override
+	public void skipValue() {
+		if (peek() == JsonToken.NAME) {
+			nextName();
+			pathNames[stackSize - 2] = "null";
+		} else {
+			popStack();
+			if (stackSize > 0) {
+				pathNames[stackSize - 1] = "null";
+			}
+		}
+		if (stackSize > 0) {
+			pathIndices[stackSize - 1]++;
+		}
+	}
+
 	@Override
 	public void close() {
 		stack = new Object[] { SENTINEL_CLOSED };
@@ -256,11 +327,24 @@ public class JsonTreeReader extends JsonReader {
 
 	@Override
 	public String getPath() {
+		return getPath(false);
+	}
+
+	@Override
+	public String getPreviousPath() {
+		return getPath(true);
+	}
+
+	private String getPath(boolean previous) {
 		StringBuilder result = new StringBuilder().append('$');
 		for (int i = 0; i < stackSize; i++) {
 			if (stack[i] instanceof JsonArray) {
 				if (stack[++i] instanceof Iterator) {
-					result.append('[').append(pathIndices[i]).append(']');
+					int index = pathIndices[i];
+					if (previous && index > 0 && i == stackSize - 1) {
+						index--;
+					}
+					result.append('[').append(index).append(']');
 				}
 			} else if (stack[i] instanceof JsonObject) {
 				if (stack[++i] instanceof Iterator) {
@@ -279,7 +363,8 @@ public class JsonTreeReader extends JsonReader {
 		return getClass().getSimpleName();
 	}
 
-	public void promoteNameToValue() throws IOException {
+	@Override
+	public void promoteNameToValue() {
 		expect(JsonToken.NAME);
 		Iterator<?> i = (Iterator<?>) peekStack();
 		Map.Entry<?, ?> entry = (Map.Entry<?, ?>) i.next();
@@ -56,7 +56,7 @@ public class JsonTreeWriter extends JsonWriter {
 
 	private void put(JsonElement value) {
 		if (this.pendingName != null) {
-			if (this.stack.isEmpty() || !value.isObject()) {
+			if (this.stack.isEmpty() || !peek().isObject()) {
 				throw new RuntimeException();
 			}
 			JsonObject obj = (JsonObject) peek();
@@ -96,6 +96,7 @@ public class JsonTreeWriter extends JsonWriter {
 		JsonObject o = new JsonObject();
 		this.put(o);
 		this.stack.add(o);
+		writePrefixMember();
 		return this;
 	}
 
@@ -125,6 +126,32 @@ public class JsonTreeWriter extends JsonWriter {
 		throw new IllegalStateException();
 	}
 
+	@Override
+	public JsonWriter name(PreparedName name) {
+		return this.name(name.getName());
+	}
+
+	@Override
+	public JsonWriter value(PreparedName value) {
+		if (value == null) {
+			return this.nullValue();
+		}
+		return this.value(value.getName());
+	}
+
+	@Override
+	public JsonWriter value(char[] chars, int offset, int length) {
+		return this.value(new String(chars, offset, length));
+	}
+
+	@Override
+	public JsonWriter valueBase64(byte[] value) {
+		if (value == null) {
+			return this.nullValue();
+		}
+		return this.value(Base64.getEncoder().encodeToString(value));
+	}
+
 	public JsonWriter nullValue() {
 		this.put(JsonNull.INSTANCE);
 		return this;
@@ -138,6 +165,36 @@ public class JsonTreeWriter extends JsonWriter {
 		return this;
 	}
 
+	@Override
+	public JsonWriter value(boolean value) {
+		this.put(new JsonPrimitive(Boolean.valueOf(value)));
+		return this;
+	}
+
+	@Override
+	public JsonWriter value(long value) {
+		this.put(new JsonPrimitive(Long.valueOf(value)));
+		return this;
+	}
+
+	@Override
+	public JsonWriter value(double value) {
+		if (!isLeninet() && (Double.isNaN(value) || Double.isInfinite(value))) {
+			throw new IllegalArgumentException("JSON forbids NaN and infinities: " + value);
+		}
+		this.put(new JsonPrimitive(Double.valueOf(value)));
+		return this;
+	}
+
+	@Override
+	public JsonWriter value(float value) {
+		if (!isLeninet() && (Float.isNaN(value) || Float.isInfinite(value))) {
+			throw new IllegalArgumentException("JSON forbids NaN and infinities: " + value);
+		}
+		this.put(new JsonPrimitive(Float.valueOf(value)));
+		return this;
+	}
+
 	@Override
 	public JsonWriter value(String value) {
 		if (value == null)
@@ -154,6 +211,17 @@ public class JsonTreeWriter extends JsonWriter {
 		return this;
 	}
 	
+	@Override
+	public void reset(Writer out) {
+		throw new JsonException("A JsonTreeWriter builds one tree and cannot be reset to a character sink");
+	}
+
+	/** A tree holds a single document. */
+	@Override
+	public void endRecord() {
+		throw new JsonException("A JsonTreeWriter builds one tree, not newline-delimited records");
+	}
+
 	@Override
 	public void flush() {
 
@@ -7,7 +7,7 @@ import java.io.Writer;
 
 public class JsonWriter implements Closeable, Flushable {
 
-	private final Writer out;
+	private Writer out;
 
 	private final static String[] REPLACEMENT_CHARS;
 	private static final String[] HTML_SAFE_REPLACEMENT_CHARS;
@@ -30,10 +30,12 @@ public class JsonWriter implements Closeable, Flushable {
 		HTML_SAFE_REPLACEMENT_CHARS['='] = "\\u003d";
 		HTML_SAFE_REPLACEMENT_CHARS['\''] = "\\u0027";
 	}
+	private static final char[] BASE64_DIGITS =
+			"ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
 	private int[] stack = new int[32];
 	private int stackSize = 0;
 	{
-
+		push(JsonScope.EMPTY_DOCUMENT);
 	}
 
 	private String indent;
@@ -41,7 +43,12 @@ public class JsonWriter implements Closeable, Flushable {
 	private boolean lenient;
 	private boolean htmlSafe;
 	private String deferredName;
+	private PreparedName deferredPreparedName;
+	private PreparedName prefixName;
+	private PreparedName prefixValue;
 	private boolean serializeNulls = true;
+	private final char[] digits = new char[20];
+	private char[] base64Chunk;
 
 	public JsonWriter(Writer out) {
 		if (out == null) {
@@ -50,6 +57,30 @@ public class JsonWriter implements Closeable, Flushable {
 		this.out = out;
 	}
 
+	/**
+	 * Points this writer at {@code out} and puts it back in its initial
+	 * state and settings, keeping its stack, so that one instance can write
+	 * many documents. Used by {@link BufferRecycler}. A {@link JsonTreeWriter}
+	 * has no character sink and throws a JsonException.
+	 */
+	public void reset(Writer out) {
+		if (out == null) {
+			throw new NullPointerException("out == null");
+		}
+		this.out = out;
+		stackSize = 0;
+		push(JsonScope.EMPTY_DOCUMENT);
+		indent = null;
+		separator = ":";
+		lenient = false;
+		htmlSafe = false;
+		serializeNulls = true;
+		deferredName = null;
+		deferredPreparedName = null;
+		prefixName = null;
+		prefixValue = null;
+	}
+
 	public void setIndent(String indent) {
 		if (indent.length() == 0) {
 			this.indent = null;
@@ -115,7 +146,32 @@ public class JsonWriter implements Closeable, Flushable {
 
 	public JsonWriter beginObject() {
 		this.writeDeferredName();
-		return open(JsonScope.EMPTY_OBJECT, "{");
+		open(JsonScope.EMPTY_OBJECT, "{");
+		writePrefixMember();
+		return this;
+	}
+
+	/**
+	 * Makes {@code name: value} the first member of the next object begun on
+	 * this writer, so that an adapter can add a member to an object another
+	 * adapter writes. Null names clear it.
+	 */
+	public JsonWriter prefixNextObject(PreparedName name, PreparedName value) {
+		this.prefixName = name;
+		this.prefixValue = value;
+		return this;
+	}
+
+	/** Writes and clears the member set by {@link #prefixNextObject}. */
+	protected final void writePrefixMember() {
+		if (prefixName != null) {
+			PreparedName name = prefixName;
+			PreparedName value = prefixValue;
+			prefixName = null;
+			prefixValue = null;
+			this.name(name);
+			this.value(value);
+		}
 	}
 
 	public JsonWriter endObject() {
@@ -133,6 +189,17 @@ public class JsonWriter implements Closeable, Flushable {
 			throw new IllegalStateException("JsonWriter is closed.");
 		}
 		this.deferredName = name;
+		this.deferredPreparedName = null;
+		return this;
+	}
+
+	/**
+	 * Like {@link #name(String)}, but the name is written from its prepared,
+	 * already escaped form.
+	 */
+	public JsonWriter name(PreparedName name) {
+		this.name(name.getName());
+		this.deferredPreparedName = name;
 		return this;
 	}
 
@@ -171,7 +238,16 @@ public class JsonWriter implements Closeable, Flushable {
 	private void writeDeferredName() {
 		if (deferredName != null) {
 			beforeName();
-			string(deferredName);
+			if (deferredPreparedName != null) {
+				try {
+					out.write(deferredPreparedName.quoted(htmlSafe));
+				} catch (IOException e) {
+					throw new JsonIOException(e);
+				}
+				deferredPreparedName = null;
+			} else {
+				string(deferredName);
+			}
 			deferredName = null;
 		}
 
@@ -179,7 +255,7 @@ public class JsonWriter implements Closeable, Flushable {
 
 	public JsonWriter value(String value) {
 		if (value == null) {
-			this.nullValue();
+			return this.nullValue();
 		}
 		this.writeDeferredName();
 		this.beforeValue();
@@ -187,12 +263,70 @@ public class JsonWriter implements Closeable, Flushable {
 		return this;
 	}
 
+	/**
+	 * Writes {@code chars[offset, offset + length)} as a string value, so that
+	 * adapters formatting into a scratch buffer need not create a String.
+	 */
+	public JsonWriter value(char[] chars, int offset, int length) {
+		this.writeDeferredName();
+		this.beforeValue();
+		String[] replacements = htmlSafe ? HTML_SAFE_REPLACEMENT_CHARS : REPLACEMENT_CHARS;
+		try {
+			out.write('"');
+			int last = offset;
+			for (int i = offset, end = offset + length; i < end; i++) {
+				char c = chars[i];
+				String replacement;
+				if (c < 128) {
+					replacement = replacements[c];
+					if (replacement == null) {
+						continue;
+					}
+				} else if (c == '\u2028') {
+					replacement = "\\u2028";
+				} else if (c == '\u2029') {
+					replacement = "\\u2029";
+				} else {
+					continue;
+				}
+				if (last < i) {
+					out.write(chars, last, i - last);
+				}
+				out.write(replacement);
+				last = i + 1;
+			}
+			if (last < offset + length) {
+				out.write(chars, last, offset + length - last);
+			}
+			out.write('"');
+		} catch (IOException e) {
+			throw new JsonIOException(e);
+		}
+		return this;
+	}
+
+	/** Writes a string value from its prepared, already escaped form. */
+	public JsonWriter value(PreparedName value) {
+		if (value == null) {
+			return this.nullValue();
+		}
+		this.writeDeferredName();
+		this.beforeValue();
+		try {
+			out.write(value.quoted(htmlSafe));
+		} catch (IOException e) {
+			throw new JsonIOException(e);
+		}
+		return this;
+	}
+
 	public JsonWriter nullValue() {
 		if (this.deferredName != null) {
 			if (this.serializeNulls)
 				this.writeDeferredName();
 			else {
 				deferredName = null;
+				deferredPreparedName = null;
 				return this;
 			}
 		}
@@ -206,17 +340,144 @@ public class JsonWriter implements Closeable, Flushable {
 	}
 
 	public JsonWriter value(Boolean value) {
-		if (value)
-			return this.value("true");
-		else
-			return this.value("false");
+		if (value == null)
+			return this.nullValue();
+		return this.value(value.booleanValue());
 	}
 	
 	public JsonWriter value(Number value) {
-		if (value!=null)
-			return this.value(value.toString());
-		else
+		if (value == null)
+			return this.nullValue();
+		String string = value.toString();
+		if (!lenient && (string.equals("-Infinity") || string.equals("Infinity") || string.equals("NaN"))) {
+			throw new IllegalArgumentException("Numeric values must be finite, but was " + value);
+		}
+		this.writeDeferredName();
+		this.beforeValue();
+		try {
+			out.write(string);
+		} catch (IOException e) {
+			throw new JsonIOException(e);
+		}
+		return this;
+	}
+
+	public JsonWriter value(boolean value) {
+		this.writeDeferredName();
+		this.beforeValue();
+		try {
+			out.write(value ? "true" : "false");
+		} catch (IOException e) {
+			throw new JsonIOException(e);
+		}
+		return this;
+	}
+
+	public JsonWriter value(long value) {
+		this.writeDeferredName();
+		this.beforeValue();
+		try {
+			if (value == Long.MIN_VALUE) {
+				out.write("-9223372036854775808");
+				return this;
+			}
+			char[] digits = this.digits;
+			int start = digits.length;
+			boolean negative = value < 0;
+			if (negative) {
+				value = -value;
+			}
+			do {
+				digits[--start] = (char) ('0' + value % 10);
+				value /= 10;
+			} while (value != 0);
+			if (negative) {
+				digits[--start] = '-';
+			}
+			out.write(digits, start, digits.length - start);
+		} catch (IOException e) {
+			throw new JsonIOException(e);
+		}
+		return this;
+	}
+
+	public JsonWriter value(double value) {
+		if (!lenient && (Double.isNaN(value) || Double.isInfinite(value))) {
+			throw new IllegalArgumentException("Numeric values must be finite, but was " + value);
+		}
+		this.writeDeferredName();
+		this.beforeValue();
+		try {
+			out.write(Double.toString(value));
+		} catch (IOException e) {
+			throw new JsonIOException(e);
+		}
+		return this;
+	}
+
+	public JsonWriter value(float value) {
+		if (!lenient && (Float.isNaN(value) || Float.isInfinite(value))) {
+			throw new IllegalArgumentException("Numeric values must be finite, but was " + value);
+		}
+		this.writeDeferredName();
+		this.beforeValue();
+		try {
+			out.write(Float.toString(value));
+		} catch (IOException e) {
+			throw new JsonIOException(e);
+		}
+		return this;
+	}
+
+	/**
+	 * Writes {@code value} as a Base64 string, encoded in fixed-size chunks
+	 * straight to the output.
+	 */
+	public JsonWriter valueBase64(byte[] value) {
+		if (value == null) {
 			return this.nullValue();
+		}
+		this.writeDeferredName();
+		this.beforeValue();
+		char[] chunk = base64Chunk;
+		if (chunk == null) {
+			chunk = base64Chunk = new char[1024];
+		}
+		char[] digits = BASE64_DIGITS;
+		try {
+			out.write('"');
+			int end = value.length - value.length % 3;
+			int n = 0;
+			for (int i = 0; i < end; i += 3) {
+				if (n == chunk.length) {
+					out.write(chunk, 0, n);
+					n = 0;
+				}
+				int bits = (value[i] & 0xff) << 16 | (value[i + 1] & 0xff) << 8 | (value[i + 2] & 0xff);
+				chunk[n++] = digits[bits >>> 18];
+				chunk[n++] = digits[(bits >>> 12) & 0x3f];
+				chunk[n++] = digits[(bits >>> 6) & 0x3f];
+				chunk[n++] = digits[bits & 0x3f];
+			}
+			out.write(chunk, 0, n);
+			int remaining = value.length - end;
+			if (remaining > 0) {
+				int bits = (value[end] & 0xff) << 16 | (remaining == 2 ? (value[end + 1] & 0xff) << 8 : 0);
+				out.write(digits[bits >>> 18]);
+				out.write(digits[(bits >>> 12) & 0x3f]);
+				String pad = htmlSafe ? HTML_SAFE_REPLACEMENT_CHARS['='] : "=";
+				if (remaining == 2) {
+					out.write(digits[(bits >>> 6) & 0x3f]);
+				} else {
+					out.write(pad);
+				}
+				out.write(pad);
+			}
+			out.write('"');
+		} catch (IOException e) {
+			throw new JsonIOException(e);
+		}
+		return this;
 	}
 
 	private void string(String value) {
@@ -256,6 +517,27 @@ public class JsonWriter implements Closeable, Flushable {
 	    
 	}
 
+	/** The quoted, escaped form of {@code value}, as {@link #string} writes it. */
+	static char[] quote(String value, boolean htmlSafe) {
+		String[] replacements = htmlSafe ? HTML_SAFE_REPLACEMENT_CHARS : REPLACEMENT_CHARS;
+		StringBuilder result = new StringBuilder(value.length() + 2).append('"');
+		for (int i = 0, length = value.length(); i < length; i++) {
+			char c = value.charAt(i);
+			if (c < 128 && replacements[c] != null) {
+				result.append(replacements[c]);
+			} else if (c == '\u2028') {
+				result.append("\\u2028");
+			} else if (c == '\u2029') {
+				result.append("\\u2029");
+			} else {
+				result.append(c);
+			}
+		}
+		char[] chars = new char[result.length() + 1];
+		result.append('"').getChars(0, chars.length, chars, 0);
+		return chars;
+	}
+
 	private void newline() {
 		if (indent == null)
 			return;
@@ -322,6 +604,24 @@ public class JsonWriter implements Closeable, Flushable {
 	}
 
 
+	/**
+	 * Ends a record of newline-delimited JSON: writes a line break after the
+	 * top-level value just written and accepts another one, without the
+	 * lenient mode that would otherwise be needed. Like
+	 * {@link #reset(Writer)}, this needs a writer of characters.
+	 */
+	public void endRecord() {
+		if (stackSize != 1 || stack[0] != JsonScope.NONEMPTY_DOCUMENT) {
+			throw new IllegalStateException("Not at the end of a top-level value");
+		}
+		try {
+			out.write('\n');
+		} catch (IOException e) {
+			throw new JsonIOException(e);
+		}
+		stack[0] = JsonScope.EMPTY_DOCUMENT;
+	}
+
 	public void flush() {
 		if (stackSize == 0) {
 			throw new IllegalStateException("JsonWriter is closed.");
@@ -0,0 +1,88 @@
+package fish.json.stream;
+
+/**
+ * A fixed set of member names that {@link JsonReader#nextNameIndex(NameTable)}
+ * can match straight against its character buffer. Names are hashed the same
+ * way as {@link String#hashCode()} and kept in an open-addressing table sized
+ * to at most half full, so a lookup is one hash pass plus, usually, a single
+ * comparison.
+ */
+public final class NameTable {
+
+	private final String[] names;
+	private final char[][] chars;
+	private final int[] hashes;
+	/** Slot to name index plus one; zero marks an empty slot. */
+	private final int[] slots;
+	private final int mask;
+
+	public NameTable(String... names) {
+		this.names = names.clone();
+		this.chars = new char[names.length][];
+		this.hashes = new int[names.length];
+		int capacity = 2;
+		while (capacity < names.length * 2) {
+			capacity <<= 1;
+		}
+		this.slots = new int[capacity];
+		this.mask = capacity - 1;
+		for (int i = 0; i < names.length; i++) {
+			chars[i] = names[i].toCharArray();
+			hashes[i] = names[i].hashCode();
+			if (indexOf(names[i]) >= 0) {
+				throw new IllegalArgumentException("Duplicate name " + names[i]);
+			}
+			int slot = spread(hashes[i]) & mask;
+			while (slots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = i + 1;
+		}
+	}
+
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	public int size() {
+		return names.length;
+	}
+
+	public String name(int index) {
+		return names[index];
+	}
+
+	/** Returns the index of {@code name}, or -1 if it is not in the table. */
+	public int indexOf(String name) {
+		int hash = name.hashCode();
+		for (int slot = spread(hash) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+			int index = slots[slot] - 1;
+			if (hashes[index] == hash && names[index].equals(name)) {
+				return index;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the index of the name held in {@code buffer[offset, offset+length)},
+	 * whose {@link String#hashCode()} is {@code hash}, or -1 if it is not in the
+	 * table.
+	 */
+	int indexOf(char[] buffer, int offset, int length, int hash) {
+		outer: for (int slot = spread(hash) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+			int index = slots[slot] - 1;
+			char[] candidate = chars[index];
+			if (hashes[index] != hash || candidate.length != length) {
+				continue;
+			}
+			for (int i = 0; i < length; i++) {
+				if (candidate[i] != buffer[offset + i]) {
+					continue outer;
+				}
+			}
+			return index;
+		}
+		return -1;
+	}
+}
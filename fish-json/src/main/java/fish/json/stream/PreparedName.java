@@ -0,0 +1,45 @@
+package fish.json.stream;
+
+/**
+ * A member name, or a constant string value such as an enum name, encoded
+ * once, quoted and escaped, so that {@link JsonWriter#name(PreparedName)} and
+ * {@link JsonWriter#value(PreparedName)} can emit it as a single bulk write.
+ * Both the plain and the html-safe encodings are kept, so a prepared name can
+ * be shared by every writer.
+ */
+public final class PreparedName {
+
+	private final String name;
+	private final char[] quoted;
+	private final char[] htmlSafeQuoted;
+
+	public PreparedName(String name) {
+		if (name == null) {
+			throw new NullPointerException("name == null");
+		}
+		this.name = name;
+		this.quoted = JsonWriter.quote(name, false);
+		this.htmlSafeQuoted = JsonWriter.quote(name, true);
+	}
+
+	public static PreparedName[] of(String... names) {
+		PreparedName[] result = new PreparedName[names.length];
+		for (int i = 0; i < names.length; i++) {
+			result[i] = new PreparedName(names[i]);
+		}
+		return result;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	char[] quoted(boolean htmlSafe) {
+		return htmlSafe ? htmlSafeQuoted : quoted;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
@@ -0,0 +1,381 @@
+package fish.json.stream;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Reads an object whose first members were already consumed from another
+ * reader. The members are recorded with {@link #record(String)} into a flat
+ * token buffer; the reader then presents the object from its beginning:
+ * {@code BEGIN_OBJECT}, the recorded members, and everything after them
+ * straight from the underlying reader. Lookahead is bounded by a token limit,
+ * so a missing discriminator cannot buffer a whole document.
+ */
+public final class ReplayJsonReader extends JsonReader {
+	private static final Reader unableReader = new Reader() {
+
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException {
+			throw new AssertionError();
+		}
+
+		@Override
+		public void close() throws IOException {
+			throw new AssertionError();
+		}
+
+	};
+
+	private static final JsonToken[] TOKENS = JsonToken.values();
+
+	private final JsonReader in;
+	private final int maxTokens;
+	/** Token ordinals, with names, strings, number text and Booleans in {@link #values}. */
+	private byte[] tokens = new byte[16];
+	private Object[] values = new Object[16];
+	private int count;
+	private int pos;
+	private boolean begun;
+
+	/**
+	 * @param in        a reader just inside an object, after its
+	 *                  {@code BEGIN_OBJECT}
+	 * @param maxTokens the most tokens {@link #record(String)} may buffer
+	 */
+	public ReplayJsonReader(JsonReader in, int maxTokens) {
+		super(unableReader);
+		this.in = in;
+		this.maxTokens = maxTokens;
+	}
+
+	/** Buffers the member {@code name} together with its value, read from the underlying reader. */
+	public void record(String name) {
+		add(JsonToken.NAME, name);
+		int depth = 0;
+		do {
+			switch (in.peek()) {
+			case BEGIN_ARRAY:
+				in.beginArray();
+				add(JsonToken.BEGIN_ARRAY, null);
+				depth++;
+				break;
+			case END_ARRAY:
+				in.endArray();
+				add(JsonToken.END_ARRAY, null);
+				depth--;
+				break;
+			case BEGIN_OBJECT:
+				in.beginObject();
+				add(JsonToken.BEGIN_OBJECT, null);
+				depth++;
+				break;
+			case END_OBJECT:
+				in.endObject();
+				add(JsonToken.END_OBJECT, null);
+				depth--;
+				break;
+			case NAME:
+				add(JsonToken.NAME, in.nextName());
+				break;
+			case STRING:
+				add(JsonToken.STRING, in.nextString());
+				break;
+			case NUMBER:
+				// kept as text, so no precision is lost before the target type is known
+				add(JsonToken.NUMBER, in.nextString());
+				break;
+			case BOOLEAN:
+				add(JsonToken.BOOLEAN, Boolean.valueOf(in.nextBoolean()));
+				break;
+			case NULL:
+				in.nextNull();
+				add(JsonToken.NULL, null);
+				break;
+			default:
+				throw new IllegalStateException("Unexpected " + in.peek() + locationString());
+			}
+		} while (depth > 0);
+	}
+
+	private void add(JsonToken token, Object value) {
+		if (count == maxTokens) {
+			throw new JsonException("More than " + maxTokens + " tokens buffered" + locationString());
+		}
+		if (count == tokens.length) {
+			tokens = Arrays.copyOf(tokens, count * 2);
+			values = Arrays.copyOf(values, count * 2);
+		}
+		tokens[count] = (byte) token.ordinal();
+		values[count++] = value;
+	}
+
+	private boolean replaying() {
+		return begun && pos < count;
+	}
+
+	private Object take(JsonToken expected) {
+		JsonToken token = peek();
+		if (token != expected) {
+			throw new IllegalStateException("Expected " + expected + " but was " + token
+					+ locationString());
+		}
+		Object value = values[pos];
+		values[pos++] = null;
+		return value;
+	}
+
+	private String takeScalar(String expected) {
+		JsonToken token = peek();
+		if (token != JsonToken.STRING && token != JsonToken.NUMBER) {
+			throw new IllegalStateException("Expected " + expected + " but was " + token
+					+ locationString());
+		}
+		String value = (String) values[pos];
+		values[pos++] = null;
+		return value;
+	}
+
+	private String locationString() {
+		return " at path " + in.getPath();
+	}
+
+	@Override
+	public JsonToken peek() {
+		if (!begun) {
+			return JsonToken.BEGIN_OBJECT;
+		}
+		return pos < count ? TOKENS[tokens[pos]] : in.peek();
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (replaying()) {
+			JsonToken token = TOKENS[tokens[pos]];
+			return token != JsonToken.END_ARRAY && token != JsonToken.END_OBJECT;
+		}
+		return begun ? in.hasNext() : true;
+	}
+
+	@Override
+	public void beginObject() {
+		if (!begun) {
+			begun = true;
+		} else if (replaying()) {
+			take(JsonToken.BEGIN_OBJECT);
+		} else {
+			in.beginObject();
+		}
+	}
+
+	@Override
+	public void endObject() {
+		if (replaying()) {
+			take(JsonToken.END_OBJECT);
+		} else {
+			in.endObject();
+		}
+	}
+
+	@Override
+	public void beginArray() {
+		if (replaying()) {
+			take(JsonToken.BEGIN_ARRAY);
+		} else if (!begun) {
+			throw new IllegalStateException("Expected BEGIN_ARRAY but was BEGIN_OBJECT"
+					+ locationString());
+		} else {
+			in.beginArray();
+		}
+	}
+
+	@Override
+	public void endArray() {
+		if (replaying()) {
+			take(JsonToken.END_ARRAY);
+		} else {
+			in.endArray();
+		}
+	}
+
+	@Override
+	public String nextName() {
+		return replaying() ? (String) take(JsonToken.NAME) : in.nextName();
+	}
+
+	@Override
+	public int nextNameIndex(NameTable table) {
+		return replaying() ? table.indexOf((String) take(JsonToken.NAME)) : in.nextNameIndex(table);
+	}
+
+	@Override
+	public void promoteNameToValue() {
+		if (replaying()) {
+			if (TOKENS[tokens[pos]] != JsonToken.NAME) {
+				throw new IllegalStateException("Expected a name but was " + peek()
+						+ locationString());
+			}
+			tokens[pos] = (byte) JsonToken.STRING.ordinal();
+		} else {
+			in.promoteNameToValue();
+		}
+	}
+
+	@Override
+	public String nextString() {
+		return replaying() ? takeScalar("a string") : in.nextString();
+	}
+
+	@Override
+	public int nextString(char[] dest) {
+		if (!replaying()) {
+			return in.nextString(dest);
+		}
+		JsonToken token = peek();
+		if ((token == JsonToken.STRING || token == JsonToken.NUMBER)
+				&& ((String) values[pos]).length() > dest.length) {
+			return -1;
+		}
+		String value = nextString();
+		value.getChars(0, value.length(), dest, 0);
+		return value.length();
+	}
+
+	@Override
+	public int nextStringIndex(NameTable table) {
+		return replaying() ? table.indexOf(nextString()) : in.nextStringIndex(table);
+	}
+
+	/** This reader replays one object of another reader and has no source of its own. */
+	@Override
+	public void reset(Reader in) {
+		throw new JsonException("A ReplayJsonReader replays one object of another reader and cannot be reset");
+	}
+
+	@Override
+	public boolean nextRecord() {
+		throw new JsonException("A ReplayJsonReader replays one object; read records from the underlying reader");
+	}
+
+	@Override
+	public boolean nextRecordText(StringBuilder dest) {
+		throw new JsonException("A ReplayJsonReader replays one object; read records from the underlying reader");
+	}
+
+	/** Projections match in the character buffer, which this reader does not have. */
+	@Override
+	public void setProjection(JsonProjection projection) {
+		throw new JsonException("A ReplayJsonReader has no character buffer to match a projection in;"
+				+ " set it on the underlying reader");
+	}
+
+	@Override
+	public byte[] nextBase64() {
+		if (!replaying()) {
+			return in.nextBase64();
+		}
+		try {
+			return Base64.getMimeDecoder().decode(nextString());
+		} catch (IllegalArgumentException e) {
+			throw new JsonException("Invalid Base64 value" + locationString(), e);
+		}
+	}
+
+	@Override
+	public boolean nextBoolean() {
+		return replaying() ? ((Boolean) take(JsonToken.BOOLEAN)).booleanValue() : in.nextBoolean();
+	}
+
+	@Override
+	public void nextNull() {
+		if (replaying()) {
+			take(JsonToken.NULL);
+		} else {
+			in.nextNull();
+		}
+	}
+
+	@Override
+	public double nextDouble() {
+		if (!replaying()) {
+			return in.nextDouble();
+		}
+		String text = takeScalar("a double");
+		try {
+			return Double.parseDouble(text);
+		} catch (NumberFormatException e) {
+			throw new NumberFormatException("Expected a double but was " + text + locationString());
+		}
+	}
+
+	@Override
+	public long nextLong() {
+		if (!replaying()) {
+			return in.nextLong();
+		}
+		String text = takeScalar("a long");
+		try {
+			return Long.parseLong(text);
+		} catch (NumberFormatException e) {
+			double asDouble = Double.parseDouble(text);
+			long result = (long) asDouble;
+			if (result != asDouble) {
+				throw new NumberFormatException("Expected a long but was " + text + locationString());
+			}
+			return result;
+		}
+	}
+
+	@Override
+	public int nextInt() {
+		if (!replaying()) {
+			return in.nextInt();
+		}
+		String text = takeScalar("an int");
+		try {
+			return Integer.parseInt(text);
+		} catch (NumberFormatException e) {
+			double asDouble = Double.parseDouble(text);
+			int result = (int) asDouble;
+			if (result != asDouble) {
+				throw new NumberFormatException("Expected an int but was " + text + locationString());
+			}
+			return result;
+		}
+	}
+
+	@Override
+	public void skipValue() {
+		if (!replaying()) {
+			in.skipValue();
+			return;
+		}
+		int depth = 0;
+		do {
+			JsonToken token = TOKENS[tokens[pos]];
+			if (token == JsonToken.BEGIN_ARRAY || token == JsonToken.BEGIN_OBJECT) {
+				depth++;
+			} else if (token == JsonToken.END_ARRAY || token == JsonToken.END_OBJECT) {
+				depth--;
+			}
+			values[pos++] = null;
+		} while (depth > 0);
+	}
+
+	@Override
+	public String getPath() {
+		return in.getPath();
+	}
+
+	@Override
+	public String getPreviousPath() {
+		return in.getPreviousPath();
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+}
@@ -0,0 +1,89 @@
+package fish.json.stream;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * An unsynchronized {@link java.io.StringWriter}: the output goes to a
+ * {@link StringBuilder} instead of a {@link StringBuffer}, which suits
+ * buffers that are only ever used by one thread.
+ */
+public final class StringBuilderWriter extends Writer {
+
+	private final StringBuilder builder;
+
+	public StringBuilderWriter() {
+		this.builder = new StringBuilder();
+	}
+
+	public StringBuilderWriter(int capacity) {
+		this.builder = new StringBuilder(capacity);
+	}
+
+	public StringBuilder getBuilder() {
+		return builder;
+	}
+
+	@Override
+	public void write(int c) {
+		builder.append((char) c);
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) {
+		builder.append(cbuf, off, len);
+	}
+
+	@Override
+	public void write(String str) {
+		builder.append(str);
+	}
+
+	@Override
+	public void write(String str, int off, int len) {
+		builder.append(str, off, off + len);
+	}
+
+	@Override
+	public StringBuilderWriter append(char c) {
+		builder.append(c);
+		return this;
+	}
+
+	@Override
+	public StringBuilderWriter append(CharSequence csq) {
+		builder.append(csq);
+		return this;
+	}
+
+	@Override
+	public StringBuilderWriter append(CharSequence csq, int start, int end) {
+		builder.append(csq, start, end);
+		return this;
+	}
+
+	/** Copies {@code [start, end)} of the buffer to {@code out} in blocks, without a String copy. */
+	public void writeTo(Writer out, int start, int end) throws IOException {
+		char[] block = new char[Math.min(8192, Math.max(end - start, 1))];
+		while (start < end) {
+			int count = Math.min(block.length, end - start);
+			builder.getChars(start, start + count, block, 0);
+			out.write(block, 0, count);
+			start += count;
+		}
+	}
+
+	@Override
+	public void flush() {
+	}
+
+	@Override
+	public void close() {
+	}
+
+	@Override
+	public String toString() {
+		return builder.toString();
+	}
+
+}
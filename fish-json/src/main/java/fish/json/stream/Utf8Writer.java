@@ -0,0 +1,218 @@
+package fish.json.stream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * A {@link Writer} that encodes UTF-8 as the chars arrive, into a growable
+ * {@code byte[]} or through a fixed buffer into an {@link OutputStream}. Put
+ * under a {@link JsonWriter}, escaped output goes straight to bytes with no
+ * intermediate String or char buffer. Unpaired surrogates are written as
+ * '?', as {@link String#getBytes(java.nio.charset.Charset)} does. Not
+ * synchronized.
+ */
+public final class Utf8Writer extends Writer {
+
+	private static final int STREAM_BUFFER = 8192;
+
+	private final OutputStream out;
+	private byte[] bytes;
+	private int count;
+	/** A high surrogate whose low half has not arrived yet, or 0. */
+	private char pendingHigh;
+
+	/** Writes to a growable array; see {@link #toByteArray()}. */
+	public Utf8Writer() {
+		this(256);
+	}
+
+	public Utf8Writer(int capacity) {
+		this.out = null;
+		this.bytes = new byte[Math.max(capacity, 16)];
+	}
+
+	/** Writes to {@code out} through an 8K buffer. */
+	public Utf8Writer(OutputStream out) {
+		if (out == null) {
+			throw new NullPointerException("out == null");
+		}
+		this.out = out;
+		this.bytes = new byte[STREAM_BUFFER];
+	}
+
+	@Override
+	public void write(int c) throws IOException {
+		encode((char) c);
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		int end = off + len;
+		while (off < end) {
+			if (pendingHigh == 0) {
+				// ASCII needs no bookkeeping
+				byte[] bytes = this.bytes;
+				int count = this.count;
+				int stop = Math.min(end, off + bytes.length - count);
+				while (off < stop && cbuf[off] < 0x80) {
+					bytes[count++] = (byte) cbuf[off++];
+				}
+				this.count = count;
+				if (off == end) {
+					return;
+				} else if (count == bytes.length) {
+					makeRoom(1);
+					continue;
+				}
+			}
+			encode(cbuf[off++]);
+		}
+	}
+
+	@Override
+	public void write(String str, int off, int len) throws IOException {
+		int end = off + len;
+		while (off < end) {
+			if (pendingHigh == 0) {
+				byte[] bytes = this.bytes;
+				int count = this.count;
+				int stop = Math.min(end, off + bytes.length - count);
+				char c;
+				while (off < stop && (c = str.charAt(off)) < 0x80) {
+					bytes[count++] = (byte) c;
+					off++;
+				}
+				this.count = count;
+				if (off == end) {
+					return;
+				} else if (count == bytes.length) {
+					makeRoom(1);
+					continue;
+				}
+			}
+			encode(str.charAt(off++));
+		}
+	}
+
+	@Override
+	public void write(String str) throws IOException {
+		write(str, 0, str.length());
+	}
+
+	@Override
+	public Utf8Writer append(char c) throws IOException {
+		write(c);
+		return this;
+	}
+
+	@Override
+	public Utf8Writer append(CharSequence csq) throws IOException {
+		String s = String.valueOf(csq);
+		write(s, 0, s.length());
+		return this;
+	}
+
+	@Override
+	public Utf8Writer append(CharSequence csq, int start, int end) throws IOException {
+		String s = String.valueOf(csq);
+		write(s, start, end - start);
+		return this;
+	}
+
+	private void encode(char c) throws IOException {
+		// a replaced unpaired surrogate and c take at most 4 bytes
+		if (bytes.length - count < 4) {
+			makeRoom(4);
+		}
+		byte[] bytes = this.bytes;
+		int count = this.count;
+		if (pendingHigh != 0) {
+			if (Character.isLowSurrogate(c)) {
+				int codePoint = Character.toCodePoint(pendingHigh, c);
+				pendingHigh = 0;
+				bytes[count++] = (byte) (0xf0 | (codePoint >> 18));
+				bytes[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+				bytes[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+				bytes[count++] = (byte) (0x80 | (codePoint & 0x3f));
+				this.count = count;
+				return;
+			}
+			pendingHigh = 0;
+			bytes[count++] = '?';
+		}
+		if (c < 0x80) {
+			bytes[count++] = (byte) c;
+		} else if (c < 0x800) {
+			bytes[count++] = (byte) (0xc0 | (c >> 6));
+			bytes[count++] = (byte) (0x80 | (c & 0x3f));
+		} else if (Character.isHighSurrogate(c)) {
+			pendingHigh = c;
+		} else if (Character.isLowSurrogate(c)) {
+			bytes[count++] = '?';
+		} else {
+			bytes[count++] = (byte) (0xe0 | (c >> 12));
+			bytes[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+			bytes[count++] = (byte) (0x80 | (c & 0x3f));
+		}
+		this.count = count;
+	}
+
+	/** Flushes to the stream, or grows the array, until {@code needed} more bytes fit. */
+	private void makeRoom(int needed) throws IOException {
+		if (out != null) {
+			out.write(bytes, 0, count);
+			count = 0;
+		} else {
+			bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, count + needed));
+		}
+	}
+
+	/** The number of bytes written and not yet flushed to the stream. */
+	public int size() {
+		return count;
+	}
+
+	/** The internal array; bytes {@code [0, size())} are the output. */
+	public byte[] buffer() {
+		return bytes;
+	}
+
+	public byte[] toByteArray() {
+		return Arrays.copyOf(bytes, count);
+	}
+
+	/** Discards the output, keeping the array. */
+	public void reset() {
+		count = 0;
+		pendingHigh = 0;
+	}
+
+	/** Writes out the buffered bytes and flushes the stream; a no-op for arrays. */
+	@Override
+	public void flush() throws IOException {
+		if (out != null) {
+			out.write(bytes, 0, count);
+			count = 0;
+			out.flush();
+		}
+	}
+
+	/** Ends the output, writing a pending unpaired surrogate, and closes the stream. */
+	@Override
+	public void close() throws IOException {
+		if (pendingHigh != 0) {
+			if (count == bytes.length) {
+				makeRoom(1);
+			}
+			pendingHigh = 0;
+			bytes[count++] = '?';
+		}
+		if (out != null) {
+			flush();
+			out.close();
+		}
+	}
+
+}
@@ -1,16 +1,577 @@
 package fish.json.util;
 
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.GenericDeclaration;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Properties;
+import java.util.WeakHashMap;
 
-public class $Gson$Types {
+/**
+ * Static helpers for {@link Type}s. Canonical types are interned: every
+ * canonical {@link ParameterizedType}, {@link GenericArrayType} and
+ * {@link WildcardType} handed out by this class is the single instance for
+ * that type, with its hash code computed once, so canonical types compare by
+ * identity in the common case and are cheap cache keys. Where a type can be
+ * expressed as a {@link Class} (a generic array of a class, for example) the
+ * class is the canonical form. The intern table holds its types weakly, so
+ * it does not keep the classes they mention, or their class loaders, alive.
+ */
+public final class $Gson$Types {
 
-	public static Class<?> getRawType(Type type) {
-		return null;
+	static final Type[] EMPTY_TYPE_ARRAY = new Type[] {};
+
+	/** Stripes of the intern table, each guarded by itself; a power of two. */
+	private static final int STRIPES = 16;
+	private static final WeakHashMap<?, ?>[] INTERNED = new WeakHashMap<?, ?>[STRIPES];
+	static {
+		for (int i = 0; i < STRIPES; i++) {
+			INTERNED[i] = new WeakHashMap<Type, WeakReference<Type>>();
+		}
+	}
+
+	private $Gson$Types() {
+		throw new UnsupportedOperationException();
+	}
+
+	public static ParameterizedType newParameterizedTypeWithOwner(Type ownerType, Type rawType,
+			Type... typeArguments) {
+		return intern(new ParameterizedTypeImpl(ownerType, rawType, typeArguments));
+	}
+
+	/** Returns {@code componentType[]}, as a class where possible. */
+	public static Type arrayOf(Type componentType) {
+		return canonicalize(new GenericArrayTypeImpl(componentType));
+	}
+
+	/** Returns {@code ? extends bound}. */
+	public static WildcardType subtypeOf(Type bound) {
+		return intern(new WildcardTypeImpl(new Type[] { bound }, EMPTY_TYPE_ARRAY));
+	}
+
+	/** Returns {@code ? super bound}. */
+	public static WildcardType supertypeOf(Type bound) {
+		return intern(new WildcardTypeImpl(new Type[] { Object.class }, new Type[] { bound }));
 	}
 
+	/**
+	 * Returns the interned canonical form of {@code type}. The result is
+	 * {@link Object#equals equal} to {@code type} and implements
+	 * {@code equals}, {@code hashCode} and {@code toString} independently of
+	 * the JDK's own implementations.
+	 */
 	public static Type canonicalize(Type type) {
-		// TODO 自动生成的方法存根
-		return null;
+		if (type instanceof Class || type instanceof ParameterizedTypeImpl
+				|| type instanceof WildcardTypeImpl) {
+			// our own implementations only ever escape interned
+			return type;
+		} else if (type instanceof ParameterizedType) {
+			ParameterizedType p = (ParameterizedType) type;
+			return intern(new ParameterizedTypeImpl(p.getOwnerType(), p.getRawType(),
+					p.getActualTypeArguments()));
+		} else if (type instanceof GenericArrayType) {
+			Type component = canonicalize(((GenericArrayType) type).getGenericComponentType());
+			if (component instanceof Class) {
+				return Array.newInstance((Class<?>) component, 0).getClass();
+			}
+			return intern(type instanceof GenericArrayTypeImpl ? type : new GenericArrayTypeImpl(component));
+		} else if (type instanceof WildcardType) {
+			WildcardType w = (WildcardType) type;
+			return intern(new WildcardTypeImpl(w.getUpperBounds(), w.getLowerBounds()));
+		} else {
+			// type variables are left as they are
+			return type;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T extends Type> T intern(T type) {
+		int hash = type.hashCode();
+		WeakHashMap<Type, WeakReference<Type>> interned = (WeakHashMap<Type, WeakReference<Type>>) INTERNED[
+				(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+		synchronized (interned) {
+			WeakReference<Type> ref = interned.get(type);
+			Type existing = ref != null ? ref.get() : null;
+			if (existing != null) {
+				return (T) existing;
+			}
+			interned.put(type, new WeakReference<Type>(type));
+			return type;
+		}
+	}
+
+	public static Class<?> getRawType(Type type) {
+		if (type instanceof Class<?>) {
+			return (Class<?>) type;
+		} else if (type instanceof ParameterizedType) {
+			ParameterizedType parameterizedType = (ParameterizedType) type;
+			// getRawType() returns Type instead of Class; every known
+			// implementation returns a Class
+			return (Class<?>) parameterizedType.getRawType();
+		} else if (type instanceof GenericArrayType) {
+			Type componentType = ((GenericArrayType) type).getGenericComponentType();
+			return Array.newInstance(getRawType(componentType), 0).getClass();
+		} else if (type instanceof TypeVariable) {
+			// the best we can do without more context
+			return Object.class;
+		} else if (type instanceof WildcardType) {
+			return getRawType(((WildcardType) type).getUpperBounds()[0]);
+		} else {
+			String className = type == null ? "null" : type.getClass().getName();
+			throw new IllegalArgumentException("Expected a Class, ParameterizedType, or "
+					+ "GenericArrayType, but <" + type + "> is of type " + className);
+		}
+	}
+
+	static boolean equal(Object a, Object b) {
+		return a == b || (a != null && a.equals(b));
+	}
+
+	/** Returns true if {@code a} and {@code b} are equal. */
+	public static boolean equals(Type a, Type b) {
+		if (a == b) {
+			return true;
+		} else if (a instanceof Class) {
+			return a.equals(b);
+		} else if (a instanceof ParameterizedType) {
+			if (!(b instanceof ParameterizedType)) {
+				return false;
+			}
+			ParameterizedType pa = (ParameterizedType) a;
+			ParameterizedType pb = (ParameterizedType) b;
+			return equal(pa.getOwnerType(), pb.getOwnerType())
+					&& pa.getRawType().equals(pb.getRawType())
+					&& Arrays.equals(pa.getActualTypeArguments(), pb.getActualTypeArguments());
+		} else if (a instanceof GenericArrayType) {
+			if (!(b instanceof GenericArrayType)) {
+				return false;
+			}
+			GenericArrayType ga = (GenericArrayType) a;
+			GenericArrayType gb = (GenericArrayType) b;
+			return equals(ga.getGenericComponentType(), gb.getGenericComponentType());
+		} else if (a instanceof WildcardType) {
+			if (!(b instanceof WildcardType)) {
+				return false;
+			}
+			WildcardType wa = (WildcardType) a;
+			WildcardType wb = (WildcardType) b;
+			return Arrays.equals(wa.getUpperBounds(), wb.getUpperBounds())
+					&& Arrays.equals(wa.getLowerBounds(), wb.getLowerBounds());
+		} else if (a instanceof TypeVariable) {
+			if (!(b instanceof TypeVariable)) {
+				return false;
+			}
+			TypeVariable<?> va = (TypeVariable<?>) a;
+			TypeVariable<?> vb = (TypeVariable<?>) b;
+			return va.getGenericDeclaration() == vb.getGenericDeclaration()
+					&& va.getName().equals(vb.getName());
+		} else {
+			// this isn't a type we support
+			return false;
+		}
+	}
+
+	static int hashCodeOrZero(Object o) {
+		return o != null ? o.hashCode() : 0;
+	}
+
+	public static String typeToString(Type type) {
+		return type instanceof Class ? ((Class<?>) type).getName() : type.toString();
+	}
+
+	/**
+	 * Returns the generic supertype for {@code supertype}. For example, given
+	 * a class {@code IntegerSet}, the result for when supertype is
+	 * {@code Set.class} is {@code Set<Integer>} and the result when the
+	 * supertype is {@code Collection.class} is {@code Collection<Integer>}.
+	 */
+	static Type getGenericSupertype(Type context, Class<?> rawType, Class<?> toResolve) {
+		if (toResolve == rawType) {
+			return context;
+		}
+
+		// we skip searching through interfaces if unknown is an interface
+		if (toResolve.isInterface()) {
+			Class<?>[] interfaces = rawType.getInterfaces();
+			for (int i = 0, length = interfaces.length; i < length; i++) {
+				if (interfaces[i] == toResolve) {
+					return rawType.getGenericInterfaces()[i];
+				} else if (toResolve.isAssignableFrom(interfaces[i])) {
+					return getGenericSupertype(rawType.getGenericInterfaces()[i], interfaces[i], toResolve);
+				}
+			}
+		}
+
+		// check our supertypes
+		if (!rawType.isInterface()) {
+			while (rawType != Object.class) {
+				Class<?> rawSupertype = rawType.getSuperclass();
+				if (rawSupertype == toResolve) {
+					return rawType.getGenericSuperclass();
+				} else if (toResolve.isAssignableFrom(rawSupertype)) {
+					return getGenericSupertype(rawType.getGenericSuperclass(), rawSupertype, toResolve);
+				}
+				rawType = rawSupertype;
+			}
+		}
+
+		// we can't resolve this further
+		return toResolve;
+	}
+
+	/**
+	 * Returns the generic form of {@code supertype}. For example, if this is
+	 * {@code ArrayList<String>}, this returns {@code Iterable<String>} given
+	 * the input {@code Iterable.class}.
+	 *
+	 * @param supertype a superclass of, or interface implemented by, this.
+	 */
+	static Type getSupertype(Type context, Class<?> contextRawType, Class<?> supertype) {
+		if (!supertype.isAssignableFrom(contextRawType)) {
+			throw new IllegalArgumentException(supertype + " is not a supertype of " + contextRawType);
+		}
+		return resolve(context, contextRawType,
+				getGenericSupertype(context, contextRawType, supertype));
+	}
+
+	/**
+	 * Returns the component type of this array type.
+	 *
+	 * @throws ClassCastException if this type is not an array.
+	 */
+	public static Type getArrayComponentType(Type array) {
+		return array instanceof GenericArrayType
+				? ((GenericArrayType) array).getGenericComponentType()
+				: ((Class<?>) array).getComponentType();
+	}
+
+	/**
+	 * Returns the element type of this collection type.
+	 *
+	 * @throws IllegalArgumentException if this type is not a collection.
+	 */
+	public static Type getCollectionElementType(Type context, Class<?> contextRawType) {
+		Type collectionType = getSupertype(context, contextRawType, Collection.class);
+
+		if (collectionType instanceof WildcardType) {
+			collectionType = ((WildcardType) collectionType).getUpperBounds()[0];
+		}
+		if (collectionType instanceof ParameterizedType) {
+			return ((ParameterizedType) collectionType).getActualTypeArguments()[0];
+		}
+		return Object.class;
+	}
+
+	/**
+	 * Returns a two element array containing this map's key and value types
+	 * in positions 0 and 1 respectively.
+	 */
+	public static Type[] getMapKeyAndValueTypes(Type context, Class<?> contextRawType) {
+		// Work around a problem with the declaration of java.util.Properties.
+		// That class should extend Hashtable<String, String>, but it's
+		// declared to extend Hashtable<Object, Object>.
+		if (context == Properties.class) {
+			return new Type[] { String.class, String.class };
+		}
+
+		Type mapType = getSupertype(context, contextRawType, Map.class);
+		if (mapType instanceof ParameterizedType) {
+			ParameterizedType mapParameterizedType = (ParameterizedType) mapType;
+			return mapParameterizedType.getActualTypeArguments();
+		}
+		return new Type[] { Object.class, Object.class };
+	}
+
+	/**
+	 * Resolves {@code toResolve}, as declared in {@code contextRawType},
+	 * against the type arguments of {@code context}. The result is canonical.
+	 */
+	public static Type resolve(Type context, Class<?> contextRawType, Type toResolve) {
+		// this implementation is made a little more complicated in an attempt
+		// to avoid object-creation
+		while (true) {
+			if (toResolve instanceof TypeVariable) {
+				TypeVariable<?> typeVariable = (TypeVariable<?>) toResolve;
+				toResolve = resolveTypeVariable(context, contextRawType, typeVariable);
+				if (toResolve == typeVariable) {
+					return toResolve;
+				}
+
+			} else if (toResolve instanceof Class && ((Class<?>) toResolve).isArray()) {
+				Class<?> original = (Class<?>) toResolve;
+				Type componentType = original.getComponentType();
+				Type newComponentType = resolve(context, contextRawType, componentType);
+				return componentType == newComponentType ? original : arrayOf(newComponentType);
+
+			} else if (toResolve instanceof GenericArrayType) {
+				GenericArrayType original = (GenericArrayType) toResolve;
+				Type componentType = original.getGenericComponentType();
+				Type newComponentType = resolve(context, contextRawType, componentType);
+				return componentType == newComponentType ? canonicalize(original) : arrayOf(newComponentType);
+
+			} else if (toResolve instanceof ParameterizedType) {
+				ParameterizedType original = (ParameterizedType) toResolve;
+				Type ownerType = original.getOwnerType();
+				Type newOwnerType = resolve(context, contextRawType, ownerType);
+				boolean changed = newOwnerType != ownerType;
+
+				Type[] args = original.getActualTypeArguments();
+				for (int t = 0, length = args.length; t < length; t++) {
+					Type resolvedTypeArgument = resolve(context, contextRawType, args[t]);
+					if (resolvedTypeArgument != args[t]) {
+						if (!changed) {
+							args = args.clone();
+							changed = true;
+						}
+						args[t] = resolvedTypeArgument;
+					}
+				}
+
+				return changed
+						? newParameterizedTypeWithOwner(newOwnerType, original.getRawType(), args)
+						: canonicalize(original);
+
+			} else if (toResolve instanceof WildcardType) {
+				WildcardType original = (WildcardType) toResolve;
+				Type[] originalLowerBound = original.getLowerBounds();
+				Type[] originalUpperBound = original.getUpperBounds();
+
+				if (originalLowerBound.length == 1) {
+					Type lowerBound = resolve(context, contextRawType, originalLowerBound[0]);
+					if (lowerBound != originalLowerBound[0]) {
+						return supertypeOf(lowerBound);
+					}
+				} else if (originalUpperBound.length == 1) {
+					Type upperBound = resolve(context, contextRawType, originalUpperBound[0]);
+					if (upperBound != originalUpperBound[0]) {
+						return subtypeOf(upperBound);
+					}
+				}
+				return canonicalize(original);
+
+			} else {
+				return toResolve;
+			}
+		}
+	}
+
+	static Type resolveTypeVariable(Type context, Class<?> contextRawType, TypeVariable<?> unknown) {
+		Class<?> declaredByRaw = declaringClassOf(unknown);
+
+		// we can't reduce this further
+		if (declaredByRaw == null) {
+			return unknown;
+		}
+
+		Type declaredBy = getGenericSupertype(context, contextRawType, declaredByRaw);
+		if (declaredBy instanceof ParameterizedType) {
+			int index = indexOf(declaredByRaw.getTypeParameters(), unknown);
+			return ((ParameterizedType) declaredBy).getActualTypeArguments()[index];
+		}
+
+		return unknown;
+	}
+
+	private static int indexOf(Object[] array, Object toFind) {
+		for (int i = 0; i < array.length; i++) {
+			if (toFind.equals(array[i])) {
+				return i;
+			}
+		}
+		throw new java.util.NoSuchElementException();
+	}
+
+	/**
+	 * Returns the declaring class of {@code typeVariable}, or {@code null} if
+	 * it was not declared by a class.
+	 */
+	private static Class<?> declaringClassOf(TypeVariable<?> typeVariable) {
+		GenericDeclaration genericDeclaration = typeVariable.getGenericDeclaration();
+		return genericDeclaration instanceof Class ? (Class<?>) genericDeclaration : null;
+	}
+
+	static void checkNotPrimitive(Type type) {
+		if (type instanceof Class<?> && ((Class<?>) type).isPrimitive()) {
+			throw new IllegalArgumentException("Primitive type " + type + " is not allowed here");
+		}
+	}
+
+	private static final class ParameterizedTypeImpl implements ParameterizedType {
+		private final Type ownerType;
+		private final Type rawType;
+		private final Type[] typeArguments;
+		private final int hashCode;
+
+		ParameterizedTypeImpl(Type ownerType, Type rawType, Type... typeArguments) {
+			// require an owner type if the raw type needs it
+			if (rawType instanceof Class<?>) {
+				Class<?> rawTypeAsClass = (Class<?>) rawType;
+				boolean isStaticOrTopLevelClass = Modifier.isStatic(rawTypeAsClass.getModifiers())
+						|| rawTypeAsClass.getEnclosingClass() == null;
+				if (ownerType == null && !isStaticOrTopLevelClass) {
+					throw new IllegalArgumentException("No owner type for " + rawType);
+				}
+			}
+
+			this.ownerType = ownerType == null ? null : canonicalize(ownerType);
+			this.rawType = canonicalize(rawType);
+			this.typeArguments = typeArguments.clone();
+			for (int t = 0, length = this.typeArguments.length; t < length; t++) {
+				if (this.typeArguments[t] == null) {
+					throw new NullPointerException("typeArguments[" + t + "] == null");
+				}
+				checkNotPrimitive(this.typeArguments[t]);
+				this.typeArguments[t] = canonicalize(this.typeArguments[t]);
+			}
+			this.hashCode = Arrays.hashCode(this.typeArguments) ^ this.rawType.hashCode()
+					^ hashCodeOrZero(this.ownerType);
+		}
+
+		public Type[] getActualTypeArguments() {
+			return typeArguments.clone();
+		}
+
+		public Type getRawType() {
+			return rawType;
+		}
+
+		public Type getOwnerType() {
+			return ownerType;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof ParameterizedType
+					&& $Gson$Types.equals(this, (ParameterizedType) other);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public String toString() {
+			int length = typeArguments.length;
+			if (length == 0) {
+				return typeToString(rawType);
+			}
+
+			StringBuilder stringBuilder = new StringBuilder(30 * (length + 1));
+			stringBuilder.append(typeToString(rawType)).append("<").append(typeToString(typeArguments[0]));
+			for (int i = 1; i < length; i++) {
+				stringBuilder.append(", ").append(typeToString(typeArguments[i]));
+			}
+			return stringBuilder.append(">").toString();
+		}
+	}
+
+	private static final class GenericArrayTypeImpl implements GenericArrayType {
+		private final Type componentType;
+		private final int hashCode;
+
+		GenericArrayTypeImpl(Type componentType) {
+			this.componentType = canonicalize(componentType);
+			this.hashCode = this.componentType.hashCode();
+		}
+
+		public Type getGenericComponentType() {
+			return componentType;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof GenericArrayType
+					&& $Gson$Types.equals(this, (GenericArrayType) o);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public String toString() {
+			return typeToString(componentType) + "[]";
+		}
 	}
 
+	/**
+	 * The WildcardType interface supports multiple upper bounds and multiple
+	 * lower bounds. We only support what the Java 6 language needs - at most
+	 * one bound. If a lower bound is set, the upper bound must be
+	 * Object.class.
+	 */
+	private static final class WildcardTypeImpl implements WildcardType {
+		private final Type upperBound;
+		private final Type lowerBound;
+		private final int hashCode;
+
+		WildcardTypeImpl(Type[] upperBounds, Type[] lowerBounds) {
+			if (lowerBounds.length > 1 || upperBounds.length != 1) {
+				throw new IllegalArgumentException("Unsupported wildcard " + Arrays.toString(upperBounds)
+						+ " / " + Arrays.toString(lowerBounds));
+			}
+
+			if (lowerBounds.length == 1) {
+				if (lowerBounds[0] == null) {
+					throw new NullPointerException("lowerBound == null");
+				}
+				checkNotPrimitive(lowerBounds[0]);
+				if (upperBounds[0] != Object.class) {
+					throw new IllegalArgumentException("Lower-bounded wildcard must extend Object");
+				}
+				this.lowerBound = canonicalize(lowerBounds[0]);
+				this.upperBound = Object.class;
+
+			} else {
+				if (upperBounds[0] == null) {
+					throw new NullPointerException("upperBound == null");
+				}
+				checkNotPrimitive(upperBounds[0]);
+				this.lowerBound = null;
+				this.upperBound = canonicalize(upperBounds[0]);
+			}
+			this.hashCode = (lowerBound != null ? 31 + lowerBound.hashCode() : 1)
+					^ (31 + upperBound.hashCode());
+		}
+
+		public Type[] getUpperBounds() {
+			return new Type[] { upperBound };
+		}
+
+		public Type[] getLowerBounds() {
+			return lowerBound != null ? new Type[] { lowerBound } : EMPTY_TYPE_ARRAY;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof WildcardType
+					&& $Gson$Types.equals(this, (WildcardType) other);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public String toString() {
+			if (lowerBound != null) {
+				return "? super " + typeToString(lowerBound);
+			} else if (upperBound == Object.class) {
+				return "?";
+			} else {
+				return "? extends " + typeToString(upperBound);
+			}
+		}
+	}
 }
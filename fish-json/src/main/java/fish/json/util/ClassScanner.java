@@ -0,0 +1,109 @@
+package fish.json.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Enumeration;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Lists the classes of a package and its sub-packages the way MyBatis'
+ * {@code ResolverUtil} and {@code DefaultVFS} do: every location the class
+ * loader has for the package path is listed, walking directories and jar
+ * entries, without loading anything. Like theirs, it only sees jars that
+ * have entries for their directories, as the jar tool and Maven write them.
+ */
+public final class ClassScanner {
+
+	private ClassScanner() {
+	}
+
+	/** Adds the binary names of the classes under {@code packageName} to {@code names}. */
+	public static void scan(ClassLoader loader, String packageName, Set<String> names) throws IOException {
+		String path = packageName.replace('.', '/');
+		Enumeration<URL> urls = loader.getResources(path);
+		while (urls.hasMoreElements()) {
+			URL url = urls.nextElement();
+			if ("file".equals(url.getProtocol())) {
+				scanDirectory(toFile(url), packageName, names);
+			} else if ("jar".equals(url.getProtocol())) {
+				JarFile jar = openJar(url);
+				try {
+					String prefix = path + "/";
+					Enumeration<JarEntry> entries = jar.entries();
+					while (entries.hasMoreElements()) {
+						String entry = entries.nextElement().getName();
+						if (entry.startsWith(prefix) && isClass(entry)) {
+							names.add(entry.substring(0, entry.length() - 6).replace('/', '.'));
+						}
+					}
+				} finally {
+					jar.close();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Describes where {@code loader} finds {@code packageName}: each jar with
+	 * its size and modification time. Returns null if the package is also in
+	 * a directory, whose contents cannot be vouched for this cheaply.
+	 */
+	public static String fingerprint(ClassLoader loader, String packageName) throws IOException {
+		StringBuilder result = new StringBuilder(packageName);
+		Enumeration<URL> urls = loader.getResources(packageName.replace('.', '/'));
+		while (urls.hasMoreElements()) {
+			URL url = urls.nextElement();
+			if (!"jar".equals(url.getProtocol())) {
+				return null;
+			}
+			JarFile jar = openJar(url);
+			File file = new File(jar.getName());
+			jar.close();
+			result.append(';').append(file.getPath()).append('@').append(file.lastModified())
+					.append('+').append(file.length());
+		}
+		return result.toString();
+	}
+
+	private static void scanDirectory(File dir, String packageName, Set<String> names) {
+		File[] children = dir.listFiles();
+		if (children == null) {
+			return;
+		}
+		for (File child : children) {
+			String name = child.getName();
+			if (child.isDirectory()) {
+				scanDirectory(child, packageName + "." + name, names);
+			} else if (isClass(name)) {
+				names.add(packageName + "." + name.substring(0, name.length() - 6));
+			}
+		}
+	}
+
+	private static boolean isClass(String name) {
+		return name.endsWith(".class") && !name.endsWith("package-info.class")
+				&& !name.endsWith("module-info.class");
+	}
+
+	private static File toFile(URL url) {
+		try {
+			return new File(url.toURI());
+		} catch (URISyntaxException e) {
+			return new File(url.getPath());
+		}
+	}
+
+	private static JarFile openJar(URL url) throws IOException {
+		URLConnection connection = url.openConnection();
+		// a private copy, so that closing it does not close one the class loader shares
+		connection.setUseCaches(false);
+		return ((JarURLConnection) connection).getJarFile();
+	}
+
+}
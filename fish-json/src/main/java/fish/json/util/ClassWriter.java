@@ -0,0 +1,267 @@
+package fish.json.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Just enough of a class file assembler to emit the generated adapters. The
+ * classes are written as version 49 so no stack map frames are needed.
+ */
+public class ClassWriter {
+
+	public static final int ACC_PUBLIC = 0x0001;
+	public static final int ACC_PROTECTED = 0x0004;
+	public static final int ACC_FINAL = 0x0010;
+	public static final int ACC_SUPER = 0x0020;
+
+	public static final int ICONST_0 = 0x03;
+	public static final int BIPUSH = 0x10;
+	public static final int SIPUSH = 0x11;
+	public static final int LDC_W = 0x13;
+	public static final int ILOAD = 0x15;
+	public static final int ALOAD = 0x19;
+	public static final int AALOAD = 0x32;
+	public static final int ASTORE = 0x3a;
+	public static final int POP = 0x57;
+	public static final int DUP = 0x59;
+	public static final int I2L = 0x85;
+	public static final int F2D = 0x8d;
+	public static final int D2F = 0x90;
+	public static final int I2B = 0x91;
+	public static final int I2C = 0x92;
+	public static final int I2S = 0x93;
+	public static final int TABLESWITCH = 0xaa;
+	public static final int ARETURN = 0xb0;
+	public static final int RETURN = 0xb1;
+	public static final int GETFIELD = 0xb4;
+	public static final int PUTFIELD = 0xb5;
+	public static final int INVOKEVIRTUAL = 0xb6;
+	public static final int INVOKESPECIAL = 0xb7;
+	public static final int NEW = 0xbb;
+	public static final int CHECKCAST = 0xc0;
+
+	private static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_INTEGER = 3;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_FIELDREF = 9;
+	private static final int CONSTANT_METHODREF = 10;
+	private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+	private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+	private final DataOutputStream pool = new DataOutputStream(poolBytes);
+	private final Map<String, Integer> constants = new HashMap<String, Integer>();
+	private int poolCount = 1;
+
+	private final int access;
+	private final int thisClass;
+	private final int superClass;
+	private final List<Code> methods = new ArrayList<Code>();
+
+	public ClassWriter(int access, String name, String superName) {
+		this.access = access;
+		this.thisClass = classRef(name);
+		this.superClass = classRef(superName);
+	}
+
+	private int constant(String key, int tag, int a, int b, String utf8) {
+		Integer index = constants.get(key);
+		if (index != null) {
+			return index;
+		}
+		try {
+			pool.writeByte(tag);
+			if (tag == CONSTANT_UTF8) {
+				pool.writeUTF(utf8);
+			} else if (tag == CONSTANT_CLASS) {
+				pool.writeShort(a);
+			} else if (tag == CONSTANT_INTEGER) {
+				pool.writeInt(a);
+			} else {
+				pool.writeShort(a);
+				pool.writeShort(b);
+			}
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		}
+		constants.put(key, poolCount);
+		return poolCount++;
+	}
+
+	public int utf8(String value) {
+		return constant("U" + value, CONSTANT_UTF8, 0, 0, value);
+	}
+
+	public int classRef(String internalName) {
+		return constant("C" + internalName, CONSTANT_CLASS, utf8(internalName), 0, null);
+	}
+
+	public int intConstant(int value) {
+		return constant("I" + value, CONSTANT_INTEGER, value, 0, null);
+	}
+
+	private int nameAndType(String name, String descriptor) {
+		return constant("N" + name + ' ' + descriptor, CONSTANT_NAME_AND_TYPE,
+				utf8(name), utf8(descriptor), null);
+	}
+
+	public int fieldRef(String owner, String name, String descriptor) {
+		return constant("F" + owner + '.' + name + ' ' + descriptor, CONSTANT_FIELDREF,
+				classRef(owner), nameAndType(name, descriptor), null);
+	}
+
+	public int methodRef(String owner, String name, String descriptor) {
+		return constant("M" + owner + '.' + name + descriptor, CONSTANT_METHODREF,
+				classRef(owner), nameAndType(name, descriptor), null);
+	}
+
+	public Code method(int access, String name, String descriptor, int maxStack, int maxLocals) {
+		Code code = new Code(access, utf8(name), utf8(descriptor), maxStack, maxLocals);
+		methods.add(code);
+		return code;
+	}
+
+	public byte[] toByteArray() {
+		int codeAttribute = utf8("Code");
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeInt(0xCAFEBABE);
+			out.writeShort(0);
+			out.writeShort(49);
+			out.writeShort(poolCount);
+			pool.flush();
+			poolBytes.writeTo(out);
+			out.writeShort(access);
+			out.writeShort(thisClass);
+			out.writeShort(superClass);
+			out.writeShort(0); // interfaces
+			out.writeShort(0); // fields
+			out.writeShort(methods.size());
+			for (Code method : methods) {
+				out.writeShort(method.access);
+				out.writeShort(method.name);
+				out.writeShort(method.descriptor);
+				out.writeShort(1);
+				out.writeShort(codeAttribute);
+				out.writeInt(12 + method.length);
+				out.writeShort(method.maxStack);
+				out.writeShort(method.maxLocals);
+				out.writeInt(method.length);
+				out.write(method.code, 0, method.length);
+				out.writeShort(0); // exception table
+				out.writeShort(0); // attributes
+			}
+			out.writeShort(0); // class attributes
+			out.flush();
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	public static class Code {
+		private final int access;
+		private final int name;
+		private final int descriptor;
+		private final int maxStack;
+		private final int maxLocals;
+		private byte[] code = new byte[256];
+		private int length;
+		private int switchStart;
+
+		Code(int access, int name, int descriptor, int maxStack, int maxLocals) {
+			this.access = access;
+			this.name = name;
+			this.descriptor = descriptor;
+			this.maxStack = maxStack;
+			this.maxLocals = maxLocals;
+		}
+
+		private void write(int b) {
+			if (length == code.length) {
+				byte[] newCode = new byte[length * 2];
+				System.arraycopy(code, 0, newCode, 0, length);
+				code = newCode;
+			}
+			code[length++] = (byte) b;
+		}
+
+		private void writeInt(int value) {
+			write(value >>> 24);
+			write(value >>> 16);
+			write(value >>> 8);
+			write(value);
+		}
+
+		public Code op(int opcode) {
+			write(opcode);
+			return this;
+		}
+
+		public Code op(int opcode, int operand) {
+			write(opcode);
+			write(operand >>> 8);
+			write(operand);
+			return this;
+		}
+
+		public Code local(int opcode, int index) {
+			write(opcode);
+			write(index);
+			return this;
+		}
+
+		public Code pushInt(ClassWriter owner, int value) {
+			if (value >= -1 && value <= 5) {
+				write(ICONST_0 + value);
+			} else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+				write(BIPUSH);
+				write(value);
+			} else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+				op(SIPUSH, value);
+			} else {
+				op(LDC_W, owner.intConstant(value));
+			}
+			return this;
+		}
+
+		public int position() {
+			return length;
+		}
+
+		/**
+		 * Emits a tableswitch over {@code 0..count-1} and returns the offset
+		 * slots to fill in with {@link #patchSwitch}; slot 0 is the default.
+		 */
+		public int[] tableSwitch(int count) {
+			switchStart = length;
+			write(TABLESWITCH);
+			while (length % 4 != 0) {
+				write(0);
+			}
+			int[] slots = new int[count + 1];
+			slots[0] = length;
+			writeInt(0);
+			writeInt(0);
+			writeInt(count - 1);
+			for (int i = 0; i < count; i++) {
+				slots[i + 1] = length;
+				writeInt(0);
+			}
+			return slots;
+		}
+
+		public void patchSwitch(int slot, int target) {
+			int offset = target - switchStart;
+			code[slot] = (byte) (offset >>> 24);
+			code[slot + 1] = (byte) (offset >>> 16);
+			code[slot + 2] = (byte) (offset >>> 8);
+			code[slot + 3] = (byte) offset;
+		}
+	}
+}
@@ -3,6 +3,12 @@ package fish.json.util;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 
+/**
+ * Represents a generic type {@code T}. Create one with an anonymous subclass,
+ * {@code new TypeToken<List<String>>() {}}, or from a {@link Type} with
+ * {@link #get(Type)}. The type is canonical and interned, so tokens are cheap
+ * to compare and to use as cache keys.
+ */
 public class TypeToken<T> {
 	final Class<? super T> rawType;
 	final Type type;
@@ -15,6 +21,16 @@ public class TypeToken<T> {
 		this.hashCode = type.hashCode();
 	}
 
+	@SuppressWarnings("unchecked")
+	TypeToken(Type type) {
+		if (type == null) {
+			throw new NullPointerException("type == null");
+		}
+		this.type = $Gson$Types.canonicalize(type);
+		this.rawType = (Class<? super T>) $Gson$Types.getRawType(this.type);
+		this.hashCode = this.type.hashCode();
+	}
+
 	static Type getSuperclassTypeParameter(Class<?> subclass) {
 		Type superclass = subclass.getGenericSuperclass();
 		if (superclass instanceof Class) {
@@ -32,4 +48,38 @@ public class TypeToken<T> {
 	public final Type getType() {
 		return type;
 	}
+
+	@Override
+	public final int hashCode() {
+		return this.hashCode;
+	}
+
+	@Override
+	public final boolean equals(Object o) {
+		return o instanceof TypeToken<?>
+				&& $Gson$Types.equals(type, ((TypeToken<?>) o).type);
+	}
+
+	@Override
+	public final String toString() {
+		return $Gson$Types.typeToString(type);
+	}
+
+	public static TypeToken<?> get(Type type) {
+		return new TypeToken<Object>(type);
+	}
+
+	public static <T> TypeToken<T> get(Class<T> type) {
+		return new TypeToken<T>(type);
+	}
+
+	/** Returns the token for {@code rawType<typeArguments>}. */
+	public static TypeToken<?> getParameterized(Type rawType, Type... typeArguments) {
+		return new TypeToken<Object>($Gson$Types.newParameterizedTypeWithOwner(null, rawType, typeArguments));
+	}
+
+	/** Returns the token for {@code componentType[]}. */
+	public static TypeToken<?> getArray(Type componentType) {
+		return new TypeToken<Object>($Gson$Types.arrayOf(componentType));
+	}
 }
@@ -0,0 +1,124 @@
+package fish.json.adapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import fish.json.base.Gson;
+import fish.json.base.GsonBuilder;
+import fish.json.stream.JsonException;
+
+public class BoundFieldTest {
+
+	static class Primitives {
+		int i;
+		long l;
+		double d;
+		float f;
+		boolean b;
+		short s;
+		byte y;
+		char c;
+		Integer boxed;
+	}
+
+	private final ObjectAdapter adapter = new ObjectAdapter(new GsonBuilder().create(), Primitives.class);
+
+	@Test
+	public void classifiesFieldsByPrimitiveType() {
+		BoundField[] fields = BoundField.of(Primitives.class);
+		int[] kinds = new int[fields.length];
+		for (int i = 0; i < fields.length; i++) {
+			kinds[i] = fields[i].kind;
+		}
+		assertEquals(9, fields.length);
+		assertEquals(BoundField.KIND_INT, kinds[0]);
+		assertEquals(BoundField.KIND_LONG, kinds[1]);
+		assertEquals(BoundField.KIND_DOUBLE, kinds[2]);
+		assertEquals(BoundField.KIND_FLOAT, kinds[3]);
+		assertEquals(BoundField.KIND_BOOLEAN, kinds[4]);
+		assertEquals(BoundField.KIND_SHORT, kinds[5]);
+		assertEquals(BoundField.KIND_BYTE, kinds[6]);
+		assertEquals(BoundField.KIND_CHAR, kinds[7]);
+		assertEquals(BoundField.KIND_OBJECT, kinds[8]);
+	}
+
+	@Test
+	public void roundTripsExtremeValues() {
+		Primitives p = new Primitives();
+		p.i = Integer.MIN_VALUE;
+		p.l = Long.MAX_VALUE;
+		p.d = -0.125;
+		p.f = 1.5f;
+		p.b = true;
+		p.s = Short.MIN_VALUE;
+		p.y = Byte.MAX_VALUE;
+		p.c = '\u00e9';
+		p.boxed = 7;
+		String json = adapter.toJson(p);
+		assertEquals("{\"i\":-2147483648,\"l\":9223372036854775807,\"d\":-0.125,\"f\":1.5,\"b\":true,"
+				+ "\"s\":-32768,\"y\":127,\"c\":\"\u00e9\",\"boxed\":7}", json);
+
+		Primitives back = (Primitives) adapter.fromJson(json);
+		assertEquals(Integer.MIN_VALUE, back.i);
+		assertEquals(Long.MAX_VALUE, back.l);
+		assertEquals(-0.125, back.d, 0);
+		assertEquals(1.5f, back.f, 0);
+		assertTrue(back.b);
+		assertEquals(Short.MIN_VALUE, back.s);
+		assertEquals(Byte.MAX_VALUE, back.y);
+		assertEquals('\u00e9', back.c);
+		assertEquals(Integer.valueOf(7), back.boxed);
+	}
+
+	@Test
+	public void nullLeavesPrimitiveFieldsUntouched() {
+		Primitives back = (Primitives) adapter.fromJson(
+				"{\"i\":null,\"l\":null,\"d\":null,\"b\":null,\"c\":null,\"boxed\":null}");
+		assertEquals(0, back.i);
+		assertEquals(0L, back.l);
+		assertEquals(0.0, back.d, 0);
+		assertEquals('\0', back.c);
+		assertNull(back.boxed);
+	}
+
+	@Test
+	public void readsNumbersWrittenAsStrings() {
+		Gson gson = new GsonBuilder().leninet().create();
+		Primitives back = (Primitives) new ObjectAdapter(gson, Primitives.class).fromJson("{\"i\":\"12\",\"d\":\"2.5\"}");
+		assertEquals(12, back.i);
+		assertEquals(2.5, back.d, 0);
+	}
+
+	@Test
+	public void rejectsCharOfWrongLength() {
+		try {
+			adapter.fromJson("{\"c\":\"ab\"}");
+			fail();
+		} catch (JsonException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("ab"));
+		}
+	}
+
+	@Test
+	public void rejectsShortAndByteOutOfRange() {
+		try {
+			adapter.fromJson("{\"s\":70000}");
+			fail();
+		} catch (JsonException e) {
+			assertEquals("Lossy conversion from 70000 to short at path $.s", e.getMessage());
+		}
+		try {
+			adapter.fromJson("{\"y\":-129}");
+			fail();
+		} catch (JsonException e) {
+			assertEquals("Lossy conversion from -129 to byte at path $.y", e.getMessage());
+		}
+		Primitives back = (Primitives) adapter.fromJson("{\"s\":32767,\"y\":-128}");
+		assertEquals(Short.MAX_VALUE, back.s);
+		assertEquals(Byte.MIN_VALUE, back.y);
+	}
+}
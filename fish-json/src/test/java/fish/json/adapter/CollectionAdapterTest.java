@@ -0,0 +1,161 @@
+package fish.json.adapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import fish.json.base.Gson;
+import fish.json.base.GsonBuilder;
+import fish.json.stream.JsonException;
+import fish.json.util.TypeToken;
+
+public class CollectionAdapterTest {
+
+	enum Color {
+		RED, GREEN, BLUE
+	}
+
+	static abstract class Shape {
+		int id;
+	}
+
+	static class Square extends Shape {
+		double edge;
+	}
+
+	static class Item {
+		String name;
+		int count;
+	}
+
+	static abstract class AbstractList extends java.util.AbstractList<String> {
+	}
+
+	static class Holder {
+		List<Item> items;
+		Set<String> tags;
+		Collection<Integer> numbers;
+	}
+
+	private final Gson gson = new GsonBuilder().create();
+
+	@Test
+	public void picksConcreteContainers() {
+		assertEquals(ArrayList.class, gson.fromJson("[1]", new TypeToken<List<Integer>>() {
+		}).getClass());
+		assertEquals(ArrayList.class, gson.fromJson("[1]", new TypeToken<Collection<Integer>>() {
+		}).getClass());
+		assertEquals(LinkedHashSet.class, gson.fromJson("[1]", new TypeToken<Set<Integer>>() {
+		}).getClass());
+		assertEquals(TreeSet.class, gson.fromJson("[1]", new TypeToken<SortedSet<Integer>>() {
+		}).getClass());
+		assertEquals(ArrayDeque.class, gson.fromJson("[1]", new TypeToken<Deque<Integer>>() {
+		}).getClass());
+		assertEquals(LinkedList.class, gson.fromJson("[1]", new TypeToken<LinkedList<Integer>>() {
+		}).getClass());
+	}
+
+	@Test
+	public void roundTripsElementsInOrder() {
+		List<Integer> list = gson.fromJson("[3,1,2]", new TypeToken<List<Integer>>() {
+		});
+		assertEquals(Arrays.asList(3, 1, 2), list);
+		assertEquals("[3,1,2]", gson.toJson(list));
+
+		Set<String> set = gson.fromJson("[\"b\",\"a\",\"b\"]", new TypeToken<Set<String>>() {
+		});
+		assertEquals(Arrays.asList("b", "a"), new ArrayList<String>(set));
+
+		SortedSet<String> sorted = gson.fromJson("[\"b\",\"c\",\"a\"]", new TypeToken<SortedSet<String>>() {
+		});
+		assertEquals("[\"a\",\"b\",\"c\"]", gson.toJson(sorted));
+	}
+
+	@Test
+	public void bindsEnumSets() {
+		EnumSet<Color> colors = gson.fromJson("[\"BLUE\",\"RED\"]", new TypeToken<EnumSet<Color>>() {
+		});
+		assertEquals(EnumSet.of(Color.RED, Color.BLUE), colors);
+		assertEquals("[\"RED\",\"BLUE\"]", gson.toJson(colors));
+	}
+
+	@Test
+	public void bindsNestedGenerics() {
+		List<List<Item>> nested = gson.fromJson("[[{\"name\":\"a\",\"count\":1}],[],null]",
+				new TypeToken<List<List<Item>>>() {
+				});
+		assertEquals(3, nested.size());
+		assertEquals("a", nested.get(0).get(0).name);
+		assertEquals(1, nested.get(0).get(0).count);
+		assertTrue(nested.get(1).isEmpty());
+		assertNull(nested.get(2));
+		assertEquals("[[{\"name\":\"a\",\"count\":1}],[],null]", gson.toJson(nested,
+				new TypeToken<List<List<Item>>>() {
+				}.getType()));
+	}
+
+	@Test
+	public void keepsNullElements() {
+		List<String> list = gson.fromJson("[\"a\",null,\"b\"]", new TypeToken<List<String>>() {
+		});
+		assertEquals(Arrays.asList("a", null, "b"), list);
+		assertEquals("[\"a\",null,\"b\"]", gson.toJson(list));
+		assertNull(gson.fromJson("null", new TypeToken<List<String>>() {
+		}));
+	}
+
+	@Test
+	public void bindsCollectionFields() {
+		Holder holder = gson.fromJson(
+				"{\"items\":[{\"name\":\"x\",\"count\":2}],\"tags\":[\"t\"],\"numbers\":[4,5]}", Holder.class);
+		assertEquals("x", holder.items.get(0).name);
+		assertEquals(Arrays.asList("t"), new ArrayList<String>(holder.tags));
+		assertEquals(Arrays.asList(4, 5), holder.numbers);
+		assertEquals("{\"items\":[{\"name\":\"x\",\"count\":2}],\"tags\":[\"t\"],\"numbers\":[4,5]}",
+				gson.toJson(holder));
+	}
+
+	@Test
+	public void writesElementsByRuntimeClass() {
+		Square square = new Square();
+		square.id = 1;
+		square.edge = 2.5;
+		List<Shape> shapes = new ArrayList<Shape>();
+		shapes.add(square);
+		String json = gson.toJson(shapes, new TypeToken<List<Shape>>() {
+		}.getType());
+		assertEquals("[{\"edge\":2.5,\"id\":1}]", json);
+	}
+
+	@Test
+	public void rejectsAbstractContainers() {
+		try {
+			gson.fromJson("[\"a\"]", AbstractList.class);
+			fail();
+		} catch (JsonException expected) {
+			assertTrue(expected.getMessage(), expected.getMessage().contains("no accessible no-arg constructor"));
+		}
+	}
+
+	@Test
+	public void sizesHashContainers() {
+		assertEquals(16, CollectionAdapter.capacity(-1));
+		assertTrue(CollectionAdapter.capacity(1000) * 0.75f >= 1000);
+	}
+}
@@ -0,0 +1,117 @@
+package fish.json.adapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import fish.json.base.Gson;
+import fish.json.base.GsonBuilder;
+import fish.json.entity.JsonElement;
+import fish.json.util.TypeToken;
+
+public class EnumAdapterTest {
+
+	enum Status {
+		ACTIVE, INACTIVE, DELETED
+	}
+
+	enum Operation {
+		PLUS {
+			@Override
+			int apply(int a, int b) {
+				return a + b;
+			}
+		},
+		MINUS {
+			@Override
+			int apply(int a, int b) {
+				return a - b;
+			}
+		};
+
+		abstract int apply(int a, int b);
+	}
+
+	enum Unusual {
+		caf\u00e9, $dollar, A_B
+	}
+
+	static class Event {
+		Status status;
+		Operation operation;
+	}
+
+	private final Gson gson = new GsonBuilder().create();
+
+	private TypeAdapter<?> adapter(Class<?> type) {
+		return gson.getAdapter(type);
+	}
+
+	@Test
+	public void sharesOneAdapterPerEnum() {
+		assertTrue(adapter(Status.class) instanceof EnumAdapter);
+		assertSame(adapter(Operation.class), adapter(Operation.PLUS.getClass()));
+	}
+
+	@Test
+	public void roundTripsConstants() {
+		for (Status status : Status.values()) {
+			String json = gson.toJson(status);
+			assertEquals("\"" + status.name() + "\"", json);
+			assertSame(status, gson.fromJson(json, Status.class));
+		}
+	}
+
+	@Test
+	public void roundTripsConstantsWithBodies() {
+		assertEquals("\"PLUS\"", gson.toJson(Operation.PLUS));
+		assertSame(Operation.MINUS, gson.fromJson("\"MINUS\"", Operation.class));
+		Event event = gson.fromJson("{\"status\":\"DELETED\",\"operation\":\"MINUS\"}", Event.class);
+		assertSame(Status.DELETED, event.status);
+		assertSame(Operation.MINUS, event.operation);
+		assertEquals("{\"status\":\"DELETED\",\"operation\":\"MINUS\"}", gson.toJson(event));
+	}
+
+	@Test
+	public void readsUnknownNamesAsNull() {
+		assertNull(gson.fromJson("\"PENDING\"", Status.class));
+		assertNull(gson.fromJson("\"active\"", Status.class));
+		assertNull(gson.fromJson("\"ACTIVEX\"", Status.class));
+		assertNull(gson.fromJson("\"\"", Status.class));
+		assertNull(gson.fromJson("null", Status.class));
+	}
+
+	@Test
+	public void readsEscapedAndNonAsciiNames() {
+		assertSame(Status.ACTIVE, gson.fromJson("\"\\u0041CTIVE\"", Status.class));
+		assertSame(Unusual.caf\u00e9, gson.fromJson("\"caf\\u00e9\"", Unusual.class));
+		assertSame(Unusual.caf\u00e9, gson.fromJson("\"caf\u00e9\"", Unusual.class));
+		assertEquals("\"$dollar\"", gson.toJson(Unusual.$dollar));
+		assertSame(Unusual.A_B, gson.fromJson("'A_B'", Unusual.class));
+	}
+
+	@Test
+	public void roundTripsCollectionsOfEnums() {
+		List<Status> statuses = gson.fromJson("[\"INACTIVE\",null,\"ACTIVE\"]", new TypeToken<List<Status>>() {
+		});
+		assertEquals(Arrays.asList(Status.INACTIVE, null, Status.ACTIVE), statuses);
+		assertEquals("[\"INACTIVE\",null,\"ACTIVE\"]", gson.toJson(statuses));
+	}
+
+	@Test
+	public void roundTripsThroughTrees() {
+		Event event = new Event();
+		event.status = Status.INACTIVE;
+		event.operation = Operation.PLUS;
+		JsonElement tree = gson.toTreeJson(event);
+		Event copy = gson.fromJson(tree, Event.class);
+		assertSame(Status.INACTIVE, copy.status);
+		assertSame(Operation.PLUS, copy.operation);
+	}
+}
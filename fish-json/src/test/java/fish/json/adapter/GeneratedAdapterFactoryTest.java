@@ -0,0 +1,194 @@
+package fish.json.adapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import fish.json.base.Gson;
+import fish.json.base.GsonBuilder;
+import fish.json.stream.JsonException;
+
+public class GeneratedAdapterFactoryTest {
+
+	static class Point {
+		int x;
+		long y;
+		double weight;
+		boolean visible;
+		char tag;
+		String label;
+		List<String> notes;
+	}
+
+	static class Base {
+		int id;
+	}
+
+	static class Derived extends Base {
+		String name;
+	}
+
+	static class Shape {
+		int sides;
+	}
+
+	static class Square extends Shape {
+		double edge;
+	}
+
+	static class Drawing {
+		Shape shape;
+	}
+
+	static class Defaults {
+		int x = 7;
+		double d = 1.5;
+		boolean flag = true;
+		char c = 'a';
+		String s = "s";
+	}
+
+	static class Small {
+		short s;
+		byte b;
+	}
+
+	static class WithFinal {
+		final int value = 1;
+	}
+
+	static class NoDefault {
+		int value;
+
+		NoDefault(int value) {
+			this.value = value;
+		}
+	}
+
+	private final Gson gson = new GsonBuilder().create();
+
+	@Test
+	public void generatesAdapterForPlainClass() {
+		assertTrue(gson.getAdapter(Point.class) instanceof GeneratedAdapter);
+	}
+
+	@Test
+	public void roundTripsEveryFieldKind() {
+		Point point = new Point();
+		point.x = -3;
+		point.y = 1L << 40;
+		point.weight = 2.5;
+		point.visible = true;
+		point.tag = 'q';
+		point.label = "a \"label\"";
+		point.notes = new ArrayList<String>();
+		point.notes.add("n1");
+
+		String json = gson.toJson(point);
+		assertEquals("{\"x\":-3,\"y\":1099511627776,\"weight\":2.5,\"visible\":true,\"tag\":\"q\","
+				+ "\"label\":\"a \\\"label\\\"\",\"notes\":[\"n1\"]}", json);
+
+		Point back = gson.fromJson(json, Point.class);
+		assertEquals(-3, back.x);
+		assertEquals(1L << 40, back.y);
+		assertEquals(2.5, back.weight, 0);
+		assertTrue(back.visible);
+		assertEquals('q', back.tag);
+		assertEquals("a \"label\"", back.label);
+		assertEquals(point.notes, back.notes);
+	}
+
+	@Test
+	public void skipsUnknownMembersAndKeepsDefaultsForMissingOnes() {
+		Point back = gson.fromJson("{\"unknown\":{\"a\":[1,2]},\"x\":7}", Point.class);
+		assertEquals(7, back.x);
+		assertNull(back.label);
+		assertFalse(back.visible);
+	}
+
+	@Test
+	public void bindsInheritedFields() {
+		Derived derived = new Derived();
+		derived.id = 4;
+		derived.name = "d";
+		String json = gson.toJson(derived);
+		assertEquals("{\"name\":\"d\",\"id\":4}", json);
+		Derived back = gson.fromJson(json, Derived.class);
+		assertEquals(4, back.id);
+		assertEquals("d", back.name);
+	}
+
+	@Test
+	public void writesFieldsThroughTheirRuntimeClass() {
+		assertTrue(gson.getAdapter(Drawing.class) instanceof GeneratedAdapter);
+		Square square = new Square();
+		square.sides = 4;
+		square.edge = 1.5;
+		Drawing drawing = new Drawing();
+		drawing.shape = square;
+		assertEquals("{\"shape\":{\"edge\":1.5,\"sides\":4}}", gson.toJson(drawing));
+	}
+
+	@Test
+	public void readsFieldsAsTheirDeclaredClass() {
+		Drawing back = gson.fromJson("{\"shape\":{\"edge\":1.5,\"sides\":4}}", Drawing.class);
+		assertEquals(Shape.class, back.shape.getClass());
+		assertEquals(4, back.shape.sides);
+	}
+
+	@Test
+	public void leavesUnsupportedClassesToReflection() {
+		assertTrue(gson.getAdapter(WithFinal.class) instanceof ObjectAdapter);
+		assertTrue(gson.getAdapter(NoDefault.class) instanceof ObjectAdapter);
+	}
+
+	@Test
+	public void rejectsShortAndByteOutOfRange() {
+		assertTrue(gson.getAdapter(Small.class) instanceof GeneratedAdapter);
+		Small back = gson.fromJson("{\"s\":-32768,\"b\":127}", Small.class);
+		assertEquals(Short.MIN_VALUE, back.s);
+		assertEquals(Byte.MAX_VALUE, back.b);
+		try {
+			gson.fromJson("{\"s\":70000}", Small.class);
+			fail();
+		} catch (JsonException e) {
+			assertEquals("Lossy conversion from 70000 to short at path $.s", e.getMessage());
+		}
+		try {
+			gson.fromJson("{\"b\":300}", Small.class);
+			fail();
+		} catch (JsonException e) {
+			assertEquals("Lossy conversion from 300 to byte at path $.b", e.getMessage());
+		}
+	}
+
+	@Test
+	public void nullLeavesPrimitiveFieldsUntouchedLikeReflection() {
+		String json = "{\"x\":null,\"d\":null,\"flag\":null,\"c\":null,\"s\":null}";
+		assertTrue(gson.getAdapter(Defaults.class) instanceof GeneratedAdapter);
+		Defaults back = gson.fromJson(json, Defaults.class);
+		assertEquals(7, back.x);
+		assertEquals(1.5, back.d, 0);
+		assertTrue(back.flag);
+		assertEquals('a', back.c);
+		assertNull(back.s);
+		assertEquals(gson.toJson(new ObjectAdapter(gson, Defaults.class).fromJson(json)), gson.toJson(back));
+	}
+
+	@Test
+	public void rejectsCharOfWrongLength() {
+		try {
+			gson.fromJson("{\"tag\":\"ab\"}", Point.class);
+			fail();
+		} catch (JsonException e) {
+			assertEquals("Expected a char but was ab", e.getMessage());
+		}
+	}
+}
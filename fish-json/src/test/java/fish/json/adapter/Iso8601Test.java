@@ -0,0 +1,160 @@
+package fish.json.adapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class Iso8601Test {
+
+	private final Iso8601 iso = new Iso8601();
+
+	private boolean parse(String text) {
+		text.getChars(0, text.length(), iso.chars, 0);
+		return iso.parse(text.length());
+	}
+
+	private String formatted(int length) {
+		return new String(iso.chars, 0, length);
+	}
+
+	@Test
+	public void parsesDatesAndTimes() {
+		assertTrue(parse("2024-02-29"));
+		assertEquals(2024, iso.year);
+		assertEquals(2, iso.month);
+		assertEquals(29, iso.day);
+		assertEquals(0, iso.hour);
+		assertFalse(iso.hasOffset);
+
+		assertTrue(parse("2024-01-02T03:04"));
+		assertEquals(3, iso.hour);
+		assertEquals(4, iso.minute);
+		assertEquals(0, iso.second);
+
+		assertTrue(parse("2024-01-02 03:04:05"));
+		assertEquals(5, iso.second);
+		assertTrue(parse("2024-01-02t03:04:05z"));
+		assertTrue(iso.hasOffset);
+	}
+
+	@Test
+	public void parsesFractions() {
+		assertTrue(parse("2024-01-02T03:04:05.1"));
+		assertEquals(100000000, iso.nano);
+		assertTrue(parse("2024-01-02T03:04:05.123"));
+		assertEquals(123000000, iso.nano);
+		assertTrue(parse("2024-01-02T03:04:05,000456"));
+		assertEquals(456000, iso.nano);
+		assertTrue(parse("2024-01-02T03:04:05.000000007Z"));
+		assertEquals(7, iso.nano);
+		assertFalse(parse("2024-01-02T03:04:05.Z"));
+		assertFalse(parse("2024-01-02T03:04:05.1234567891"));
+	}
+
+	@Test
+	public void parsesOffsets() {
+		assertTrue(parse("2024-01-02T03:04:05Z"));
+		assertEquals(0, iso.offsetSeconds);
+		assertTrue(parse("2024-01-02T03:04:05+05:30"));
+		assertEquals(5 * 3600 + 30 * 60, iso.offsetSeconds);
+		assertTrue(parse("2024-01-02T03:04:05+0530"));
+		assertEquals(5 * 3600 + 30 * 60, iso.offsetSeconds);
+		assertTrue(parse("2024-01-02T03:04:05-08"));
+		assertEquals(-8 * 3600, iso.offsetSeconds);
+		assertTrue(parse("2024-01-02T03:04:05.5-00:45"));
+		assertEquals(-45 * 60, iso.offsetSeconds);
+		assertEquals(500000000, iso.nano);
+		assertFalse(parse("2024-01-02T03:04:05+19:00"));
+		assertFalse(parse("2024-01-02T03:04:05+05:60"));
+		assertFalse(parse("2024-01-02T03:04:05+5"));
+	}
+
+	@Test
+	public void rejectsInvalidDates() {
+		assertFalse(parse("2023-02-29"));
+		assertFalse(parse("1900-02-29T00:00"));
+		assertTrue(parse("2000-02-29T00:00"));
+		assertFalse(parse("2024-13-01"));
+		assertFalse(parse("2024-04-31"));
+		assertFalse(parse("2024-01-00"));
+		assertFalse(parse("2024-01-02T24:00"));
+		assertFalse(parse("2024-01-02T23:60"));
+		assertFalse(parse("2024-01-02T23:59:60"));
+		assertFalse(parse("2024-1-02"));
+		assertFalse(parse("2024-01-02X"));
+		assertFalse(parse("2024-01-02T3:04"));
+		assertFalse(parse("+10000-01-01"));
+		assertFalse(parse("20a4-01-02"));
+	}
+
+	@Test
+	public void computesEpochSeconds() {
+		assertTrue(parse("1970-01-01T00:00:00Z"));
+		assertEquals(0, iso.epochSecond());
+		assertTrue(parse("2024-01-02T03:04:05+01:00"));
+		assertEquals(Instant.parse("2024-01-02T02:04:05Z").getEpochSecond(), iso.epochSecond());
+		Random random = new Random(8601);
+		for (int i = 0; i < 1000; i++) {
+			LocalDate date = LocalDate.ofEpochDay(random.nextInt(3652059) - 719528);
+			assertEquals(date.toString(), date.toEpochDay(),
+					Iso8601.daysFromCivil(date.getYear(), date.getMonthValue(), date.getDayOfMonth()));
+		}
+	}
+
+	@Test
+	public void formatsInstantsLikeJavaTime() {
+		Random random = new Random(1);
+		long max = Instant.parse("9999-12-31T23:59:59Z").getEpochSecond();
+		long min = Instant.parse("0000-01-01T00:00:00Z").getEpochSecond();
+		for (int i = 0; i < 1000; i++) {
+			long second = min + (long) (random.nextDouble() * (max - min));
+			int nano;
+			switch (i % 4) {
+			case 0:
+				nano = 0;
+				break;
+			case 1:
+				nano = random.nextInt(1000) * 1000000;
+				break;
+			case 2:
+				nano = random.nextInt(1000000) * 1000;
+				break;
+			default:
+				nano = random.nextInt(1000000000);
+			}
+			Instant instant = Instant.ofEpochSecond(second, nano);
+			int length = iso.formatInstant(second, nano);
+			assertEquals(instant.toString(), formatted(length));
+			assertTrue(parse(formatted(length)));
+			assertEquals(second, iso.epochSecond());
+			assertEquals(nano, iso.nano);
+		}
+	}
+
+	@Test
+	public void leavesOutOfRangeYearsToCallers() {
+		assertEquals(-1, iso.formatInstant(Instant.parse("+10000-01-01T00:00:00Z").getEpochSecond(), 0));
+		assertEquals(-1, iso.formatInstant(Instant.parse("-0001-12-31T23:59:59Z").getEpochSecond(), 0));
+		assertEquals(-1, iso.formatLocal(10000, 1, 1, 0, 0, 0, 0));
+		assertEquals(-1, iso.formatLocal(-1, 1, 1, 0, 0, 0, 0));
+	}
+
+	@Test
+	public void formatsLocalTimesAndOffsets() {
+		int length = iso.formatLocal(5, 6, 7, 8, 9, 10, 0);
+		assertEquals(LocalDateTime.of(5, 6, 7, 8, 9, 10).toString(), formatted(length));
+		length = iso.formatLocal(2024, 1, 2, 3, 4, 0, 120000000);
+		assertEquals("2024-01-02T03:04:00.120", formatted(length));
+		assertEquals("2024-01-02T03:04:00.120Z", formatted(iso.formatOffset(length, 0)));
+		assertEquals("2024-01-02T03:04:00.120+05:30", formatted(iso.formatOffset(length, 19800)));
+		assertEquals("2024-01-02T03:04:00.120-00:00:01", formatted(iso.formatOffset(length, -1)));
+		assertEquals("2024-01-02T03:04:00.120-18:00", formatted(iso.formatOffset(length, -18 * 3600)));
+	}
+}
@@ -0,0 +1,233 @@
+package fish.json.adapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import fish.json.base.Gson;
+import fish.json.base.GsonBuilder;
+
+public class LazyObjectsTest {
+
+	public interface User {
+		long getId();
+
+		String getName();
+
+		boolean isActive();
+
+		Boolean isVerified();
+
+		String email();
+
+		Address getAddress();
+
+		List<String> getTags();
+
+		Map<String, Integer> getScores();
+
+		int getMissing();
+
+		default String describe() {
+			return getName() + "#" + getId();
+		}
+
+		default String greet(String greeting) {
+			return greeting + ", " + getName();
+		}
+	}
+
+	public interface Address {
+		String getCity();
+
+		Address getParent();
+	}
+
+	public interface Counter {
+		int getCount();
+	}
+
+	public interface Renamer {
+		String getName();
+
+		void setName(String name);
+	}
+
+	public interface Lookup {
+		String get(String key);
+	}
+
+	public interface Named {
+		String getName();
+
+		String toString();
+	}
+
+	public static class Item {
+		String sku;
+	}
+
+	public interface Order {
+		Item getItem();
+
+		double getTotal();
+	}
+
+	private final Gson gson = new GsonBuilder().create();
+
+	private static final String USER = "{ \"id\" : 42, \"name\":\"ann\",\"active\":true,\"verified\":null,"
+			+ "\"email\":\"a@b\",\"address\":{\"city\":\"Oslo\",\"parent\":{\"city\":\"Norway\"}},"
+			+ "\"tags\":[\"x\",\"y\"],\"scores\":{\"a\":1},\"ignored\":[{\"deep\":[1,2,3]}]}";
+
+	@Test
+	public void bindsGettersToMembers() {
+		User user = gson.fromJsonLazy(USER, User.class);
+		assertEquals(42, user.getId());
+		assertEquals("ann", user.getName());
+		assertTrue(user.isActive());
+		assertNull(user.isVerified());
+		assertEquals("a@b", user.email());
+		assertEquals(Arrays.asList("x", "y"), user.getTags());
+		assertEquals(Integer.valueOf(1), user.getScores().get("a"));
+		assertEquals("ann#42", user.describe());
+		assertEquals("hi, ann", user.greet("hi"));
+	}
+
+	@Test
+	public void defaultsMissingMembers() {
+		User user = gson.fromJsonLazy("{}", User.class);
+		assertEquals(0, user.getMissing());
+		assertEquals(0, user.getId());
+		assertFalse(user.isActive());
+		assertNull(user.getName());
+		assertNull(user.getAddress());
+		Counter counter = gson.fromJsonLazy("{\"count\":null}", Counter.class);
+		assertEquals(0, counter.getCount());
+	}
+
+	@Test
+	public void bindsNestedInterfacesLazily() {
+		User user = gson.fromJsonLazy(USER, User.class);
+		Address address = user.getAddress();
+		assertEquals("lazy " + Address.class.getName(), address.toString());
+		assertEquals("Oslo", address.getCity());
+		assertEquals("Norway", address.getParent().getCity());
+		assertNull(address.getParent().getParent());
+	}
+
+	@Test
+	public void bindsClassesThroughTheirAdapters() {
+		Order order = gson.fromJsonLazy("{\"total\":\t9.5,\"item\":\n{\"sku\":\"s-1\"}}", Order.class);
+		assertEquals("s-1", order.getItem().sku);
+		assertEquals(9.5, order.getTotal(), 0);
+	}
+
+	@Test
+	public void decodesEachMemberOnce() {
+		User user = gson.fromJsonLazy(USER, User.class);
+		List<String> tags = user.getTags();
+		assertSame(tags, user.getTags());
+		assertSame(user.getAddress(), user.getAddress());
+	}
+
+	@Test
+	public void leavesUnreadMembersUndecoded() {
+		// "id" is not a number, but nothing fails until it is asked for
+		User user = gson.fromJsonLazy("{\"id\":\"not a number\",\"name\":\"bob\"}", User.class);
+		assertEquals("bob", user.getName());
+		try {
+			user.getId();
+			fail();
+		} catch (RuntimeException expected) {
+		}
+	}
+
+	@Test
+	public void matchesEscapedNames() {
+		User user = gson.fromJsonLazy("{\"n\\u0061me\":\"esc\"}", User.class);
+		assertEquals("esc", user.getName());
+	}
+
+	@Test
+	public void implementsObjectMethodsByIdentity() {
+		User a = gson.fromJsonLazy(USER, User.class);
+		User b = gson.fromJsonLazy(USER, User.class);
+		assertTrue(a.equals(a));
+		assertFalse(a.equals(b));
+		assertEquals(System.identityHashCode(a), a.hashCode());
+	}
+
+	@Test
+	public void readsNullDocuments() {
+		assertNull(gson.fromJsonLazy("null", User.class));
+	}
+
+	@Test
+	public void rejectsClasses() {
+		try {
+			gson.fromJsonLazy("{}", Item.class);
+			fail();
+		} catch (IllegalArgumentException expected) {
+			assertTrue(expected.getMessage().endsWith("is not an interface"));
+		}
+	}
+
+	@Test
+	public void rejectsMethodsThatAreNotGettersWhenBinding() {
+		try {
+			gson.fromJsonLazy("null", Renamer.class);
+			fail();
+		} catch (IllegalArgumentException expected) {
+			assertTrue(expected.getMessage(), expected.getMessage().contains("setName"));
+			assertTrue(expected.getMessage(), expected.getMessage().endsWith("is not a getter"));
+		}
+		try {
+			gson.fromJsonLazy("{}", Lookup.class);
+			fail();
+		} catch (IllegalArgumentException expected) {
+			assertTrue(expected.getMessage(), expected.getMessage().endsWith("is not a getter"));
+		}
+	}
+
+	@Test
+	public void leavesRedeclaredObjectMethodsToTheProxy() {
+		Named named = gson.fromJsonLazy("{\"name\":\"n\",\"toString\":\"member\"}", Named.class);
+		assertEquals("n", named.getName());
+		assertEquals("lazy " + Named.class.getName(), named.toString());
+	}
+
+	@Test
+	public void sharesDecodedValuesBetweenThreads() throws Exception {
+		final User user = gson.fromJsonLazy(USER, User.class);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			Callable<Object> task = new Callable<Object>() {
+				@Override
+				public Object call() {
+					return user.getTags();
+				}
+			};
+			List<Future<Object>> results = executor.invokeAll(Arrays.asList(task, task, task, task, task, task,
+					task, task));
+			Object first = results.get(0).get();
+			for (Future<Object> result : results) {
+				assertSame(first, result.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
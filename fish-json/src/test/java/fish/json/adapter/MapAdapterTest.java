@@ -0,0 +1,118 @@
+package fish.json.adapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.junit.Test;
+
+import fish.json.base.Gson;
+import fish.json.base.GsonBuilder;
+import fish.json.stream.JsonException;
+import fish.json.util.TypeToken;
+
+public class MapAdapterTest {
+
+	enum Color {
+		RED, GREEN, BLUE
+	}
+
+	static class Item {
+		String name;
+	}
+
+	static class Holder {
+		Map<String, Item> byName;
+		Map<Integer, List<String>> byNumber;
+	}
+
+	private final Gson gson = new GsonBuilder().create();
+
+	@Test
+	public void picksConcreteMaps() {
+		assertEquals(LinkedHashMap.class, gson.fromJson("{}", new TypeToken<Map<String, Integer>>() {
+		}).getClass());
+		assertEquals(TreeMap.class, gson.fromJson("{}", new TypeToken<SortedMap<String, Integer>>() {
+		}).getClass());
+		assertEquals(ConcurrentHashMap.class, gson.fromJson("{}", new TypeToken<ConcurrentMap<String, Integer>>() {
+		}).getClass());
+		assertEquals(EnumMap.class, gson.fromJson("{}", new TypeToken<EnumMap<Color, Integer>>() {
+		}).getClass());
+	}
+
+	@Test
+	public void roundTripsInOrder() {
+		Map<String, Integer> map = gson.fromJson("{\"b\":2,\"a\":1,\"c\":null}",
+				new TypeToken<Map<String, Integer>>() {
+				});
+		assertEquals(Arrays.asList("b", "a", "c"), new ArrayList<String>(map.keySet()));
+		assertEquals(Integer.valueOf(2), map.get("b"));
+		assertTrue(map.containsKey("c"));
+		assertNull(map.get("c"));
+		assertEquals("{\"b\":2,\"a\":1,\"c\":null}", gson.toJson(map));
+
+		SortedMap<String, Integer> sorted = gson.fromJson("{\"b\":2,\"a\":1}",
+				new TypeToken<SortedMap<String, Integer>>() {
+				});
+		assertEquals("{\"a\":1,\"b\":2}", gson.toJson(sorted));
+	}
+
+	@Test
+	public void readsNonStringKeysThroughTheirAdapter() {
+		Map<Integer, String> numbers = gson.fromJson("{\"1\":\"one\",\"20\":\"twenty\"}",
+				new TypeToken<Map<Integer, String>>() {
+				});
+		assertEquals("one", numbers.get(1));
+		assertEquals("twenty", numbers.get(20));
+		assertEquals("{\"1\":\"one\",\"20\":\"twenty\"}", gson.toJson(numbers));
+
+		EnumMap<Color, Integer> colors = gson.fromJson("{\"BLUE\":3,\"RED\":1}",
+				new TypeToken<EnumMap<Color, Integer>>() {
+				});
+		assertEquals(Integer.valueOf(3), colors.get(Color.BLUE));
+		assertEquals("{\"RED\":1,\"BLUE\":3}", gson.toJson(colors));
+	}
+
+	@Test
+	public void bindsNestedGenerics() {
+		Holder holder = gson.fromJson("{\"byName\":{\"x\":{\"name\":\"x\"}},\"byNumber\":{\"7\":[\"a\",\"b\"]}}",
+				Holder.class);
+		assertEquals("x", holder.byName.get("x").name);
+		assertEquals(Arrays.asList("a", "b"), holder.byNumber.get(7));
+		assertEquals("{\"byName\":{\"x\":{\"name\":\"x\"}},\"byNumber\":{\"7\":[\"a\",\"b\"]}}",
+				gson.toJson(holder));
+	}
+
+	@Test
+	public void readsUntypedValues() {
+		Map<String, Object> map = gson.fromJson("{\"n\":1,\"s\":\"t\",\"l\":[true]}",
+				new TypeToken<Map<String, Object>>() {
+				});
+		assertEquals(1.0, map.get("n"));
+		assertEquals("t", map.get("s"));
+		assertEquals(Arrays.asList(true), map.get("l"));
+	}
+
+	@Test
+	public void rejectsDuplicateKeys() {
+		try {
+			gson.fromJson("{\"a\":1,\"a\":2}", new TypeToken<Map<String, Integer>>() {
+			});
+			fail();
+		} catch (JsonException expected) {
+			assertTrue(expected.getMessage(), expected.getMessage().startsWith("Duplicate key: a"));
+		}
+	}
+}
@@ -0,0 +1,236 @@
+package fish.json.adapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.Test;
+
+import fish.json.base.Gson;
+import fish.json.base.GsonBuilder;
+import fish.json.stream.JsonException;
+import fish.json.util.TypeToken;
+
+public class ObjectAdapterTest {
+
+	static abstract class Shape {
+		int id;
+	}
+
+	static class Circle extends Shape {
+		double radius;
+	}
+
+	static class Holder {
+		Number number;
+		Shape shape;
+	}
+
+	static class Node {
+		int value;
+		Node next;
+	}
+
+	static class TaggedNode extends Node {
+		String tag;
+	}
+
+	static class Box<T> {
+		T content;
+		List<T> more;
+	}
+
+	static class Item {
+		String name;
+	}
+
+	static class Skipped {
+		static int counter = 5;
+		transient int cache = 9;
+		final int fixed;
+		int kept;
+
+		Skipped() {
+			fixed = 1;
+		}
+	}
+
+	static class PrivateConstructor {
+		int value = -1;
+
+		private PrivateConstructor() {
+		}
+	}
+
+	static class NoDefault {
+		int value;
+
+		NoDefault(int value) {
+			this.value = value;
+		}
+	}
+
+	static class Val {
+		static int constructed;
+		private final int a;
+		private final String b;
+		private int c = 7;
+
+		public Val(int a, String b) {
+			constructed++;
+			this.a = a;
+			this.b = b;
+		}
+	}
+
+	static class Dated {
+		LocalDate d;
+		Duration dur;
+	}
+
+	private final Gson gson = new GsonBuilder().create();
+
+	private ObjectAdapter adapter(Class<?> type) {
+		return new ObjectAdapter(gson, type);
+	}
+
+	@Test
+	public void writesAbstractAndInterfaceFieldsThroughTheRuntimeClass() {
+		Circle circle = new Circle();
+		circle.id = 3;
+		circle.radius = 2.5;
+		Holder holder = new Holder();
+		holder.number = 42;
+		holder.shape = circle;
+		assertEquals("{\"number\":42,\"shape\":{\"radius\":2.5,\"id\":3}}", adapter(Holder.class).toJson(holder));
+	}
+
+	@Test
+	public void readsAbstractFieldsInTheirNaturalFormWhenItFits() {
+		Holder back = (Holder) adapter(Holder.class).fromJson("{\"number\":42,\"shape\":null}");
+		assertEquals(42.0, back.number);
+		assertNull(back.shape);
+	}
+
+	@Test
+	public void reportsAbstractFieldsThatCannotBeCreated() {
+		try {
+			adapter(Holder.class).fromJson("{\"shape\":{\"id\":1}}");
+			fail();
+		} catch (JsonException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains(Shape.class.getName()));
+		}
+	}
+
+	@Test
+	public void writesSubclassesOfRecursiveTypes() {
+		TaggedNode tail = new TaggedNode();
+		tail.value = 2;
+		tail.tag = "t";
+		Node head = new Node();
+		head.value = 1;
+		head.next = tail;
+		assertEquals("{\"value\":1,\"next\":{\"tag\":\"t\",\"value\":2,\"next\":null}}",
+				adapter(Node.class).toJson(head));
+	}
+
+	@Test
+	public void roundTripsRecursiveTypes() {
+		Node head = (Node) adapter(Node.class).fromJson("{\"value\":1,\"next\":{\"value\":2}}");
+		assertEquals(1, head.value);
+		assertEquals(2, head.next.value);
+		assertNull(head.next.next);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void resolvesTypeVariablesOfParameterizedTypes() {
+		TypeToken<Box<Item>> type = new TypeToken<Box<Item>>() {
+		};
+		ObjectAdapter adapter = new ObjectAdapter(gson, type.getType());
+		Box<Item> box = (Box<Item>) adapter.fromJson("{\"content\":{\"name\":\"a\"},\"more\":[{\"name\":\"b\"}]}");
+		assertEquals("a", box.content.name);
+		assertEquals("b", box.more.get(0).name);
+		assertEquals("{\"content\":{\"name\":\"a\"},\"more\":[{\"name\":\"b\"}]}", adapter.toJson(box));
+	}
+
+	@Test
+	public void skipsStaticAndTransientFields() {
+		Skipped skipped = new Skipped();
+		skipped.kept = 2;
+		assertEquals("{\"fixed\":1,\"kept\":2}", adapter(Skipped.class).toJson(skipped));
+		Skipped back = (Skipped) adapter(Skipped.class).fromJson("{\"cache\":1,\"counter\":1,\"kept\":3}");
+		assertEquals(9, back.cache);
+		assertEquals(5, Skipped.counter);
+		assertEquals(3, back.kept);
+	}
+
+	@Test
+	public void skipsUnknownMembers() {
+		Item item = (Item) adapter(Item.class).fromJson("{\"x\":[1,{\"y\":null}],\"name\":\"n\",\"z\":true}");
+		assertEquals("n", item.name);
+	}
+
+	@Test
+	public void readsNull() {
+		assertNull(adapter(Item.class).fromJson("null"));
+	}
+
+	@Test
+	public void createsInstancesThroughPrivateNoArgConstructors() {
+		PrivateConstructor back = (PrivateConstructor) adapter(PrivateConstructor.class).fromJson("{}");
+		assertEquals(-1, back.value);
+	}
+
+	@Test
+	public void allocatesTypesWithoutNoArgConstructor() {
+		NoDefault back = (NoDefault) adapter(NoDefault.class).fromJson("{\"value\":1}");
+		assertEquals(1, back.value);
+	}
+
+	@Test
+	public void bindsImmutableValuesWithoutRunningTheirConstructors() {
+		int constructed = Val.constructed;
+		Val back = gson.fromJson("{\"a\":3,\"b\":\"x\"}", Val.class);
+		assertEquals(3, back.a);
+		assertEquals("x", back.b);
+		// field initializers belong to the constructor, so members missing from the JSON stay zero
+		assertEquals(0, back.c);
+		assertEquals(constructed, Val.constructed);
+		assertEquals("{\"a\":3,\"b\":\"x\",\"c\":0}", gson.toJson(back));
+	}
+
+	@Test
+	public void reportsAbstractTypes() {
+		try {
+			adapter(Shape.class).fromJson("{}");
+			fail();
+		} catch (JsonException e) {
+			assertEquals("Unable to create " + Shape.class.getName() + ": it is an interface or abstract class",
+					e.getMessage());
+		}
+	}
+
+	@Test
+	public void reportsFieldsThatCannotBeOpened() {
+		Dated dated = new Dated();
+		dated.d = LocalDate.of(2020, 1, 2);
+		try {
+			gson.toJson(dated);
+			fail();
+		} catch (JsonException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Unable to bind java.time.LocalDate."));
+		}
+		try {
+			adapter(Duration.class);
+			fail();
+		} catch (JsonException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Unable to bind java.time.Duration."));
+		}
+	}
+}
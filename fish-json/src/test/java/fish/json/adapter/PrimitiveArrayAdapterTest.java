@@ -0,0 +1,81 @@
+package fish.json.adapter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import fish.json.base.Gson;
+import fish.json.base.GsonBuilder;
+
+public class PrimitiveArrayAdapterTest {
+
+	static class Holder {
+		int[] ints;
+		long[] longs;
+		double[] doubles;
+		boolean[] booleans;
+		byte[] bytes;
+		short[] shorts;
+	}
+
+	private final Gson gson = new GsonBuilder().create();
+
+	private TypeAdapter<?> adapter(Class<?> type) {
+		return gson.getAdapter(type);
+	}
+
+	@Test
+	public void usesSpecializedAdapters() {
+		assertTrue(adapter(int[].class) instanceof IntArrayAdapter);
+		assertTrue(adapter(long[].class) instanceof LongArrayAdapter);
+		assertTrue(adapter(double[].class) instanceof DoubleArrayAdapter);
+		assertTrue(adapter(boolean[].class) instanceof BooleanArrayAdapter);
+		assertTrue(adapter(byte[].class) instanceof ByteArrayAdapter);
+	}
+
+	@Test
+	public void roundTripsArrays() {
+		Holder arrays = new Holder();
+		arrays.ints = new int[] { Integer.MIN_VALUE, 0, 7 };
+		arrays.longs = new long[] { Long.MAX_VALUE };
+		arrays.doubles = new double[] { 0.5, -1e300 };
+		arrays.booleans = new boolean[] { true, false };
+		arrays.bytes = new byte[] { 0, -1, 127 };
+		arrays.shorts = new short[] { -2, 3 };
+		String json = gson.toJson(arrays);
+		assertEquals("{\"ints\":[-2147483648,0,7],\"longs\":[9223372036854775807],\"doubles\":[0.5,-1.0E300],"
+				+ "\"booleans\":[true,false],\"bytes\":\"AP9/\",\"shorts\":[-2,3]}", json);
+
+		Holder back = gson.fromJson(json, Holder.class);
+		assertArrayEquals(arrays.ints, back.ints);
+		assertArrayEquals(arrays.longs, back.longs);
+		assertArrayEquals(arrays.doubles, back.doubles, 0);
+		assertArrayEquals(arrays.booleans, back.booleans);
+		assertArrayEquals(arrays.bytes, back.bytes);
+		assertArrayEquals(arrays.shorts, back.shorts);
+	}
+
+	@Test
+	public void readsEmptyNullAndGrowingArrays() {
+		assertEquals(0, ((int[]) gson.fromJson("[]", int[].class)).length);
+		assertNull(gson.fromJson("null", long[].class));
+		assertEquals(0, ((byte[]) gson.fromJson("\"\"", byte[].class)).length);
+
+		StringBuilder json = new StringBuilder("[");
+		int[] expected = new int[1000];
+		for (int i = 0; i < expected.length; i++) {
+			expected[i] = i * 3;
+			json.append(i == 0 ? "" : ",").append(i * 3);
+		}
+		json.append(']');
+		assertArrayEquals(expected, (int[]) gson.fromJson(json.toString(), int[].class));
+	}
+
+	@Test
+	public void writesNullArrays() {
+		assertEquals("null", gson.toJson(null, double[].class));
+	}
+}
@@ -0,0 +1,130 @@
+package fish.json.adapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeNotNull;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import fish.json.base.Gson;
+import fish.json.base.GsonBuilder;
+import fish.json.stream.JsonException;
+
+/**
+ * Records are compiled at run time, as the tests themselves are built for
+ * Java 8; they are skipped on runtimes without records or a compiler.
+ */
+public class RecordAdapterTest {
+
+	private static final String SOURCE = "package demo;\n"
+			+ "public class Records {\n"
+			+ "\tpublic record Point(int x, long y, double weight, boolean visible, char tag, String name,"
+			+ " java.util.List<String> tags) {}\n"
+			+ "\tpublic record Holder(Number number, CharSequence text) {}\n"
+			+ "\tpublic record Small(short s, byte b) {}\n"
+			+ "\tpublic record Checked(int value) {\n"
+			+ "\t\tpublic Checked {\n"
+			+ "\t\t\tif (value < 0) throw new IllegalArgumentException(\"negative\");\n"
+			+ "\t\t}\n"
+			+ "\t}\n"
+			+ "}\n";
+
+	private static URLClassLoader loader;
+	private final Gson gson = new GsonBuilder().create();
+
+	@BeforeClass
+	public static void compileRecords() throws Exception {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		assumeNotNull(compiler);
+		assumeTrue(hasRecords());
+		Path directory = Files.createTempDirectory("records");
+		Path source = directory.resolve("Records.java");
+		Files.write(source, SOURCE.getBytes(StandardCharsets.UTF_8));
+		assertEquals(0, compiler.run(null, null, null, "-d", directory.toString(), source.toString()));
+		loader = new URLClassLoader(new URL[] { directory.toUri().toURL() }, RecordAdapterTest.class.getClassLoader());
+	}
+
+	private static boolean hasRecords() {
+		try {
+			Class.forName("java.lang.Record");
+			return true;
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+
+	@AfterClass
+	public static void closeLoader() throws Exception {
+		if (loader != null) {
+			loader.close();
+		}
+	}
+
+	private static Class<?> record(String name) throws ClassNotFoundException {
+		return loader.loadClass("demo.Records$" + name);
+	}
+
+	@Test
+	public void bindsRecordsThroughTheCanonicalConstructor() throws Exception {
+		Class<?> type = record("Point");
+		assertTrue(BoundField.isRecord(type));
+		assertTrue(gson.getAdapter(type) instanceof RecordAdapter);
+		String json = "{\"x\":-1,\"y\":1099511627776,\"weight\":2.5,\"visible\":true,\"tag\":\"q\","
+				+ "\"name\":\"p\",\"tags\":[\"a\",\"b\"]}";
+		Object point = gson.fromJson(json, type);
+		assertEquals(Arrays.asList("a", "b"), type.getMethod("tags").invoke(point));
+		assertEquals(1L << 40, type.getMethod("y").invoke(point));
+		assertEquals(json, gson.toJson(point));
+	}
+
+	@Test
+	public void missingAndNullComponentsGetDefaults() throws Exception {
+		Class<?> type = record("Point");
+		Object point = gson.fromJson("{\"unknown\":[1],\"x\":null,\"name\":null}", type);
+		assertEquals(0, type.getMethod("x").invoke(point));
+		assertEquals(false, type.getMethod("visible").invoke(point));
+		assertEquals('\0', type.getMethod("tag").invoke(point));
+		assertEquals(null, type.getMethod("name").invoke(point));
+	}
+
+	@Test
+	public void writesInterfaceAndAbstractComponentsThroughTheRuntimeClass() throws Exception {
+		Class<?> type = record("Holder");
+		Object holder = type.getConstructors()[0].newInstance(42, "sb");
+		assertEquals("{\"number\":42,\"text\":\"sb\"}", gson.toJson(holder));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void runsTheCompactConstructor() throws Exception {
+		gson.fromJson("{\"value\":-1}", record("Checked"));
+	}
+
+	@Test
+	public void rejectsShortAndByteComponentsOutOfRange() throws Exception {
+		Class<?> type = record("Small");
+		Object small = gson.fromJson("{\"s\":-32768,\"b\":-128}", type);
+		assertEquals(Short.MIN_VALUE, type.getMethod("s").invoke(small));
+		assertEquals(Byte.MIN_VALUE, type.getMethod("b").invoke(small));
+		try {
+			gson.fromJson("{\"s\":70000,\"b\":300}", type);
+			fail();
+		} catch (JsonException e) {
+			assertEquals("Lossy conversion from 70000 to short at path $.s", e.getMessage());
+		}
+	}
+}
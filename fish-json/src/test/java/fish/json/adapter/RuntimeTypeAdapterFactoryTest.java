@@ -0,0 +1,181 @@
+package fish.json.adapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import fish.json.base.Gson;
+import fish.json.base.GsonBuilder;
+import fish.json.stream.JsonException;
+import fish.json.util.TypeToken;
+
+public class RuntimeTypeAdapterFactoryTest {
+
+	static abstract class Event {
+		long time;
+	}
+
+	static class Click extends Event {
+		int x;
+		int y;
+		String target;
+	}
+
+	static class Scroll extends Event {
+		double delta;
+		List<String> path;
+		boolean smooth;
+	}
+
+	static class Unregistered extends Event {
+	}
+
+	static class Batch {
+		String source;
+		List<Event> events;
+	}
+
+	private static RuntimeTypeAdapterFactory<Event> factory() {
+		return RuntimeTypeAdapterFactory.of(Event.class).registerSubtype(Click.class, "click")
+				.registerSubtype(Scroll.class);
+	}
+
+	private final Gson gson = new GsonBuilder().registerFactory(factory(), Event.class).create();
+
+	private Event read(String json) {
+		return gson.fromJson(json, Event.class);
+	}
+
+	@Test
+	public void writesTheDiscriminatorFirst() {
+		Click click = new Click();
+		click.time = 5;
+		click.x = 1;
+		click.y = 2;
+		click.target = "ok";
+		String json = gson.toJson(click, Event.class);
+		assertEquals("{\"type\":\"click\",\"x\":1,\"y\":2,\"target\":\"ok\",\"time\":5}", json);
+		Click copy = (Click) read(json);
+		assertEquals(5, copy.time);
+		assertEquals(1, copy.x);
+		assertEquals(2, copy.y);
+		assertEquals("ok", copy.target);
+	}
+
+	@Test
+	public void readsTheDiscriminatorAfterOtherMembers() {
+		Scroll scroll = (Scroll) read("{\"delta\":-1.25e2,\"path\":[\"a\",null],\"extra\":{\"ignored\":[1,2]},\"smooth\":true,"
+				+ "\"time\":12345678901234,\"type\":\"Scroll\"}");
+		assertEquals(-125, scroll.delta, 0);
+		assertEquals(Arrays.asList("a", null), scroll.path);
+		assertTrue(scroll.smooth);
+		assertEquals(12345678901234L, scroll.time);
+	}
+
+	@Test
+	public void mixesReplayedAndStreamedMembers() {
+		Click click = (Click) read("{\"x\":1,\"target\":null,\"type\":\"click\",\"y\":2,\"time\":3}");
+		assertEquals(1, click.x);
+		assertNull(click.target);
+		assertEquals(2, click.y);
+		assertEquals(3, click.time);
+	}
+
+	@Test
+	public void keepsNumberTextUntilTheTargetTypeIsKnown() {
+		Click click = (Click) read("{\"x\":1.0,\"time\":9007199254740993,\"type\":\"click\"}");
+		assertEquals(1, click.x);
+		assertEquals(9007199254740993L, click.time);
+	}
+
+	@Test
+	public void bindsPolymorphicElements() {
+		Batch batch = gson.fromJson("{\"source\":\"s\",\"events\":[{\"x\":4,\"type\":\"click\"},null,"
+				+ "{\"type\":\"Scroll\",\"delta\":0.5}]}", Batch.class);
+		assertEquals(3, batch.events.size());
+		assertEquals(4, ((Click) batch.events.get(0)).x);
+		assertNull(batch.events.get(1));
+		assertEquals(0.5, ((Scroll) batch.events.get(2)).delta, 0);
+		String json = gson.toJson(batch);
+		assertEquals("{\"source\":\"s\",\"events\":[{\"type\":\"click\",\"x\":4,\"y\":0,\"target\":null,\"time\":0},"
+				+ "null,{\"type\":\"Scroll\",\"delta\":0.5,\"path\":null,\"smooth\":false,\"time\":0}]}", json);
+		List<Event> events = gson.fromJson(gson.toJson(new ArrayList<Event>(batch.events),
+				new TypeToken<List<Event>>() {
+				}.getType()), new TypeToken<List<Event>>() {
+				});
+		assertTrue(events.get(0) instanceof Click);
+		assertTrue(events.get(2) instanceof Scroll);
+	}
+
+	@Test
+	public void reportsMissingAndUnknownDiscriminators() {
+		try {
+			read("{\"x\":1}");
+			fail();
+		} catch (JsonException expected) {
+			assertTrue(expected.getMessage(), expected.getMessage().contains("no member named \"type\""));
+		}
+		try {
+			read("{\"type\":\"drag\"}");
+			fail();
+		} catch (JsonException expected) {
+			assertTrue(expected.getMessage(), expected.getMessage().contains("unknown subtype label"));
+		}
+		try {
+			gson.toJson(new Unregistered(), Event.class);
+			fail();
+		} catch (JsonException expected) {
+			assertTrue(expected.getMessage(), expected.getMessage().contains("not a registered subtype"));
+		}
+	}
+
+	@Test
+	public void boundsTheLookahead() {
+		Gson bounded = new GsonBuilder().registerFactory(factory().maxLookahead(8), Event.class).create();
+		assertEquals(3, ((Click) bounded.fromJson("{\"x\":3,\"y\":4,\"time\":5,\"type\":\"click\"}",
+				Event.class)).x);
+		try {
+			bounded.fromJson("{\"target\":\"t\",\"path\":[1,2,3,4,5,6],\"type\":\"click\"}", Event.class);
+			fail();
+		} catch (JsonException expected) {
+			assertTrue(expected.getMessage(), expected.getMessage().startsWith("More than 8 tokens buffered"));
+		}
+	}
+
+	@Test
+	public void readsTheCustomDiscriminatorName() {
+		Gson kind = new GsonBuilder().registerFactory(RuntimeTypeAdapterFactory.of(Event.class, "kind")
+				.registerSubtype(Click.class, "c"), Event.class).create();
+		Click click = new Click();
+		assertEquals("{\"kind\":\"c\",\"x\":0,\"y\":0,\"target\":null,\"time\":0}", kind.toJson(click,
+				Event.class));
+		assertTrue(kind.fromJson("{\"time\":1,\"kind\":\"c\"}", Event.class) instanceof Click);
+		assertNull(kind.fromJson("null", Event.class));
+	}
+
+	@Test
+	public void rejectsDuplicateRegistrations() {
+		try {
+			factory().registerSubtype(Click.class, "other");
+			fail();
+		} catch (IllegalArgumentException expected) {
+		}
+		try {
+			factory().registerSubtype(Unregistered.class, "click");
+			fail();
+		} catch (IllegalArgumentException expected) {
+		}
+		try {
+			factory().maxLookahead(0);
+			fail();
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+}
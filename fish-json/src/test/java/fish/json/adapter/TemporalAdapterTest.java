@@ -0,0 +1,202 @@
+package fish.json.adapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import fish.json.base.Gson;
+import fish.json.base.GsonBuilder;
+import fish.json.stream.JsonException;
+
+public class TemporalAdapterTest {
+
+	static class Event {
+		Instant instant;
+		LocalDateTime local;
+		OffsetDateTime offset;
+		Date date;
+	}
+
+	private final Gson gson = new GsonBuilder().create();
+
+	private static Event event() {
+		Event event = new Event();
+		event.instant = Instant.parse("2024-01-02T03:04:05.123Z");
+		event.local = LocalDateTime.of(2024, 1, 2, 3, 4, 5, 120000);
+		event.offset = OffsetDateTime.of(2024, 1, 2, 3, 4, 5, 7, ZoneOffset.ofHoursMinutes(-5, -30));
+		event.date = new Date(event.instant.toEpochMilli());
+		return event;
+	}
+
+	@Test
+	public void roundTripsIso8601() {
+		String json = gson.toJson(event());
+		assertEquals("{\"instant\":\"2024-01-02T03:04:05.123Z\",\"local\":\"2024-01-02T03:04:05.000120\","
+				+ "\"offset\":\"2024-01-02T03:04:05.000000007-05:30\",\"date\":\"2024-01-02T03:04:05.123Z\"}",
+				json);
+		Event copy = gson.fromJson(json, Event.class);
+		Event expected = event();
+		assertEquals(expected.instant, copy.instant);
+		assertEquals(expected.local, copy.local);
+		assertEquals(expected.offset, copy.offset);
+		assertEquals(expected.date, copy.date);
+	}
+
+	@Test
+	public void readsOffsetsAndFractions() {
+		assertEquals(Instant.parse("2024-01-02T01:34:05Z"),
+				gson.fromJson("\"2024-01-02T03:04:05+01:30\"", Instant.class));
+		assertEquals(Instant.parse("2024-01-02T03:04:05.5Z"), gson.fromJson("\"2024-01-02T03:04:05.5\"",
+				Instant.class));
+		assertEquals(OffsetDateTime.parse("2024-01-02T03:04:05Z"),
+				gson.fromJson("\"2024-01-02T03:04:05\"", OffsetDateTime.class));
+		assertEquals(OffsetDateTime.parse("2024-01-02T03:04:05.000001+02:00"),
+				gson.fromJson("\"2024-01-02T03:04:05.000001+0200\"", OffsetDateTime.class));
+		assertEquals(LocalDateTime.of(2024, 1, 2, 0, 0), gson.fromJson("\"2024-01-02\"", LocalDateTime.class));
+		assertEquals(new Date(Instant.parse("2024-01-02T03:04:05.999Z").toEpochMilli()),
+				gson.fromJson("\"2024-01-02T03:04:05.999999999Z\"", Date.class));
+	}
+
+	@Test
+	public void fallsBackToJavaTimeOutsideTheFastPath() {
+		Instant max = Instant.MAX;
+		String json = gson.toJson(max);
+		assertEquals("\"+1000000000-12-31T23:59:59.999999999Z\"", json);
+		assertEquals(max, gson.fromJson(json, Instant.class));
+		LocalDateTime far = LocalDateTime.of(999999999, 12, 31, 23, 59);
+		assertEquals(far, gson.fromJson(gson.toJson(far), LocalDateTime.class));
+		OffsetDateTime past = OffsetDateTime.of(-1, 1, 1, 0, 0, 0, 0, ZoneOffset.ofHours(1));
+		assertEquals(past, gson.fromJson(gson.toJson(past), OffsetDateTime.class));
+		// escapes keep the value off the buffer fast path
+		assertEquals(Instant.parse("2024-01-02T03:04:05Z"),
+				gson.fromJson("\"2024-01-02\\u005403:04:05Z\"", Instant.class));
+	}
+
+	@Test
+	public void reportsUnparseableDates() {
+		StringBuilder longText = new StringBuilder("2024-01-02T03:04:05");
+		while (longText.length() <= 64) {
+			longText.append('0');
+		}
+		String[] invalid = { "yesterday", "2024-02-30T00:00:00Z", longText.toString() };
+		for (String text : invalid) {
+			try {
+				gson.fromJson("{\"instant\":\"" + text + "\"}", Event.class);
+				fail(text);
+			} catch (JsonException expected) {
+				assertTrue(expected.getMessage(), expected.getMessage().startsWith(
+						"Unable to parse date \"" + text + "\" at $.instant"));
+			}
+		}
+	}
+
+	@Test
+	public void rejectsOffsetsForLocalDateTimes() {
+		// the fast path leaves offsets to ISO_LOCAL_DATE_TIME, which refuses them
+		try {
+			gson.fromJson("\"2024-01-02T03:04:05Z\"", LocalDateTime.class);
+			fail();
+		} catch (JsonException expected) {
+		}
+	}
+
+	@Test
+	public void readsAndWritesEpochMillis() {
+		Gson millis = new GsonBuilder().dateAsEpochMillis().create();
+		String json = millis.toJson(event());
+		long epoch = Instant.parse("2024-01-02T03:04:05.123Z").toEpochMilli();
+		assertTrue(json, json.startsWith("{\"instant\":" + epoch + ","));
+		Event copy = millis.fromJson(json, Event.class);
+		assertEquals(event().instant, copy.instant);
+		assertEquals(event().date, copy.date);
+		assertEquals(Instant.ofEpochMilli(-1), gson.fromJson("-1", Instant.class));
+		assertEquals(LocalDateTime.of(1969, 12, 31, 23, 59, 59, 999000000), gson.fromJson("-1",
+				LocalDateTime.class));
+		assertEquals(OffsetDateTime.parse("1970-01-01T00:00:01Z"), gson.fromJson("1000", OffsetDateTime.class));
+	}
+
+	@Test
+	public void usesTheDatePattern() {
+		Gson pattern = new GsonBuilder().setDatePattern("dd/MM/yyyy HH:mm").create();
+		Event event = event();
+		String json = pattern.toJson(event);
+		assertEquals("{\"instant\":\"02/01/2024 03:04\",\"local\":\"02/01/2024 03:04\","
+				+ "\"offset\":\"02/01/2024 03:04\",\"date\":\"02/01/2024 03:04\"}", json);
+		Event copy = pattern.fromJson(json, Event.class);
+		assertEquals(Instant.parse("2024-01-02T03:04:00Z"), copy.instant);
+		assertEquals(LocalDateTime.of(2024, 1, 2, 3, 4), copy.local);
+		assertEquals(OffsetDateTime.parse("2024-01-02T03:04:00Z"), copy.offset);
+		assertEquals(new Date(copy.instant.toEpochMilli()), copy.date);
+		assertEquals(LocalDateTime.of(2024, 1, 2, 0, 0), new GsonBuilder().setDatePattern("yyyyMMdd").create()
+				.fromJson("\"20240102\"", LocalDateTime.class));
+	}
+
+	@Test
+	public void sharesFormattersPerPattern() {
+		assertTrue(TemporalAdapter.formatter("yyyy") == TemporalAdapter.formatter("yyyy"));
+	}
+
+	@Test
+	public void readsNulls() {
+		Event copy = gson.fromJson("{\"instant\":null,\"local\":null,\"offset\":null,\"date\":null}", Event.class);
+		assertNull(copy.instant);
+		assertNull(copy.local);
+		assertNull(copy.offset);
+		assertNull(copy.date);
+	}
+
+	@Test
+	public void reusesTheScratchBufferAfterLongValues() {
+		String nanos = "\"2024-01-02T03:04:05.123456789+05:30\"";
+		String tooLong = "\"2024-01-02T03:04:05.123456789+05:30                                         \"";
+		try {
+			gson.fromJson(tooLong, OffsetDateTime.class);
+			fail();
+		} catch (JsonException expected) {
+		}
+		assertEquals(OffsetDateTime.parse("2024-01-02T03:04:05.123456789+05:30"),
+				gson.fromJson(nanos, OffsetDateTime.class));
+		assertEquals("\"2024-01-02T03:04:05Z\"", gson.toJson(Instant.parse("2024-01-02T03:04:05Z")));
+	}
+
+	@Test
+	public void readsAndWritesOnManyThreadsAtOnce() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+			for (int t = 0; t < 8; t++) {
+				final Instant base = Instant.parse("2024-01-02T03:04:05.123Z").plusSeconds(t * 86400L);
+				tasks.add(new Callable<Object>() {
+					@Override
+					public Object call() {
+						for (int i = 0; i < 2000; i++) {
+							Instant value = base.plusMillis(i);
+							assertEquals(value, gson.fromJson(gson.toJson(value), Instant.class));
+						}
+						return null;
+					}
+				});
+			}
+			for (Future<Object> result : executor.invokeAll(tasks)) {
+				result.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,204 @@
+package fish.json.base;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import fish.json.adapter.StringAdapter;
+import fish.json.adapter.TypeAdapter;
+import fish.json.adapter.TypeAdapterFactory;
+import fish.json.stream.JsonException;
+import fish.json.stream.JsonReader;
+import fish.json.stream.JsonWriter;
+import fish.json.util.TypeToken;
+
+public class GsonTest {
+
+	static class Named {
+		String name;
+		int count;
+	}
+
+	static class Base {
+		int id;
+	}
+
+	static class Derived extends Base {
+	}
+
+	static class Holder {
+		Base base;
+	}
+
+	/** Writes strings in upper case and reads them in lower case. */
+	static final class UpperCase extends TypeAdapter<String> {
+		@Override
+		public void write(JsonWriter writer, Object src) {
+			writer.value(((String) src).toUpperCase());
+		}
+
+		@Override
+		public String read(JsonReader in) {
+			return in.nextString().toLowerCase();
+		}
+	}
+
+	/** Answers for String only and records every type it is asked about. */
+	static final class StringFactory implements TypeAdapterFactory {
+		final List<Class<?>> asked = new ArrayList<Class<?>>();
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public <T> TypeAdapter<T> create(Gson gson, Class<?> type) {
+			asked.add(type);
+			return type == String.class ? (TypeAdapter<T>) new UpperCase() : null;
+		}
+	}
+
+	/** Writes any {@link Base} as its id alone. */
+	static final class IdOnly extends TypeAdapter<Base> {
+		@Override
+		public void write(JsonWriter writer, Object src) {
+			writer.value(((Base) src).id);
+		}
+
+		@Override
+		public Base read(JsonReader in) {
+			Base base = new Base();
+			base.id = in.nextInt();
+			return base;
+		}
+	}
+
+	@Test
+	public void registeredFactoriesReplaceBuiltInAdapters() {
+		StringFactory factory = new StringFactory();
+		Gson gson = new GsonBuilder().registerFactory(factory).create();
+		assertEquals("\"ABC\"", gson.toJson("abc"));
+		Named named = new Named();
+		named.name = "n";
+		assertEquals("{\"name\":\"N\",\"count\":0}", gson.toJson(named));
+		assertEquals("x", gson.<Named>fromJson("{\"name\":\"X\"}", Named.class).name);
+		assertEquals("5", gson.toJson(5));
+		assertTrue(factory.asked.contains(Integer.class));
+
+		assertEquals("\"abc\"", new GsonBuilder().create().toJson("abc"));
+	}
+
+	@Test
+	public void scopedFactoriesOnlySeeTheirTypeAndSubtypes() {
+		final List<Class<?>> asked = new ArrayList<Class<?>>();
+		TypeAdapterFactory factory = new TypeAdapterFactory() {
+			@SuppressWarnings("unchecked")
+			@Override
+			public <T> TypeAdapter<T> create(Gson gson, Class<?> type) {
+				asked.add(type);
+				return (TypeAdapter<T>) new IdOnly();
+			}
+		};
+		Gson gson = new GsonBuilder().registerFactory(factory, Base.class).create();
+		Derived derived = new Derived();
+		derived.id = 5;
+		assertEquals("5", gson.toJson(derived));
+		assertEquals("\"s\"", gson.toJson("s"));
+		assertEquals("{\"name\":\"n\",\"count\":0}", gson.toJson(named("n")));
+		assertEquals(1, asked.size());
+		assertSame(Derived.class, asked.get(0));
+	}
+
+	@Test
+	public void exactRegistrationsComeFirstButSkipSubclasses() {
+		TypeAdapterFactory factory = new StringFactory();
+		Gson gson = new GsonBuilder().registerFactory(factory).registerDefaultFactory(new IdOnly(), Base.class)
+				.registerDefaultFactory(new StringAdapter(), String.class).create();
+		Base base = new Base();
+		base.id = 3;
+		assertEquals("3", gson.toJson(base));
+		assertEquals("\"abc\"", gson.toJson("abc"));
+		Derived derived = new Derived();
+		derived.id = 4;
+		assertEquals("{\"id\":4}", gson.toJson(derived));
+	}
+
+	@Test
+	public void instancesKeepTheRegistrationsTheyWereCreatedWith() {
+		GsonBuilder builder = new GsonBuilder();
+		Gson before = builder.create();
+		builder.registerFactory(new StringFactory());
+		Gson after = builder.create();
+		assertEquals("\"abc\"", before.toJson("abc"));
+		assertEquals("\"ABC\"", after.toJson("abc"));
+		assertNotSame(before.getAdapter(Named.class), after.getAdapter(Named.class));
+		assertEquals("{\"name\":\"abc\",\"count\":0}", before.toJson(named("abc")));
+		assertEquals("{\"name\":\"ABC\",\"count\":0}", after.toJson(named("abc")));
+	}
+
+	@Test
+	public void countsCacheHitsAndMisses() {
+		Gson gson = new GsonBuilder().create();
+		assertEquals(0, gson.getAdapterCacheSize());
+		TypeAdapter<?> adapter = gson.getAdapter(Named.class);
+		long misses = gson.getAdapterCacheMisses();
+		assertTrue(misses >= 1);
+		int size = gson.getAdapterCacheSize();
+		assertTrue(size >= 1);
+
+		long hits = gson.getAdapterCacheHits();
+		assertSame(adapter, gson.getAdapter(Named.class));
+		assertSame(adapter, gson.getAdapter(TypeToken.get(Named.class)));
+		assertEquals(hits + 2, gson.getAdapterCacheHits());
+		assertEquals(misses, gson.getAdapterCacheMisses());
+
+		TypeAdapter<List<Named>> list = gson.getAdapter(new TypeToken<List<Named>>() {
+		});
+		assertSame(list, gson.getAdapter(new TypeToken<List<Named>>() {
+		}));
+		assertEquals(size + 1, gson.getAdapterCacheSize());
+		assertEquals(misses + 1, gson.getAdapterCacheMisses());
+	}
+
+	@Test
+	public void failedResolutionsLeaveNothingInTheCache() {
+		final int[] calls = new int[1];
+		TypeAdapterFactory factory = new TypeAdapterFactory() {
+			@SuppressWarnings("unchecked")
+			@Override
+			public <T> TypeAdapter<T> create(Gson gson, Class<?> type) {
+				if (calls[0]++ == 0) {
+					// Holder refers back to Base, which is still being created
+					gson.getAdapter(Holder.class);
+					throw new JsonException("first attempt");
+				}
+				return (TypeAdapter<T>) new IdOnly();
+			}
+		};
+		Gson gson = new GsonBuilder().registerFactory(factory, Base.class).create();
+		int size = gson.getAdapterCacheSize();
+		try {
+			gson.getAdapter(Base.class);
+			fail();
+		} catch (JsonException expected) {
+		}
+		assertEquals(size, gson.getAdapterCacheSize());
+
+		Holder holder = new Holder();
+		holder.base = new Base();
+		holder.base.id = 7;
+		assertEquals("{\"base\":7}", gson.toJson(holder));
+		assertEquals(7, gson.<Holder>fromJson("{\"base\":7}", Holder.class).base.id);
+		assertEquals(2, calls[0]);
+	}
+
+	private static Named named(String name) {
+		Named named = new Named();
+		named.name = name;
+		return named;
+	}
+}
@@ -0,0 +1,168 @@
+package fish.json.base;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JsonArrayIteratorTest {
+
+	static class Record {
+		int id;
+		String name;
+	}
+
+	/** Serves {@code [{"id":0,"name":"r"},...]} with {@code count} elements, without holding it. */
+	static final class GeneratedArray extends Reader {
+		private final int count;
+		private int next;
+		private String chunk = "[";
+		private int chunkPos;
+		boolean closed;
+
+		GeneratedArray(int count) {
+			this.count = count;
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) {
+			if (chunkPos == chunk.length()) {
+				if (next > count) {
+					return -1;
+				}
+				chunk = next == count ? "]" : (next > 0 ? "," : "") + "{\"id\":" + next + ",\"name\":\"r\"}";
+				chunkPos = 0;
+				next++;
+			}
+			int n = Math.min(len, chunk.length() - chunkPos);
+			chunk.getChars(chunkPos, chunkPos + n, cbuf, off);
+			chunkPos += n;
+			return n;
+		}
+
+		@Override
+		public void close() {
+			closed = true;
+		}
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final Gson gson = new GsonBuilder().create();
+
+	@Test
+	public void bindsElementsOneAtATime() {
+		JsonArrayIterator<Record> iterator = gson.iterator(new StringReader(
+				"[{\"id\":1,\"name\":\"a\"},null,{\"id\":2}]"), Record.class);
+		assertTrue(iterator.hasNext());
+		assertTrue(iterator.hasNext());
+		Record first = iterator.next();
+		assertEquals(1, first.id);
+		assertEquals("a", first.name);
+		assertNull(iterator.next());
+		assertEquals(2, iterator.next().id);
+		assertFalse(iterator.hasNext());
+		assertFalse(iterator.hasNext());
+		try {
+			iterator.next();
+			fail();
+		} catch (NoSuchElementException expected) {
+		}
+	}
+
+	@Test
+	public void readsEmptyArrays() {
+		assertFalse(gson.iterator(new StringReader(" [ ] "), Record.class).hasNext());
+	}
+
+	@Test
+	public void rejectsOtherTopLevelValues() {
+		try {
+			gson.iterator(new StringReader("{}"), Record.class).hasNext();
+			fail();
+		} catch (IllegalStateException expected) {
+		}
+	}
+
+	@Test
+	public void streamsArraysLargerThanAnyBuffer() {
+		GeneratedArray source = new GeneratedArray(200000);
+		Iterator<Record> iterator = gson.iterator(source, Record.class);
+		long sum = 0;
+		int count = 0;
+		while (iterator.hasNext()) {
+			sum += iterator.next().id;
+			count++;
+		}
+		assertEquals(200000, count);
+		assertEquals(199999L * 200000 / 2, sum);
+	}
+
+	@Test
+	public void closesTheReader() {
+		GeneratedArray source = new GeneratedArray(10);
+		JsonArrayIterator<Record> iterator = gson.iterator(source, Record.class);
+		iterator.next();
+		iterator.close();
+		assertTrue(source.closed);
+		assertFalse(iterator.hasNext());
+	}
+
+	@Test
+	public void streamsElements() {
+		GeneratedArray source = new GeneratedArray(1000);
+		Stream<Record> stream = gson.stream(source, Record.class);
+		assertEquals(1000, stream.count());
+		stream.close();
+		assertTrue(source.closed);
+
+		Stream<String> names = gson.stream(new StringReader("[\"b\",\"a\"]"), String.class);
+		assertEquals(Arrays.asList("b", "a"), names.collect(Collectors.<String> toList()));
+	}
+
+	@Test
+	public void reportsKnownSizes() {
+		Spliterator<Record> unknown = gson.stream(new GeneratedArray(3), Record.class).spliterator();
+		assertFalse(unknown.hasCharacteristics(Spliterator.SIZED));
+		assertTrue(unknown.hasCharacteristics(Spliterator.ORDERED));
+		Spliterator<Record> sized = gson.stream(new GeneratedArray(3), Record.class, 3).spliterator();
+		assertTrue(sized.hasCharacteristics(Spliterator.SIZED));
+		assertEquals(3, sized.getExactSizeIfKnown());
+		assertEquals(3, gson.stream(new GeneratedArray(3), Record.class, 3).toArray().length);
+	}
+
+	@Test
+	public void streamsFiles() throws Exception {
+		File file = folder.newFile("records.json");
+		Files.write(file.toPath(), "[{\"id\":1,\"name\":\"caf\u00e9\"},{\"id\":2,\"name\":\"\ud83d\ude00\"}]"
+				.getBytes(StandardCharsets.UTF_8));
+		Stream<Record> stream = gson.stream(file.toPath(), Record.class);
+		try {
+			List<Record> records = stream.collect(Collectors.<Record> toList());
+			assertEquals(2, records.size());
+			assertEquals("caf\u00e9", records.get(0).name);
+			assertEquals("\ud83d\ude00", records.get(1).name);
+		} finally {
+			stream.close();
+		}
+	}
+}
@@ -0,0 +1,188 @@
+package fish.json.base;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import fish.json.stream.JsonException;
+
+public class JsonLinesReaderTest {
+
+	static class Event {
+		int id;
+		String kind;
+	}
+
+	private static ForkJoinPool pool;
+
+	private final Gson gson = new GsonBuilder().create();
+
+	@BeforeClass
+	public static void startPool() {
+		pool = new ForkJoinPool(4);
+	}
+
+	@AfterClass
+	public static void stopPool() {
+		pool.shutdown();
+	}
+
+	private JsonLinesReader<Event> reader(String text) {
+		return gson.linesReader(new StringReader(text), Event.class);
+	}
+
+	private static String lines(int count) {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			text.append("{\"id\":").append(i).append(",\"kind\":\"line\\n").append(i).append("\"}\n");
+		}
+		return text.toString();
+	}
+
+	@Test
+	public void readsOneRecordPerLine() {
+		JsonLinesReader<Event> reader = reader("{\"id\":1,\"kind\":\"a\"}\n{\"id\":2}\r\n\n  \nnull\n{\"id\":3}");
+		assertEquals(1, reader.next().id);
+		assertTrue(reader.hasNext());
+		assertEquals(2, reader.next().id);
+		assertNull(reader.next());
+		assertEquals(3, reader.next().id);
+		assertFalse(reader.hasNext());
+		try {
+			reader.next();
+			fail();
+		} catch (NoSuchElementException expected) {
+		}
+	}
+
+	@Test
+	public void readsEmptyInput() {
+		assertFalse(reader("").hasNext());
+		assertFalse(reader("\n\r\n \t\n").hasNext());
+		assertTrue(reader("").nextBatch(10).isEmpty());
+	}
+
+	@Test
+	public void bindsOtherTopLevelValues() {
+		JsonLinesReader<String> strings = gson.linesReader(new StringReader("\"a\"\n\"b\"\n"), String.class);
+		assertEquals("a", strings.next());
+		assertEquals("b", strings.next());
+		assertFalse(strings.hasNext());
+		JsonLinesReader<int[]> arrays = gson.linesReader(new StringReader("[1,2]\n[]\n"), int[].class);
+		assertEquals(2, arrays.next().length);
+		assertEquals(0, arrays.next().length);
+	}
+
+	@Test
+	public void rejectsRecordsSharingALine() {
+		JsonLinesReader<Event> reader = reader("{\"id\":1} {\"id\":2}\n");
+		reader.next();
+		try {
+			reader.hasNext();
+			fail();
+		} catch (JsonException expected) {
+			assertTrue(expected.getMessage(), expected.getMessage().startsWith(
+					"Expected a line break between records"));
+		}
+	}
+
+	@Test
+	public void readsBatchesInOrder() {
+		JsonLinesReader<Event> reader = reader(lines(25000));
+		int next = 0;
+		List<Event> batch;
+		while (!(batch = reader.nextBatch(10000, pool)).isEmpty()) {
+			for (Event event : batch) {
+				assertEquals(next, event.id);
+				assertEquals("line\n" + next, event.kind);
+				next++;
+			}
+		}
+		assertEquals(25000, next);
+		assertFalse(reader.hasNext());
+		assertTrue(reader.nextBatch(1, pool).isEmpty());
+	}
+
+	@Test
+	public void mixesBatchesAndSingleRecords() {
+		JsonLinesReader<Event> reader = reader(lines(10) + "\n\n");
+		assertEquals(0, reader.next().id);
+		List<Event> batch = reader.nextBatch(3, pool);
+		assertEquals(3, batch.size());
+		assertEquals(1, batch.get(0).id);
+		assertEquals(3, batch.get(2).id);
+		assertEquals(4, reader.next().id);
+		batch = reader.nextBatch(100);
+		assertEquals(5, batch.size());
+		assertEquals(9, batch.get(4).id);
+		assertFalse(reader.hasNext());
+	}
+
+	@Test
+	public void reportsMalformedLinesInBatches() {
+		JsonLinesReader<Event> reader = reader("{\"id\":1}\n{\"id\":2} {\"id\":3}\n");
+		try {
+			reader.nextBatch(10, pool);
+			fail();
+		} catch (JsonException expected) {
+		}
+	}
+
+	@Test
+	public void rejectsEmptyBatches() {
+		try {
+			reader("").nextBatch(0);
+			fail();
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+	@Test
+	public void closesTheReader() {
+		final boolean[] closed = new boolean[1];
+		Reader source = new StringReader("{}\n") {
+			@Override
+			public void close() {
+				closed[0] = true;
+			}
+		};
+		JsonLinesReader<Event> reader = gson.linesReader(source, Event.class);
+		reader.close();
+		assertTrue(closed[0]);
+		assertFalse(reader.hasNext());
+	}
+
+	@Test
+	public void roundTripsWithTheWriter() {
+		List<Event> events = new ArrayList<Event>();
+		for (int i = 0; i < 100; i++) {
+			Event event = new Event();
+			event.id = i;
+			event.kind = i % 3 == 0 ? null : "k\u00e9\n" + i;
+			events.add(event);
+		}
+		StringWriter out = new StringWriter();
+		gson.linesWriter(out).writeAll(events).flush();
+		JsonLinesReader<Event> reader = reader(out.toString());
+		for (Event event : events) {
+			Event copy = reader.next();
+			assertEquals(event.id, copy.id);
+			assertEquals(event.kind, copy.kind);
+		}
+		assertFalse(reader.hasNext());
+	}
+}
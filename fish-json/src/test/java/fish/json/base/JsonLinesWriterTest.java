@@ -0,0 +1,66 @@
+package fish.json.base;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class JsonLinesWriterTest {
+
+	static class Event {
+		int id;
+		String text;
+		int[] values;
+	}
+
+	private final Gson gson = new GsonBuilder().create();
+
+	@Test
+	public void writesOneCompactRecordPerLine() {
+		Event event = new Event();
+		event.id = 1;
+		event.text = "two\nlines";
+		event.values = new int[] { 1, 2 };
+		Map<String, Object> map = new LinkedHashMap<String, Object>();
+		map.put("a", "b");
+		StringWriter out = new StringWriter();
+		JsonLinesWriter writer = gson.linesWriter(out);
+		writer.write(event).write("text").write(3).write(map).write(null);
+		writer.flush();
+		assertEquals("{\"id\":1,\"text\":\"two\\nlines\",\"values\":[1,2]}\n\"text\"\n3\n{\"a\":\"b\"}\nnull\n",
+				out.toString());
+	}
+
+	@Test
+	public void neverIndents() {
+		StringWriter out = new StringWriter();
+		Gson pretty = new GsonBuilder().setPrettyPrinting().create();
+		pretty.linesWriter(out).writeAll(Arrays.asList(new int[] { 1 }, new int[] { 2, 3 })).flush();
+		assertEquals("[1]\n[2,3]\n", out.toString());
+	}
+
+	@Test
+	public void flushesAndCloses() {
+		final boolean[] closed = new boolean[1];
+		StringWriter target = new StringWriter() {
+			@Override
+			public void close() {
+				closed[0] = true;
+			}
+		};
+		BufferedWriter buffered = new BufferedWriter(target);
+		JsonLinesWriter writer = gson.linesWriter(buffered);
+		writer.writeAll(Arrays.asList("a", "b"));
+		assertEquals("", target.toString());
+		writer.flush();
+		assertEquals("\"a\"\n\"b\"\n", target.toString());
+		writer.close();
+		assertTrue(closed[0]);
+	}
+}
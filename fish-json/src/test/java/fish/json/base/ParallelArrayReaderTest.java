@@ -0,0 +1,174 @@
+package fish.json.base;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import fish.json.stream.JsonException;
+
+public class ParallelArrayReaderTest {
+
+	static class Record {
+		int id;
+		String text;
+		List<Integer> values;
+	}
+
+	private static ForkJoinPool pool;
+
+	private final Gson gson = new GsonBuilder().create();
+
+	@BeforeClass
+	public static void startPool() {
+		pool = new ForkJoinPool(4);
+	}
+
+	@AfterClass
+	public static void stopPool() {
+		pool.shutdown();
+	}
+
+	/** Records whose text holds the characters the prescan must not take for structure. */
+	private static String records(int count) {
+		StringBuilder json = new StringBuilder("[\n");
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				json.append(",\n");
+			}
+			json.append("  {\"id\":").append(i).append(",\"text\":\"a,b]c}d\\\"[e{\\\\\",\"values\":[")
+					.append(i).append(',').append(-i).append("]}");
+		}
+		return json.append("\n]").toString();
+	}
+
+	@Test
+	public void readsManyChunksInOrder() {
+		String json = records(20000);
+		assertTrue(json.length() > 4 * 16 * 1024 * 4);
+		List<Record> records = gson.fromJsonParallel(json, Record.class, pool);
+		assertEquals(20000, records.size());
+		for (int i = 0; i < records.size(); i++) {
+			Record record = records.get(i);
+			assertEquals(i, record.id);
+			assertEquals("a,b]c}d\"[e{\\", record.text);
+			assertEquals(Arrays.asList(i, -i), record.values);
+		}
+	}
+
+	@Test
+	public void matchesSequentialBinding() {
+		String json = records(3000);
+		List<Record> parallel = gson.fromJsonParallel(json, Record.class, pool);
+		ForkJoinPool one = new ForkJoinPool(1);
+		List<Record> single;
+		try {
+			single = gson.fromJsonParallel(json, Record.class, one);
+		} finally {
+			one.shutdown();
+		}
+		assertEquals(gson.toJson(parallel), gson.toJson(single));
+		assertEquals(gson.toJson(parallel), gson.toJson(gson.fromJson(json, Record[].class)));
+	}
+
+	@Test
+	public void readsSmallAndEmptyArrays() {
+		assertEquals(Collections.emptyList(), gson.fromJsonParallel("[]", Integer.class, pool));
+		assertEquals(Collections.emptyList(), gson.fromJsonParallel(" \n[ \t]\n", Integer.class, pool));
+		assertEquals(Arrays.asList(1), gson.fromJsonParallel("[1]", Integer.class, pool));
+		List<String> strings = gson.fromJsonParallel("[\"\",null,\"x\"]", String.class, pool);
+		assertEquals(Arrays.asList("", null, "x"), strings);
+		List<int[]> arrays = gson.fromJsonParallel("[[],[1,2]]", int[].class, pool);
+		assertEquals(0, arrays.get(0).length);
+		assertEquals(2, arrays.get(1)[1]);
+	}
+
+	@Test
+	public void returnsAModifiableList() {
+		List<Integer> list = gson.fromJsonParallel("[1,2]", Integer.class, pool);
+		list.add(3);
+		assertEquals(new ArrayList<Integer>(Arrays.asList(1, 2, 3)), list);
+	}
+
+	@Test
+	public void readsNullElementsAcrossChunks() {
+		StringBuilder json = new StringBuilder("[");
+		for (int i = 0; i < 50000; i++) {
+			json.append(i % 2 == 0 ? "null," : "{\"id\":1},");
+		}
+		json.append("null]");
+		List<Record> records = gson.fromJsonParallel(json.toString(), Record.class, pool);
+		assertEquals(50001, records.size());
+		assertNull(records.get(0));
+		assertEquals(1, records.get(49999).id);
+		assertNull(records.get(50000));
+	}
+
+	@Test
+	public void isStrictUnlessGsonIsLenient() {
+		String json = "[a,'b',c]";
+		try {
+			gson.fromJsonParallel(json, String.class, pool);
+			fail();
+		} catch (RuntimeException expected) {
+		}
+		Gson lenient = new GsonBuilder().leninet().create();
+		assertEquals(Arrays.asList("a", "b", "c"), lenient.fromJsonParallel(json, String.class, pool));
+	}
+
+	@Test
+	public void readsLenientQuotingAndCommentsLikeTheSequentialReader() {
+		Gson lenient = new GsonBuilder().leninet().create();
+		String json = "['a,b','c]', 'd']";
+		assertEquals(Arrays.asList("a,b", "c]", "d"), lenient.fromJsonParallel(json, String.class, pool));
+		assertEquals(lenient.fromJson(json, List.class), lenient.fromJsonParallel(json, Object.class, pool));
+		assertEquals(Arrays.asList(1, 2, 3),
+				lenient.fromJsonParallel("[1, /* ,] */ 2, // ],[\n 3 # ,\n]", Integer.class, pool));
+		assertEquals(Arrays.asList(1, 2), lenient.fromJsonParallel("[1;2]", Integer.class, pool));
+		try {
+			lenient.fromJsonParallel("{'a':1}", Integer.class, pool);
+			fail();
+		} catch (JsonException expected) {
+			assertEquals("Expected a top-level array", expected.getMessage());
+		}
+	}
+
+	@Test
+	public void rejectsTrailingContent() {
+		try {
+			gson.fromJsonParallel("[1,2] 3", Integer.class, pool);
+			fail();
+		} catch (JsonException expected) {
+			assertEquals("Unexpected character after the top-level array at offset 6", expected.getMessage());
+		}
+		assertEquals(Arrays.asList(1, 2), gson.fromJsonParallel("[1,2] \r\n\t", Integer.class, pool));
+	}
+
+	@Test
+	public void rejectsMalformedArrays() {
+		String[] invalid = { "", "  ", "{\"a\":1}", "1", "[1,2", "[\"]" };
+		for (String json : invalid) {
+			try {
+				gson.fromJsonParallel(json, Integer.class, pool);
+				fail(json);
+			} catch (JsonException expected) {
+			}
+		}
+	}
+
+	@Test
+	public void usesTheCommonPoolByDefault() {
+		List<Record> records = gson.fromJsonParallel(records(100), Record.class);
+		assertEquals(99, records.get(99).id);
+	}
+}
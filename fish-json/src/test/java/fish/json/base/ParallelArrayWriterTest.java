@@ -0,0 +1,190 @@
+package fish.json.base;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ParallelArrayWriterTest {
+
+	static class Record {
+		int id;
+		String text;
+		double[] values;
+	}
+
+	static final class FlushCountingStream extends FilterOutputStream {
+		int flushes;
+
+		FlushCountingStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			flushes++;
+			super.flush();
+		}
+	}
+
+	private static ForkJoinPool pool;
+
+	private final Gson gson = new GsonBuilder().create();
+
+	@BeforeClass
+	public static void startPool() {
+		pool = new ForkJoinPool(4);
+	}
+
+	@AfterClass
+	public static void stopPool() {
+		pool.shutdown();
+	}
+
+	private static List<Object> records(int count) {
+		List<Object> records = new ArrayList<Object>(count);
+		for (int i = 0; i < count; i++) {
+			Record record = new Record();
+			record.id = i;
+			record.text = i % 7 == 0 ? null : "caf\u00e9 \ud83d\ude00 <" + i + ">\n";
+			record.values = new double[] { i, i / 2.0 };
+			records.add(i % 11 == 0 ? null : record);
+		}
+		return records;
+	}
+
+	private static String parallel(Gson gson, List<?> src) {
+		StringWriter out = new StringWriter();
+		gson.toJsonParallel(src, out, pool);
+		return out.toString();
+	}
+
+	@Test
+	public void matchesSequentialOutput() {
+		for (int count : new int[] { 0, 1, 1024, 1025, 20000 }) {
+			List<Object> records = records(count);
+			assertEquals("count " + count, gson.toJson(records), parallel(gson, records));
+		}
+	}
+
+	@Test
+	public void matchesSequentialOutputWhenIndenting() {
+		Gson pretty = new GsonBuilder().setPrettyPrinting().create();
+		for (int count : new int[] { 0, 3, 5000 }) {
+			List<Object> records = records(count);
+			assertEquals("count " + count, pretty.toJson(records), parallel(pretty, records));
+		}
+	}
+
+	@Test
+	public void matchesSequentialOutputWithOptions() {
+		Gson options = new GsonBuilder().htmlSafe().serializerNulls().create();
+		List<Object> records = records(3000);
+		assertEquals(options.toJson(records), parallel(options, records));
+	}
+
+	@Test
+	public void writesOtherCollectionsInIterationOrder() {
+		Set<Integer> set = new LinkedHashSet<Integer>();
+		for (int i = 10000; i > 0; i--) {
+			set.add(i);
+		}
+		StringWriter out = new StringWriter();
+		gson.toJsonParallel(set, out, pool);
+		assertEquals(gson.toJson(set), out.toString());
+	}
+
+	@Test
+	public void writesMixedRuntimeClassesLikeTheSequentialWriter() {
+		List<Object> mixed = new LinkedList<Object>();
+		List<Object> records = records(6000);
+		for (int i = 0; i < records.size(); i++) {
+			switch (i % 5) {
+			case 0:
+				mixed.add(i);
+				break;
+			case 1:
+				mixed.add("s" + i);
+				break;
+			case 2:
+				mixed.add(new Object());
+				break;
+			default:
+				mixed.add(records.get(i));
+			}
+		}
+		assertEquals(gson.toJson(mixed), parallel(gson, mixed));
+	}
+
+	@Test
+	public void looksAdaptersUpOncePerRunOfOneClass() {
+		List<Object> records = new ArrayList<Object>();
+		for (int i = 0; i < 20000; i++) {
+			records.add(new Record());
+		}
+		gson.getAdapter(Record.class);
+		long lookups = gson.getAdapterCacheHits() + gson.getAdapterCacheMisses();
+		parallel(gson, records);
+		long chunks = 20000 / 1024 + 1;
+		assertTrue(gson.getAdapterCacheHits() + gson.getAdapterCacheMisses() - lookups <= chunks * 4);
+	}
+
+	@Test
+	public void flushesTheWriter() {
+		List<Object> records = records(5000);
+		StringWriter target = new StringWriter();
+		BufferedWriter buffered = new BufferedWriter(target, 1 << 20);
+		gson.toJsonParallel(records, buffered, pool);
+		assertEquals(gson.toJson(records), target.toString());
+
+		target = new StringWriter();
+		buffered = new BufferedWriter(target, 1 << 20);
+		gson.toJsonParallel(Collections.singletonList("x"), buffered, pool);
+		assertEquals("[\"x\"]", target.toString());
+	}
+
+	@Test
+	public void encodesUtf8ToStreams() {
+		for (int count : new int[] { 0, 2, 8000 }) {
+			List<Object> records = records(count);
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			FlushCountingStream stream = new FlushCountingStream(bytes);
+			gson.toJsonParallel(records, stream, pool);
+			assertEquals(gson.toJson(records), new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+			assertTrue(stream.flushes > 0);
+		}
+	}
+
+	@Test
+	public void usesTheCommonPoolByDefault() {
+		List<Object> records = records(3000);
+		StringWriter out = new StringWriter();
+		gson.toJsonParallel(records, out);
+		assertEquals(gson.toJson(records), out.toString());
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		gson.toJsonParallel(records, bytes);
+		assertEquals(gson.toJson(records), new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+	}
+}
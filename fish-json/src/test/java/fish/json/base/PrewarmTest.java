@@ -0,0 +1,165 @@
+package fish.json.base;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PrewarmTest {
+
+	static class Order {
+		long id;
+		List<Line> lines;
+		Customer customer;
+	}
+
+	static class Line {
+		String sku;
+		int count;
+	}
+
+	static class Customer {
+		String name;
+	}
+
+	static boolean eagerInitialized;
+	static boolean lazyInitialized;
+	static boolean snapshotInitialized;
+
+	static class Eager {
+		static {
+			eagerInitialized = true;
+		}
+		int value;
+	}
+
+	static class Lazy {
+		static {
+			lazyInitialized = true;
+		}
+		int value;
+	}
+
+	static class FromSnapshot {
+		static {
+			snapshotInitialized = true;
+		}
+		int value;
+	}
+
+	static class NoDefault {
+		final int value;
+
+		NoDefault(int value) {
+			this.value = value;
+		}
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void resolvesReferencedAdapters() {
+		Gson gson = new GsonBuilder().create();
+		int before = gson.getAdapterCacheSize();
+		gson.prewarm(Order.class);
+		assertTrue(gson.getAdapterCacheSize() > before);
+		long misses = gson.getAdapterCacheMisses();
+		gson.getAdapter(Order.class);
+		gson.getAdapter(Customer.class);
+		gson.getAdapter(Line.class);
+		assertEquals(misses, gson.getAdapterCacheMisses());
+		Order order = gson.fromJson("{\"id\":1,\"lines\":[{\"sku\":\"a\",\"count\":2}],\"customer\":{}}",
+				Order.class);
+		assertEquals("a", order.lines.get(0).sku);
+	}
+
+	@Test
+	public void prewarmsFromTheBuilder() {
+		Gson gson = new GsonBuilder().prewarm(Order.class, NoDefault.class, int[].class, String.class)
+				.prewarmRounds(3).create();
+		long misses = gson.getAdapterCacheMisses();
+		gson.getAdapter(Order.class);
+		gson.getAdapter(NoDefault.class);
+		assertEquals(misses, gson.getAdapterCacheMisses());
+	}
+
+	@Test
+	public void onlyResolvesByDefault() {
+		Gson gson = new GsonBuilder().prewarm(Lazy.class).create();
+		assertFalse(lazyInitialized);
+		long misses = gson.getAdapterCacheMisses();
+		gson.getAdapter(Lazy.class);
+		assertEquals(misses, gson.getAdapterCacheMisses());
+	}
+
+	@Test
+	public void roundsExerciseTheAdaptersAndSoInitializeTheTypes() {
+		new GsonBuilder().prewarm(Eager.class).prewarmRounds(5).create();
+		assertTrue(eagerInitialized);
+	}
+
+	@Test
+	public void rejectsNegativeRounds() {
+		try {
+			new GsonBuilder().prewarmRounds(-1);
+			fail();
+		} catch (IllegalArgumentException expected) {
+			assertEquals("rounds < 0: -1", expected.getMessage());
+		}
+	}
+
+	@Test
+	public void roundTripsSnapshots() throws Exception {
+		Gson first = new GsonBuilder().create();
+		first.toJson(new Order());
+		first.getAdapter(Line.class);
+		Path snapshot = folder.getRoot().toPath().resolve("adapters.txt");
+		first.writeSnapshot(snapshot);
+		List<String> names = Files.readAllLines(snapshot, StandardCharsets.UTF_8);
+		assertTrue(names.toString(), names.contains(Order.class.getName()));
+		assertTrue(names.toString(), names.contains(Line.class.getName()));
+		assertFalse(names.toString(), names.contains("int"));
+		List<String> sorted = new ArrayList<String>(names);
+		Collections.sort(sorted);
+		assertEquals(sorted, names);
+
+		Gson second = new GsonBuilder().prewarmSnapshot(snapshot).create();
+		long misses = second.getAdapterCacheMisses();
+		second.getAdapter(Order.class);
+		second.getAdapter(Line.class);
+		assertEquals(misses, second.getAdapterCacheMisses());
+	}
+
+	@Test
+	public void skipsCommentsAndMissingClasses() throws Exception {
+		File file = folder.newFile("snapshot.txt");
+		Files.write(file.toPath(), Arrays.asList("# taken yesterday", "", "  " + Customer.class.getName() + "  ",
+				"com.example.Removed", FromSnapshot.class.getName()), StandardCharsets.UTF_8);
+		Gson gson = new GsonBuilder().prewarmSnapshot(file.toPath()).create();
+		long misses = gson.getAdapterCacheMisses();
+		gson.getAdapter(Customer.class);
+		gson.getAdapter(FromSnapshot.class);
+		assertEquals(misses, gson.getAdapterCacheMisses());
+		assertFalse(snapshotInitialized);
+	}
+
+	@Test
+	public void ignoresMissingSnapshots() {
+		Gson gson = new GsonBuilder().prewarmSnapshot(folder.getRoot().toPath().resolve("absent")).create();
+		gson.prewarm(folder.getRoot().toPath().resolve("absent"));
+	}
+}
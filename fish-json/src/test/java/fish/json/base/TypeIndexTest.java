@@ -0,0 +1,183 @@
+package fish.json.base;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNotNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fish.json.annotation.JsonBinding;
+import fish.json.util.ClassScannerTest;
+
+/**
+ * The scanned classes are compiled at run time into a jar of their own, as
+ * index files are only kept for packages that live in jars.
+ */
+public class TypeIndexTest {
+
+	private static final String[][] SOURCES = {
+			{ "indexed/Order.java", "package indexed;\n@fish.json.annotation.JsonBinding\n"
+					+ "public class Order {\n\tpublic long id;\n\tpublic indexed.sub.Line line;\n}\n" },
+			{ "indexed/Plain.java", "package indexed;\npublic class Plain {\n\tpublic int value;\n}\n" },
+			{ "indexed/sub/Line.java", "package indexed.sub;\n@fish.json.annotation.JsonBinding\n"
+					+ "public class Line {\n\tpublic String sku;\n}\n" } };
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File jar;
+	private Path index;
+
+	@Before
+	public void compile() throws Exception {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		assumeNotNull(compiler);
+		File classes = folder.newFolder("classes");
+		List<String> arguments = new ArrayList<String>();
+		arguments.add("-d");
+		arguments.add(classes.getPath());
+		arguments.add("-proc:none");
+		arguments.add("-cp");
+		arguments.add(new File(JsonBinding.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+				.getPath());
+		for (String[] source : SOURCES) {
+			File file = new File(folder.getRoot(), "src/" + source[0]);
+			file.getParentFile().mkdirs();
+			Files.write(file.toPath(), source[1].getBytes(StandardCharsets.UTF_8));
+			arguments.add(file.getPath());
+		}
+		assertEquals(0, compiler.run(null, null, null, arguments.toArray(new String[arguments.size()])));
+		jar = new File(folder.getRoot(), "indexed.jar");
+		JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+		try {
+			Set<String> directories = new HashSet<String>();
+			for (String name : new String[] { "indexed/Order", "indexed/Plain", "indexed/sub/Line" }) {
+				ClassScannerTest.putDirectories(out, name, directories);
+				out.putNextEntry(new JarEntry(name + ".class"));
+				out.write(Files.readAllBytes(new File(classes, name + ".class").toPath()));
+				out.closeEntry();
+			}
+		} finally {
+			out.close();
+		}
+		index = folder.getRoot().toPath().resolve("types.idx");
+	}
+
+	private URLClassLoader loader() throws Exception {
+		return new URLClassLoader(new URL[] { jar.toURI().toURL() }, getClass().getClassLoader());
+	}
+
+	private static List<String> names(List<Class<?>> types) {
+		List<String> names = new ArrayList<String>();
+		for (Class<?> type : types) {
+			names.add(type.getName());
+		}
+		return names;
+	}
+
+	@Test
+	public void findsAnnotatedClasses() throws Exception {
+		URLClassLoader loader = loader();
+		try {
+			List<Class<?>> types = TypeIndex.load(loader, new String[] { "indexed" }, null);
+			assertEquals("[indexed.Order, indexed.sub.Line]", names(types).toString());
+			assertEquals(loader, types.get(0).getClassLoader());
+			assertFalse(Files.exists(index));
+		} finally {
+			loader.close();
+		}
+	}
+
+	@Test
+	public void writesAndTrustsTheIndex() throws Exception {
+		URLClassLoader loader = loader();
+		try {
+			TypeIndex.load(loader, new String[] { "indexed" }, index);
+			List<String> lines = Files.readAllLines(index, StandardCharsets.UTF_8);
+			assertEquals(3, lines.size());
+			assertTrue(lines.get(0), lines.get(0).startsWith("# fish-json type index indexed;"));
+			assertEquals("indexed.Order", lines.get(1));
+			assertEquals("indexed.sub.Line", lines.get(2));
+
+			// while the jar is unchanged the index is used as it is, without scanning
+			List<String> edited = new ArrayList<String>(lines.subList(0, 2));
+			edited.add("indexed.Removed");
+			Files.write(index, edited, StandardCharsets.UTF_8);
+			List<Class<?>> types = TypeIndex.load(loader, new String[] { "indexed" }, index);
+			assertEquals("[indexed.Order]", names(types).toString());
+		} finally {
+			loader.close();
+		}
+	}
+
+	@Test
+	public void rescansWhenTheJarChanges() throws Exception {
+		URLClassLoader loader = loader();
+		try {
+			TypeIndex.load(loader, new String[] { "indexed" }, index);
+		} finally {
+			loader.close();
+		}
+		List<String> lines = Files.readAllLines(index, StandardCharsets.UTF_8);
+		Files.write(index, lines.subList(0, 1), StandardCharsets.UTF_8);
+		assertTrue(jar.setLastModified(jar.lastModified() - 60000));
+		loader = loader();
+		try {
+			List<Class<?>> types = TypeIndex.load(loader, new String[] { "indexed" }, index);
+			assertEquals("[indexed.Order, indexed.sub.Line]", names(types).toString());
+			assertEquals(3, Files.readAllLines(index, StandardCharsets.UTF_8).size());
+		} finally {
+			loader.close();
+		}
+	}
+
+	@Test
+	public void skipsTheIndexForDirectories() throws Exception {
+		List<Class<?>> types = TypeIndex.load(getClass().getClassLoader(), new String[] { "fish.json.base" },
+				index);
+		assertTrue(types.isEmpty());
+		assertFalse(Files.exists(index));
+	}
+
+	@Test
+	public void prewarmsScannedPackagesInCreate() throws Exception {
+		URLClassLoader loader = loader();
+		Thread thread = Thread.currentThread();
+		ClassLoader previous = thread.getContextClassLoader();
+		thread.setContextClassLoader(loader);
+		try {
+			Gson gson = new GsonBuilder().scanPackages("indexed").scanIndex(index).create();
+			assertTrue(Files.exists(index));
+			long misses = gson.getAdapterCacheMisses();
+			gson.getAdapter(loader.loadClass("indexed.Order"));
+			gson.getAdapter(loader.loadClass("indexed.sub.Line"));
+			assertEquals(misses, gson.getAdapterCacheMisses());
+			Object order = gson.fromJson("{\"id\":7,\"line\":{\"sku\":\"s\"}}", loader.loadClass("indexed.Order"));
+			assertEquals("{\"id\":7,\"line\":{\"sku\":\"s\"}}", gson.toJson(order));
+		} finally {
+			thread.setContextClassLoader(previous);
+			loader.close();
+		}
+	}
+}
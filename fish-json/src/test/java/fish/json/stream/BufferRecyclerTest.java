@@ -0,0 +1,222 @@
+package fish.json.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import fish.json.base.Gson;
+import fish.json.base.GsonBuilder;
+
+public class BufferRecyclerTest {
+
+	private final BufferRecycler recycler = new BufferRecycler(4);
+
+	@Test
+	public void reusesReleasedInstances() throws Exception {
+		JsonReader reader = recycler.acquireReader(new StringReader("1"));
+		recycler.release(reader);
+		assertSame(reader, recycler.acquireReader(new StringReader("2")));
+		assertNotSame(reader, recycler.acquireReader(new StringReader("3")));
+
+		StringBuilderWriter buffer = recycler.acquireBuffer();
+		JsonWriter writer = recycler.acquireWriter(buffer);
+		recycler.release(writer);
+		recycler.release(buffer);
+		assertSame(buffer, recycler.acquireBuffer());
+		assertSame(writer, recycler.acquireWriter(new StringBuilderWriter()));
+
+		Utf8Writer bytes = recycler.acquireBytes();
+		recycler.release(bytes);
+		assertSame(bytes, recycler.acquireBytes());
+	}
+
+	@Test
+	public void resetsReadersForTheirNextSource() throws Exception {
+		JsonReader reader = recycler.acquireReader(new StringReader("{'a':[1,"));
+		reader.setLenient(true);
+		reader.setProjection(JsonProjection.of("$.a"));
+		reader.beginObject();
+		reader.nextName();
+		reader.beginArray();
+		reader.nextInt();
+		recycler.release(reader);
+
+		reader = recycler.acquireReader(new StringReader("[\"x\"]"));
+		assertEquals(false, reader.isLenient());
+		assertEquals("$", reader.getPath());
+		assertEquals(0, reader.position());
+		reader.beginArray();
+		assertEquals("x", reader.nextString());
+		reader.endArray();
+		assertEquals(JsonToken.END_DOCUMENT, reader.peek());
+	}
+
+	@Test
+	public void dropsTheSourceOnRelease() throws Exception {
+		final boolean[] released = new boolean[1];
+		Reader source = new StringReader("[1,2,3]") {
+			@Override
+			public int read(char[] cbuf, int off, int len) throws java.io.IOException {
+				if (released[0]) {
+					throw new AssertionError("read after release");
+				}
+				return super.read(cbuf, off, len);
+			}
+		};
+		JsonReader reader = recycler.acquireReader(source);
+		reader.beginArray();
+		recycler.release(reader);
+		released[0] = true;
+		try {
+			reader.peek();
+			fail();
+		} catch (RuntimeException expected) {
+			assertTrue(expected.getMessage(), expected.getMessage().startsWith("End of input"));
+		}
+	}
+
+	@Test
+	public void resetsWritersForTheirNextTarget() throws Exception {
+		StringBuilderWriter first = new StringBuilderWriter();
+		JsonWriter writer = recycler.acquireWriter(first);
+		writer.setIndent("  ");
+		writer.setHtmlSafe(true);
+		writer.setSerializeNulls(false);
+		writer.beginObject().name("a");
+		recycler.release(writer);
+
+		StringBuilderWriter second = new StringBuilderWriter();
+		writer = recycler.acquireWriter(second);
+		writer.beginObject().name("b").nullValue().name("<").value("<").endObject();
+		writer.flush();
+		assertEquals("{\"b\":null,\"<\":\"<\"}", second.getBuilder().toString());
+		assertEquals("{", first.getBuilder().toString().trim());
+	}
+
+	@Test
+	public void clearsBuffers() throws Exception {
+		StringBuilderWriter buffer = recycler.acquireBuffer();
+		buffer.write("old");
+		recycler.release(buffer);
+		assertEquals(0, recycler.acquireBuffer().getBuilder().length());
+
+		Utf8Writer bytes = recycler.acquireBytes();
+		bytes.write("old\ud83d");
+		recycler.release(bytes);
+		bytes = recycler.acquireBytes();
+		assertEquals(0, bytes.size());
+		bytes.write("\ude00");
+		assertEquals("?", new String(bytes.toByteArray(), java.nio.charset.StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void poolsOnlyPlainReadersAndWriters() throws Exception {
+		JsonTreeWriter tree = new JsonTreeWriter();
+		recycler.release(tree);
+		JsonWriter writer = recycler.acquireWriter(new StringBuilderWriter());
+		assertNotSame(tree, writer);
+		assertSame(JsonWriter.class, writer.getClass());
+
+		JsonReader inner = new JsonReader(new StringReader("{}"));
+		inner.beginObject();
+		ReplayJsonReader replay = new ReplayJsonReader(inner, 10);
+		recycler.release(replay);
+		assertSame(JsonReader.class, recycler.acquireReader(new StringReader("1")).getClass());
+	}
+
+	@Test
+	public void dropsLargeBuffers() throws Exception {
+		StringBuilderWriter buffer = recycler.acquireBuffer();
+		buffer.write(new char[100 * 1024], 0, 100 * 1024);
+		recycler.release(buffer);
+		assertNotSame(buffer, recycler.acquireBuffer());
+
+		Utf8Writer bytes = recycler.acquireBytes();
+		bytes.write(new char[100 * 1024], 0, 100 * 1024);
+		recycler.release(bytes);
+		assertNotSame(bytes, recycler.acquireBytes());
+	}
+
+	@Test
+	public void boundsThePool() throws Exception {
+		List<JsonReader> readers = new ArrayList<JsonReader>();
+		for (int i = 0; i < 100; i++) {
+			readers.add(new JsonReader(new StringReader("")));
+		}
+		for (JsonReader reader : readers) {
+			recycler.release(reader);
+		}
+		Set<JsonReader> reused = Collections.newSetFromMap(new IdentityHashMap<JsonReader, Boolean>());
+		for (int i = 0; i < 100; i++) {
+			reused.add(recycler.acquireReader(new StringReader("")));
+		}
+		int pooled = 0;
+		for (JsonReader reader : readers) {
+			if (reused.contains(reader)) {
+				pooled++;
+			}
+		}
+		assertTrue(String.valueOf(pooled), pooled > 0 && pooled <= 8);
+	}
+
+	@Test
+	public void neverHandsOneInstanceToTwoThreads() throws Exception {
+		final BufferRecycler shared = new BufferRecycler(2);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+			for (int t = 0; t < 8; t++) {
+				final String text = "thread-" + t;
+				tasks.add(new Callable<Void>() {
+					@Override
+					public Void call() {
+						for (int i = 0; i < 20000; i++) {
+							StringBuilderWriter buffer = shared.acquireBuffer();
+							buffer.write(text);
+							Thread.yield();
+							assertEquals(text, buffer.getBuilder().toString());
+							shared.release(buffer);
+						}
+						return null;
+					}
+				});
+			}
+			for (Future<Void> future : executor.invokeAll(tasks)) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void gsonRecoversFromFailedReads() throws Exception {
+		Gson gson = new GsonBuilder().create();
+		for (int i = 0; i < 3; i++) {
+			try {
+				gson.fromJson("{\"a\":", int[].class);
+				fail();
+			} catch (RuntimeException expected) {
+			}
+			int[] values = gson.fromJson("[1,2]", int[].class);
+			assertEquals(2, values[1]);
+			assertEquals("[1,2]", gson.toJson(values));
+		}
+	}
+}
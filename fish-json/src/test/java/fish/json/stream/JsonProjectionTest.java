@@ -0,0 +1,186 @@
+package fish.json.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import fish.json.base.Gson;
+import fish.json.base.GsonBuilder;
+
+public class JsonProjectionTest {
+
+	static class User {
+		long id;
+		String name;
+		Address address;
+	}
+
+	static class Address {
+		String city;
+		String zip;
+	}
+
+	static class Item {
+		String sku;
+		int count;
+	}
+
+	static class Response {
+		User user;
+		Item[] items;
+		String cursor;
+	}
+
+	private static final String RESPONSE = "{\"meta\":{\"took\":5,\"shards\":[1,2]},\"user\":{\"id\":7,"
+			+ "\"name\":\"ann\",\"address\":{\"city\":\"Oslo\",\"zip\":\"0150\"}},\"items\":[{\"sku\":\"a\","
+			+ "\"count\":1},{\"count\":2,\"sku\":\"b\"}],\"cursor\":\"next\"}";
+
+	private final Gson gson = new GsonBuilder().create();
+
+	/** Copies what {@code in} lets through, token by token. */
+	private static String project(Reader source, JsonProjection projection) {
+		JsonReader in = new JsonReader(source);
+		in.setLenient(true);
+		in.setProjection(projection);
+		StringWriter out = new StringWriter();
+		JsonWriter writer = new JsonWriter(out);
+		copy(in, writer);
+		writer.flush();
+		return out.toString();
+	}
+
+	private static String project(String json, String... paths) {
+		return project(new StringReader(json), JsonProjection.of(paths));
+	}
+
+	private static void copy(JsonReader in, JsonWriter out) {
+		switch (in.peek()) {
+		case BEGIN_OBJECT:
+			in.beginObject();
+			out.beginObject();
+			while (in.hasNext()) {
+				out.name(in.nextName());
+				copy(in, out);
+			}
+			in.endObject();
+			out.endObject();
+			break;
+		case BEGIN_ARRAY:
+			in.beginArray();
+			out.beginArray();
+			while (in.hasNext()) {
+				copy(in, out);
+			}
+			in.endArray();
+			out.endArray();
+			break;
+		case STRING:
+			out.value(in.nextString());
+			break;
+		case NUMBER:
+			out.value(in.nextLong());
+			break;
+		case BOOLEAN:
+			out.value(in.nextBoolean());
+			break;
+		default:
+			in.nextNull();
+			out.nullValue();
+		}
+	}
+
+	@Test
+	public void keepsOnlyTheSelectedPaths() {
+		assertEquals("{\"user\":{\"id\":7},\"items\":[{\"sku\":\"a\"},{\"sku\":\"b\"}]}",
+				project(RESPONSE, "$.user.id", "$.items[*].sku"));
+		assertEquals("{\"cursor\":\"next\"}", project(RESPONSE, "$.cursor"));
+		assertEquals("{}", project(RESPONSE, "$.missing"));
+	}
+
+	@Test
+	public void selectsWholeSubtrees() {
+		assertEquals("{\"meta\":{\"took\":5,\"shards\":[1,2]}}", project(RESPONSE, "$.meta"));
+		assertEquals(RESPONSE, project(RESPONSE, "$"));
+		assertEquals("{\"user\":{\"address\":{\"city\":\"Oslo\",\"zip\":\"0150\"}}}",
+				project(RESPONSE, "$.user.address", "$.user.address.city"));
+	}
+
+	@Test
+	public void matchesWildcardMembers() {
+		assertEquals("{\"meta\":{\"took\":5},\"user\":{\"id\":7,\"name\":\"ann\"},\"items\":[],"
+				+ "\"cursor\":\"next\"}", project(RESPONSE, "$.*.took", "$.*.id", "$.user.name"));
+		assertEquals("{\"meta\":{\"took\":5,\"shards\":[]},\"user\":{\"id\":7,\"name\":\"ann\",\"address\":{\"city\":\"Oslo\"}},"
+				+ "\"items\":[],\"cursor\":\"next\"}", project(RESPONSE, "$.*.*.city"));
+		assertEquals("{\"a\":{\"b\":1},\"d\":{}}", project("{\"a\":{\"b\":1,\"c\":2},\"d\":{\"e\":3}}", "$.a.b", "$.*.b"));
+	}
+
+	@Test
+	public void matchesNestedArrays() {
+		assertEquals("[[{\"a\":1},{\"a\":3}],[]]", project("[[{\"a\":1,\"b\":2},{\"b\":4,\"a\":3}],[]]",
+				"$[*][*].a"));
+		assertEquals("{\"x\":[]}", project("{\"x\":[1,2,3]}", "$.x.y"));
+	}
+
+	@Test
+	public void matchesNamesOutsideTheBuffer() {
+		String json = "{\"pad\":\"" + new String(new char[5000]).replace('\0', 'p')
+				+ "\",\"us\\u0065r\":{'id':7,name:\"ann\"},\"user2\":1}";
+		JsonProjection projection = JsonProjection.of("$.user.id", "$.user.name");
+		assertEquals("{\"user\":{\"id\":7,\"name\":\"ann\"}}", project(new StringReader(json), projection));
+		assertEquals("{\"user\":{\"id\":7,\"name\":\"ann\"}}", project(new TrickleReader(json), projection));
+	}
+
+	@Test
+	public void bindsOnlyTheSelectedFields() {
+		Response response = gson.fromJson(RESPONSE, Response.class,
+				JsonProjection.of("$.user.id", "$.user.address.city", "$.items[*].sku"));
+		assertEquals(7, response.user.id);
+		assertEquals(null, response.user.name);
+		assertEquals("Oslo", response.user.address.city);
+		assertEquals(null, response.user.address.zip);
+		assertEquals(2, response.items.length);
+		assertEquals("b", response.items[1].sku);
+		assertEquals(0, response.items[1].count);
+		assertEquals(null, response.cursor);
+	}
+
+	@Test
+	public void reusesProjectionsAcrossReads() {
+		JsonProjection projection = JsonProjection.of("$.cursor");
+		for (int i = 0; i < 3; i++) {
+			Response response = gson.fromJson(RESPONSE, Response.class, projection);
+			assertEquals("next", response.cursor);
+			assertEquals(null, response.user);
+		}
+		Response full = gson.fromJson(RESPONSE, Response.class);
+		assertEquals("ann", full.user.name);
+	}
+
+	@Test
+	public void rejectsUnsupportedPaths() {
+		String[] invalid = { "user.id", "$..id", "$.items[0]", "$.a.", "$[" };
+		for (String path : invalid) {
+			try {
+				JsonProjection.of(path);
+				fail(path);
+			} catch (IllegalArgumentException expected) {
+			}
+		}
+	}
+
+	@Test
+	public void mustBeSetBeforeReading() {
+		JsonReader in = new JsonReader(new StringReader("{}"));
+		in.beginObject();
+		try {
+			in.setProjection(JsonProjection.of("$.a"));
+			fail();
+		} catch (IllegalStateException expected) {
+		}
+	}
+}
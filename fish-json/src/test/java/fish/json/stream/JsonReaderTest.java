@@ -0,0 +1,254 @@
+package fish.json.stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Base64;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class JsonReaderTest {
+
+	private static JsonReader reader(String json) {
+		return new JsonReader(new StringReader(json));
+	}
+
+	@Test
+	public void base64RoundTripsEveryLength() {
+		Random random = new Random(42);
+		for (int length = 0; length < 70; length++) {
+			byte[] bytes = new byte[length];
+			random.nextBytes(bytes);
+			StringWriter out = new StringWriter();
+			new JsonWriter(out).valueBase64(bytes);
+			assertEquals("\"" + Base64.getEncoder().encodeToString(bytes) + "\"", out.toString());
+			assertArrayEquals(bytes, reader(out.toString()).nextBase64());
+			assertArrayEquals(bytes, new JsonReader(new TrickleReader(out.toString())).nextBase64());
+		}
+	}
+
+	@Test
+	public void base64LongerThanTheBuffer() {
+		byte[] bytes = new byte[100000];
+		new Random(1).nextBytes(bytes);
+		String json = "[\"" + Base64.getEncoder().encodeToString(bytes) + "\",1]";
+		JsonReader in = reader(json);
+		in.beginArray();
+		assertArrayEquals(bytes, in.nextBase64());
+		assertEquals(1, in.nextInt());
+		in.endArray();
+	}
+
+	@Test
+	public void base64AcceptsMissingPaddingAndEscapes() {
+		assertArrayEquals(new byte[] { 'a' }, reader("\"YQ\"").nextBase64());
+		assertArrayEquals(new byte[] { 'a', 'b' }, reader("\"YWI\"").nextBase64());
+		assertArrayEquals(Base64.getDecoder().decode("//+/"), reader("\"\\/\\/+\\/\"").nextBase64());
+	}
+
+	@Test
+	public void base64ReadsSingleQuotedValuesWhenLenient() {
+		JsonReader in = reader("['YWJj']");
+		in.setLenient(true);
+		in.beginArray();
+		assertArrayEquals(new byte[] { 'a', 'b', 'c' }, in.nextBase64());
+		in.endArray();
+	}
+
+	@Test
+	public void base64AdvancesThePath() {
+		JsonReader in = reader("[\"YQ==\",\"YQ==\"]");
+		in.beginArray();
+		in.nextBase64();
+		assertEquals("$[1]", in.getPath());
+	}
+
+	@Test
+	public void base64RejectsInvalidCharacters() {
+		JsonReader in = reader("[\"YW*j\"]");
+		in.beginArray();
+		try {
+			in.nextBase64();
+			fail();
+		} catch (JsonException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Invalid Base64 character '*'"));
+		}
+	}
+
+	@Test
+	public void base64RejectsTruncatedValues() {
+		try {
+			reader("\"YWJjZ\"").nextBase64();
+			fail();
+		} catch (JsonException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Truncated Base64 value"));
+		}
+	}
+
+	@Test
+	public void base64ReportsUnterminatedStringsWithTheirLocation() {
+		JsonReader in = reader("[\"YWJj");
+		in.beginArray();
+		try {
+			in.nextBase64();
+			fail();
+		} catch (JsonException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Unterminated string"));
+			assertTrue(e.getMessage(), e.getMessage().contains("$[0]"));
+		}
+	}
+
+	@Test
+	public void nextStringIntoArrayCopiesValuesThatFit() {
+		JsonReader in = reader("[\"abc\",\"a\\\"b\",'single',unquoted,12.5]");
+		in.setLenient(true);
+		in.beginArray();
+		char[] dest = new char[8];
+		assertEquals(3, in.nextString(dest));
+		assertEquals("abc", new String(dest, 0, 3));
+		assertEquals(3, in.nextString(dest));
+		assertEquals("a\"b", new String(dest, 0, 3));
+		assertEquals(6, in.nextString(dest));
+		assertEquals("single", new String(dest, 0, 6));
+		assertEquals(8, in.nextString(dest));
+		assertEquals("unquoted", new String(dest, 0, 8));
+		assertEquals(4, in.nextString(dest));
+		assertEquals("12.5", new String(dest, 0, 4));
+		assertEquals("$[5]", in.getPath());
+		in.endArray();
+	}
+
+	@Test
+	public void nextStringIntoArrayLeavesLongValuesUnread() {
+		JsonReader in = reader("[\"abcdefghi\",\"ab\\u0063defghi\",\"x\"]");
+		in.beginArray();
+		char[] dest = new char[8];
+		assertEquals(-1, in.nextString(dest));
+		assertEquals("$[0]", in.getPath());
+		assertEquals(JsonToken.STRING, in.peek());
+		assertEquals("abcdefghi", in.nextString());
+		assertEquals(-1, in.nextString(dest));
+		assertEquals("$[1]", in.getPath());
+		assertEquals("abcdefghi", in.nextString());
+		assertEquals(1, in.nextString(dest));
+		assertEquals("$[3]", in.getPath());
+		in.endArray();
+	}
+
+	@Test
+	public void nextRecordSeparatesTopLevelValues() {
+		JsonReader in = reader("{\"a\":1}\n\n  [2]\r\n\"three\"\n");
+		assertTrue(in.nextRecord());
+		in.beginObject();
+		assertEquals("a", in.nextName());
+		assertEquals(1, in.nextInt());
+		in.endObject();
+		assertTrue(in.nextRecord());
+		in.beginArray();
+		assertEquals(2, in.nextInt());
+		in.endArray();
+		assertTrue(in.nextRecord());
+		assertEquals("three", in.nextString());
+		assertFalse(in.nextRecord());
+		assertFalse(in.nextRecord());
+	}
+
+	@Test
+	public void nextRecordRequiresLineBreaks() {
+		JsonReader in = reader("1 2");
+		assertTrue(in.nextRecord());
+		assertEquals(1, in.nextInt());
+		try {
+			in.nextRecord();
+			fail();
+		} catch (JsonException expected) {
+		}
+	}
+
+	@Test
+	public void nextRecordRequiresWholeValues() {
+		JsonReader in = reader("[1]\n");
+		in.nextRecord();
+		in.beginArray();
+		try {
+			in.nextRecord();
+			fail();
+		} catch (IllegalStateException expected) {
+		}
+	}
+
+	@Test
+	public void nextRecordTextCopiesLines() {
+		JsonReader in = reader("{\"a\": 1}  \r\n\n[\"x\"]\nlast");
+		StringBuilder dest = new StringBuilder();
+		assertTrue(in.nextRecordText(dest));
+		assertEquals("{\"a\": 1}", dest.toString());
+		assertTrue(in.nextRecordText(dest));
+		assertEquals("{\"a\": 1}[\"x\"]", dest.toString());
+		assertTrue(in.nextRecordText(dest));
+		assertEquals("{\"a\": 1}[\"x\"]last", dest.toString());
+		assertFalse(in.nextRecordText(dest));
+	}
+
+	@Test
+	public void nextRecordTextCopiesLinesLongerThanTheBuffer() {
+		StringBuilder line = new StringBuilder("[");
+		for (int i = 0; i < 5000; i++) {
+			line.append(i).append(',');
+		}
+		line.append("0]");
+		JsonReader in = new JsonReader(new TrickleReader(line + "\n" + line));
+		StringBuilder dest = new StringBuilder();
+		assertTrue(in.nextRecordText(dest));
+		assertEquals(line.toString(), dest.toString());
+		dest.setLength(0);
+		assertTrue(in.nextRecordText(dest));
+		assertEquals(line.toString(), dest.toString());
+		assertFalse(in.nextRecordText(dest));
+	}
+
+	@Test
+	public void endRecordWritesLineBreaks() {
+		StringWriter out = new StringWriter();
+		JsonWriter writer = new JsonWriter(out);
+		writer.beginObject().name("a").value(1).endObject();
+		writer.endRecord();
+		writer.value("b");
+		writer.endRecord();
+		writer.flush();
+		assertEquals("{\"a\":1}\n\"b\"\n", out.toString());
+		try {
+			writer.endRecord();
+			fail();
+		} catch (IllegalStateException expected) {
+		}
+	}
+
+	@Test
+	public void shortsAndBytesAreRangeChecked() {
+		JsonReader in = reader("[32767,-32768,127,-128,32768,-129]");
+		in.beginArray();
+		assertEquals(Short.MAX_VALUE, in.nextShort());
+		assertEquals(Short.MIN_VALUE, in.nextShort());
+		assertEquals(Byte.MAX_VALUE, in.nextByte());
+		assertEquals(Byte.MIN_VALUE, in.nextByte());
+		try {
+			in.nextShort();
+			fail();
+		} catch (JsonException e) {
+			assertEquals("Lossy conversion from 32768 to short at path $[4]", e.getMessage());
+		}
+		try {
+			in.nextByte();
+			fail();
+		} catch (JsonException e) {
+			assertEquals("Lossy conversion from -129 to byte at path $[5]", e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package fish.json.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+
+import org.junit.Test;
+
+public class NameTableTest {
+
+	private final NameTable table = new NameTable("id", "name", "price", "Aa", "BB");
+
+	@Test
+	public void indexOfFindsEveryName() {
+		assertEquals(5, table.size());
+		for (int i = 0; i < table.size(); i++) {
+			assertEquals(i, table.indexOf(table.name(i)));
+		}
+		assertEquals(-1, table.indexOf("missing"));
+		assertEquals(-1, table.indexOf(""));
+	}
+
+	@Test
+	public void distinguishesNamesWithTheSameHash() {
+		assertEquals("Aa".hashCode(), "BB".hashCode());
+		JsonReader in = new JsonReader(new StringReader("{\"BB\":1,\"Aa\":2}"));
+		in.beginObject();
+		assertEquals(4, in.nextNameIndex(table));
+		in.skipValue();
+		assertEquals(3, in.nextNameIndex(table));
+		in.skipValue();
+		in.endObject();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsDuplicateNames() {
+		new NameTable("a", "b", "a");
+	}
+
+	@Test
+	public void matchesNamesInTheBufferAndTracksThePath() {
+		JsonReader in = new JsonReader(new StringReader("{\"price\":1.5,\"other\":[1,{\"id\":2}],\"id\":7}"));
+		in.beginObject();
+		assertEquals(2, in.nextNameIndex(table));
+		assertEquals("$.price", in.getPath());
+		assertEquals(1.5, in.nextDouble(), 0);
+		assertEquals(-1, in.nextNameIndex(table));
+		in.skipValue();
+		assertEquals(0, in.nextNameIndex(table));
+		assertEquals(7, in.nextInt());
+		in.endObject();
+	}
+
+	@Test
+	public void matchesEscapedNames() {
+		JsonReader in = new JsonReader(new StringReader("{\"na\\u006de\":\"x\",\"pri\\\"ce\":1}"));
+		in.beginObject();
+		assertEquals(1, in.nextNameIndex(table));
+		assertEquals("x", in.nextString());
+		assertEquals(-1, in.nextNameIndex(table));
+		in.skipValue();
+		in.endObject();
+	}
+
+	@Test
+	public void matchesNamesSplitAcrossRefills() {
+		JsonReader in = new JsonReader(new TrickleReader("{\"name\":\"n\",\"price\":3,\"nope\":0}"));
+		in.beginObject();
+		assertEquals(1, in.nextNameIndex(table));
+		assertEquals("n", in.nextString());
+		assertEquals(2, in.nextNameIndex(table));
+		assertEquals(3, in.nextInt());
+		assertEquals(-1, in.nextNameIndex(table));
+		assertEquals(0, in.nextInt());
+		in.endObject();
+	}
+
+	@Test
+	public void matchesUnquotedNamesWhenLenient() {
+		JsonReader in = new JsonReader(new StringReader("{id:1,'name':2}"));
+		in.setLenient(true);
+		in.beginObject();
+		assertEquals(0, in.nextNameIndex(table));
+		in.skipValue();
+		assertEquals(1, in.nextNameIndex(table));
+		in.skipValue();
+		in.endObject();
+	}
+
+	@Test
+	public void matchesStringValues() {
+		JsonReader in = new JsonReader(new StringReader("[\"price\",\"pr\\u0069ce\",\"none\"]"));
+		in.beginArray();
+		assertEquals(2, in.nextStringIndex(table));
+		assertEquals(2, in.nextStringIndex(table));
+		assertEquals(-1, in.nextStringIndex(table));
+		in.endArray();
+	}
+
+	@Test
+	public void nameIndexRequiresAName() {
+		JsonReader in = new JsonReader(new StringReader("{\"id\":1}"));
+		in.beginObject();
+		in.nextNameIndex(table);
+		try {
+			in.nextNameIndex(table);
+			fail();
+		} catch (IllegalStateException e) {
+			// a value is next
+		}
+	}
+}
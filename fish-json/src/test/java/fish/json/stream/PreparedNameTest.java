@@ -0,0 +1,93 @@
+package fish.json.stream;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+public class PreparedNameTest {
+
+	private static final String[] NAMES = { "plain", "with \"quotes\"", "back\\slash", "tab\there",
+			"ctl\u0001", "line\u2028sep", "<html>&'=", "\u00e9\u4e2d", "" };
+
+	private static String write(boolean prepared, boolean htmlSafe, String indent) {
+		StringWriter out = new StringWriter();
+		JsonWriter writer = new JsonWriter(out);
+		writer.setHtmlSafe(htmlSafe);
+		if (indent != null) {
+			writer.setIndent(indent);
+		}
+		writer.beginObject();
+		for (String name : NAMES) {
+			if (prepared) {
+				writer.name(new PreparedName(name)).value(new PreparedName(name));
+			} else {
+				writer.name(name).value(name);
+			}
+		}
+		writer.endObject();
+		return out.toString();
+	}
+
+	@Test
+	public void matchesStringNames() {
+		assertEquals(write(false, false, null), write(true, false, null));
+	}
+
+	@Test
+	public void matchesStringNamesWhenHtmlSafe() {
+		String expected = write(false, true, null);
+		assertEquals(expected, write(true, true, null));
+		assertEquals(-1, expected.indexOf('<'));
+		assertEquals(-1, expected.indexOf('&'));
+	}
+
+	@Test
+	public void matchesStringNamesWhenIndenting() {
+		assertEquals(write(false, false, "  "), write(true, false, "  "));
+	}
+
+	@Test
+	public void escapesQuotesAndControlCharacters() {
+		StringWriter out = new StringWriter();
+		JsonWriter writer = new JsonWriter(out);
+		writer.beginObject();
+		writer.name(new PreparedName("a\"b\u0001")).value(1);
+		writer.endObject();
+		assertEquals("{\"a\\\"b\\u0001\":1}", out.toString());
+	}
+
+	@Test
+	public void dropsNullMembersUnlessSerializingNulls() {
+		PreparedName name = new PreparedName("gone");
+		StringWriter out = new StringWriter();
+		JsonWriter writer = new JsonWriter(out);
+		writer.setSerializeNulls(false);
+		writer.beginObject();
+		writer.name(name).nullValue();
+		writer.name(new PreparedName("kept")).value(1);
+		writer.endObject();
+		assertEquals("{\"kept\":1}", out.toString());
+
+		out = new StringWriter();
+		writer = new JsonWriter(out);
+		writer.setSerializeNulls(true);
+		writer.beginObject();
+		writer.name(name).nullValue();
+		writer.endObject();
+		assertEquals("{\"gone\":null}", out.toString());
+	}
+
+	@Test
+	public void keepsTheName() {
+		PreparedName[] names = PreparedName.of("a", "b");
+		assertEquals("a", names[0].getName());
+		assertEquals("b", names[1].toString());
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void rejectsNull() {
+		new PreparedName(null);
+	}
+}
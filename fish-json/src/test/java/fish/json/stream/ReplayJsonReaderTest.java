@@ -0,0 +1,223 @@
+package fish.json.stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+
+import org.junit.Test;
+
+import fish.json.entity.JsonPrimitive;
+
+public class ReplayJsonReaderTest {
+
+	/** A replay of {@code json}'s leading members up to the one named {@code stop}, which is skipped. */
+	private static ReplayJsonReader replay(String json, String stop, int maxTokens) {
+		JsonReader in = new JsonReader(new StringReader(json));
+		in.beginObject();
+		ReplayJsonReader replay = new ReplayJsonReader(in, maxTokens);
+		while (in.hasNext()) {
+			String name = in.nextName();
+			if (name.equals(stop)) {
+				in.skipValue();
+				break;
+			}
+			replay.record(name);
+		}
+		return replay;
+	}
+
+	@Test
+	public void replaysRecordedMembersThenTheRest() {
+		ReplayJsonReader in = replay("{\"a\":[1,{\"b\":null}],\"c\":true,\"type\":\"x\",\"d\":\"e\"}", "type", 100);
+		assertEquals(JsonToken.BEGIN_OBJECT, in.peek());
+		in.beginObject();
+		assertEquals("a", in.nextName());
+		in.beginArray();
+		assertTrue(in.hasNext());
+		assertEquals(1, in.nextInt());
+		in.beginObject();
+		assertEquals("b", in.nextName());
+		in.nextNull();
+		assertFalse(in.hasNext());
+		in.endObject();
+		assertFalse(in.hasNext());
+		in.endArray();
+		assertEquals("c", in.nextName());
+		assertTrue(in.nextBoolean());
+		assertTrue(in.hasNext());
+		assertEquals("d", in.nextName());
+		assertEquals("e", in.nextString());
+		assertFalse(in.hasNext());
+		in.endObject();
+		assertEquals(JsonToken.END_DOCUMENT, in.peek());
+	}
+
+	@Test
+	public void replaysNumbersAsTheirText() {
+		ReplayJsonReader in = replay("{\"l\":9007199254740993,\"d\":1e2,\"i\":3.0,\"s\":2.5,\"t\":0}", "t", 100);
+		in.beginObject();
+		in.nextName();
+		assertEquals(9007199254740993L, in.nextLong());
+		in.nextName();
+		assertEquals(100, in.nextInt());
+		in.nextName();
+		assertEquals(JsonToken.NUMBER, in.peek());
+		assertEquals(3L, in.nextLong());
+		in.nextName();
+		try {
+			in.nextInt();
+			fail();
+		} catch (NumberFormatException expected) {
+		}
+	}
+
+	@Test
+	public void skipsReplayedValues() {
+		ReplayJsonReader in = replay("{\"a\":{\"b\":[1,2,[3]]},\"c\":4,\"t\":0,\"e\":5}", "t", 100);
+		in.beginObject();
+		assertEquals("a", in.nextName());
+		in.skipValue();
+		assertEquals("c", in.nextName());
+		assertEquals(4, in.nextInt());
+		assertEquals("e", in.nextName());
+		in.skipValue();
+		in.endObject();
+	}
+
+	@Test
+	public void matchesNamesAndStringsAgainstTables() {
+		NameTable table = new NameTable(new String[] { "one", "two" });
+		ReplayJsonReader in = replay("{\"two\":\"one\",\"x\":\"three\",\"t\":0,\"one\":\"two\"}", "t", 100);
+		in.beginObject();
+		assertEquals(1, in.nextNameIndex(table));
+		assertEquals(0, in.nextStringIndex(table));
+		assertEquals(-1, in.nextNameIndex(table));
+		assertEquals(-1, in.nextStringIndex(table));
+		assertEquals(0, in.nextNameIndex(table));
+		assertEquals(1, in.nextStringIndex(table));
+	}
+
+	@Test
+	public void promotesReplayedNamesToValues() {
+		ReplayJsonReader in = replay("{\"7\":\"seven\",\"t\":0}", "t", 100);
+		in.beginObject();
+		in.promoteNameToValue();
+		assertEquals(7, in.nextInt());
+		assertEquals("seven", in.nextString());
+		in.endObject();
+	}
+
+	@Test
+	public void copiesShortStringsAndRefusesLongOnes() {
+		ReplayJsonReader in = replay("{\"a\":\"abc\",\"b\":\"abcdefghij\",\"t\":0}", "t", 100);
+		in.beginObject();
+		in.nextName();
+		char[] dest = new char[4];
+		assertEquals(3, in.nextString(dest));
+		in.nextName();
+		assertEquals(-1, in.nextString(dest));
+		assertEquals("abcdefghij", in.nextString());
+		in.endObject();
+	}
+
+	@Test
+	public void decodesReplayedBase64() {
+		ReplayJsonReader in = replay("{\"a\":\"AP9/\",\"b\":\"Y\",\"t\":0}", "t", 100);
+		in.beginObject();
+		in.nextName();
+		assertArrayEquals(new byte[] { 0, -1, 127 }, in.nextBase64());
+		in.nextName();
+		try {
+			in.nextBase64();
+			fail();
+		} catch (JsonException expected) {
+		}
+	}
+
+	@Test
+	public void boundsTheBufferedTokens() {
+		replay("{\"a\":[1,2],\"t\":0}", "t", 5);
+		try {
+			replay("{\"a\":[1,2,3],\"t\":0}", "t", 5);
+			fail();
+		} catch (JsonException expected) {
+			assertTrue(expected.getMessage(), expected.getMessage().startsWith("More than 5 tokens buffered"));
+		}
+	}
+
+	@Test
+	public void rejectsMismatchedTokens() {
+		ReplayJsonReader in = replay("{\"a\":true,\"t\":0}", "t", 100);
+		try {
+			in.beginArray();
+			fail();
+		} catch (IllegalStateException expected) {
+		}
+		in.beginObject();
+		try {
+			in.nextString();
+			fail();
+		} catch (IllegalStateException expected) {
+		}
+	}
+
+	@Test
+	public void explainsOperationsThatNeedACharacterSource() {
+		ReplayJsonReader in = replay("{\"a\":true,\"t\":0}", "t", 100);
+		try {
+			in.reset(new StringReader("{}"));
+			fail();
+		} catch (JsonException expected) {
+			assertTrue(expected.getMessage(), expected.getMessage().contains("cannot be reset"));
+		}
+		try {
+			in.nextRecord();
+			fail();
+		} catch (JsonException expected) {
+			assertTrue(expected.getMessage(), expected.getMessage().contains("underlying reader"));
+		}
+		try {
+			in.nextRecordText(new StringBuilder());
+			fail();
+		} catch (JsonException expected) {
+			assertTrue(expected.getMessage(), expected.getMessage().contains("underlying reader"));
+		}
+		try {
+			in.setProjection(JsonProjection.of("$.a"));
+			fail();
+		} catch (JsonException expected) {
+			assertTrue(expected.getMessage(), expected.getMessage().contains("projection"));
+		}
+		in.beginObject();
+		assertEquals("a", in.nextName());
+		assertTrue(in.nextBoolean());
+	}
+
+	@Test
+	public void treeReadersExplainTheSameOperations() {
+		JsonTreeReader in = new JsonTreeReader(new JsonPrimitive(1));
+		try {
+			in.reset(new StringReader("1"));
+			fail();
+		} catch (JsonException expected) {
+			assertTrue(expected.getMessage(), expected.getMessage().contains("JsonTreeReader"));
+		}
+		try {
+			in.nextRecord();
+			fail();
+		} catch (JsonException expected) {
+			assertTrue(expected.getMessage(), expected.getMessage().contains("records"));
+		}
+		try {
+			in.setProjection(null);
+			fail();
+		} catch (JsonException expected) {
+			assertTrue(expected.getMessage(), expected.getMessage().contains("projection"));
+		}
+		assertEquals(1, in.nextInt());
+	}
+}
@@ -0,0 +1,30 @@
+package fish.json.stream;
+
+import java.io.Reader;
+
+/** Hands out one char per read, so that every token is split across buffer refills. */
+final class TrickleReader extends Reader {
+
+	private final String text;
+	private int pos;
+
+	TrickleReader(String text) {
+		this.text = text;
+	}
+
+	@Override
+	public int read(char[] cbuf, int off, int len) {
+		if (pos == text.length()) {
+			return -1;
+		}
+		if (len == 0) {
+			return 0;
+		}
+		cbuf[off] = text.charAt(pos++);
+		return 1;
+	}
+
+	@Override
+	public void close() {
+	}
+}
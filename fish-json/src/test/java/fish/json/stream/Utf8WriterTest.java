@@ -0,0 +1,223 @@
+package fish.json.stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import fish.json.base.Gson;
+import fish.json.base.GsonBuilder;
+
+public class Utf8WriterTest {
+
+	@Test
+	public void encodesEveryChar() throws IOException {
+		StringBuilder all = new StringBuilder();
+		for (int c = 0; c <= Character.MAX_VALUE; c++) {
+			if (!Character.isSurrogate((char) c)) {
+				all.append((char) c);
+			}
+		}
+		for (int c = Character.MIN_SUPPLEMENTARY_CODE_POINT; c <= Character.MAX_CODE_POINT; c += 97) {
+			all.appendCodePoint(c);
+		}
+		all.appendCodePoint(Character.MAX_CODE_POINT);
+		String s = all.toString();
+
+		Utf8Writer writer = new Utf8Writer();
+		writer.write(s);
+		assertArrayEquals(s.getBytes(StandardCharsets.UTF_8), writer.toByteArray());
+
+		writer = new Utf8Writer(16);
+		writer.write(s.toCharArray());
+		assertArrayEquals(s.getBytes(StandardCharsets.UTF_8), writer.toByteArray());
+	}
+
+	@Test
+	public void joinsSurrogatePairsSplitAcrossWrites() throws IOException {
+		String emoji = "a\ud83d\ude00b";
+		for (int mode = 0; mode < 3; mode++) {
+			Utf8Writer writer = new Utf8Writer();
+			write(writer, emoji.substring(0, 2), mode);
+			assertEquals(1, writer.size());
+			write(writer, emoji.substring(2), (mode + 1) % 3);
+			assertEquals(new String(writer.toByteArray(), StandardCharsets.UTF_8), emoji);
+		}
+	}
+
+	@Test
+	public void matchesGetBytesForRandomSplits() throws IOException {
+		char[] alphabet = { 'a', '"', '\u00e9', '\u07ff', '\u0800', '\u4e2d', '\uffff', '\ud800', '\udbff', '\udc00',
+				'\udfff' };
+		Random random = new Random(42);
+		for (int round = 0; round < 2000; round++) {
+			char[] chars = new char[random.nextInt(40)];
+			for (int i = 0; i < chars.length; i++) {
+				chars[i] = alphabet[random.nextInt(alphabet.length)];
+			}
+			String s = new String(chars);
+			Utf8Writer writer = new Utf8Writer(16);
+			int off = 0;
+			while (off < s.length()) {
+				int end = off + 1 + random.nextInt(s.length() - off);
+				write(writer, s.substring(off, end), random.nextInt(3));
+				off = end;
+			}
+			writer.close();
+			assertArrayEquals(s, s.getBytes(StandardCharsets.UTF_8), writer.toByteArray());
+		}
+	}
+
+	@Test
+	public void replacesUnpairedSurrogates() throws IOException {
+		assertEquals("?a", encode("\udc00a"));
+		assertEquals("?a", encode("\ud800a"));
+		assertEquals("??", encode("\ud800\ud800"));
+		assertEquals("?\ud83d\ude00", encode("\ud800\ud83d\ude00"));
+		// a high surrogate at the end is only known to be unpaired on close
+		Utf8Writer writer = new Utf8Writer();
+		writer.write("x\ud800");
+		assertEquals(1, writer.size());
+		writer.close();
+		assertEquals("x?", new String(writer.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void growsTheArray() throws IOException {
+		Utf8Writer writer = new Utf8Writer(1);
+		assertEquals(16, writer.buffer().length);
+		char[] chars = new char[1000];
+		Arrays.fill(chars, '\u4e2d');
+		writer.write(chars);
+		assertEquals(3000, writer.size());
+		assertTrue(writer.buffer().length >= 3000);
+		assertEquals(new String(chars), new String(writer.buffer(), 0, writer.size(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void resetKeepsTheArray() throws IOException {
+		Utf8Writer writer = new Utf8Writer();
+		writer.write("abc\ud83d");
+		byte[] buffer = writer.buffer();
+		writer.reset();
+		assertEquals(0, writer.size());
+		assertSame(buffer, writer.buffer());
+		writer.write("\ude00d");
+		assertEquals("?d", new String(writer.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void appends() throws IOException {
+		Utf8Writer writer = new Utf8Writer();
+		assertSame(writer, writer.append('\u00e9').append("xyz").append(new StringBuilder("0123"), 1, 3).append(null));
+		writer.write("--", 1, 1);
+		writer.write(new char[] { 'p', 'q', 'r' }, 1, 1);
+		writer.write(0x263a);
+		assertEquals("\u00e9xyz12null-q\u263a", new String(writer.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void buffersStreamOutput() throws IOException {
+		final int[] flushes = new int[1];
+		final boolean[] closed = new boolean[1];
+		ByteArrayOutputStream out = new ByteArrayOutputStream() {
+			@Override
+			public void flush() {
+				flushes[0]++;
+			}
+
+			@Override
+			public void close() {
+				closed[0] = true;
+			}
+		};
+		Utf8Writer writer = new Utf8Writer(out);
+		writer.write("abc");
+		assertEquals(0, out.size());
+		assertEquals(3, writer.size());
+
+		StringBuilder expected = new StringBuilder("abc");
+		for (int i = 0; i < 5000; i++) {
+			String chunk = i % 2 == 0 ? "\u00e9\ud83d\ude00" : "xy";
+			writer.write(chunk);
+			expected.append(chunk);
+		}
+		assertTrue(out.size() > 0);
+		assertTrue(writer.size() <= 8192);
+		assertEquals(0, flushes[0]);
+
+		writer.write('\ud800');
+		writer.flush();
+		assertEquals(1, flushes[0]);
+		assertEquals(0, writer.size());
+		assertEquals(expected.toString(), new String(out.toByteArray(), StandardCharsets.UTF_8));
+
+		writer.close();
+		assertTrue(closed[0]);
+		expected.append('?');
+		assertEquals(expected.toString(), new String(out.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void rejectsANullStream() {
+		try {
+			new Utf8Writer(null);
+			fail();
+		} catch (NullPointerException expected) {
+		}
+	}
+
+	@Test
+	public void gsonBytesMatchItsStrings() throws IOException {
+		Map<String, Object> value = new LinkedHashMap<String, Object>();
+		value.put("text", "<\u00e9\u4e2d\ud83d\ude00>&'\"\u2028\n");
+		value.put("nested", Arrays.asList(1, "\ud800", null));
+		char[] long_ = new char[20000];
+		Arrays.fill(long_, '\u00e9');
+		value.put("long", new String(long_));
+
+		List<Gson> gsons = Arrays.asList(new GsonBuilder().create(), new GsonBuilder().htmlSafe().create(),
+				new GsonBuilder().setPrettyPrinting().create());
+		for (Gson gson : gsons) {
+			byte[] expected = gson.toJson(value).getBytes(StandardCharsets.UTF_8);
+			assertArrayEquals(expected, gson.toJsonBytes(value));
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			gson.toJson(value, out);
+			assertArrayEquals(expected, out.toByteArray());
+			// a pooled buffer must not leak bytes into the next call
+			assertArrayEquals("null".getBytes(StandardCharsets.UTF_8), gson.toJsonBytes(null));
+		}
+	}
+
+	private static String encode(String s) throws IOException {
+		Utf8Writer writer = new Utf8Writer();
+		writer.write(s);
+		writer.close();
+		return new String(writer.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private static void write(Utf8Writer writer, String s, int mode) throws IOException {
+		if (mode == 0) {
+			for (int i = 0; i < s.length(); i++) {
+				writer.write(s.charAt(i));
+			}
+		} else if (mode == 1) {
+			char[] padded = ("#" + s + "#").toCharArray();
+			writer.write(padded, 1, s.length());
+		} else {
+			writer.write("#" + s + "#", 1, s.length());
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package fish.json.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ClassScannerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/** A jar with the given entries, each holding {@code size} zero bytes. */
+	private File jar(String name, int size, String... entries) throws Exception {
+		File file = new File(folder.getRoot(), name);
+		JarOutputStream out = new JarOutputStream(new FileOutputStream(file));
+		try {
+			Set<String> directories = new HashSet<String>();
+			for (String entry : entries) {
+				putDirectories(out, entry, directories);
+				out.putNextEntry(new JarEntry(entry));
+				out.write(new byte[size]);
+				out.closeEntry();
+			}
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+	/** Adds the entries of the directories above {@code entry} that are not in {@code written} yet. */
+	public static void putDirectories(JarOutputStream out, String entry, Set<String> written) throws IOException {
+		for (int slash = entry.indexOf('/'); slash >= 0; slash = entry.indexOf('/', slash + 1)) {
+			String directory = entry.substring(0, slash + 1);
+			if (written.add(directory)) {
+				out.putNextEntry(new JarEntry(directory));
+				out.closeEntry();
+			}
+		}
+	}
+
+	private static URLClassLoader loader(File... jars) throws Exception {
+		URL[] urls = new URL[jars.length];
+		for (int i = 0; i < jars.length; i++) {
+			urls[i] = jars[i].toURI().toURL();
+		}
+		return new URLClassLoader(urls, null);
+	}
+
+	@Test
+	public void scansDirectoriesRecursively() throws Exception {
+		Set<String> names = new TreeSet<String>();
+		ClassScanner.scan(getClass().getClassLoader(), "fish.json", names);
+		assertTrue(names.contains(ClassScanner.class.getName()));
+		assertTrue(names.contains(ClassScannerTest.class.getName()));
+		assertTrue(names.contains("fish.json.base.Gson"));
+		assertTrue(names.contains("fish.json.base.Gson$Resolution"));
+		for (String name : names) {
+			assertTrue(name, name.startsWith("fish.json."));
+			assertFalse(name, name.endsWith("package-info") || name.endsWith(".class"));
+		}
+	}
+
+	@Test
+	public void scansJarEntries() throws Exception {
+		File first = jar("first.jar", 1, "scan/a/A.class", "scan/a/b/B.class", "scan/a/package-info.class",
+				"scan/a/readme.txt", "scan/ab/C.class", "scan/D.class", "META-INF/versions/9/scan/a/E.class");
+		File second = jar("second.jar", 1, "scan/a/F.class");
+		URLClassLoader loader = loader(first, second);
+		try {
+			Set<String> names = new TreeSet<String>();
+			ClassScanner.scan(loader, "scan.a", names);
+			assertEquals("[scan.a.A, scan.a.F, scan.a.b.B]", names.toString());
+			names.clear();
+			ClassScanner.scan(loader, "scan.missing", names);
+			assertTrue(names.isEmpty());
+		} finally {
+			loader.close();
+		}
+	}
+
+	@Test
+	public void missesJarsWithoutDirectoryEntries() throws Exception {
+		File file = new File(folder.getRoot(), "flat.jar");
+		JarOutputStream out = new JarOutputStream(new FileOutputStream(file));
+		out.putNextEntry(new JarEntry("scan/a/A.class"));
+		out.closeEntry();
+		out.close();
+		URLClassLoader loader = loader(file);
+		try {
+			Set<String> names = new TreeSet<String>();
+			ClassScanner.scan(loader, "scan.a", names);
+			assertTrue(names.isEmpty());
+		} finally {
+			loader.close();
+		}
+	}
+
+	@Test
+	public void fingerprintsJarsOnly() throws Exception {
+		assertNull(ClassScanner.fingerprint(getClass().getClassLoader(), "fish.json.util"));
+
+		File file = jar("lib.jar", 1, "scan/a/A.class");
+		URLClassLoader loader = loader(file);
+		String before;
+		try {
+			before = ClassScanner.fingerprint(loader, "scan.a");
+			assertNotNull(before);
+			assertTrue(before, before.startsWith("scan.a;" + file.getPath() + "@"));
+			assertEquals(before, ClassScanner.fingerprint(loader, "scan.a"));
+			assertEquals("scan.missing", ClassScanner.fingerprint(loader, "scan.missing"));
+		} finally {
+			loader.close();
+		}
+
+		jar("lib.jar", 100, "scan/a/A.class", "scan/a/B.class");
+		loader = loader(file);
+		try {
+			assertNotEquals(before, ClassScanner.fingerprint(loader, "scan.a"));
+		} finally {
+			loader.close();
+		}
+	}
+}
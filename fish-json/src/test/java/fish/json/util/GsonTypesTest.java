@@ -0,0 +1,160 @@
+package fish.json.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.Test;
+
+public class GsonTypesTest {
+
+	static class Generic<T> {
+		T value;
+		List<T> list;
+		T[] array;
+		Map<String, ? extends T> map;
+	}
+
+	static class StringGeneric extends Generic<String> {
+	}
+
+	static class StringMap extends HashMap<String, Integer> {
+		private static final long serialVersionUID = 1L;
+	}
+
+	static class Fields {
+		List<String> strings;
+		List<String> sameStrings;
+		List<String>[] arrays;
+		Map<String, List<Integer>> nested;
+	}
+
+	private static Type fieldType(Class<?> owner, String name) throws NoSuchFieldException {
+		Field field = owner.getDeclaredField(name);
+		return field.getGenericType();
+	}
+
+	@Test
+	public void internsEqualTypesToOneInstance() throws Exception {
+		Type jdk = fieldType(Fields.class, "strings");
+		Type canonical = $Gson$Types.canonicalize(jdk);
+		assertNotSame(jdk, canonical);
+		assertSame(canonical, $Gson$Types.canonicalize(fieldType(Fields.class, "sameStrings")));
+		assertSame(canonical, $Gson$Types.newParameterizedTypeWithOwner(null, List.class, String.class));
+		assertSame(canonical, new TypeToken<List<String>>() {
+		}.getType());
+		assertTrue($Gson$Types.equals(jdk, canonical));
+		assertEquals(jdk.hashCode(), canonical.hashCode());
+	}
+
+	@Test
+	public void internedTypesDoNotKeepTheirClassLoadersAlive() throws Exception {
+		WeakReference<ClassLoader> loader = internTypeOfThrowawayLoader();
+		for (int i = 0; i < 50 && loader.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertNull(loader.get());
+	}
+
+	private static WeakReference<ClassLoader> internTypeOfThrowawayLoader() throws Exception {
+		URL classes = GsonTypesTest.class.getProtectionDomain().getCodeSource().getLocation();
+		URLClassLoader loader = new URLClassLoader(new URL[] { classes }, null);
+		Class<?> fields = loader.loadClass(Fields.class.getName());
+		assertNotSame(Fields.class, fields);
+		Type type = $Gson$Types.newParameterizedTypeWithOwner(null, List.class, fields);
+		assertSame(type, $Gson$Types.newParameterizedTypeWithOwner(null, List.class, fields));
+		loader.close();
+		return new WeakReference<ClassLoader>(loader);
+	}
+
+	@Test
+	public void canonicalizesArraysOfClassesToClasses() throws Exception {
+		assertSame(String[].class, $Gson$Types.arrayOf(String.class));
+		Type arrays = $Gson$Types.canonicalize(fieldType(Fields.class, "arrays"));
+		assertTrue(arrays instanceof GenericArrayType);
+		assertSame(arrays, $Gson$Types.arrayOf($Gson$Types.newParameterizedTypeWithOwner(null, List.class,
+				String.class)));
+		assertEquals(List[].class, $Gson$Types.getRawType(arrays));
+	}
+
+	@Test
+	public void formatsTypes() throws Exception {
+		assertEquals("java.util.Map<java.lang.String, java.util.List<java.lang.Integer>>",
+				$Gson$Types.typeToString($Gson$Types.canonicalize(fieldType(Fields.class, "nested"))));
+		assertEquals("? extends java.lang.Number", $Gson$Types.typeToString($Gson$Types.subtypeOf(Number.class)));
+		assertEquals("? super java.lang.Number", $Gson$Types.typeToString($Gson$Types.supertypeOf(Number.class)));
+	}
+
+	@Test
+	public void resolvesTypeVariablesAgainstSubclasses() throws Exception {
+		assertEquals(String.class, $Gson$Types.resolve(StringGeneric.class, StringGeneric.class,
+				fieldType(Generic.class, "value")));
+		assertSame($Gson$Types.newParameterizedTypeWithOwner(null, List.class, String.class),
+				$Gson$Types.resolve(StringGeneric.class, StringGeneric.class, fieldType(Generic.class, "list")));
+		assertEquals(String[].class, $Gson$Types.resolve(StringGeneric.class, StringGeneric.class,
+				fieldType(Generic.class, "array")));
+		Type map = $Gson$Types.resolve(StringGeneric.class, StringGeneric.class, fieldType(Generic.class, "map"));
+		assertEquals("java.util.Map<java.lang.String, ? extends java.lang.String>", $Gson$Types.typeToString(map));
+	}
+
+	@Test
+	public void resolvesTypeVariablesAgainstParameterizedTypes() throws Exception {
+		Type context = new TypeToken<Generic<Integer>>() {
+		}.getType();
+		assertEquals(Integer.class, $Gson$Types.resolve(context, Generic.class, fieldType(Generic.class, "value")));
+	}
+
+	@Test
+	public void leavesUnresolvableTypeVariables() throws Exception {
+		Type value = fieldType(Generic.class, "value");
+		assertTrue(value instanceof TypeVariable);
+		assertSame(value, $Gson$Types.resolve(Generic.class, Generic.class, value));
+		assertEquals(Object.class, $Gson$Types.getRawType(value));
+	}
+
+	@Test
+	public void findsCollectionAndMapTypeArguments() throws Exception {
+		Type strings = fieldType(Fields.class, "strings");
+		assertEquals(String.class, $Gson$Types.getCollectionElementType(strings, List.class));
+		Type raw = $Gson$Types.getCollectionElementType(ArrayList.class, ArrayList.class);
+		assertTrue(raw instanceof TypeVariable);
+		assertEquals(Object.class, $Gson$Types.getRawType(raw));
+
+		Type[] keyAndValue = $Gson$Types.getMapKeyAndValueTypes(StringMap.class, StringMap.class);
+		assertEquals(String.class, keyAndValue[0]);
+		assertEquals(Integer.class, keyAndValue[1]);
+		keyAndValue = $Gson$Types.getMapKeyAndValueTypes(Properties.class, Properties.class);
+		assertEquals(String.class, keyAndValue[1]);
+	}
+
+	@Test
+	public void tokensCompareByCanonicalType() throws Exception {
+		TypeToken<?> fromField = TypeToken.get(fieldType(Fields.class, "nested"));
+		TypeToken<Map<String, List<Integer>>> literal = new TypeToken<Map<String, List<Integer>>>() {
+		};
+		assertEquals(literal, fromField);
+		assertEquals(literal.hashCode(), fromField.hashCode());
+		assertSame(literal.getType(), fromField.getType());
+		assertEquals(Map.class, fromField.getRawType());
+		ParameterizedType parameterized = (ParameterizedType) TypeToken.getParameterized(Map.class, String.class,
+				$Gson$Types.newParameterizedTypeWithOwner(null, List.class, Integer.class)).getType();
+		assertSame(literal.getType(), parameterized);
+	}
+}